@@ -243,6 +243,44 @@ data class SimulatedSession(
     val pricePerKwh: Double,
     // Backend sets this true on the final frame (battery full / overtime) so the
     // app can tear down telemetry and advance to the payment screen.
+    val completed: Boolean = false,
+    // "KEYFRAME" on negotiated streams; absent from older backends.
+    val type: String? = null
+)
+
+/** Changed live fields since the last session frame; null means unchanged. */
+data class SimulatedSessionDelta(
+    val bookingId: Long,
+    val powerKw: Double? = null,
+    val energyDispensedKwh: Double? = null,
+    val socPercentage: Double? = null,
+    val totalCost: Double? = null,
+    val minutesRemaining: Double? = null
+) {
+    fun applyTo(session: SimulatedSession): SimulatedSession = session.copy(
+        powerKw = powerKw ?: session.powerKw,
+        energyDispensedKwh = energyDispensedKwh ?: session.energyDispensedKwh,
+        socPercentage = socPercentage ?: session.socPercentage,
+        totalCost = totalCost ?: session.totalCost,
+        minutesRemaining = minutesRemaining ?: session.minutesRemaining
+    )
+}
+
+/** One frame per station per tick on /topic/station/{stationId}. */
+data class StationTelemetry(
+    val stationId: Long,
+    val totalPowerKw: Double,
+    val chargingGuns: Int,
+    val freeGuns: Int,
+    val slots: List<SlotTelemetry> = emptyList()
+)
+
+/** Live state of one charging gun inside a [StationTelemetry] frame. */
+data class SlotTelemetry(
+    val slotId: Long,
+    val powerKw: Double,
+    val socPercentage: Double,
+    val minutesRemaining: Double,
     val completed: Boolean = false
 )
 
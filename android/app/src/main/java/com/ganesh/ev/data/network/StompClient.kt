@@ -16,6 +16,8 @@ import java.util.concurrent.TimeUnit
  * - Automatically reconnects with exponential backoff and re-subscribes all
  *   active topics, so losing the connection mid-charge resumes telemetry.
  * - disconnect() stops reconnection and tears down the socket.
+ * - Extra SUBSCRIBE headers (e.g. the telemetry rate) are kept per topic and
+ *   re-sent on every re-subscribe; resubscribe() swaps them in place.
  */
 class StompClient(private val url: String) {
 
@@ -31,6 +33,9 @@ class StompClient(private val url: String) {
             .pingInterval(20, TimeUnit.SECONDS)
             .build()
     private val listeners = ConcurrentHashMap<String, (String) -> Unit>()
+    private val subscribeHeaders = ConcurrentHashMap<String, Map<String, String>>()
+    // Server-side subscription id per topic, needed to UNSUBSCRIBE.
+    private val subscriptionIds = ConcurrentHashMap<String, String>()
 
     @Volatile private var isConnected = false
     @Volatile private var userClosed = false
@@ -108,28 +113,58 @@ class StompClient(private val url: String) {
         }
     }
 
-    fun subscribe(topic: String, callback: (String) -> Unit) {
+    fun subscribe(
+            topic: String,
+            headers: Map<String, String> = emptyMap(),
+            callback: (String) -> Unit
+    ) {
         listeners[topic] = callback
+        subscribeHeaders[topic] = headers
         if (isConnected) {
             sendSubscribeFrame(topic)
         }
         // Otherwise it will be (re)sent automatically once CONNECTED arrives.
     }
 
+    /** Replaces a topic's SUBSCRIBE headers, re-subscribing if currently connected. */
+    fun resubscribe(topic: String, headers: Map<String, String>) {
+        if (!listeners.containsKey(topic)) return
+        subscribeHeaders[topic] = headers
+        if (isConnected) {
+            sendUnsubscribeFrame(topic)
+            sendSubscribeFrame(topic)
+        }
+    }
+
     fun unsubscribe(topic: String) {
         listeners.remove(topic)
+        subscribeHeaders.remove(topic)
+        if (isConnected) sendUnsubscribeFrame(topic)
     }
 
     private fun sendSubscribeFrame(topic: String) {
         val id = UUID.randomUUID().toString()
-        val frame = "SUBSCRIBE\nid:$id\ndestination:$topic\nack:auto\n\n$nullTerminator"
+        subscriptionIds[topic] = id
+        val frame = buildString {
+            append("SUBSCRIBE\nid:$id\ndestination:$topic\nack:auto\n")
+            subscribeHeaders[topic]?.forEach { (name, value) -> append("$name:$value\n") }
+            append("\n")
+            append(nullTerminator)
+        }
         webSocket?.send(frame)
         Log.d("STOMP", "Subscribed to $topic")
     }
 
+    private fun sendUnsubscribeFrame(topic: String) {
+        val id = subscriptionIds.remove(topic) ?: return
+        webSocket?.send("UNSUBSCRIBE\nid:$id\n\n$nullTerminator")
+    }
+
     fun disconnect() {
         userClosed = true
         listeners.clear()
+        subscribeHeaders.clear()
+        subscriptionIds.clear()
         try {
             webSocket?.send("DISCONNECT\n\n$nullTerminator")
         } catch (_: Exception) {
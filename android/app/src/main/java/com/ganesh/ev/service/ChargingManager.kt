@@ -6,9 +6,11 @@ import android.util.Log
 import androidx.core.content.ContextCompat
 import com.ganesh.ev.BuildConfig
 import com.ganesh.ev.data.model.SimulatedSession
+import com.ganesh.ev.data.model.SimulatedSessionDelta
 import com.ganesh.ev.data.network.RetrofitClient
 import com.ganesh.ev.data.network.StompClient
 import com.google.gson.Gson
+import com.google.gson.JsonParser
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.SupervisorJob
@@ -25,6 +27,9 @@ import kotlinx.coroutines.launch
  * observes [telemetry], while [ChargingForegroundService] keeps the process
  * alive with an ongoing notification. The session only tears down on an explicit
  * stop/complete, not when the UI is destroyed.
+ *
+ * Telemetry is negotiated as keyframe + deltas: fast while the charging screen
+ * is visible, slow while it isn't (see [setForeground]).
  */
 object ChargingManager {
 
@@ -34,6 +39,13 @@ object ChargingManager {
 
     private var stompClient: StompClient? = null
 
+    // Requested telemetry rates; the backend clamps to its 5 s physics tick.
+    private const val FOREGROUND_INTERVAL_MS = 1_000L
+    private const val BACKGROUND_INTERVAL_MS = 30_000L
+
+    @Volatile
+    private var foreground = false
+
     private val _telemetry = MutableStateFlow<SimulatedSession?>(null)
     val telemetry: StateFlow<SimulatedSession?> = _telemetry.asStateFlow()
 
@@ -81,9 +93,9 @@ object ChargingManager {
         val client = StompClient(wsUrl)
         stompClient = client
         client.connect()
-        client.subscribe("/topic/session/$bookingId") { json ->
+        client.subscribe("/topic/session/$bookingId", telemetryHeaders()) { json ->
             try {
-                val t = gson.fromJson(json, SimulatedSession::class.java)
+                val t = parseTelemetry(json) ?: return@subscribe
                 _telemetry.value = t
                 if (t?.completed == true) {
                     // Backend finished the session — stop receiving (off the socket
@@ -98,6 +110,34 @@ object ChargingManager {
         }
     }
 
+    /**
+     * Switches the telemetry rate. Called by the charging screen as it becomes
+     * visible / hidden; the backend answers a re-subscribe with a fresh keyframe.
+     */
+    fun setForeground(visible: Boolean) {
+        if (foreground == visible) return
+        foreground = visible
+        val bookingId = activeBookingId
+        if (bookingId > 0) {
+            stompClient?.resubscribe("/topic/session/$bookingId", telemetryHeaders())
+        }
+    }
+
+    private fun telemetryHeaders(): Map<String, String> {
+        val interval = if (foreground) FOREGROUND_INTERVAL_MS else BACKGROUND_INTERVAL_MS
+        return mapOf("telemetry-interval" to interval.toString())
+    }
+
+    /** Keyframes replace the state; deltas merge onto the last keyframe (dropped until one arrives). */
+    private fun parseTelemetry(json: String): SimulatedSession? {
+        val type = JsonParser.parseString(json).asJsonObject.get("type")?.asString
+        if (type == "DELTA") {
+            val current = _telemetry.value ?: return null
+            return gson.fromJson(json, SimulatedSessionDelta::class.java).applyTo(current)
+        }
+        return gson.fromJson(json, SimulatedSession::class.java)
+    }
+
     /** Stops the session's charging on the backend (from the notification Stop action). */
     fun requestStop() {
         val sid = activeSessionId
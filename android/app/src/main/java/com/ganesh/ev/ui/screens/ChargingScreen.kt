@@ -33,7 +33,11 @@ import androidx.compose.ui.semantics.semantics
 import androidx.compose.ui.text.font.FontWeight
 import androidx.compose.ui.unit.dp
 import androidx.compose.ui.unit.sp
+import androidx.compose.ui.platform.LocalLifecycleOwner
+import androidx.lifecycle.Lifecycle
+import androidx.lifecycle.LifecycleEventObserver
 import androidx.lifecycle.viewmodel.compose.viewModel
+import com.ganesh.ev.service.ChargingManager
 import com.ganesh.ev.ui.theme.*
 import com.ganesh.ev.ui.viewmodel.ChargingUiState
 import com.ganesh.ev.ui.viewmodel.ChargingViewModel
@@ -76,6 +80,23 @@ fun ChargingScreen(
         }
     }
 
+    // Fast telemetry only while this screen is actually on screen.
+    val lifecycleOwner = LocalLifecycleOwner.current
+    DisposableEffect(lifecycleOwner) {
+        val observer = LifecycleEventObserver { _, event ->
+            when (event) {
+                Lifecycle.Event.ON_START -> ChargingManager.setForeground(true)
+                Lifecycle.Event.ON_STOP -> ChargingManager.setForeground(false)
+                else -> Unit
+            }
+        }
+        lifecycleOwner.lifecycle.addObserver(observer)
+        onDispose {
+            lifecycleOwner.lifecycle.removeObserver(observer)
+            ChargingManager.setForeground(false)
+        }
+    }
+
     // Pulsing animation for the progress ring
     val infiniteTransition = rememberInfiniteTransition(label = "pulse")
     val pulseAlpha by infiniteTransition.animateFloat(
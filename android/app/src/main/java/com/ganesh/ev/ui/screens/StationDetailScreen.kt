@@ -160,7 +160,7 @@ fun StationDetailScreen(
 fun ClayStationDetailContent(
         station: Station,
         slots: List<ChargerSlot>,
-        slotUpdates: Map<Long, SimulatedSession>,
+        slotUpdates: Map<Long, SlotTelemetry>,
         powerData: LivePowerData?,
         analyticsData: Map<Long, com.ganesh.ev.data.model.DispensaryAnalyticsDTO>,
         isLoadingAnalytics: Boolean,
@@ -378,7 +378,7 @@ private fun convertTo24Hour(hour: Int, period: String): Int {
 @Composable
 private fun ChargerTabContent(
         slots: List<ChargerSlot>,
-        slotUpdates: Map<Long, SimulatedSession>,
+        slotUpdates: Map<Long, SlotTelemetry>,
         analyticsData: Map<Long, com.ganesh.ev.data.model.DispensaryAnalyticsDTO>,
         isLoadingAnalytics: Boolean,
         onFetchAnalytics: (Long) -> Unit,
@@ -540,7 +540,7 @@ private fun FilterChipItem(label: String, selected: Boolean, onClick: () -> Unit
 private fun DispensaryCard(
         dispensary: Dispensary?,
         slots: List<ChargerSlot>,
-        slotUpdates: Map<Long, SimulatedSession>,
+        slotUpdates: Map<Long, SlotTelemetry>,
         station: Station?,
         analyticsData: Map<Long, com.ganesh.ev.data.model.DispensaryAnalyticsDTO>,
         isLoadingAnalytics: Boolean,
@@ -687,7 +687,7 @@ private fun DispensaryCard(
 //  Nested Connector Row (Child of Dispensary)
 // ═══════════════════════════════════════════════════════════════
 @Composable
-private fun ConnectorRow(slot: ChargerSlot, index: Int, liveData: SimulatedSession?) {
+private fun ConnectorRow(slot: ChargerSlot, index: Int, liveData: SlotTelemetry?) {
     val status = if (liveData != null) {
         if (liveData.completed) SlotStatus.PAYMENT_PENDING else SlotStatus.CHARGING
     } else {
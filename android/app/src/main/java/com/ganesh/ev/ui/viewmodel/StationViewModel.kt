@@ -7,7 +7,8 @@ import com.ganesh.ev.data.model.LivePowerData
 import com.ganesh.ev.data.model.Station
 import com.ganesh.ev.data.model.StationPin
 import com.ganesh.ev.data.model.StationWithScore
-import com.ganesh.ev.data.model.SimulatedSession
+import com.ganesh.ev.data.model.SlotTelemetry
+import com.ganesh.ev.data.model.StationTelemetry
 import com.ganesh.ev.data.local.StationCache
 import com.ganesh.ev.data.network.RetrofitClient
 import com.ganesh.ev.data.network.StompClient
@@ -36,8 +37,8 @@ class StationViewModel : ViewModel() {
     val uiState: StateFlow<StationUiState> = _uiState.asStateFlow()
 
     // Real-time slot status updates from WebSocket
-    private val _slotUpdates = MutableStateFlow<Map<Long, SimulatedSession>>(emptyMap())
-    val slotUpdates: StateFlow<Map<Long, SimulatedSession>> = _slotUpdates.asStateFlow()
+    private val _slotUpdates = MutableStateFlow<Map<Long, SlotTelemetry>>(emptyMap())
+    val slotUpdates: StateFlow<Map<Long, SlotTelemetry>> = _slotUpdates.asStateFlow()
 
     // Dispensary analytics state cache
     private val _dispensaryAnalytics = MutableStateFlow<Map<Long, com.ganesh.ev.data.model.DispensaryAnalyticsDTO>>(emptyMap())
@@ -385,10 +386,24 @@ class StationViewModel : ViewModel() {
         stompClient?.connect()
         stompClient?.subscribe("/topic/station/$stationId") { json ->
             try {
-                val data = gson.fromJson(json, SimulatedSession::class.java)
-                val current = _slotUpdates.value.toMutableMap()
-                current[data.slotId] = data
-                _slotUpdates.value = current
+                // Each frame carries every live gun at the station, so it
+                // replaces the previous state (guns missing from it are idle).
+                val frame = gson.fromJson(json, StationTelemetry::class.java)
+                _slotUpdates.value = frame.slots.associateBy { it.slotId }
+            } catch (e: Exception) {
+                // Ignore parse errors
+            }
+        }
+        // Latest sensor reading, pushed as it arrives (no live-power polling)
+        stompClient?.subscribe("/topic/station/$stationId/power") { json ->
+            try {
+                val powerData = gson.fromJson(json, LivePowerData::class.java)
+                val currentState = _uiState.value
+                if (currentState is StationUiState.StationDetailLoaded &&
+                                currentState.station.id == stationId
+                ) {
+                    _uiState.value = currentState.copy(powerData = powerData)
+                }
             } catch (e: Exception) {
                 // Ignore parse errors
             }
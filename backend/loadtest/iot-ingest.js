@@ -0,0 +1,46 @@
+// k6 load test for sensor ingestion: many boards posting readings in batches.
+//
+//   k6 run -e BASE_URL=http://localhost:8080 -e TOKEN=<JWT> -e STATIONS=3000 loadtest/iot-ingest.js
+//
+// Each VU plays one ESP32 board that sends BATCH one-second readings per POST
+// for a station id in 1..STATIONS (use ids that exist). Readings/second is
+// http_reqs rate * BATCH. Compare it with "written" from
+// GET /api/admin/iot/ingest over the same interval, and check that "refused"
+// stays at 0 and "buffered" does not keep growing.
+import http from 'k6/http';
+import { check, sleep } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const TOKEN = __ENV.TOKEN;
+const STATIONS = parseInt(__ENV.STATIONS || '3000', 10);
+const BATCH = parseInt(__ENV.BATCH || '5', 10);
+
+export const options = {
+  scenarios: {
+    boards: {
+      executor: 'constant-vus', vus: STATIONS, duration: __ENV.DURATION || '2m',
+    },
+  },
+  thresholds: {
+    'http_req_failed': ['rate<0.01'],
+  },
+};
+
+const params = {
+  headers: { 'Content-Type': 'application/json', Authorization: `Bearer ${TOKEN}` },
+};
+
+export default function () {
+  const stationId = ((__VU - 1) % STATIONS) + 1;
+  const readings = [];
+  for (let i = 0; i < BATCH; i++) {
+    readings.push({
+      stationId,
+      voltage: 225 + Math.random() * 10,
+      current: Math.random() * 32,
+    });
+  }
+  const res = http.post(`${BASE_URL}/api/iot/sensor-data/batch`, JSON.stringify(readings), params);
+  check(res, { 'batch 202': (r) => r.status === 202 });
+  sleep(BATCH);
+}
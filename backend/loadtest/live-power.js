@@ -0,0 +1,34 @@
+// k6 load test for the live-power endpoint at a fixed poll rate.
+//
+//   k6 run -e BASE_URL=http://localhost:8080 -e STATIONS=3000 loadtest/live-power.js
+//
+// Polls GET /api/iot/stations/{id}/live-power at RATE requests/second spread
+// over station ids 1..STATIONS (public endpoint, no token needed). Read p99
+// from http_req_duration; GET /api/admin/iot/live should show hits growing
+// and misses staying flat once every station has been seen.
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const STATIONS = parseInt(__ENV.STATIONS || '3000', 10);
+
+export const options = {
+  scenarios: {
+    polls: {
+      executor: 'constant-arrival-rate',
+      rate: parseInt(__ENV.RATE || '1000', 10), timeUnit: '1s',
+      duration: __ENV.DURATION || '2m',
+      preAllocatedVUs: 200, maxVUs: 1000,
+    },
+  },
+  summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+  thresholds: {
+    'http_req_failed': ['rate<0.01'],
+  },
+};
+
+export default function () {
+  const stationId = Math.floor(Math.random() * STATIONS) + 1;
+  const res = http.get(`${BASE_URL}/api/iot/stations/${stationId}/live-power`);
+  check(res, { 'live-power 200': (r) => r.status === 200 });
+}
@@ -0,0 +1,47 @@
+// k6 load test for the owner analytics endpoints over a large session history.
+//
+//   k6 run -e BASE_URL=http://localhost:8080 -e TOKEN=<owner JWT> -e OWNER_ID=<id> loadtest/owner-analytics.js
+//
+// Seed the history first (loadtest/seed-sessions.sql, e.g. 10M sessions) and
+// let the rollup rebuild finish. Each iteration loads the analytics screen:
+// summary, revenue trends and peak usage for DAYS days. Read p95/p99 per
+// endpoint from the tagged http_req_duration trends.
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const TOKEN = __ENV.TOKEN;
+const OWNER_ID = __ENV.OWNER_ID;
+const DAYS = __ENV.DAYS || '30';
+
+export const options = {
+  scenarios: {
+    dashboards: {
+      executor: 'constant-arrival-rate',
+      rate: parseInt(__ENV.RATE || '50', 10), timeUnit: '1s',
+      duration: __ENV.DURATION || '2m',
+      preAllocatedVUs: 50, maxVUs: 300,
+    },
+  },
+  summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+  thresholds: {
+    'http_req_failed': ['rate<0.01'],
+    'http_req_duration{endpoint:summary}': ['p(99)<200'],
+  },
+};
+
+const auth = { headers: { Authorization: `Bearer ${TOKEN}` } };
+
+export default function () {
+  const res = http.batch([
+    ['GET', `${BASE_URL}/api/analytics/summary/${OWNER_ID}?days=${DAYS}`, null,
+      { ...auth, tags: { endpoint: 'summary' } }],
+    ['GET', `${BASE_URL}/api/analytics/revenue-trends/${OWNER_ID}?days=${DAYS}`, null,
+      { ...auth, tags: { endpoint: 'revenue-trends' } }],
+    ['GET', `${BASE_URL}/api/analytics/peak-usage/${OWNER_ID}?days=${DAYS}`, null,
+      { ...auth, tags: { endpoint: 'peak-usage' } }],
+  ]);
+  check(res[0], { 'summary 200': (r) => r.status === 200 });
+  check(res[1], { 'revenue-trends 200': (r) => r.status === 200 });
+  check(res[2], { 'peak-usage 200': (r) => r.status === 200 });
+}
@@ -0,0 +1,37 @@
+-- Synthetic charging history for the owner analytics benchmark.
+--
+--   psql -v sessions=10000000 -v user_id=<driver id> -f loadtest/seed-sessions.sql
+--
+-- Spreads :sessions completed bookings and sessions round-robin over the
+-- existing charger slots, one 40-minute session per slot every hour going
+-- back from now, about 80% of them PAID. COMPLETED bookings are outside the
+-- booking-window exclusion constraint. Afterwards rebuild the rollups with
+-- POST /api/admin/analytics/rollups/rebuild and watch GET
+-- /api/admin/analytics/rollups until backfilling is false.
+\set ON_ERROR_STOP on
+
+CREATE TEMP TABLE seed_slots AS
+SELECT row_number() OVER (ORDER BY id) - 1 AS n, id FROM charger_slots;
+
+CREATE TEMP TABLE seed_rows AS
+SELECT g AS i,
+       s.id AS slot_id,
+       date_trunc('hour', now()::timestamp) - ((g / c.cnt) || ' hours')::interval AS start_time
+FROM generate_series(0, :sessions - 1) g
+CROSS JOIN (SELECT COUNT(*) AS cnt FROM seed_slots) c
+JOIN seed_slots s ON s.n = g % c.cnt;
+
+WITH b AS (
+    INSERT INTO bookings (user_id, slot_id, start_time, end_time, status, created_at)
+    SELECT :user_id, slot_id, start_time, start_time + interval '40 minutes', 'COMPLETED', start_time
+    FROM seed_rows
+    RETURNING id, start_time
+)
+INSERT INTO charging_sessions (booking_id, start_time, end_time, energy_kwh, total_cost, status, payment_status)
+SELECT id, start_time, start_time + interval '40 minutes',
+       round((5 + random() * 35)::numeric, 2), round((80 + random() * 600)::numeric, 2),
+       'COMPLETED', CASE WHEN random() < 0.8 THEN 'PAID' ELSE 'PENDING' END
+FROM b;
+
+ANALYZE bookings;
+ANALYZE charging_sessions;
@@ -0,0 +1,46 @@
+// k6 load test for the web tier: platform vs virtual request threads.
+//
+//   k6 run -e BASE_URL=http://localhost:8080 -e TOKEN=<driver JWT> -e USER_ID=<id> loadtest/web-tier.js
+//
+// Run it once against the app started with VIRTUAL_THREADS=false and once with
+// VIRTUAL_THREADS=true, same database and same app.nominatim.base-url stub
+// (never load-test the public Nominatim service), and compare the
+// http_req_duration percentiles and http_reqs rate per scenario.
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const TOKEN = __ENV.TOKEN;
+const USER_ID = __ENV.USER_ID || '1';
+const VUS = parseInt(__ENV.VUS || '2000', 10);
+
+export const options = {
+  scenarios: {
+    geocode: {
+      executor: 'constant-vus', vus: VUS / 2, duration: __ENV.DURATION || '2m',
+      exec: 'geocode',
+    },
+    bookings: {
+      executor: 'constant-vus', vus: VUS / 2, duration: __ENV.DURATION || '2m',
+      exec: 'bookings',
+    },
+  },
+  thresholds: {
+    'http_req_failed': ['rate<0.01'],
+  },
+};
+
+const auth = { headers: { Authorization: `Bearer ${TOKEN}` } };
+
+export function geocode() {
+  const res = http.get(`${BASE_URL}/api/geocode/search?q=Connaught%20Place`, {
+    tags: { endpoint: 'geocode' },
+  });
+  check(res, { 'geocode 200': (r) => r.status === 200 });
+}
+
+export function bookings() {
+  const res = http.get(`${BASE_URL}/api/bookings/user/${USER_ID}?page=0&size=10`,
+    Object.assign({ tags: { endpoint: 'bookings' } }, auth));
+  check(res, { 'bookings 200': (r) => r.status === 200 });
+}
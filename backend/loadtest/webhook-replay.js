@@ -0,0 +1,67 @@
+// k6 replay of Razorpay webhook deliveries, to measure sustained settlement
+// throughput.
+//
+//   k6 run -e BASE_URL=http://localhost:8080 -e WEBHOOK_SECRET=<RAZORPAY_WEBHOOK_SECRET> \
+//          -e ORDER_PREFIX=order_load_ -e ORDERS=5000 loadtest/webhook-replay.js
+//
+// Seed ORDERS charging sessions whose razorpay_order_id is ORDER_PREFIX + n
+// (n = 0..ORDERS-1) and payment_status PENDING before the run. Each iteration
+// posts a signed payment.captured for one order; DUPLICATE_RATE of them reuse
+// an earlier event id, like Razorpay's redeliveries. Compare the http_reqs rate
+// (ingestion) with the "applied" count from GET /api/admin/payments/webhooks
+// over the same interval (settlement), and watch "pending" to see whether
+// settlement keeps up.
+import http from 'k6/http';
+import crypto from 'k6/crypto';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const SECRET = __ENV.WEBHOOK_SECRET;
+const ORDER_PREFIX = __ENV.ORDER_PREFIX || 'order_load_';
+const ORDERS = parseInt(__ENV.ORDERS || '5000', 10);
+const DUPLICATE_RATE = parseFloat(__ENV.DUPLICATE_RATE || '0.1');
+
+export const options = {
+  scenarios: {
+    replay: {
+      executor: 'constant-arrival-rate',
+      rate: parseInt(__ENV.RATE || '500', 10), timeUnit: '1s',
+      duration: __ENV.DURATION || '1m',
+      preAllocatedVUs: 100, maxVUs: 500,
+    },
+  },
+  thresholds: {
+    'http_req_failed': ['rate<0.01'],
+  },
+};
+
+export default function () {
+  const n = Math.floor(Math.random() * ORDERS);
+  const duplicate = Math.random() < DUPLICATE_RATE;
+  const eventId = duplicate ? `evt_load_${n}` : `evt_load_${n}_${__VU}_${__ITER}`;
+  const body = JSON.stringify({
+    entity: 'event',
+    event: 'payment.captured',
+    payload: {
+      payment: {
+        entity: {
+          id: `pay_load_${n}`,
+          order_id: `${ORDER_PREFIX}${n}`,
+          amount: 25000,
+          currency: 'INR',
+          status: 'captured',
+          method: 'upi',
+        },
+      },
+    },
+    created_at: Math.floor(Date.now() / 1000),
+  });
+  const res = http.post(`${BASE_URL}/api/payments/webhook`, body, {
+    headers: {
+      'Content-Type': 'application/json',
+      'X-Razorpay-Signature': crypto.hmac('sha256', SECRET, body, 'hex'),
+      'x-razorpay-event-id': eventId,
+    },
+  });
+  check(res, { 'webhook 200': (r) => r.status === 200 });
+}
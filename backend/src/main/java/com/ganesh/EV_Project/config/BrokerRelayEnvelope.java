@@ -0,0 +1,38 @@
+package com.ganesh.EV_Project.config;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Wire format of a STOMP message relayed between nodes over Redis pub/sub:
+ * three newline-terminated header lines (origin node, destination, content
+ * type) followed by the raw payload bytes. Keeps the JSON body as-is instead
+ * of re-encoding it inside another JSON document.
+ */
+record BrokerRelayEnvelope(String origin, String destination, String contentType, byte[] payload) {
+
+    byte[] encode() {
+        byte[] head = (origin + "\n" + destination + "\n" + (contentType != null ? contentType : "") + "\n")
+                .getBytes(StandardCharsets.UTF_8);
+        byte[] out = new byte[head.length + payload.length];
+        System.arraycopy(head, 0, out, 0, head.length);
+        System.arraycopy(payload, 0, out, head.length, payload.length);
+        return out;
+    }
+
+    static BrokerRelayEnvelope decode(byte[] bytes) {
+        int[] ends = new int[3];
+        int found = 0;
+        for (int i = 0; i < bytes.length && found < 3; i++) {
+            if (bytes[i] == '\n') ends[found++] = i;
+        }
+        if (found < 3) {
+            throw new IllegalArgumentException("Malformed relay envelope");
+        }
+        String origin = new String(bytes, 0, ends[0], StandardCharsets.UTF_8);
+        String destination = new String(bytes, ends[0] + 1, ends[1] - ends[0] - 1, StandardCharsets.UTF_8);
+        String contentType = new String(bytes, ends[1] + 1, ends[2] - ends[1] - 1, StandardCharsets.UTF_8);
+        byte[] payload = new byte[bytes.length - ends[2] - 1];
+        System.arraycopy(bytes, ends[2] + 1, payload, 0, payload.length);
+        return new BrokerRelayEnvelope(origin, destination, contentType.isEmpty() ? null : contentType, payload);
+    }
+}
@@ -0,0 +1,42 @@
+package com.ganesh.EV_Project.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.util.UUID;
+
+/**
+ * Identity of this backend instance among replicas. Used to tag messages a node
+ * publishes to shared infrastructure (so it can ignore its own echoes) and to
+ * own cluster-wide leases.
+ *
+ * Configurable via app.cluster.node-id; defaults to hostname plus a random
+ * suffix, so a restarted container never impersonates its previous run.
+ */
+@Component
+@Slf4j
+public class ClusterNode {
+
+    private final String id;
+
+    public ClusterNode(@Value("${app.cluster.node-id:}") String configuredId) {
+        this.id = configuredId != null && !configuredId.isBlank() ? configuredId.trim() : generateId();
+        log.info("Cluster node id: {}", id);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    private static String generateId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "node";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
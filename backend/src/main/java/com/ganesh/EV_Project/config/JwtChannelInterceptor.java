@@ -5,13 +5,16 @@ import com.ganesh.EV_Project.model.Station;
 import com.ganesh.EV_Project.model.User;
 import com.ganesh.EV_Project.repository.BookingRepository;
 import com.ganesh.EV_Project.repository.StationRepository;
+import com.ganesh.EV_Project.service.TelemetrySubscriptionRegistry;
 import com.ganesh.EV_Project.service.UserService;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageChannel;
 import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.broker.AbstractBrokerMessageHandler;
 import org.springframework.messaging.simp.stomp.StompCommand;
 import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
-import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
 import org.springframework.messaging.support.MessageHeaderAccessor;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -24,23 +27,28 @@ import java.util.Map;
  * Authenticates the STOMP CONNECT frame using the JWT supplied in the
  * "Authorization: Bearer ..." native header, and authorizes each SUBSCRIBE
  * against the destination so a client can only receive its own telemetry.
+ * Also keeps the telemetry subscription registry in step with the client's
+ * SUBSCRIBE, UNSUBSCRIBE and DISCONNECT frames.
  */
 @Component
-public class JwtChannelInterceptor implements ChannelInterceptor {
+public class JwtChannelInterceptor implements ExecutorChannelInterceptor {
 
     private final JwtUtil jwtUtil;
     private final UserService userService;
     private final BookingRepository bookingRepository;
     private final StationRepository stationRepository;
+    private final TelemetrySubscriptionRegistry telemetrySubscriptions;
 
     public JwtChannelInterceptor(JwtUtil jwtUtil,
                                  UserService userService,
                                  BookingRepository bookingRepository,
-                                 StationRepository stationRepository) {
+                                 StationRepository stationRepository,
+                                 TelemetrySubscriptionRegistry telemetrySubscriptions) {
         this.jwtUtil = jwtUtil;
         this.userService = userService;
         this.bookingRepository = bookingRepository;
         this.stationRepository = stationRepository;
+        this.telemetrySubscriptions = telemetrySubscriptions;
     }
 
     @Override
@@ -56,10 +64,40 @@ public class JwtChannelInterceptor implements ChannelInterceptor {
             authenticate(accessor);
         } else if (StompCommand.SUBSCRIBE.equals(command)) {
             authorizeSubscription(accessor);
+        } else if (StompCommand.UNSUBSCRIBE.equals(command)) {
+            telemetrySubscriptions.onUnsubscribe(accessor.getSessionId(), accessor.getSubscriptionId());
+        } else if (StompCommand.DISCONNECT.equals(command)) {
+            // Also sent by the server when a socket closes without a DISCONNECT frame.
+            telemetrySubscriptions.onDisconnect(accessor.getSessionId());
         }
         return message;
     }
 
+    /**
+     * Once the broker has registered a session or station subscription, asks
+     * for a keyframe (or the station's current frame): sent any earlier, it
+     * would reach no subscriber.
+     */
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+        if (ex != null || !(handler instanceof AbstractBrokerMessageHandler)) {
+            return;
+        }
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || !StompCommand.SUBSCRIBE.equals(accessor.getCommand())) {
+            return;
+        }
+        String destination = accessor.getDestination();
+        if (destination != null && destination.startsWith("/topic/session/")) {
+            Long bookingId = parseTrailingId(destination);
+            if (bookingId != null) {
+                telemetrySubscriptions.requestKeyframe(bookingId);
+            }
+        } else if (destination != null && destination.matches("/topic/station/\\d+")) {
+            telemetrySubscriptions.requestStationFrame(parseTrailingId(destination));
+        }
+    }
+
     private void authenticate(StompHeaderAccessor accessor) {
         String token = extractToken(accessor);
         if (token == null) {
@@ -106,6 +144,9 @@ public class JwtChannelInterceptor implements ChannelInterceptor {
         Long userId = (Long) attrs.get("userId");
         boolean isAdmin = "ADMIN".equals(attrs.get("role"));
         if (isAdmin) {
+            if (destination.startsWith("/topic/session/")) {
+                registerTelemetryRate(accessor, parseTrailingId(destination));
+            }
             return; // admins may observe any topic
         }
 
@@ -115,6 +156,7 @@ public class JwtChannelInterceptor implements ChannelInterceptor {
             if (!bookingBelongsToUser(bookingId, userId)) {
                 throw new MessageDeliveryException("Not allowed to subscribe to this session");
             }
+            registerTelemetryRate(accessor, bookingId);
             return;
         }
 
@@ -136,8 +178,27 @@ public class JwtChannelInterceptor implements ChannelInterceptor {
             return;
         }
 
-        // Public aggregate topics (/topic/station/{id}, /topic/station/{id}/slots)
-        // are allowed for any authenticated user.
+        // Public aggregate topics (/topic/station/{id}, /topic/station/{id}/slots,
+        // /topic/station/{id}/power) are allowed for any authenticated user.
+    }
+
+    /**
+     * A "telemetry-interval" header (milliseconds) opts the driver into
+     * keyframe + delta frames at that rate; without it the session keeps
+     * receiving a full frame every tick.
+     */
+    private void registerTelemetryRate(StompHeaderAccessor accessor, Long bookingId) {
+        if (bookingId == null) {
+            return;
+        }
+        String interval = accessor.getFirstNativeHeader("telemetry-interval");
+        Long intervalMillis;
+        try {
+            intervalMillis = interval != null ? Long.valueOf(interval.trim()) : null;
+        } catch (NumberFormatException e) {
+            throw new MessageDeliveryException("Invalid telemetry-interval header");
+        }
+        telemetrySubscriptions.onSubscribe(accessor.getSessionId(), accessor.getSubscriptionId(), bookingId, intervalMillis);
     }
 
     private String extractToken(StompHeaderAccessor accessor) {
@@ -0,0 +1,51 @@
+package com.ganesh.EV_Project.config;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Redis pub/sub wiring for the multi-node broker mode (app.websocket.broker=redis).
+ * Relayed messages are dispatched on a single thread so each destination keeps
+ * its publish order (a delta must never overtake its keyframe).
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.websocket.broker", havingValue = "redis")
+public class RedisBrokerRelayConfig {
+
+    /**
+     * Single dispatch thread for relayed messages. A bean so the context shuts
+     * it down after the listener container that feeds it.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor brokerRelayInboundExecutor() {
+        ThreadPoolTaskExecutor inbound = new ThreadPoolTaskExecutor();
+        inbound.setCorePoolSize(1);
+        inbound.setMaxPoolSize(1);
+        inbound.setQueueCapacity(20000);
+        inbound.setThreadNamePrefix("broker-relay-in-");
+        inbound.initialize();
+        return inbound;
+    }
+
+    @Bean
+    public RedisMessageListenerContainer brokerRelayListenerContainer(
+            RedisConnectionFactory connectionFactory,
+            RedisBrokerRelaySubscriber subscriber,
+            @Qualifier("brokerRelayInboundExecutor") ThreadPoolTaskExecutor inbound,
+            @Value("${app.websocket.relay.channel:ev:stomp:topic}") String topicChannel,
+            @Value("${app.websocket.relay.control-channel:ev:stomp:control}") String controlChannel) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.setTaskExecutor(inbound);
+        container.addMessageListener(subscriber.topicListener(), new ChannelTopic(topicChannel));
+        container.addMessageListener(subscriber.controlListener(), new ChannelTopic(controlChannel));
+        return container;
+    }
+}
@@ -0,0 +1,216 @@
+package com.ganesh.EV_Project.config;
+
+import com.ganesh.EV_Project.service.TelemetrySubscriptionRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Outbound half of the Redis broker relay (app.websocket.broker=redis).
+ *
+ * Sits on the broker channel: every /topic message this node hands to its
+ * local simple broker is also queued for Redis pub/sub, so sockets connected
+ * to other replicas receive it. Publishing happens on a dedicated thread in
+ * pipelined batches, so physics shards and request threads never wait on a
+ * Redis round trip. If Redis falls behind, the queue is bounded and excess
+ * messages are dropped (telemetry is superseded by the next tick anyway).
+ *
+ * Messages that arrived from another node carry {@link #RELAYED_FROM_HEADER}
+ * and are not published again.
+ *
+ * Every /topic message goes to every node, whether or not any socket there
+ * subscribed to it; a node without subscribers drops it in its local broker.
+ * Cheap at a handful of replicas, but Redis and node inbound traffic grow
+ * with the node count.
+ */
+@Component
+@ConditionalOnProperty(name = "app.websocket.broker", havingValue = "redis")
+@Slf4j
+public class RedisBrokerRelayPublisher implements ChannelInterceptor {
+
+    public static final String RELAYED_FROM_HEADER = "relayedFrom";
+
+    private final StringRedisTemplate redis;
+    private final ClusterNode clusterNode;
+    private final TelemetrySubscriptionRegistry telemetrySubscriptions;
+
+    @Value("${app.websocket.relay.channel:ev:stomp:topic}")
+    private String topicChannel;
+
+    @Value("${app.websocket.relay.control-channel:ev:stomp:control}")
+    private String controlChannel;
+
+    @Value("${app.websocket.relay.queue-capacity:20000}")
+    private int queueCapacity;
+
+    @Value("${app.websocket.relay.batch-size:500}")
+    private int batchSize;
+
+    private BlockingQueue<byte[]> queue;
+    private Thread publisher;
+    private volatile boolean running;
+
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    public RedisBrokerRelayPublisher(StringRedisTemplate redis,
+                                     ClusterNode clusterNode,
+                                     TelemetrySubscriptionRegistry telemetrySubscriptions) {
+        this.redis = redis;
+        this.clusterNode = clusterNode;
+        this.telemetrySubscriptions = telemetrySubscriptions;
+    }
+
+    @PostConstruct
+    void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        publisher = new Thread(this::publishLoop, "broker-relay-out");
+        publisher.setDaemon(true);
+        publisher.start();
+        // The driver's socket and the simulator owning the session may be on
+        // different nodes; tell every node about negotiated telemetry rates.
+        telemetrySubscriptions.setRelayListener(new TelemetrySubscriptionRegistry.RelayListener() {
+            @Override
+            public void subscribed(String sessionId, String subscriptionId, Long bookingId, long intervalMillis) {
+                sendControl("S|" + bookingId + "|" + intervalMillis + "|" + sessionId + "|" + subscriptionId);
+            }
+
+            @Override
+            public void unsubscribed(String sessionId, String subscriptionId) {
+                sendControl("U|" + sessionId + "|" + subscriptionId);
+            }
+
+            @Override
+            public void disconnected(String sessionId) {
+                sendControl("D|" + sessionId);
+            }
+
+            @Override
+            public void keyframeRequested(Long bookingId) {
+                sendControl("K|" + bookingId);
+            }
+
+            @Override
+            public void stationFrameRequested(Long stationId) {
+                sendControl("F|" + stationId);
+            }
+        });
+        log.info("STOMP broker relay publishing to Redis channel '{}' as node {}", topicChannel, clusterNode.getId());
+    }
+
+    /**
+     * Publishes "origin|op|args" on the control channel; the subscription id
+     * is client-chosen, so it always comes last (see RedisBrokerRelaySubscriber).
+     */
+    private void sendControl(String command) {
+        try {
+            redis.convertAndSend(controlChannel, clusterNode.getId() + "|" + command);
+        } catch (Exception e) {
+            // Never fail the STOMP frame; the remote node falls back to full frames.
+            log.warn("Failed to relay telemetry subscription change '{}': {}", command, e.getMessage());
+        }
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        if (accessor.getMessageType() != SimpMessageType.MESSAGE) return message;
+        String destination = accessor.getDestination();
+        if (destination == null || !destination.startsWith("/topic/")) return message;
+        if (accessor.getHeader(RELAYED_FROM_HEADER) != null) return message;
+
+        byte[] payload;
+        Object body = message.getPayload();
+        if (body instanceof byte[] bytes) {
+            payload = bytes;
+        } else if (body instanceof String text) {
+            payload = text.getBytes(StandardCharsets.UTF_8);
+        } else {
+            return message; // the template always converts before sending; nothing else to relay
+        }
+        MimeType contentType = accessor.getContentType();
+        byte[] envelope = new BrokerRelayEnvelope(clusterNode.getId(), destination,
+                contentType != null ? contentType.toString() : null, payload).encode();
+        if (!queue.offer(envelope)) {
+            if (dropped.incrementAndGet() % 1000 == 1) {
+                log.warn("Broker relay queue full; dropped {} message(s) so far", dropped.get());
+            }
+        }
+        return message;
+    }
+
+    private void publishLoop() {
+        byte[] channel = topicChannel.getBytes(StandardCharsets.UTF_8);
+        List<byte[]> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                byte[] first = queue.poll(500, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                redis.executePipelined((RedisCallback<Object>) connection -> {
+                    publishAll(connection, channel, batch);
+                    return null;
+                });
+                published.addAndGet(batch.size());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                dropped.addAndGet(batch.size());
+                log.warn("Broker relay publish of {} message(s) failed: {}", batch.size(), e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private static void publishAll(RedisConnection connection, byte[] channel, List<byte[]> batch) {
+        for (byte[] envelope : batch) {
+            connection.publish(channel, envelope);
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        telemetrySubscriptions.setRelayListener(null);
+        if (publisher != null) {
+            try {
+                publisher.join(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        log.info("Broker relay stopped: {} published, {} dropped", published.get(), dropped.get());
+    }
+
+    public long getPublished() {
+        return published.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+}
@@ -0,0 +1,107 @@
+package com.ganesh.EV_Project.config;
+
+import com.ganesh.EV_Project.service.TelemetrySubscriptionRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Inbound half of the Redis broker relay (app.websocket.broker=redis).
+ *
+ * Receives /topic messages published by other nodes and hands them to this
+ * node's simple broker, which delivers them to whichever local sockets are
+ * subscribed. Echoes of this node's own messages are ignored, and re-injected
+ * messages are tagged so {@link RedisBrokerRelayPublisher} does not publish
+ * them again. Also applies telemetry rates negotiated on other nodes.
+ */
+@Component
+@ConditionalOnProperty(name = "app.websocket.broker", havingValue = "redis")
+@Slf4j
+public class RedisBrokerRelaySubscriber {
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ClusterNode clusterNode;
+    private final TelemetrySubscriptionRegistry telemetrySubscriptions;
+
+    private final AtomicLong delivered = new AtomicLong();
+
+    public RedisBrokerRelaySubscriber(SimpMessagingTemplate messagingTemplate,
+                                      ClusterNode clusterNode,
+                                      TelemetrySubscriptionRegistry telemetrySubscriptions) {
+        this.messagingTemplate = messagingTemplate;
+        this.clusterNode = clusterNode;
+        this.telemetrySubscriptions = telemetrySubscriptions;
+    }
+
+    /** Listener for the topic channel. */
+    MessageListener topicListener() {
+        return (redisMessage, pattern) -> {
+            try {
+                BrokerRelayEnvelope envelope = BrokerRelayEnvelope.decode(redisMessage.getBody());
+                if (clusterNode.getId().equals(envelope.origin())) return;
+                messagingTemplate.send(envelope.destination(), toLocalMessage(envelope));
+                delivered.incrementAndGet();
+            } catch (Exception e) {
+                log.warn("Dropped relayed broker message: {}", e.getMessage());
+            }
+        };
+    }
+
+    /**
+     * Listener for the control channel: telemetry subscription changes made on
+     * other nodes, "origin|S|bookingId|intervalMillis|session|subscription",
+     * "origin|U|session|subscription", "origin|D|session", "origin|K|bookingId"
+     * and "origin|F|stationId". Remote session ids are prefixed with their origin.
+     */
+    MessageListener controlListener() {
+        return (redisMessage, pattern) -> {
+            String[] parts = new String(redisMessage.getBody(), StandardCharsets.UTF_8).split("\\|", 3);
+            if (parts.length != 3 || clusterNode.getId().equals(parts[0])) return;
+            String origin = parts[0];
+            try {
+                switch (parts[1]) {
+                    case "S" -> {
+                        String[] args = parts[2].split("\\|", 4);
+                        if (args.length != 4) break;
+                        telemetrySubscriptions.applyRemoteSubscribe(origin + ":" + args[2], args[3],
+                                Long.parseLong(args[0]), Long.parseLong(args[1]));
+                    }
+                    case "U" -> {
+                        String[] args = parts[2].split("\\|", 2);
+                        if (args.length != 2) break;
+                        telemetrySubscriptions.applyRemoteUnsubscribe(origin + ":" + args[0], args[1]);
+                    }
+                    case "D" -> telemetrySubscriptions.applyRemoteDisconnect(origin + ":" + parts[2]);
+                    case "K" -> telemetrySubscriptions.applyKeyframeRequest(Long.parseLong(parts[2]));
+                    case "F" -> telemetrySubscriptions.applyStationFrameRequest(Long.parseLong(parts[2]));
+                    default -> log.warn("Ignored unknown relay control message '{}'", parts[1]);
+                }
+            } catch (NumberFormatException e) {
+                log.warn("Ignored malformed relay control message");
+            }
+        };
+    }
+
+    private Message<byte[]> toLocalMessage(BrokerRelayEnvelope envelope) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        if (envelope.contentType() != null) {
+            accessor.setContentType(MimeTypeUtils.parseMimeType(envelope.contentType()));
+        }
+        accessor.setHeader(RedisBrokerRelayPublisher.RELAYED_FROM_HEADER, envelope.origin());
+        return MessageBuilder.createMessage(envelope.payload(), accessor.getMessageHeaders());
+    }
+
+    public long getDelivered() {
+        return delivered.get();
+    }
+}
@@ -1,20 +1,74 @@
 package com.ganesh.EV_Project.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.AsyncConfigurer;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.SimpleAsyncTaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
+import java.util.concurrent.Executor;
+
 /**
  * Provides a multi-threaded scheduler so the 5s telemetry tick does not run on
  * the single default scheduler thread shared with booking/payment cleanup jobs.
  * A slow broadcast on one task can no longer stall the others.
+ *
+ * With {@code spring.threads.virtual.enabled=true} every scheduled run gets its
+ * own virtual thread instead, so there is no pool to size and a job blocked on
+ * the database or Redis holds no carrier thread. Tomcat request threads follow
+ * the same property through Boot's auto-configuration.
+ *
+ * {@code @Async} is enabled and wired here as well: Boot backs its
+ * {@code applicationTaskExecutor} off as soon as any other {@code Executor}
+ * bean exists (the simulator pool below), so the async executor is declared
+ * explicitly, on virtual threads when the property is set.
  */
 @Configuration
-public class SchedulingConfig {
+@EnableAsync
+public class SchedulingConfig implements AsyncConfigurer {
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Override
+    public Executor getAsyncExecutor() {
+        return asyncExecutor();
+    }
+
+    /** Backs {@code @Async}; a bean so the context drains and shuts it down on close. */
+    @Bean
+    public Executor asyncExecutor() {
+        if (virtualThreads) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("async-");
+            executor.setVirtualThreads(true);
+            executor.setTaskTerminationTimeout(10_000);
+            return executor;
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(8);
+        executor.setMaxPoolSize(8);
+        executor.setQueueCapacity(1000);
+        executor.setThreadNamePrefix("async-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(10);
+        executor.initialize();
+        return executor;
+    }
 
     @Bean
     public TaskScheduler taskScheduler() {
+        if (virtualThreads) {
+            SimpleAsyncTaskScheduler scheduler = new SimpleAsyncTaskScheduler();
+            scheduler.setVirtualThreads(true);
+            scheduler.setThreadNamePrefix("scheduled-");
+            scheduler.setTaskTerminationTimeout(10_000);
+            return scheduler;
+        }
         ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
         scheduler.setPoolSize(5);
         scheduler.setThreadNamePrefix("scheduled-");
@@ -22,4 +76,28 @@ public class SchedulingConfig {
         scheduler.initialize();
         return scheduler;
     }
+
+    /**
+     * Dedicated pool for the charging simulator's physics shards, sized to the
+     * available cores. Kept separate from the scheduler so a shard stuck on a
+     * slow broadcast or DB call never occupies a scheduler thread, and the queue
+     * is bounded to one pending run per core — the engine skips a shard whose
+     * previous run is still in flight instead of piling work up behind it.
+     *
+     * Stays on platform threads in virtual-thread mode: the shards are
+     * CPU-bound and the per-core bound is what keeps them from piling up.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor simulatorExecutor() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(cores);
+        executor.setMaxPoolSize(cores);
+        executor.setQueueCapacity(cores);
+        executor.setThreadNamePrefix("sim-shard-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(10);
+        executor.initialize();
+        return executor;
+    }
 }
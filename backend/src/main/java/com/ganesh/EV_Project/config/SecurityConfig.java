@@ -76,6 +76,9 @@ public class SecurityConfig {
                     // Public Auth Endpoints
                     auth.requestMatchers("/api/auth/**").permitAll();
                     auth.requestMatchers("/api/test/**").permitAll();
+
+                    // Razorpay webhooks authenticate with their HMAC signature
+                    auth.requestMatchers(HttpMethod.POST, "/api/payments/webhook").permitAll();
                     
                     // Station Discovery - GET is public, Mutations are SECURE
                     auth.requestMatchers(HttpMethod.GET, "/api/stations/**").permitAll();
@@ -1,5 +1,6 @@
 package com.ganesh.EV_Project.config;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
@@ -7,19 +8,30 @@ import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBr
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
 
+/**
+ * STOMP over WebSocket. Each node runs the in-memory simple broker for its own
+ * sockets; with app.websocket.broker=redis every /topic message is also relayed
+ * through Redis pub/sub so replicas behind a load balancer deliver each other's
+ * telemetry (see {@link RedisBrokerRelayPublisher}).
+ */
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     private final JwtChannelInterceptor jwtChannelInterceptor;
+    private final ObjectProvider<RedisBrokerRelayPublisher> relayPublisher;
 
-    public WebSocketConfig(JwtChannelInterceptor jwtChannelInterceptor) {
+    public WebSocketConfig(JwtChannelInterceptor jwtChannelInterceptor,
+                           ObjectProvider<RedisBrokerRelayPublisher> relayPublisher) {
         this.jwtChannelInterceptor = jwtChannelInterceptor;
+        this.relayPublisher = relayPublisher;
     }
 
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
         config.enableSimpleBroker("/topic");
+        // Relay mode: mirror locally published /topic messages to the other nodes.
+        relayPublisher.ifAvailable(publisher -> config.configureBrokerChannel().interceptors(publisher));
         config.setApplicationDestinationPrefixes("/app");
     }
 
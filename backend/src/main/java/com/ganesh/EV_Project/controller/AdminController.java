@@ -3,6 +3,16 @@ package com.ganesh.EV_Project.controller;
 import com.ganesh.EV_Project.enums.UserStatus;
 import com.ganesh.EV_Project.model.User;
 import com.ganesh.EV_Project.payload.APIResponse;
+import com.ganesh.EV_Project.service.AnalyticsRollupService;
+import com.ganesh.EV_Project.service.ChargingSimulatorService;
+import com.ganesh.EV_Project.service.LatestReadingCache;
+import com.ganesh.EV_Project.service.OutboxRelay;
+import com.ganesh.EV_Project.service.PaymentWebhookService;
+import com.ganesh.EV_Project.service.PushNotificationHandler;
+import com.ganesh.EV_Project.service.RazorpayGatewayClient;
+import com.ganesh.EV_Project.service.SensorIngestService;
+import com.ganesh.EV_Project.service.SensorRollupService;
+import com.ganesh.EV_Project.service.SessionSnapshotWriter;
 import com.ganesh.EV_Project.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -17,6 +27,36 @@ public class AdminController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private ChargingSimulatorService simulatorService;
+
+    @Autowired
+    private SessionSnapshotWriter snapshotWriter;
+
+    @Autowired
+    private PushNotificationHandler pushNotificationHandler;
+
+    @Autowired
+    private OutboxRelay outboxRelay;
+
+    @Autowired
+    private RazorpayGatewayClient razorpayGatewayClient;
+
+    @Autowired
+    private PaymentWebhookService paymentWebhookService;
+
+    @Autowired
+    private SensorIngestService sensorIngestService;
+
+    @Autowired
+    private SensorRollupService sensorRollupService;
+
+    @Autowired
+    private LatestReadingCache latestReadingCache;
+
+    @Autowired
+    private AnalyticsRollupService analyticsRollupService;
+
     /** Approves a station owner whose email is verified and pending admin approval. */
     @PutMapping("/users/{userId}/approve")
     @PreAuthorize("hasRole('ADMIN')")
@@ -44,4 +84,130 @@ public class AdminController {
                 .message("Pump Owner approved successfully.")
                 .build());
     }
+
+    /** Physics tick health: active sessions, shard sizes/durations, jitter and overruns. */
+    @GetMapping("/simulator/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> simulatorStats() {
+        return ResponseEntity.ok(APIResponse.builder()
+                .success(true)
+                .message("Simulator tick stats")
+                .data(simulatorService.getTickStats())
+                .build());
+    }
+
+    /** Write-behind snapshot queue: pending rows, flush latency and drops. */
+    @GetMapping("/simulator/snapshots")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> snapshotStats() {
+        return ResponseEntity.ok(APIResponse.builder()
+                .success(true)
+                .message("Snapshot writer stats")
+                .data(snapshotWriter.getStats())
+                .build());
+    }
+
+    /** Push outbox: queue depth, oldest pending age, delivery latency, retries and pruned tokens. */
+    @GetMapping("/notifications/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> notificationStats() {
+        return ResponseEntity.ok(APIResponse.builder()
+                .success(true)
+                .message("Notification dispatch stats")
+                .data(pushNotificationHandler.getStats())
+                .build());
+    }
+
+    /** Post-commit side effects (payment orders, WebSocket messages, pushes): backlog, retries, failures. */
+    @GetMapping("/outbox/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> outboxStats() {
+        return ResponseEntity.ok(APIResponse.builder()
+                .success(true)
+                .message("Outbox relay stats")
+                .data(outboxRelay.getStats())
+                .build());
+    }
+
+    /** Razorpay client health: circuit state, call count, failures and latency. */
+    @GetMapping("/payments/gateway")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> paymentGatewayStats() {
+        return ResponseEntity.ok(APIResponse.builder()
+                .success(true)
+                .message("Payment gateway stats")
+                .data(razorpayGatewayClient.getStats())
+                .build());
+    }
+
+    /** Webhook ingestion (received, duplicates, rejected) and settlement batch stats. */
+    @GetMapping("/payments/webhooks")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> paymentWebhookStats() {
+        return ResponseEntity.ok(APIResponse.builder()
+                .success(true)
+                .message("Payment webhook stats")
+                .data(paymentWebhookService.getStats())
+                .build());
+    }
+
+    /** IoT ingestion buffer: depth, refused readings and batch write latency. */
+    @GetMapping("/iot/ingest")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> iotIngestStats() {
+        return ResponseEntity.ok(APIResponse.builder()
+                .success(true)
+                .message("IoT ingest stats")
+                .data(sensorIngestService.getStats())
+                .build());
+    }
+
+    /** Sensor rollups: newest 1m/1h buckets and the last run's size and duration. */
+    @GetMapping("/iot/rollups")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> iotRollupStats() {
+        return ResponseEntity.ok(APIResponse.builder()
+                .success(true)
+                .message("IoT rollup stats")
+                .data(sensorRollupService.getStats())
+                .build());
+    }
+
+    /** Live-power cache: cached stations, hit/miss counts and STOMP pushes. */
+    @GetMapping("/iot/live")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> iotLiveStats() {
+        return ResponseEntity.ok(APIResponse.builder()
+                .success(true)
+                .message("IoT live cache stats")
+                .data(latestReadingCache.getStats())
+                .build());
+    }
+
+    /** Owner analytics rollups: row count, pending days, recompute and backfill progress. */
+    @GetMapping("/analytics/rollups")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> analyticsRollupStats() {
+        return ResponseEntity.ok(APIResponse.builder()
+                .success(true)
+                .message("Analytics rollup stats")
+                .data(analyticsRollupService.getStats())
+                .build());
+    }
+
+    /** Rebuilds the owner analytics rollups from every charging session, in the background. */
+    @PostMapping("/analytics/rollups/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> rebuildAnalyticsRollups() {
+        if (!analyticsRollupService.startBackfill()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(APIResponse.builder()
+                    .success(false)
+                    .message("A rollup rebuild is already running")
+                    .build());
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(APIResponse.builder()
+                .success(true)
+                .message("Rollup rebuild started")
+                .build());
+    }
 }
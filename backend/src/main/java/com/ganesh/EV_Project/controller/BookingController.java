@@ -2,9 +2,11 @@ package com.ganesh.EV_Project.controller;
 
 import com.ganesh.EV_Project.model.Booking;
 import com.ganesh.EV_Project.dto.BookingRequest;
+import com.ganesh.EV_Project.dto.ReservationRequest;
 import com.ganesh.EV_Project.model.User;
 import com.ganesh.EV_Project.service.UserService;
 import com.ganesh.EV_Project.service.BookingService;
+import com.ganesh.EV_Project.service.ReservationService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -24,6 +26,9 @@ public class BookingController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private ReservationService reservationService;
+
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<List<Booking>> getAllBookings() {
@@ -117,6 +122,25 @@ public class BookingController {
         return new ResponseEntity<>(savedBooking, HttpStatus.CREATED);
     }
 
+    // Advance reservation of a connector for a future time window. Cancel it
+    // through the usual cancel endpoint.
+    @PostMapping("/reservations")
+    public ResponseEntity<?> createReservation(@jakarta.validation.Valid @RequestBody ReservationRequest request,
+                                               Authentication authentication) {
+        User currentUser = userService.getAuthenticatedUser(authentication);
+        if (currentUser == null) {
+            return new ResponseEntity<>("Unauthorized", HttpStatus.UNAUTHORIZED);
+        }
+        // Always bind the reservation to the authenticated user; never trust body userId
+        request.setUserId(currentUser.getId());
+        // As for Book Now, only admins may pick the connector
+        if (request.getSlotId() != null && currentUser.getRole() != User.Role.ADMIN) {
+            request.setSlotId(null);
+        }
+        Booking savedBooking = reservationService.reserve(request);
+        return new ResponseEntity<>(savedBooking, HttpStatus.CREATED);
+    }
+
     @PutMapping("/{bookingId}/cancel")
     public ResponseEntity<String> cancelBooking(@PathVariable Long bookingId,
                                                 Authentication authentication) {
@@ -66,7 +66,18 @@ public class ChargingSessionController {
     private com.ganesh.EV_Project.service.PushNotificationService pushNotificationService;
 
     @Autowired
-    private com.ganesh.EV_Project.service.ChargingCompletionService completionService;
+    private com.ganesh.EV_Project.service.PaymentOrderHandler paymentOrderHandler;
+
+    @Autowired
+    private com.ganesh.EV_Project.service.AnalyticsRollupService analyticsRollupService;
+
+    // How long the stop endpoint waits for the Razorpay order created after commit
+    @Value("${app.outbox.stop-order-wait-ms:5000}")
+    private long stopOrderWaitMs;
+
+    // "async": return without waiting; the order id arrives on /topic/user/{id}/bookings
+    @Value("${app.payments.order-mode:sync}")
+    private String orderMode;
 
     /** True if the user owns the booking behind this session, or is an admin. */
     private boolean ownsBooking(User user, Booking booking) {
@@ -132,6 +143,7 @@ public class ChargingSessionController {
                     .build();
 
             ChargingSession savedSession = chargingSessionRepository.save(session);
+            analyticsRollupService.markDirty(savedSession.getStartTime());
 
             // ── TRIGGER SMART SIMULATION ──
             simulatorService.startSimulation(booking.getId());
@@ -182,13 +194,17 @@ public class ChargingSessionController {
             }
 
             // ── HALT SMART SIMULATION ──
-            ChargingSimulatorService.SimulatedSession finalVitals = simulatorService.stopSimulation(session.getBooking().getId());
-
-            // Finalize via the shared, idempotent service (same path the simulator
-            // uses to auto-complete a full battery while the app is closed).
-            Double finalEnergy = (finalVitals != null) ? finalVitals.getEnergyDispensedKwh() : null;
-            Double finalCost = (finalVitals != null) ? finalVitals.getTotalCost() : null;
-            ChargingSession savedSession = completionService.finalizeSession(session.getId(), finalEnergy, finalCost);
+            // Finalized from live vitals by whichever node simulates the session,
+            // through the shared, idempotent service (same path the simulator uses
+            // to auto-complete a full battery while the app is closed).
+            ChargingSession savedSession = simulatorService.stopAndFinalize(session.getId(), session.getBooking().getId());
+            // The order is created off the finalize transaction; in sync mode wait
+            // briefly so the response can usually carry it. Otherwise (or if it is
+            // late) the app gets it over WebSocket or when it reloads the session.
+            if (savedSession.getRazorpayOrderId() == null && !"async".equalsIgnoreCase(orderMode)) {
+                paymentOrderHandler.awaitOrder(savedSession.getId(), java.time.Duration.ofMillis(stopOrderWaitMs))
+                        .ifPresent(savedSession::setRazorpayOrderId);
+            }
 
             return ResponseEntity.ok(APIResponse.builder()
                     .success(true)
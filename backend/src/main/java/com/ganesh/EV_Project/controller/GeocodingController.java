@@ -26,13 +26,17 @@ public class GeocodingController {
     @Value("${app.nominatim.user-agent:PlugsyEV/1.0 (support@plugsy.in)}")
     private String userAgent;
 
+    // Overridable so load tests can point at a local stub instead of the public service
+    @Value("${app.nominatim.base-url:https://nominatim.openstreetmap.org}")
+    private String baseUrl;
+
     private final HttpClient http = HttpClient.newBuilder()
             .connectTimeout(Duration.ofSeconds(5))
             .build();
 
     @GetMapping("/search")
     public ResponseEntity<String> search(@RequestParam String q) {
-        String url = "https://nominatim.openstreetmap.org/search?q="
+        String url = baseUrl + "/search?q="
                 + URLEncoder.encode(q, StandardCharsets.UTF_8)
                 + "&format=json&countrycodes=in&limit=5&addressdetails=1";
         return proxy(url);
@@ -40,7 +44,7 @@ public class GeocodingController {
 
     @GetMapping("/reverse")
     public ResponseEntity<String> reverse(@RequestParam double lat, @RequestParam double lon) {
-        String url = "https://nominatim.openstreetmap.org/reverse?lat=" + lat + "&lon=" + lon
+        String url = baseUrl + "/reverse?lat=" + lat + "&lon=" + lon
                 + "&format=json&addressdetails=1";
         return proxy(url);
     }
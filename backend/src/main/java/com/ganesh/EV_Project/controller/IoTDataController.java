@@ -1,15 +1,27 @@
 package com.ganesh.EV_Project.controller;
 
+import com.ganesh.EV_Project.dto.LivePowerDTO;
+import com.ganesh.EV_Project.dto.SensorHistoryDTO;
+import com.ganesh.EV_Project.dto.SensorReadingRequest;
 import com.ganesh.EV_Project.model.IoTSensorData;
 import com.ganesh.EV_Project.model.Station;
 import com.ganesh.EV_Project.payload.APIResponse;
 import com.ganesh.EV_Project.repository.IoTSensorDataRepository;
 import com.ganesh.EV_Project.repository.StationRepository;
+import com.ganesh.EV_Project.service.LatestReadingCache;
+import com.ganesh.EV_Project.service.LoadForecastService;
+import com.ganesh.EV_Project.service.SensorHistoryService;
+import com.ganesh.EV_Project.service.SensorIngestService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -23,62 +35,118 @@ public class IoTDataController {
     @Autowired
     private StationRepository stationRepository;
 
-    // Endpoint for ESP32 to push data
-    @PostMapping("/sensor-data")
-    public ResponseEntity<APIResponse> receiveSensorData(@RequestBody Map<String, Object> data) {
-        try {
-            Long stationId = Long.parseLong(data.get("stationId").toString());
-            Double voltage = Double.parseDouble(data.get("voltage").toString());
-            Double current = Double.parseDouble(data.get("current").toString());
+    @Autowired
+    private SensorIngestService sensorIngestService;
 
-            // Calculate Power (Eq. 5: P = V * I)
-            Double power = voltage * current;
+    @Autowired
+    private SensorHistoryService sensorHistoryService;
 
-            Station station = stationRepository.findById(stationId)
-                    .orElseThrow(() -> new RuntimeException("Station not found"));
+    @Autowired
+    private LatestReadingCache latestReadingCache;
 
-            IoTSensorData sensorData = IoTSensorData.builder()
-                    .station(station)
-                    .voltage(voltage)
-                    .current(current)
-                    .power(power)
-                    .timestamp(LocalDateTime.now())
-                    .build();
+    @Autowired
+    private LoadForecastService loadForecastService;
 
-            // Update Station's lastUsedTime
-            station.setLastUsedTime(LocalDateTime.now());
-            stationRepository.save(station);
+    @Value("${app.iot.ingest.max-batch:1000}")
+    private int maxBatch;
 
-            ioTRepository.save(sensorData);
+    // Endpoint for ESP32 to push data. Readings are buffered and written in
+    // batches (see SensorIngestService); power is computed there (Eq. 5: P = V * I).
+    @PostMapping("/sensor-data")
+    public ResponseEntity<APIResponse> receiveSensorData(@RequestBody SensorReadingRequest reading) {
+        SensorIngestService.Result result = sensorIngestService.submit(List.of(reading));
+        if (result.invalid() > 0) {
+            return ResponseEntity.badRequest()
+                    .body(new APIResponse("Error processing data: stationId, voltage and current are required", false));
+        }
+        if (result.refused() > 0) {
+            return busy(result);
+        }
+        return ResponseEntity.ok(new APIResponse("Data received successfully", true));
+    }
 
-            return ResponseEntity.ok(new APIResponse("Data received successfully", true));
-        } catch (Exception e) {
-            return ResponseEntity.badRequest().body(new APIResponse("Error processing data: " + e.getMessage(), false));
+    // Batch variant for boards that buffer a few seconds of readings per POST.
+    @PostMapping("/sensor-data/batch")
+    public ResponseEntity<APIResponse> receiveSensorDataBatch(@RequestBody List<SensorReadingRequest> readings) {
+        if (readings.size() > maxBatch) {
+            return ResponseEntity.badRequest()
+                    .body(new APIResponse("At most " + maxBatch + " readings per batch", false));
+        }
+        SensorIngestService.Result result = sensorIngestService.submit(readings);
+        if (result.refused() > 0) {
+            return busy(result);
         }
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(new APIResponse(true, "Readings received", result));
     }
 
-    // Endpoint for Android app to view live data
+    // Buffer full: tell the board to resend the refused readings shortly.
+    private ResponseEntity<APIResponse> busy(SensorIngestService.Result result) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(new APIResponse(false, "Ingestion busy, retry shortly", result));
+    }
+
+    // Endpoint for Android app to view live data. Served from the in-memory
+    // latest-reading cache; the app can also subscribe to
+    // /topic/station/{stationId}/power instead of polling.
     @GetMapping("/stations/{stationId}/live-power")
     public ResponseEntity<APIResponse> getLivePowerData(@PathVariable Long stationId) {
-        Station station = stationRepository.findById(stationId)
-                .orElseThrow(() -> new RuntimeException("Station not found"));
-
-        Optional<IoTSensorData> latestData = ioTRepository.findTopByStationOrderByTimestampDesc(station);
-
-        if (latestData.isPresent()) {
-            return ResponseEntity.ok(new APIResponse(true, "Latest power data fetched", latestData.get()));
-        } else {
-            // Return dummy/simulated data if no sensor data exists yet (for demo/paper
-            // simulation)
-            Map<String, Object> dummyData = Map.of(
-                    "stationId", stationId,
-                    "voltage", 230.0,
-                    "current", 0.0,
-                    "power", 0.0,
-                    "timestamp", LocalDateTime.now(),
-                    "forecastedLoad", 0.0 // Eq. 6 placeholder
-            );
-            return ResponseEntity.ok(new APIResponse(true, "No live data, returning baseline", dummyData));
+        LivePowerDTO cached = latestReadingCache.get(stationId);
+        if (cached != null) {
+            return ResponseEntity.ok(new APIResponse(true, "Latest power data fetched", cached));
+        }
+
+        if (!latestReadingCache.isKnownEmpty(stationId)) {
+            // Not seen since startup: look it up once and remember the answer
+            Station station = stationRepository.findById(stationId)
+                    .orElseThrow(() -> new RuntimeException("Station not found"));
+
+            Optional<IoTSensorData> latestData = ioTRepository.findTopByStationOrderByTimestampDesc(station);
+            if (latestData.isPresent()) {
+                IoTSensorData d = latestData.get();
+                latestReadingCache.put(stationId, d.getVoltage(), d.getCurrent(), d.getPower(), d.getTimestamp());
+                return ResponseEntity.ok(new APIResponse(true, "Latest power data fetched",
+                        latestReadingCache.get(stationId)));
+            }
+            latestReadingCache.markEmpty(stationId);
         }
+
+        // Return dummy/simulated data if no sensor data exists yet (for demo/paper
+        // simulation)
+        Map<String, Object> dummyData = Map.of(
+                "stationId", stationId,
+                "voltage", 230.0,
+                "current", 0.0,
+                "power", 0.0,
+                "timestamp", LocalDateTime.now(),
+                "forecastedLoad", 0.0 // Eq. 6 placeholder
+        );
+        return ResponseEntity.ok(new APIResponse(true, "No live data, returning baseline", dummyData));
+    }
+
+    // Sliding-window load statistics and forecast (Eq. 6), computed in memory
+    // from the sensor stream.
+    @GetMapping("/stations/{stationId}/load-stats")
+    public ResponseEntity<APIResponse> getLoadStats(@PathVariable Long stationId) {
+        LoadForecastService.LoadStats stats = loadForecastService.stats(stationId);
+        if (stats == null) {
+            return ResponseEntity.ok(new APIResponse(true, "No recent sensor data", null));
+        }
+        return ResponseEntity.ok(new APIResponse(true, "Load statistics fetched", stats));
+    }
+
+    // Power history for charts. Resolution (raw, 1m or 1h) is picked from the
+    // range so the response stays within maxPoints; defaults to the last 24 hours.
+    @GetMapping("/stations/{stationId}/history")
+    public ResponseEntity<APIResponse> getPowerHistory(
+            @PathVariable Long stationId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "500") int maxPoints) {
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minusHours(24);
+        SensorHistoryDTO history = sensorHistoryService.history(stationId, start, end, maxPoints);
+        return ResponseEntity.ok(new APIResponse(true, "Power history fetched (" + history.resolution() + ")", history));
     }
 }
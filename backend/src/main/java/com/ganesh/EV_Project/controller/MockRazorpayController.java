@@ -0,0 +1,54 @@
+package com.ganesh.EV_Project.controller;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Local stand-in for the Razorpay Orders API, for latency and failure
+ * injection. Enable with app.payments.mock-gateway.enabled=true and point
+ * razorpay.api-base-url at http://localhost:8080/api/test/mock-razorpay;
+ * every order then takes latency-ms (plus up to jitter-ms) and fails with a
+ * 503 at error-rate, which is enough to exercise the client's timeouts, the
+ * circuit breaker and the outbox retries. Never enabled in production.
+ */
+@RestController
+@RequestMapping("/api/test/mock-razorpay")
+@ConditionalOnProperty(name = "app.payments.mock-gateway.enabled", havingValue = "true")
+public class MockRazorpayController {
+
+    @Value("${app.payments.mock-gateway.latency-ms:200}")
+    private long latencyMillis;
+
+    @Value("${app.payments.mock-gateway.jitter-ms:0}")
+    private long jitterMillis;
+
+    @Value("${app.payments.mock-gateway.error-rate:0.0}")
+    private double errorRate;
+
+    @PostMapping("/v1/orders")
+    public ResponseEntity<?> createOrder(@RequestBody Map<String, Object> request) throws InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Thread.sleep(latencyMillis + (jitterMillis > 0 ? random.nextLong(jitterMillis + 1) : 0));
+        if (random.nextDouble() < errorRate) {
+            return ResponseEntity.status(503).body(Map.of("error", Map.of(
+                    "code", "SERVER_ERROR",
+                    "description", "Injected mock gateway failure")));
+        }
+        return ResponseEntity.ok(Map.of(
+                "id", "order_mock" + UUID.randomUUID().toString().replace("-", "").substring(0, 14),
+                "entity", "order",
+                "amount", request.getOrDefault("amount", 0),
+                "currency", request.getOrDefault("currency", "INR"),
+                "receipt", request.getOrDefault("receipt", ""),
+                "status", "created"));
+    }
+}
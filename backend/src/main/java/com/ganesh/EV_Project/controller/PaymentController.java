@@ -10,8 +10,11 @@ import com.ganesh.EV_Project.payload.APIResponse;
 import com.ganesh.EV_Project.repository.ChargerSlotRepository;
 import com.ganesh.EV_Project.repository.ChargingSessionRepository;
 import com.ganesh.EV_Project.repository.PaymentRepository;
+import com.ganesh.EV_Project.service.AnalyticsRollupService;
+import com.ganesh.EV_Project.service.PaymentWebhookService;
 import com.ganesh.EV_Project.service.RazorpayService;
 import com.ganesh.EV_Project.service.ReceiptService;
+import com.ganesh.EV_Project.service.SlotAvailabilityCache;
 import com.ganesh.EV_Project.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
@@ -43,9 +46,41 @@ public class PaymentController {
     @Autowired
     private ReceiptService receiptService;
 
+    @Autowired
+    private SlotAvailabilityCache slotAvailabilityCache;
+
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private PaymentWebhookService paymentWebhookService;
+
+    @Autowired
+    private AnalyticsRollupService analyticsRollupService;
+
+    /**
+     * Razorpay webhook receiver. The event is verified and queued here and
+     * applied to the session, slot and payment shortly after, so Razorpay gets
+     * its 2xx quickly; redeliveries of an event already queued are acknowledged
+     * without being stored again.
+     */
+    @PostMapping("/webhook")
+    public ResponseEntity<?> webhook(@RequestBody String body,
+                                     @RequestHeader(value = "X-Razorpay-Signature", required = false) String signature,
+                                     @RequestHeader(value = "x-razorpay-event-id", required = false) String eventId) {
+        PaymentWebhookService.Outcome outcome = paymentWebhookService.ingest(body, signature, eventId);
+        if (outcome == PaymentWebhookService.Outcome.REJECTED) {
+            return ResponseEntity.badRequest().body(APIResponse.builder()
+                    .success(false)
+                    .message("Invalid webhook signature")
+                    .build());
+        }
+        return ResponseEntity.ok(APIResponse.builder()
+                .success(true)
+                .message(outcome.name())
+                .build());
+    }
+
     /**
      * Streams a payment-receipt PDF for a paid session. Only the session's own
      * customer (or an admin) may download it.
@@ -129,12 +164,14 @@ public class PaymentController {
             // 1. Update Session
             session.setPaymentStatus("PAID");
             sessionRepository.save(session);
+            analyticsRollupService.markDirty(session.getEndTime());
 
             // Release the held slot now that payment is confirmed
             ChargerSlot slot = session.getBooking() != null ? session.getBooking().getSlot() : null;
             if (slot != null && slot.getStatus() == SlotStatus.PAYMENT_PENDING) {
                 slot.setStatus(SlotStatus.AVAILABLE);
                 slotRepository.save(slot);
+                slotAvailabilityCache.onSlotChanged(slot);
             }
 
             // 2. Create and Save Payment Record
@@ -65,7 +65,7 @@ public class StationController {
 
     @GetMapping("/{id}")
     public ResponseEntity<APIResponse> getStationById(@PathVariable Long id) {
-        Station station = stationService.getStationById(id);
+        Station station = stationService.getStationDetail(id);
         return new ResponseEntity<>(
                 new APIResponse(true, "Station fetched successfully", station),
                 HttpStatus.OK);
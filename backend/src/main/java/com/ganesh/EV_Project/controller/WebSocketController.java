@@ -1,6 +1,7 @@
 package com.ganesh.EV_Project.controller;
 
 import com.ganesh.EV_Project.model.ChargerSlot;
+import com.ganesh.EV_Project.service.SlotAvailabilityCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.SendTo;
@@ -13,8 +14,13 @@ public class WebSocketController {
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
 
-    // Send slot status update to all subscribers of a station
+    @Autowired
+    private SlotAvailabilityCache slotAvailabilityCache;
+
+    // Send slot status update to all subscribers of a station (and keep the
+    // availability cache in step with what subscribers are told)
     public void notifySlotStatusChange(Long stationId, ChargerSlot slot) {
+        slotAvailabilityCache.onSlotChanged(slot);
         messagingTemplate.convertAndSend("/topic/station/" + stationId + "/slots", slot);
     }
 
@@ -23,6 +29,11 @@ public class WebSocketController {
         messagingTemplate.convertAndSend("/topic/user/" + userId + "/bookings", bookingUpdate);
     }
 
+    // Latest sensor reading of a station (replaces polling live-power)
+    public void notifyStationPower(Long stationId, Object reading) {
+        messagingTemplate.convertAndSend("/topic/station/" + stationId + "/power", reading);
+    }
+
     // Broadcast to all connected clients
     public void broadcastStationUpdate(Long stationId, Object update) {
         messagingTemplate.convertAndSend("/topic/stations/" + stationId, update);
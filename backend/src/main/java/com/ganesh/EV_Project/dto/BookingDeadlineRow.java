@@ -0,0 +1,16 @@
+package com.ganesh.EV_Project.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Timing of one unstarted (CONFIRMED) booking, as loaded by the expiry
+ * scheduler. {@code expiresAt} is null only for bookings created before it
+ * was recorded; those expire {@code startTime} + the configured grace period.
+ */
+public record BookingDeadlineRow(
+        Long bookingId,
+        LocalDateTime startTime,
+        LocalDateTime expiresAt,
+        LocalDateTime reminderSentAt
+) {
+}
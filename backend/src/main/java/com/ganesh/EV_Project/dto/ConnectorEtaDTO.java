@@ -0,0 +1,17 @@
+package com.ganesh.EV_Project.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Live availability of one connector type at a station, for the station
+ * detail view. {@code nextAvailableAt} is set only when every connector of
+ * the type is occupied: the earliest time one is expected to free up, or null
+ * if that is unknown.
+ */
+public record ConnectorEtaDTO(
+        String connectorType,
+        int total,
+        int available,
+        LocalDateTime nextAvailableAt
+) {
+}
@@ -0,0 +1,19 @@
+package com.ganesh.EV_Project.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Latest ESP32 reading of a station, served by /api/iot/stations/{id}/live-power
+ * and pushed on /topic/station/{stationId}/power. Field names match the
+ * Android LivePowerData model. forecastedLoad (W) is the short-horizon
+ * forecast from LoadForecastService, null without recent readings.
+ */
+public record LivePowerDTO(
+        Long stationId,
+        double voltage,
+        double current,
+        double power,
+        LocalDateTime timestamp,
+        Double forecastedLoad
+) {
+}
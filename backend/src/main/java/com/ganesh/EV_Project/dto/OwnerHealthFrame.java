@@ -0,0 +1,16 @@
+package com.ganesh.EV_Project.dto;
+
+/**
+ * Connector health for the owner dashboard ({@code /topic/owner/station/{stationId}}).
+ * All metrics are numeric; the dashboard formats units for display.
+ */
+public record OwnerHealthFrame(
+        long slotId,
+        double tempC,   // connector temperature, 0.1 °C resolution
+        long voltage,   // V, rounded
+        long current,   // A, rounded
+        double power,   // kW
+        double energy,  // kWh dispensed so far
+        String status   // "OPERATIONAL" | "CRITICAL_HEAT"
+) {
+}
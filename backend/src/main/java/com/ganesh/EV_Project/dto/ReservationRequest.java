@@ -0,0 +1,39 @@
+package com.ganesh.EV_Project.dto;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+import com.ganesh.EV_Project.enums.ConnectorType;
+import com.ganesh.EV_Project.enums.VehicleType;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+public class ReservationRequest {
+
+    // Server-set from the authenticated principal; not required in the request body.
+    private Long userId;
+
+    @NotNull(message = "Station ID is required")
+    private Long stationId;
+
+    @NotNull(message = "Connector type is required")
+    private ConnectorType connectorType;
+
+    @NotNull(message = "Vehicle type is required")
+    private VehicleType vehicleType;
+
+    // Window to hold the connector for, e.g. 18:00 to 19:00 (end exclusive)
+    @NotNull(message = "Start time is required")
+    private LocalDateTime startTime;
+
+    @NotNull(message = "End time is required")
+    private LocalDateTime endTime;
+
+    // Optional: reserve this specific connector instead of any free one
+    private Long slotId;
+
+    // Optional: If true, a car may be given a truck slot when no car slot is free for the window
+    private boolean allowTruckSlotFallback = false;
+}
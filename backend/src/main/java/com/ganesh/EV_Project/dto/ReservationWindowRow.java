@@ -0,0 +1,15 @@
+package com.ganesh.EV_Project.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Time window a live booking holds on its slot, as loaded into the
+ * reservation index. {@code endTime} is exclusive.
+ */
+public record ReservationWindowRow(
+        Long bookingId,
+        Long slotId,
+        LocalDateTime startTime,
+        LocalDateTime endTime
+) {
+}
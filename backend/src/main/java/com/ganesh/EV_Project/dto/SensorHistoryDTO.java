@@ -0,0 +1,28 @@
+package com.ganesh.EV_Project.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Power history of one station over [from, to). {@code resolution} is "raw",
+ * "1m" or "1h"; for raw points samples is 1 and min/max equal the average.
+ */
+public record SensorHistoryDTO(
+        Long stationId,
+        LocalDateTime from,
+        LocalDateTime to,
+        String resolution,
+        List<Point> points
+) {
+
+    public record Point(
+            LocalDateTime time,
+            long samples,
+            double avgVoltage,
+            double avgCurrent,
+            double avgPower,
+            double minPower,
+            double maxPower
+    ) {
+    }
+}
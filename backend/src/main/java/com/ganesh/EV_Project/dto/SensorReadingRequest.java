@@ -0,0 +1,24 @@
+package com.ganesh.EV_Project.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * One voltage/current sample from a station's ESP32 board. Sent alone to
+ * /api/iot/sensor-data or as an array to /api/iot/sensor-data/batch.
+ */
+@Getter
+@Setter
+public class SensorReadingRequest {
+
+    private Long stationId;
+
+    private Double voltage; // V
+
+    private Double current; // A
+
+    // Optional: when the sample was taken; defaults to when it was received
+    private LocalDateTime timestamp;
+}
@@ -0,0 +1,22 @@
+package com.ganesh.EV_Project.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Changes since the last frame sent on {@code /topic/session/{bookingId}}.
+ * Only live fields that moved beyond display precision are present, as new
+ * absolute values; absent fields are unchanged and static fields never appear.
+ * Clients merge a delta onto the last {@link SessionTelemetryFrame} keyframe.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record SessionTelemetryDelta(
+        String type, // always "DELTA"
+        long bookingId,
+        Double powerKw,
+        Double energyDispensedKwh,
+        Double socPercentage,
+        Double totalCost,
+        Double minutesRemaining
+) {
+    public static final String TYPE = "DELTA";
+}
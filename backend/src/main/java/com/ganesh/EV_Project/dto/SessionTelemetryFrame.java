@@ -0,0 +1,25 @@
+package com.ganesh.EV_Project.dto;
+
+/**
+ * One full live-charging telemetry frame for a session, as broadcast on
+ * {@code /topic/session/{bookingId}}. Sent every tick to legacy subscribers;
+ * negotiated subscribers get it as the keyframe (on subscribe, periodically,
+ * and on completion) with {@link SessionTelemetryDelta}s in between.
+ */
+public record SessionTelemetryFrame(
+        String type, // always "KEYFRAME"
+        long bookingId,
+        long slotId,
+        long stationId,
+        double powerKw,
+        double energyDispensedKwh,
+        double socPercentage,
+        double totalCost,
+        double minutesRemaining,
+        double maxPowerKw,
+        double batteryCapacityKwh,
+        double pricePerKwh,
+        boolean completed // signals the app to tear down telemetry and move to payment
+) {
+    public static final String TYPE = "KEYFRAME";
+}
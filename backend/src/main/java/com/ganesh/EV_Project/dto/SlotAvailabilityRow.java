@@ -0,0 +1,15 @@
+package com.ganesh.EV_Project.dto;
+
+import com.ganesh.EV_Project.enums.ConnectorType;
+
+/**
+ * One row of the grouped slot-availability query: slot counts for one
+ * connector type at one station.
+ */
+public record SlotAvailabilityRow(
+        Long stationId,
+        ConnectorType connectorType,
+        Long total,
+        Long available
+) {
+}
@@ -0,0 +1,22 @@
+package com.ganesh.EV_Project.dto;
+
+import com.ganesh.EV_Project.enums.ConnectorType;
+import com.ganesh.EV_Project.enums.SlotStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Current state of one charger slot, as loaded into the availability cache.
+ * {@code freeAt} is the live session's predicted end of charge as of its last
+ * snapshot, else the earliest expiry among the slot's active bookings;
+ * {@code truckCapable} mirrors the slot's dispensary accepting trucks.
+ */
+public record SlotStateRow(
+        Long slotId,
+        Long stationId,
+        ConnectorType connectorType,
+        SlotStatus status,
+        Boolean truckCapable,
+        LocalDateTime freeAt
+) {
+}
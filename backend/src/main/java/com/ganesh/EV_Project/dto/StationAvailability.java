@@ -0,0 +1,40 @@
+package com.ganesh.EV_Project.dto;
+
+import java.util.List;
+
+/**
+ * Slot availability of one station, per connector type. Built from grouped
+ * counts so map endpoints never load ChargerSlot entities.
+ */
+public record StationAvailability(Long stationId, List<ConnectorAvailability> connectors) {
+
+    /** Bucket for legacy slots without a connector type, so they still count. */
+    public static final String UNKNOWN_CONNECTOR = "Unknown";
+
+    public static String connectorKey(Object connectorType) {
+        return connectorType != null ? connectorType.toString() : UNKNOWN_CONNECTOR;
+    }
+
+    public static StationAvailability empty(Long stationId) {
+        return new StationAvailability(stationId, List.of());
+    }
+
+    public int totalSlots() {
+        return connectors.stream().mapToInt(ConnectorAvailability::total).sum();
+    }
+
+    public int availableSlots() {
+        return connectors.stream().mapToInt(ConnectorAvailability::available).sum();
+    }
+
+    public boolean anyAvailable() {
+        return connectors.stream().anyMatch(c -> c.available() > 0);
+    }
+
+    public List<String> connectorTypes() {
+        return connectors.stream().map(ConnectorAvailability::connectorType).toList();
+    }
+
+    public record ConnectorAvailability(String connectorType, int total, int available) {
+    }
+}
@@ -0,0 +1,14 @@
+package com.ganesh.EV_Project.dto;
+
+import java.util.List;
+
+/**
+ * Per-station owner health aggregate broadcast on
+ * {@code /topic/owner/station/{stationId}}, one frame per station per tick.
+ */
+public record StationHealthFrame(
+        long stationId,
+        double totalPowerKw,
+        List<OwnerHealthFrame> slots
+) {
+}
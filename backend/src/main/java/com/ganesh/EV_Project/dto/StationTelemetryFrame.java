@@ -0,0 +1,28 @@
+package com.ganesh.EV_Project.dto;
+
+import java.util.List;
+
+/**
+ * Per-station aggregate broadcast on {@code /topic/station/{stationId}}: one
+ * frame per station per tick instead of one per charging gun. Values are
+ * quantized to display resolution so an unchanged station compares equal to
+ * its previous frame and is not re-sent.
+ */
+public record StationTelemetryFrame(
+        long stationId,
+        double totalPowerKw,
+        int chargingGuns,
+        int freeGuns,
+        List<SlotState> slots
+) {
+
+    /** Live state of one charging gun. */
+    public record SlotState(
+            long slotId,
+            double powerKw,
+            double socPercentage,
+            double minutesRemaining,
+            boolean completed
+    ) {
+    }
+}
@@ -1,7 +1,7 @@
 package com.ganesh.EV_Project.enums;
 
 public enum BookingStatus {
-    PENDING,       // booking requested, waiting for confirmation
+    PENDING,       // advance reservation, waiting for its window to open (then CONFIRMED)
     CONFIRMED,     // booking confirmed
     ONGOING,       // charging in progress
     COMPLETED,     // charging completed
@@ -12,10 +12,10 @@ import java.time.LocalTime;
  * A recurring-booking template (G2).
  *
  * Describes a repeating reservation (station + connector + vehicle + time +
- * weekdays). It does NOT hold a future slot — a scheduler materializes a normal
- * 20-minute booking ~20 min before each occurrence, so behavior matches the
- * existing instant-booking flow. {@code lastMaterializedDate} guarantees one
- * attempt per day per template.
+ * weekdays). The template itself holds nothing; a scheduler reserves each
+ * occurrence's window up to a day ahead as a normal advance reservation.
+ * {@code lastMaterializedDate} is the date of the last occurrence attempted,
+ * guaranteeing one attempt per occurrence.
  */
 @Entity
 @Table(name = "booking_templates")
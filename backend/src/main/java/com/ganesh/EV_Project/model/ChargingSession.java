@@ -42,6 +42,9 @@ public class ChargingSession {
     @Column
     private Double socPercentage;   // last persisted state of charge (for restart recovery)
 
+    @Column
+    private LocalDateTime expectedEndAt; // predicted end of charge at the last snapshot (slot ETA)
+
     @Column(columnDefinition = "NUMERIC(10,2)")
     private Double totalCost;       // final billed amount
 
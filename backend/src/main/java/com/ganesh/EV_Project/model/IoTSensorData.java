@@ -6,8 +6,15 @@ import org.hibernate.annotations.CreationTimestamp;
 
 import java.time.LocalDateTime;
 
+/**
+ * One raw ESP32 reading. In production the table is partitioned by day on
+ * {@code timestamp} (V10) and raw rows are kept for a limited time; older
+ * history lives in {@link IoTSensorRollup}.
+ */
 @Entity
-@Table(name = "iot_sensor_data")
+@Table(name = "iot_sensor_data", indexes = {
+        @Index(name = "idx_iot_station_time", columnList = "station_id, timestamp DESC")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -0,0 +1,57 @@
+package com.ganesh.EV_Project.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Aggregated readings for one station over a 1-minute ("1m") or 1-hour ("1h")
+ * bucket. Maintained from raw {@link IoTSensorData} by {@code SensorRollupService}
+ * and kept longer than the raw rows.
+ */
+@Entity
+@Table(name = "iot_sensor_rollups",
+        uniqueConstraints = @UniqueConstraint(name = "uq_iot_rollup", columnNames = {"resolution", "station_id", "bucket"}),
+        indexes = @Index(name = "idx_iot_rollup_bucket", columnList = "resolution, bucket"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IoTSensorRollup {
+
+    public static final String MINUTE = "1m";
+    public static final String HOUR = "1h";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 4)
+    private String resolution;
+
+    @Column(name = "station_id", nullable = false)
+    private Long stationId;
+
+    @Column(nullable = false)
+    private LocalDateTime bucket;
+
+    @Column(nullable = false)
+    private Long samples;
+
+    @Column(name = "avg_voltage", nullable = false)
+    private Double avgVoltage; // V
+
+    @Column(name = "avg_current", nullable = false)
+    private Double avgCurrent; // A
+
+    @Column(name = "avg_power", nullable = false)
+    private Double avgPower; // W
+
+    @Column(name = "min_power", nullable = false)
+    private Double minPower;
+
+    @Column(name = "max_power", nullable = false)
+    private Double maxPower;
+}
@@ -0,0 +1,66 @@
+package com.ganesh.EV_Project.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * A side effect to run once the transaction that recorded it has committed:
+ * anything slow or external (payment gateway, message broker, push) that must
+ * not hold the transaction open. Executed at least once by {@code OutboxRelay},
+ * so every handler is idempotent.
+ */
+@Entity
+@Table(name = "outbox_events")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 30)
+    private Type type;
+
+    // The entity the event is about (e.g. the charging session id), if any.
+    @Column(name = "aggregate_id")
+    private Long aggregateId;
+
+    @Column(columnDefinition = "TEXT")
+    private String payload; // JSON, shape depends on the type
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    @Builder.Default
+    private Status status = Status.PENDING;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private int attempts = 0;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    public enum Type {
+        PAYMENT_ORDER,     // create the Razorpay order for a completed session (aggregate = session id)
+        STOMP_MESSAGE,     // send {destination, body} through the WebSocket broker
+        PUSH_NOTIFICATION  // push {type, title, body, deepLink} to the user's devices (aggregate = user id)
+    }
+
+    public enum Status { PENDING, DONE, FAILED }
+}
@@ -0,0 +1,77 @@
+package com.ganesh.EV_Project.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * One Razorpay webhook delivery, stored once per Razorpay event id after its
+ * signature checked out. The fields settlement needs are extracted at
+ * ingestion; the raw payload is kept for audit.
+ */
+@Entity
+@Table(name = "payment_webhook_events")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PaymentWebhookEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "event_id", nullable = false, unique = true, length = 64)
+    private String eventId;
+
+    @Column(name = "event_type", nullable = false, length = 40)
+    private String eventType; // payment.captured | order.paid | payment.failed
+
+    @Column(name = "order_id", length = 64)
+    private String orderId;
+
+    @Column(name = "payment_id", length = 64)
+    private String paymentId;
+
+    @Column(name = "amount_paise")
+    private Long amountPaise;
+
+    @Column(length = 30)
+    private String method;
+
+    @Column(name = "error_description", length = 500)
+    private String errorDescription;
+
+    @Column(columnDefinition = "TEXT")
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    @Builder.Default
+    private Status status = Status.PENDING;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private int attempts = 0;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "received_at", nullable = false)
+    private LocalDateTime receivedAt;
+
+    @Column(name = "applied_at")
+    private LocalDateTime appliedAt;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    public enum Status {
+        PENDING,
+        APPLIED,
+        IGNORED, // no session carries the order (foreign or unknown order)
+        FAILED
+    }
+}
@@ -0,0 +1,60 @@
+package com.ganesh.EV_Project.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Session aggregates for one station and connector type over a 1-hour ("1h")
+ * or 1-day ("1d") bucket: sessions started in the bucket, and the count,
+ * revenue, energy and duration of paid sessions that ended in it. Maintained
+ * from {@link ChargingSession} by {@code AnalyticsRollupService}.
+ */
+@Entity
+@Table(name = "session_rollups",
+        uniqueConstraints = @UniqueConstraint(name = "uq_session_rollup",
+                columnNames = {"resolution", "station_id", "connector_type", "bucket"}),
+        // V13 makes this a covering index (INCLUDE the summed columns), which JPA cannot express.
+        indexes = @Index(name = "idx_session_rollup_station_cover", columnList = "resolution, station_id, bucket"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SessionRollup {
+
+    public static final String HOUR = "1h";
+    public static final String DAY = "1d";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 4)
+    private String resolution;
+
+    @Column(name = "station_id", nullable = false)
+    private Long stationId;
+
+    @Column(name = "connector_type", nullable = false, length = 20)
+    private String connectorType;
+
+    @Column(nullable = false)
+    private LocalDateTime bucket;
+
+    @Column(name = "sessions_started", nullable = false)
+    private Long sessionsStarted;
+
+    @Column(name = "sessions_paid", nullable = false)
+    private Long sessionsPaid;
+
+    @Column(nullable = false)
+    private Double revenue;
+
+    @Column(name = "energy_kwh", nullable = false)
+    private Double energyKwh;
+
+    @Column(name = "duration_minutes", nullable = false)
+    private Double durationMinutes; // sum over paid sessions
+}
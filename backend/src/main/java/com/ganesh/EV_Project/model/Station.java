@@ -111,6 +111,10 @@ public class Station {
         return LocalTime.of(hour, 0);
     }
 
+    // Per-connector live availability and ETA; filled in for the station detail endpoint only.
+    @Transient
+    private java.util.List<com.ganesh.EV_Project.dto.ConnectorEtaDTO> connectorAvailability;
+
     @OneToMany(mappedBy = "station", cascade = CascadeType.ALL, orphanRemoval = true)
     @com.fasterxml.jackson.annotation.JsonManagedReference
     @Builder.Default
@@ -1,9 +1,9 @@
 package com.ganesh.EV_Project.repository;
 
 import com.ganesh.EV_Project.enums.BookingStatus;
-import com.ganesh.EV_Project.enums.ConnectorType;
 import com.ganesh.EV_Project.model.Booking;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
@@ -19,22 +19,49 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
 
        void deleteBySlot(com.ganesh.EV_Project.model.ChargerSlot slot);
 
-       // Check for overlapping bookings for a specific slot (kept for backward compatibility)
-       @Query("SELECT b FROM Booking b WHERE b.slot.id = :slotId " +
-                     "AND b.status IN ('CONFIRMED', 'ONGOING') " +
-                     "AND ((b.startTime <= :endTime AND b.endTime >= :startTime))")
-       List<Booking> findOverlappingBookings(@Param("slotId") Long slotId,
-                     @Param("startTime") LocalDateTime startTime,
-                     @Param("endTime") LocalDateTime endTime);
-
-       // Find the earliest ending active booking for "next available" suggestion
-       @Query("SELECT b FROM Booking b WHERE b.slot.station.id = :stationId " +
-                     "AND b.slot.connectorType = :connectorType " +
-                     "AND b.status IN ('CONFIRMED', 'ONGOING') " +
-                     "ORDER BY b.expiresAt ASC")
-       List<Booking> findActiveBookingsByStationAndConnector(
-                     @Param("stationId") Long stationId,
-                     @Param("connectorType") ConnectorType connectorType);
+       // Unstarted bookings due before the horizon, for the expiry scheduler
+       // (partial index idx_booking_confirmed_expires).
+       @Query("SELECT new com.ganesh.EV_Project.dto.BookingDeadlineRow(b.id, b.startTime, b.expiresAt, b.reminderSentAt) " +
+                     "FROM Booking b WHERE b.status = 'CONFIRMED' " +
+                     "AND (b.expiresAt IS NULL OR b.expiresAt <= :horizon)")
+       List<com.ganesh.EV_Project.dto.BookingDeadlineRow> findUnstartedDeadlinesBefore(
+                     @Param("horizon") LocalDateTime horizon);
+
+       // Claims the one "expiring soon" reminder for a booking. Returns 0 if it was
+       // already sent (possibly by another node) or the booking is no longer CONFIRMED.
+       @Modifying
+       @Query("UPDATE Booking b SET b.reminderSentAt = :now " +
+                     "WHERE b.id = :id AND b.reminderSentAt IS NULL AND b.status = 'CONFIRMED'")
+       int markReminderSent(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+       // Expires the given bookings that are past their deadline and were never started,
+       // and frees their slots, in one statement. Returns the released slot ids.
+       // (Not @Modifying: UPDATE ... RETURNING produces a result set.)
+       @Query(value = "WITH expired AS (" +
+                     "  UPDATE bookings b SET status = 'EXPIRED' " +
+                     "  WHERE b.id IN (:bookingIds) AND b.status = 'CONFIRMED' " +
+                     "  AND COALESCE(b.expires_at, b.start_time + make_interval(mins => :graceMinutes)) <= :now " +
+                     "  AND NOT EXISTS (SELECT 1 FROM charging_sessions s WHERE s.booking_id = b.id) " +
+                     "  RETURNING b.slot_id) " +
+                     "UPDATE charger_slots cs SET status = 'AVAILABLE', " +
+                     "version = COALESCE(cs.version, 0) + 1, updated_at = :now " +
+                     "FROM expired e WHERE cs.id = e.slot_id AND cs.status IN ('BOOKED', 'RESERVED') " +
+                     "RETURNING cs.id", nativeQuery = true)
+       List<Long> expireUnstartedReturningSlotIds(@Param("bookingIds") java.util.Collection<Long> bookingIds,
+                     @Param("now") LocalDateTime now,
+                     @Param("graceMinutes") int graceMinutes);
+
+       // Time windows held by live bookings that have not ended yet, for the reservation
+       // index. Instant bookings have end = start and hold no window.
+       @Query("SELECT new com.ganesh.EV_Project.dto.ReservationWindowRow(b.id, b.slot.id, b.startTime, b.endTime) " +
+                     "FROM Booking b WHERE b.status IN ('PENDING', 'CONFIRMED', 'ONGOING') " +
+                     "AND b.endTime > :now AND b.endTime > b.startTime")
+       List<com.ganesh.EV_Project.dto.ReservationWindowRow> findReservationWindowsEndingAfter(
+                     @Param("now") LocalDateTime now);
+
+       // Advance reservations whose window opens before the given time (idx_booking_pending_start).
+       @Query("SELECT b FROM Booking b JOIN FETCH b.slot WHERE b.status = 'PENDING' AND b.startTime <= :before")
+       List<Booking> findReservationsStartingBefore(@Param("before") LocalDateTime before);
 
        // Owner-scoped, paginated bookings (flat projection). Optional status filter.
        @Query("SELECT new com.ganesh.EV_Project.dto.OwnerBookingRowDTO(" +
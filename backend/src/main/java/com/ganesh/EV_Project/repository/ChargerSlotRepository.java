@@ -29,6 +29,27 @@ public interface ChargerSlotRepository extends JpaRepository<ChargerSlot, Long>
     // Find all slots at a station
     List<ChargerSlot> findByStationId(Long stationId);
 
+    // Per-station, per-connector slot counts for a set of stations in one
+    // grouped query (no ChargerSlot entities, so no EAGER station/dispensary loads).
+    @Query("SELECT new com.ganesh.EV_Project.dto.SlotAvailabilityRow(s.station.id, s.connectorType, COUNT(s), " +
+           "SUM(CASE WHEN s.status = com.ganesh.EV_Project.enums.SlotStatus.AVAILABLE THEN 1L ELSE 0L END)) " +
+           "FROM ChargerSlot s WHERE s.station.id IN :stationIds " +
+           "GROUP BY s.station.id, s.connectorType")
+    List<com.ganesh.EV_Project.dto.SlotAvailabilityRow> findAvailabilityByStationIds(
+            @Param("stationIds") java.util.Collection<Long> stationIds);
+
+    // Every slot's status plus when it frees up, for the availability cache: the live
+    // session's predicted end (from its last snapshot), else its active booking's expiry.
+    @Query("SELECT new com.ganesh.EV_Project.dto.SlotStateRow(s.id, s.station.id, s.connectorType, s.status, " +
+           "COALESCE(d.acceptsTrucks, false), " +
+           "COALESCE((SELECT MAX(cs.expectedEndAt) FROM ChargingSession cs WHERE cs.booking.slot = s " +
+           "AND cs.status = 'ONGOING'), " +
+           "(SELECT MIN(b.expiresAt) FROM Booking b WHERE b.slot = s " +
+           "AND b.status IN (com.ganesh.EV_Project.enums.BookingStatus.CONFIRMED, " +
+           "com.ganesh.EV_Project.enums.BookingStatus.ONGOING)))) " +
+           "FROM ChargerSlot s LEFT JOIN s.dispensary d WHERE s.station IS NOT NULL")
+    List<com.ganesh.EV_Project.dto.SlotStateRow> findAllSlotStates();
+
     @Query("SELECT COUNT(s) FROM ChargerSlot s " +
             "WHERE s.station.owner.id = :ownerId " +
             "AND s.status <> :excludedStatus")
@@ -51,6 +72,18 @@ public interface ChargerSlotRepository extends JpaRepository<ChargerSlot, Long>
             @Param("stationId") Long stationId,
             @Param("connectorType") ConnectorType connectorType);
 
+    // Frees slots left in PAYMENT_PENDING by sessions that ended unpaid before the
+    // cutoff, in one statement. Returns the released slot ids.
+    // (Not @Modifying: UPDATE ... RETURNING produces a result set.)
+    @Query(value = "UPDATE charger_slots cs SET status = 'AVAILABLE', " +
+           "version = COALESCE(cs.version, 0) + 1, updated_at = :now " +
+           "FROM bookings b JOIN charging_sessions s ON s.booking_id = b.id " +
+           "WHERE b.slot_id = cs.id AND cs.status = 'PAYMENT_PENDING' " +
+           "AND s.status = 'COMPLETED' AND s.payment_status <> 'PAID' AND s.end_time < :cutoff " +
+           "RETURNING cs.id", nativeQuery = true)
+    List<Long> releaseStalePaymentPendingReturningIds(@Param("cutoff") java.time.LocalDateTime cutoff,
+                                                      @Param("now") java.time.LocalDateTime now);
+
     // Pessimistic lock on a single slot (used for the admin slotId override path)
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query("SELECT s FROM ChargerSlot s WHERE s.id = :id")
@@ -12,13 +12,29 @@ public interface ChargingSessionRepository extends JpaRepository<ChargingSession
 
     java.util.List<ChargingSession> findByStatus(String status);
 
-    @org.springframework.data.jpa.repository.Query("SELECT s FROM ChargingSession s " +
-            "WHERE s.paymentStatus <> 'PAID' AND s.status = 'COMPLETED' AND s.endTime < :cutoff")
-    java.util.List<ChargingSession> findUnpaidEndedBefore(
-            @org.springframework.data.repository.query.Param("cutoff") java.time.LocalDateTime cutoff);
-
     java.util.Optional<ChargingSession> findByBookingId(Long bookingId);
 
+    // Which of these bookings have been started (any session, whatever its status).
+    @org.springframework.data.jpa.repository.Query("SELECT s.booking.id FROM ChargingSession s WHERE s.booking.id IN :bookingIds")
+    java.util.List<Long> findBookingIdsWithSession(
+            @org.springframework.data.repository.query.Param("bookingIds") java.util.Collection<Long> bookingIds);
+
+    @org.springframework.data.jpa.repository.Query("SELECT s.booking.id FROM ChargingSession s WHERE s.status = 'ONGOING'")
+    java.util.List<Long> findOngoingBookingIds();
+
+    // Read straight from the row, not from a cached entity: a stop waits on another node's finalize.
+    @org.springframework.data.jpa.repository.Query("SELECT s.status FROM ChargingSession s WHERE s.id = :id")
+    String findStatusById(@org.springframework.data.repository.query.Param("id") Long id);
+
+    // Everything the simulator needs to rebuild a live session (slot power,
+    // station prices), fetched in one query for session adoption/recovery.
+    @org.springframework.data.jpa.repository.Query("SELECT s FROM ChargingSession s " +
+            "JOIN FETCH s.booking b JOIN FETCH b.slot sl LEFT JOIN FETCH sl.station " +
+            "LEFT JOIN FETCH sl.dispensary d LEFT JOIN FETCH d.station " +
+            "WHERE s.status = 'ONGOING' AND b.id IN :bookingIds")
+    java.util.List<ChargingSession> findOngoingWithDetailsByBookingIds(
+            @org.springframework.data.repository.query.Param("bookingIds") java.util.Collection<Long> bookingIds);
+
     // Eagerly loads the booking/user/slot/station chain so a receipt can be
     // rendered outside an open Hibernate session (no LazyInitializationException).
     @org.springframework.data.jpa.repository.Query("SELECT s FROM ChargingSession s " +
@@ -86,43 +102,6 @@ public interface ChargingSessionRepository extends JpaRepository<ChargingSession
             @org.springframework.data.repository.query.Param("start") java.time.LocalDateTime start,
             @org.springframework.data.repository.query.Param("end") java.time.LocalDateTime end);
 
-    @org.springframework.data.jpa.repository.Query(value = "SELECT CAST(s.end_time AS DATE) as date, SUM(s.total_cost) as revenue, SUM(s.energy_kwh) as energy " +
-           "FROM charging_sessions s JOIN bookings b ON s.booking_id = b.id " +
-           "JOIN charger_slots cs ON b.slot_id = cs.id JOIN stations st ON cs.station_id = st.id " +
-           "WHERE st.owner_id = :ownerId AND s.payment_status = 'PAID' AND s.end_time >= :since " +
-           "GROUP BY CAST(s.end_time AS DATE) ORDER BY date ASC", nativeQuery = true)
-    List<Object[]> getDailyStatsByOwner(@org.springframework.data.repository.query.Param("ownerId") Long ownerId, @org.springframework.data.repository.query.Param("since") java.time.LocalDateTime since);
-
-    @org.springframework.data.jpa.repository.Query(value = "SELECT EXTRACT(HOUR FROM s.start_time) as hour, COUNT(*) as count " +
-           "FROM charging_sessions s JOIN bookings b ON s.booking_id = b.id " +
-           "JOIN charger_slots cs ON b.slot_id = cs.id JOIN stations st ON cs.station_id = st.id " +
-           "WHERE st.owner_id = :ownerId AND s.start_time >= :since " +
-           "GROUP BY hour ORDER BY hour ASC", nativeQuery = true)
-    List<Object[]> getPeakUsageByOwner(@org.springframework.data.repository.query.Param("ownerId") Long ownerId, @org.springframework.data.repository.query.Param("since") java.time.LocalDateTime since);
-
-    @org.springframework.data.jpa.repository.Query(value = "SELECT " +
-           "AVG(EXTRACT(EPOCH FROM (s.end_time - s.start_time))/60) as avgDuration, " +
-           "AVG(s.total_cost) as avgRevenue, " +
-           "AVG(s.energy_kwh) as avgEnergy " +
-           "FROM charging_sessions s JOIN bookings b ON s.booking_id = b.id " +
-           "JOIN charger_slots cs ON b.slot_id = cs.id JOIN stations st ON cs.station_id = st.id " +
-           "WHERE st.owner_id = :ownerId AND s.payment_status = 'PAID' AND s.end_time >= :since", nativeQuery = true)
-    List<Object[]> getEfficiencyMetrics(@org.springframework.data.repository.query.Param("ownerId") Long ownerId, @org.springframework.data.repository.query.Param("since") java.time.LocalDateTime since);
-
-    @org.springframework.data.jpa.repository.Query(value = "SELECT st.name, SUM(s.total_cost) as revenue " +
-           "FROM charging_sessions s JOIN bookings b ON s.booking_id = b.id " +
-           "JOIN charger_slots cs ON b.slot_id = cs.id JOIN stations st ON cs.station_id = st.id " +
-           "WHERE st.owner_id = :ownerId AND s.payment_status = 'PAID' AND s.end_time >= :since " +
-           "GROUP BY st.name", nativeQuery = true)
-    List<Object[]> getRevenueByStation(@org.springframework.data.repository.query.Param("ownerId") Long ownerId, @org.springframework.data.repository.query.Param("since") java.time.LocalDateTime since);
-
-    @org.springframework.data.jpa.repository.Query(value = "SELECT cs.connector_type, SUM(s.total_cost) as revenue " +
-           "FROM charging_sessions s JOIN bookings b ON s.booking_id = b.id " +
-           "JOIN charger_slots cs ON b.slot_id = cs.id JOIN stations st ON cs.station_id = st.id " +
-           "WHERE st.owner_id = :ownerId AND s.payment_status = 'PAID' AND s.end_time >= :since " +
-           "GROUP BY cs.connector_type", nativeQuery = true)
-    List<Object[]> getRevenueByConnector(@org.springframework.data.repository.query.Param("ownerId") Long ownerId, @org.springframework.data.repository.query.Param("since") java.time.LocalDateTime since);
-
     @org.springframework.data.jpa.repository.Query("SELECT SUM(s.totalCost) FROM ChargingSession s WHERE s.booking.slot.station.owner.id = :ownerId AND s.paymentStatus = 'PAID'")
     Double getTotalLifetimeRevenue(@org.springframework.data.repository.query.Param("ownerId") Long ownerId);
 
@@ -4,12 +4,14 @@ import com.ganesh.EV_Project.model.DeviceToken;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface DeviceTokenRepository extends JpaRepository<DeviceToken, Long> {
     List<DeviceToken> findByUserId(Long userId);
+    List<DeviceToken> findByUserIdIn(Collection<Long> userIds);
     Optional<DeviceToken> findByToken(String token);
     void deleteByUserId(Long userId);
 }
@@ -0,0 +1,9 @@
+package com.ganesh.EV_Project.repository;
+
+import com.ganesh.EV_Project.model.OutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+}
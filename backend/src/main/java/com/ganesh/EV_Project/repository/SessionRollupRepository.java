@@ -0,0 +1,53 @@
+package com.ganesh.EV_Project.repository;
+
+import com.ganesh.EV_Project.model.SessionRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Owner analytics over session_rollups. Same row shapes as the live queries
+ * they replace on ChargingSessionRepository; since is always a day boundary,
+ * so daily (and hourly) buckets cover the range exactly.
+ */
+@Repository
+public interface SessionRollupRepository extends JpaRepository<SessionRollup, Long> {
+
+    // Averages per paid session: duration in minutes, revenue, energy.
+    @Query(value = "SELECT SUM(r.duration_minutes) / NULLIF(SUM(r.sessions_paid), 0), " +
+           "SUM(r.revenue) / NULLIF(SUM(r.sessions_paid), 0), " +
+           "SUM(r.energy_kwh) / NULLIF(SUM(r.sessions_paid), 0) " +
+           "FROM session_rollups r JOIN stations st ON st.id = r.station_id " +
+           "WHERE st.owner_id = :ownerId AND r.resolution = '" + SessionRollup.DAY + "' AND r.bucket >= :since",
+           nativeQuery = true)
+    List<Object[]> getEfficiencyMetrics(@Param("ownerId") Long ownerId, @Param("since") LocalDateTime since);
+
+    @Query(value = "SELECT st.name, SUM(r.revenue) as revenue " +
+           "FROM session_rollups r JOIN stations st ON st.id = r.station_id " +
+           "WHERE st.owner_id = :ownerId AND r.resolution = '" + SessionRollup.DAY + "' AND r.bucket >= :since " +
+           "GROUP BY st.name HAVING SUM(r.sessions_paid) > 0", nativeQuery = true)
+    List<Object[]> getRevenueByStation(@Param("ownerId") Long ownerId, @Param("since") LocalDateTime since);
+
+    @Query(value = "SELECT r.connector_type, SUM(r.revenue) as revenue " +
+           "FROM session_rollups r JOIN stations st ON st.id = r.station_id " +
+           "WHERE st.owner_id = :ownerId AND r.resolution = '" + SessionRollup.DAY + "' AND r.bucket >= :since " +
+           "GROUP BY r.connector_type HAVING SUM(r.sessions_paid) > 0", nativeQuery = true)
+    List<Object[]> getRevenueByConnector(@Param("ownerId") Long ownerId, @Param("since") LocalDateTime since);
+
+    @Query(value = "SELECT CAST(r.bucket AS DATE) as date, SUM(r.revenue) as revenue, SUM(r.energy_kwh) as energy " +
+           "FROM session_rollups r JOIN stations st ON st.id = r.station_id " +
+           "WHERE st.owner_id = :ownerId AND r.resolution = '" + SessionRollup.DAY + "' AND r.bucket >= :since " +
+           "GROUP BY CAST(r.bucket AS DATE) HAVING SUM(r.sessions_paid) > 0 ORDER BY date ASC", nativeQuery = true)
+    List<Object[]> getDailyStatsByOwner(@Param("ownerId") Long ownerId, @Param("since") LocalDateTime since);
+
+    // Sessions started per hour of day, paid or not.
+    @Query(value = "SELECT EXTRACT(HOUR FROM r.bucket) as hour, SUM(r.sessions_started) as count " +
+           "FROM session_rollups r JOIN stations st ON st.id = r.station_id " +
+           "WHERE st.owner_id = :ownerId AND r.resolution = '" + SessionRollup.HOUR + "' AND r.bucket >= :since " +
+           "GROUP BY hour HAVING SUM(r.sessions_started) > 0 ORDER BY hour ASC", nativeQuery = true)
+    List<Object[]> getPeakUsageByOwner(@Param("ownerId") Long ownerId, @Param("since") LocalDateTime since);
+}
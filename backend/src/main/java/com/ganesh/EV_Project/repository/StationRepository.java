@@ -30,6 +30,10 @@ public interface StationRepository extends JpaRepository<Station, Long> {
                         @Param("swLng") double swLng,
                         @Param("neLng") double neLng);
 
+        // Every station's coordinates, for the in-memory spatial index.
+        @Query("SELECT new com.ganesh.EV_Project.dto.StationPinDTO(s.id, s.latitude, s.longitude) FROM Station s WHERE s.latitude IS NOT NULL AND s.longitude IS NOT NULL")
+        List<com.ganesh.EV_Project.dto.StationPinDTO> findAllPins();
+
         // Bounding box query — returns LIGHTWEIGHT pins only (optimizes memory and
         // bandwidth)
         @Query("SELECT new com.ganesh.EV_Project.dto.StationPinDTO(s.id, s.latitude, s.longitude) FROM Station s WHERE s.latitude BETWEEN :swLat AND :neLat AND s.longitude BETWEEN :swLng AND :neLng")
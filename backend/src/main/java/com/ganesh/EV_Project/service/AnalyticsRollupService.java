@@ -0,0 +1,228 @@
+package com.ganesh.EV_Project.service;
+
+import com.ganesh.EV_Project.model.SessionRollup;
+import com.ganesh.EV_Project.util.DbTimeUtil;
+import com.ganesh.EV_Project.util.TransactionUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps session_rollups, the hourly and daily aggregates behind the owner
+ * analytics endpoints, in step with charging_sessions.
+ *
+ * The unit of work is a whole day: its hourly buckets are re-aggregated from
+ * the sessions that started or were paid-and-ended that day, and its daily
+ * buckets from those hours. Recomputing replaces the day's rows, so it is
+ * idempotent and can never double count, which plain += deltas on a retried
+ * payment could.
+ * <ul>
+ *   <li>Incremental: a session start or PAID transition marks its day dirty
+ *       once the transaction commits; dirty days are recomputed every
+ *       app.analytics.rollup.flush-ms, a few thousand sessions each.</li>
+ *   <li>Reconcile: the last app.analytics.rollup.reconcile-days are
+ *       recomputed periodically, covering marks lost with a node that
+ *       stopped before flushing, or writes made outside the app.</li>
+ *   <li>Backfill: every day since the first session, in chunks, when the
+ *       table is empty at startup or on request from the admin API.</li>
+ * </ul>
+ * Recomputes take a transaction-scoped advisory lock, so replicas (and a
+ * backfill running alongside the flush) never interleave on the same rows.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class AnalyticsRollupService {
+
+    // Arbitrary application-wide key for pg_advisory_xact_lock.
+    private static final long LOCK_KEY = 0x5E5510_0A11L;
+
+    private static final String DELETE_SQL = "DELETE FROM session_rollups WHERE bucket >= ? AND bucket < ?";
+
+    // Starts and paid completions are separate event streams, merged per hour bucket.
+    private static final String HOUR_SQL = "INSERT INTO session_rollups "
+            + "(resolution, station_id, connector_type, bucket, sessions_started, sessions_paid, revenue, energy_kwh, duration_minutes) "
+            + "SELECT '" + SessionRollup.HOUR + "', e.station_id, e.connector_type, e.bucket, SUM(e.started), SUM(e.paid), "
+            + "       SUM(e.revenue), SUM(e.energy), SUM(e.duration) "
+            + "FROM ("
+            + "  SELECT cs.station_id, COALESCE(cs.connector_type, 'Unknown') AS connector_type, "
+            + "         date_trunc('hour', s.start_time) AS bucket, 1 AS started, 0 AS paid, "
+            + "         0.0 AS revenue, 0.0 AS energy, 0.0 AS duration "
+            + "  FROM charging_sessions s JOIN bookings b ON b.id = s.booking_id JOIN charger_slots cs ON cs.id = b.slot_id "
+            + "  WHERE s.start_time >= ? AND s.start_time < ? "
+            + "  UNION ALL "
+            + "  SELECT cs.station_id, COALESCE(cs.connector_type, 'Unknown'), date_trunc('hour', s.end_time), 0, 1, "
+            + "         COALESCE(s.total_cost, 0), COALESCE(s.energy_kwh, 0), "
+            + "         COALESCE(EXTRACT(EPOCH FROM (s.end_time - s.start_time)) / 60, 0) "
+            + "  FROM charging_sessions s JOIN bookings b ON b.id = s.booking_id JOIN charger_slots cs ON cs.id = b.slot_id "
+            + "  WHERE s.payment_status = 'PAID' AND s.end_time >= ? AND s.end_time < ?"
+            + ") e "
+            + "GROUP BY e.station_id, e.connector_type, e.bucket";
+
+    private static final String DAY_SQL = "INSERT INTO session_rollups "
+            + "(resolution, station_id, connector_type, bucket, sessions_started, sessions_paid, revenue, energy_kwh, duration_minutes) "
+            + "SELECT '" + SessionRollup.DAY + "', station_id, connector_type, date_trunc('day', bucket), "
+            + "       SUM(sessions_started), SUM(sessions_paid), SUM(revenue), SUM(energy_kwh), SUM(duration_minutes) "
+            + "FROM session_rollups WHERE resolution = '" + SessionRollup.HOUR + "' AND bucket >= ? AND bucket < ? "
+            + "GROUP BY station_id, connector_type, date_trunc('day', bucket)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.analytics.rollup.reconcile-days:2}")
+    private int reconcileDays;
+
+    @Value("${app.analytics.rollup.backfill-chunk-days:7}")
+    private int backfillChunkDays;
+
+    private final Set<LocalDate> dirtyDays = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean backfilling = new AtomicBoolean();
+
+    private final AtomicLong daysRecomputed = new AtomicLong();
+    private final AtomicLong failedRecomputes = new AtomicLong();
+    private volatile long lastFlushMillis;
+    private volatile LocalDateTime lastReconcileAt;
+    private volatile LocalDateTime lastBackfillAt;
+    private volatile long lastBackfillMillis;
+
+    /**
+     * Marks the day of a session event (start time, or end time of a paid
+     * session) for recompute once the current transaction commits. Days are
+     * database-zone days, as the rollup buckets are, so a JVM-local time near
+     * midnight on a UTC host still marks the day its row is stored under.
+     */
+    public void markDirty(LocalDateTime at) {
+        if (at == null) return;
+        LocalDate day = DbTimeUtil.toDbLocal(at).toLocalDate();
+        TransactionUtil.afterCommit(() -> dirtyDays.add(day));
+    }
+
+    @Scheduled(fixedDelayString = "${app.analytics.rollup.flush-ms:10000}")
+    public void flushDirty() {
+        if (dirtyDays.isEmpty()) return;
+        long started = System.nanoTime();
+        // Taken out before recomputing: a mark arriving meanwhile means another pass.
+        List<LocalDate> days = new ArrayList<>(dirtyDays);
+        dirtyDays.removeAll(days);
+        Collections.sort(days);
+        for (LocalDate day : days) {
+            try {
+                recompute(day, day.plusDays(1));
+            } catch (Exception e) {
+                dirtyDays.add(day);
+                failedRecomputes.incrementAndGet();
+                log.warn("Session rollup for {} failed: {}", day, e.getMessage());
+            }
+        }
+        lastFlushMillis = (System.nanoTime() - started) / 1_000_000;
+    }
+
+    @Scheduled(fixedRateString = "${app.analytics.rollup.reconcile-ms:900000}",
+            initialDelayString = "${app.analytics.rollup.reconcile-ms:900000}")
+    public void reconcile() {
+        LocalDate today = DbTimeUtil.today();
+        try {
+            recompute(today.minusDays(Math.max(1, reconcileDays) - 1L), today.plusDays(1));
+            lastReconcileAt = LocalDateTime.now();
+        } catch (Exception e) {
+            failedRecomputes.incrementAndGet();
+            log.warn("Session rollup reconcile failed: {}", e.getMessage());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        try {
+            Boolean empty = jdbcTemplate.queryForObject(
+                    "SELECT NOT EXISTS (SELECT 1 FROM session_rollups)", Boolean.class);
+            if (Boolean.TRUE.equals(empty)) startBackfill();
+        } catch (Exception e) {
+            log.warn("Session rollup startup check failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Rebuilds every day since the first session on a background thread.
+     * Returns false if a backfill is already running on this node.
+     */
+    public boolean startBackfill() {
+        if (!backfilling.compareAndSet(false, true)) return false;
+        Thread t = new Thread(() -> {
+            try {
+                backfill();
+            } finally {
+                backfilling.set(false);
+            }
+        }, "analytics-backfill");
+        t.setDaemon(true);
+        t.start();
+        return true;
+    }
+
+    private void backfill() {
+        long started = System.nanoTime();
+        try {
+            Timestamp first = jdbcTemplate.queryForObject("SELECT MIN(start_time) FROM charging_sessions", Timestamp.class);
+            if (first == null) return;
+            LocalDate end = DbTimeUtil.today().plusDays(1);
+            int chunk = Math.max(1, backfillChunkDays);
+            int days = 0;
+            // One transaction per chunk keeps each lock hold and delete short. The raw column
+            // value is already database-zone wall-clock time, so its date is the first bucket day.
+            for (LocalDate from = first.toLocalDateTime().toLocalDate(); from.isBefore(end); from = from.plusDays(chunk)) {
+                LocalDate to = from.plusDays(chunk).isAfter(end) ? end : from.plusDays(chunk);
+                recompute(from, to);
+                days += (int) (to.toEpochDay() - from.toEpochDay());
+            }
+            lastBackfillAt = LocalDateTime.now();
+            lastBackfillMillis = (System.nanoTime() - started) / 1_000_000;
+            log.info("Session rollups backfilled for {} day(s) in {} ms", days, lastBackfillMillis);
+        } catch (Exception e) {
+            failedRecomputes.incrementAndGet();
+            log.error("Session rollup backfill failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Replaces the hourly and daily rows of the database-zone days in [from, to).
+     * Their midnights are bound as is: they are already database wall-clock times.
+     */
+    private void recompute(LocalDate from, LocalDate to) {
+        Timestamp start = Timestamp.valueOf(from.atStartOfDay());
+        Timestamp end = Timestamp.valueOf(to.atStartOfDay());
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.query("SELECT pg_advisory_xact_lock(?)", rs -> {}, LOCK_KEY);
+            jdbcTemplate.update(DELETE_SQL, start, end);
+            jdbcTemplate.update(HOUR_SQL, start, end, start, end);
+            jdbcTemplate.update(DAY_SQL, start, end);
+        });
+        daysRecomputed.addAndGet(to.toEpochDay() - from.toEpochDay());
+    }
+
+    public Stats getStats() {
+        Long rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM session_rollups", Long.class);
+        return new Stats(rows != null ? rows : 0L, dirtyDays.size(), backfilling.get(), daysRecomputed.get(),
+                failedRecomputes.get(), lastFlushMillis, lastReconcileAt, lastBackfillAt, lastBackfillMillis);
+    }
+
+    public record Stats(long rows, int dirtyDays, boolean backfilling, long daysRecomputed, long failedRecomputes,
+                        long lastFlushMillis, LocalDateTime lastReconcileAt, LocalDateTime lastBackfillAt,
+                        long lastBackfillMillis) {}
+}
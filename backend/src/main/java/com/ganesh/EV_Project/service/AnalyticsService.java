@@ -2,13 +2,14 @@ package com.ganesh.EV_Project.service;
 
 import com.ganesh.EV_Project.dto.*;
 import com.ganesh.EV_Project.repository.ChargingSessionRepository;
+import com.ganesh.EV_Project.repository.SessionRollupRepository;
+import com.ganesh.EV_Project.util.DbTimeUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.sql.Date;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -22,11 +23,23 @@ public class AnalyticsService {
     @Autowired
     private ChargingSessionRepository sessionRepository;
 
+    // Owner-wide figures come from session_rollups, kept by AnalyticsRollupService.
+    @Autowired
+    private SessionRollupRepository rollupRepository;
+
+    /**
+     * Midnight starting the window, on the database-zone day the rollup buckets use.
+     * Returned in the JVM zone, since JPA converts parameters back to the database zone.
+     */
+    private static LocalDateTime since(int days) {
+        return DbTimeUtil.fromDbLocal(DbTimeUtil.today().minusDays(days).atStartOfDay());
+    }
+
     public AnalyticsSummaryDTO getAnalyticsSummary(Long ownerId, int days) {
-        LocalDateTime since = LocalDateTime.now().minusDays(days).with(LocalTime.MIN);
+        LocalDateTime since = since(days);
 
         // 1. Fetch Efficiency Metrics with null-safety
-        List<Object[]> efficiencyRawList = sessionRepository.getEfficiencyMetrics(ownerId, since);
+        List<Object[]> efficiencyRawList = rollupRepository.getEfficiencyMetrics(ownerId, since);
         EfficiencyMetricsDTO efficiency;
         
         if (efficiencyRawList != null && !efficiencyRawList.isEmpty()) {
@@ -41,7 +54,7 @@ public class AnalyticsService {
         }
 
         // 2. Fetch Station Revenue with null-safety
-        List<Object[]> stationRaw = sessionRepository.getRevenueByStation(ownerId, since);
+        List<Object[]> stationRaw = rollupRepository.getRevenueByStation(ownerId, since);
         List<StationRevenueDTO> stationRevenue = new ArrayList<>();
         if (stationRaw != null) {
             stationRevenue = stationRaw.stream()
@@ -53,7 +66,7 @@ public class AnalyticsService {
         }
 
         // 3. Fetch Connector Revenue with null-safety
-        List<Object[]> connectorRaw = sessionRepository.getRevenueByConnector(ownerId, since);
+        List<Object[]> connectorRaw = rollupRepository.getRevenueByConnector(ownerId, since);
         List<ConnectorRevenueDTO> connectorRevenue = new ArrayList<>();
         if (connectorRaw != null) {
             connectorRevenue = connectorRaw.stream()
@@ -68,8 +81,8 @@ public class AnalyticsService {
     }
 
     public List<DailyStatsDTO> getRevenueTrends(Long ownerId, int days) {
-        LocalDateTime since = LocalDateTime.now().minusDays(days).with(LocalTime.MIN);
-        List<Object[]> rawData = sessionRepository.getDailyStatsByOwner(ownerId, since);
+        LocalDateTime since = since(days);
+        List<Object[]> rawData = rollupRepository.getDailyStatsByOwner(ownerId, since);
 
         Map<LocalDate, DailyStatsDTO> dataMap = new HashMap<>();
         if (rawData != null) {
@@ -93,8 +106,8 @@ public class AnalyticsService {
 
         // Fill gaps with 0 values
         List<DailyStatsDTO> filledData = new ArrayList<>();
-        LocalDate startDate = since.toLocalDate();
-        LocalDate endDate = LocalDate.now();
+        LocalDate endDate = DbTimeUtil.today();
+        LocalDate startDate = endDate.minusDays(days);
 
         for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
             filledData.add(dataMap.getOrDefault(date, new DailyStatsDTO(date, 0.0, 0.0)));
@@ -104,8 +117,8 @@ public class AnalyticsService {
     }
 
     public List<PeakHourDTO> getPeakUsage(Long ownerId, int days) {
-        LocalDateTime since = LocalDateTime.now().minusDays(days).with(LocalTime.MIN);
-        List<Object[]> rawData = sessionRepository.getPeakUsageByOwner(ownerId, since);
+        LocalDateTime since = since(days);
+        List<Object[]> rawData = rollupRepository.getPeakUsageByOwner(ownerId, since);
 
         Map<Integer, Long> hourMap = new HashMap<>();
         if (rawData != null) {
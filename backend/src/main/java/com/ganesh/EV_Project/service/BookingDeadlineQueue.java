@@ -0,0 +1,102 @@
+package com.ganesh.EV_Project.service;
+
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pending reminder and expiry deadlines of unstarted bookings, ordered by due
+ * time. Draining only touches entries that are actually due, so the per-poll
+ * cost is independent of how many bookings are outstanding.
+ *
+ * Entries are hints: the handlers re-check the booking (still CONFIRMED, not
+ * started) before acting, so a cancelled or started booking's deadlines just
+ * fall out as no-ops. Kept free of dependencies so {@link BookingService} can
+ * feed it without a cycle through {@link BookingExpiryScheduler}.
+ */
+@Component
+public class BookingDeadlineQueue {
+
+    // How long before expiry the "reservation expiring" push goes out (CV-11).
+    public static final Duration REMINDER_LEAD = Duration.ofMinutes(5);
+
+    private final DelayQueue<Deadline> queue = new DelayQueue<>();
+
+    // Currently queued due times: <BookingId, epoch millis>. Lets a resync skip
+    // entries that are already queued, and marks superseded ones as stale.
+    private final Map<Long, Long> queuedExpiries = new ConcurrentHashMap<>();
+    private final Map<Long, Long> queuedReminders = new ConcurrentHashMap<>();
+
+    /**
+     * Queues the booking's expiry at {@code expiresAt}, plus its reminder
+     * {@link #REMINDER_LEAD} earlier if one is still to be sent. A reminder
+     * whose time has passed fires on the next poll, as long as the booking
+     * has not expired yet.
+     */
+    public void schedule(Long bookingId, LocalDateTime expiresAt, boolean reminderPending) {
+        if (bookingId == null || expiresAt == null) return;
+        long expiryAt = toMillis(expiresAt);
+        enqueue(queuedExpiries, new Deadline(bookingId, false, expiryAt));
+        if (reminderPending && expiryAt > System.currentTimeMillis()) {
+            enqueue(queuedReminders, new Deadline(bookingId, true, expiryAt - REMINDER_LEAD.toMillis()));
+        }
+    }
+
+    /** Removes and returns everything due by now. */
+    public Due drainDue() {
+        List<Long> reminders = new ArrayList<>();
+        List<Long> expiries = new ArrayList<>();
+        Deadline deadline;
+        while ((deadline = queue.poll()) != null) {
+            Map<Long, Long> queued = deadline.reminder() ? queuedReminders : queuedExpiries;
+            if (!queued.remove(deadline.bookingId(), deadline.dueAtMillis())) {
+                continue; // superseded by a later schedule() for the same booking
+            }
+            (deadline.reminder() ? reminders : expiries).add(deadline.bookingId());
+        }
+        return new Due(reminders, expiries);
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    private void enqueue(Map<Long, Long> queued, Deadline deadline) {
+        Long previous = queued.put(deadline.bookingId(), deadline.dueAtMillis());
+        if (previous == null || previous != deadline.dueAtMillis()) {
+            queue.add(deadline);
+        }
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+
+    public record Due(List<Long> reminders, List<Long> expiries) {
+        public boolean isEmpty() {
+            return reminders.isEmpty() && expiries.isEmpty();
+        }
+    }
+
+    private record Deadline(long bookingId, boolean reminder, long dueAtMillis) implements Delayed {
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAtMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueAtMillis, ((Deadline) other).dueAtMillis);
+        }
+    }
+}
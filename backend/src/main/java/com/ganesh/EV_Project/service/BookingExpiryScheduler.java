@@ -0,0 +1,82 @@
+package com.ganesh.EV_Project.service;
+
+import com.ganesh.EV_Project.dto.BookingDeadlineRow;
+import com.ganesh.EV_Project.repository.BookingRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * Fires booking reminders and expiries when they fall due, instead of
+ * scanning every CONFIRMED booking once a minute.
+ *
+ * New bookings are queued by {@link BookingService} as they commit. A resync
+ * (at startup, then every app.bookings.expiry-resync-ms) loads the deadlines
+ * falling within the next two resync periods from an indexed query. That
+ * covers bookings made on other replicas, anything queued before a restart,
+ * and anything a failed run dropped.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class BookingExpiryScheduler {
+
+    private final BookingDeadlineQueue deadlineQueue;
+    private final BookingRepository bookingRepository;
+    private final BookingService bookingService;
+
+    @Value("${app.booking.expiration-minutes:20}")
+    private int expirationMinutes;
+
+    @Value("${app.bookings.expiry-resync-ms:300000}")
+    private long resyncMillis;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        resync();
+    }
+
+    @Scheduled(fixedDelayString = "${app.bookings.expiry-poll-ms:1000}")
+    public void fireDue() {
+        BookingDeadlineQueue.Due due = deadlineQueue.drainDue();
+        if (due.isEmpty()) return;
+        try {
+            if (!due.reminders().isEmpty()) {
+                bookingService.remindBookings(due.reminders());
+            }
+            if (!due.expiries().isEmpty()) {
+                bookingService.expireBookings(due.expiries());
+            }
+        } catch (Exception e) {
+            // Dropped deadlines are still CONFIRMED in the database; the next resync requeues them.
+            log.warn("Booking deadline run failed ({} reminder(s), {} expiry(ies)): {}",
+                    due.reminders().size(), due.expiries().size(), e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedRateString = "${app.bookings.expiry-resync-ms:300000}",
+            initialDelayString = "${app.bookings.expiry-resync-ms:300000}")
+    public void resync() {
+        try {
+            LocalDateTime horizon = LocalDateTime.now().plusNanos(resyncMillis * 2 * 1_000_000);
+            int queued = 0;
+            for (BookingDeadlineRow row : bookingRepository.findUnstartedDeadlinesBefore(horizon)) {
+                LocalDateTime expiresAt = row.expiresAt() != null ? row.expiresAt()
+                        : row.startTime().plusMinutes(expirationMinutes);
+                if (expiresAt.isAfter(horizon)) continue;
+                deadlineQueue.schedule(row.bookingId(), expiresAt, row.reminderSentAt() == null);
+                queued++;
+            }
+            log.debug("Booking deadlines resynced: {} booking(s) due within the horizon, {} queued entries",
+                    queued, deadlineQueue.size());
+        } catch (Exception e) {
+            log.warn("Booking deadline resync failed: {}", e.getMessage());
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.ganesh.EV_Project.service;
 
+import com.ganesh.EV_Project.controller.WebSocketController;
 import com.ganesh.EV_Project.dto.BookingRequest;
 import com.ganesh.EV_Project.enums.BookingStatus;
 import com.ganesh.EV_Project.enums.SlotStatus;
@@ -13,8 +14,10 @@ import com.ganesh.EV_Project.repository.BookingRepository;
 import com.ganesh.EV_Project.repository.ChargerSlotRepository;
 import com.ganesh.EV_Project.repository.ChargingSessionRepository;
 import com.ganesh.EV_Project.repository.UserRepository;
+import com.ganesh.EV_Project.util.TransactionUtil;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -22,11 +25,15 @@ import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
+@Slf4j
 @RequiredArgsConstructor
 public class BookingService {
 
@@ -36,6 +43,10 @@ public class BookingService {
     @Value("${app.payment.pending-ttl-minutes:30}")
     private int paymentPendingTtlMinutes;
 
+    // Instant bookings stay off connectors reserved (advance reservation) within this long.
+    @Value("${app.reservations.instant-buffer-minutes:60}")
+    private int instantBufferMinutes;
+
     @Autowired
     private BookingRepository bookingRepository;
 
@@ -51,16 +62,34 @@ public class BookingService {
     @Autowired
     private PushNotificationService pushNotificationService;
 
+    @Autowired
+    private SlotAvailabilityCache slotAvailabilityCache;
+
+    @Autowired
+    private SlotAllocator slotAllocator;
+
+    @Autowired
+    private BookingDeadlineQueue bookingDeadlineQueue;
+
+    @Autowired
+    private WebSocketController webSocketController;
+
+    @Autowired
+    private SlotReservationIndex slotReservationIndex;
+
     /**
      * "Book Now" — instant booking with random connector assignment.
      *
      * Flow:
-     * 1. Lock & fetch available connectors matching station + connectorType
-     * 2. Filter for truck support if vehicleType is TRUCK
-     * 3. If no candidates → find earliest "next available" time and throw error
-     * 4. Random pick from candidates
-     * 5. Create booking with server-set startTime = NOW, expiresAt = NOW + 20 min
-     * 6. Set slot status to BOOKED
+     * 1. Claim a random free connector from the in-memory free list, locking
+     *    only that row (see {@link SlotAllocator})
+     * 2. Otherwise lock & fetch available connectors matching station + connectorType
+     * 3. Skip connectors with an advance reservation starting soon; filter for
+     *    truck support if vehicleType is TRUCK
+     * 4. If no candidates → find earliest "next available" time and throw error
+     * 5. Random pick from candidates
+     * 6. Create booking with server-set startTime = NOW, expiresAt = NOW + 20 min
+     * 7. Set slot status to BOOKED
      */
     @Transactional
     public Booking createBooking(BookingRequest request) {
@@ -81,10 +110,17 @@ public class BookingService {
                 throw new APIException("Selected slot is not available");
             }
         } else {
+            assignedSlot = slotAllocator.isReady() ? claimFreeSlot(request, now) : null;
+        }
+
+        if (assignedSlot == null) {
             // ── Smart Assignment with Pessimistic Locking ──
-            // This query locks the rows to prevent race conditions
+            // Fallback when the free list had nothing usable: this query locks
+            // the rows to prevent race conditions
             List<ChargerSlot> candidates = slotRepository.findAvailableSlotsForUpdate(
-                    request.getStationId(), request.getConnectorType());
+                    request.getStationId(), request.getConnectorType()).stream()
+                    .filter(s -> clearOfReservations(s.getId(), now))
+                    .collect(Collectors.toList());
 
             // Filter for truck support if needed
             if (request.getVehicleType() == VehicleType.TRUCK) {
@@ -145,29 +181,80 @@ public class BookingService {
         // Update slot status
         assignedSlot.setStatus(SlotStatus.BOOKED);
         slotRepository.save(assignedSlot);
+        slotAvailabilityCache.onSlotBooked(assignedSlot, expiresAt);
+
+        Booking saved = bookingRepository.save(booking);
+        TransactionUtil.afterCommit(() -> bookingDeadlineQueue.schedule(saved.getId(), expiresAt, true));
+        return saved;
+    }
+
+    /**
+     * Fast path of "Book Now": same car/truck preference as the locking path,
+     * applied to the cached free list. Returns null when there is no usable
+     * candidate, leaving the decision (and the error message) to the locking
+     * path, which sees the authoritative slot states. If every candidate is
+     * held by a concurrent booking the station is full for now, and the
+     * request fails without queueing on those rows.
+     */
+    private ChargerSlot claimFreeSlot(BookingRequest request, LocalDateTime now) {
+        List<SlotAvailabilityCache.FreeSlot> free =
+                slotAllocator.freeSlots(request.getStationId(), request.getConnectorType()).stream()
+                        .filter(s -> clearOfReservations(s.slotId(), now))
+                        .collect(Collectors.toList());
+        List<SlotAvailabilityCache.FreeSlot> candidates = free;
+        if (request.getVehicleType() == VehicleType.TRUCK) {
+            candidates = free.stream().filter(SlotAvailabilityCache.FreeSlot::truckCapable)
+                    .collect(Collectors.toList());
+        } else if (request.getVehicleType() == VehicleType.CAR) {
+            candidates = free.stream().filter(s -> !s.truckCapable()).collect(Collectors.toList());
+            if (candidates.isEmpty() && request.isAllowTruckSlotFallback()) {
+                candidates = free;
+            }
+        }
+        if (candidates.isEmpty()) {
+            return null;
+        }
+
+        List<Long> slotIds = candidates.stream()
+                .map(SlotAvailabilityCache.FreeSlot::slotId)
+                .collect(Collectors.toList());
+        Collections.shuffle(slotIds);
+        SlotAllocator.Claim claim = slotAllocator.claim(slotIds, slot ->
+                slot.getStation() != null
+                        && request.getStationId().equals(slot.getStation().getId())
+                        && slot.getConnectorType() == request.getConnectorType()
+                        && (request.getVehicleType() != VehicleType.TRUCK
+                            || (slot.getDispensary() != null
+                                && Boolean.TRUE.equals(slot.getDispensary().getAcceptsTrucks()))));
+        if (claim.slot() == null && claim.contended()) {
+            String nextAvailable = getNextAvailableTime(request.getStationId(), request.getConnectorType());
+            String kind = request.getVehicleType() == VehicleType.TRUCK ? " truck" : "";
+            throw new APIException("No " + request.getConnectorType() + kind + " connectors available. " + nextAvailable);
+        }
+        return claim.slot();
+    }
 
-        return bookingRepository.save(booking);
+    // An instant booking has no end time; assume it needs the connector for the buffer period.
+    private boolean clearOfReservations(Long slotId, LocalDateTime now) {
+        return slotReservationIndex.isFree(slotId, now, now.plusMinutes(instantBufferMinutes));
     }
 
     /**
      * Find when the next connector of this type will be free.
      * Returns a user-friendly message like "Next available: ~2:45 PM"
+     * (from the availability cache's per-connector ETAs: live end-of-charge
+     * estimates, unstarted booking expiries and payment holds).
      */
     private String getNextAvailableTime(Long stationId,
             com.ganesh.EV_Project.enums.ConnectorType connectorType) {
-        List<Booking> activeBookings = bookingRepository
-                .findActiveBookingsByStationAndConnector(stationId, connectorType);
+        LocalDateTime freeAt = slotAvailabilityCache.isReady()
+                ? slotAvailabilityCache.earliestFreeAt(stationId, connectorType) : null;
 
-        if (activeBookings.isEmpty()) {
+        // Unknown, or overdue (a session running past its estimate)
+        if (freeAt == null || freeAt.isBefore(LocalDateTime.now())) {
             return "Please try again shortly.";
         }
 
-        // The first result is the earliest expiresAt (sorted ASC in the query)
-        Booking earliest = activeBookings.get(0);
-        LocalDateTime freeAt = earliest.getExpiresAt() != null
-                ? earliest.getExpiresAt()
-                : earliest.getStartTime().plusMinutes(expirationMinutes);
-
         String formattedTime = freeAt.format(DateTimeFormatter.ofPattern("h:mm a"));
         return "Next available: ~" + formattedTime;
     }
@@ -224,71 +311,65 @@ public class BookingService {
         Booking booking = bookingRepository.findById(bookingId)
                 .orElseThrow(() -> new APIException("Booking not found"));
 
-        // Only allow cancelling confirmed bookings
-        if (booking.getStatus() != BookingStatus.CONFIRMED) {
+        // Only allow cancelling confirmed bookings and not-yet-active reservations
+        if (booking.getStatus() != BookingStatus.CONFIRMED && booking.getStatus() != BookingStatus.PENDING) {
             throw new APIException("Cannot cancel booking with status: " + booking.getStatus());
         }
+        boolean reservation = booking.getStatus() == BookingStatus.PENDING;
 
         booking.setStatus(BookingStatus.CANCELLED);
         bookingRepository.save(booking);
+        slotReservationIndex.releaseAfterCommit(booking.getSlot().getId(), booking.getId());
+
+        // A reservation whose window hasn't opened never took the slot
+        if (reservation) return;
 
         // Make slot available again
         ChargerSlot slot = booking.getSlot();
         slot.setStatus(SlotStatus.AVAILABLE);
         slotRepository.save(slot);
+        slotAvailabilityCache.onSlotChanged(slot);
     }
 
     /**
      * Auto-expire unstarted bookings after grace period (20 min).
-     * Runs every 60 seconds.
+     * Called by {@link BookingExpiryScheduler} as each booking's expiry falls due.
+     * One set-based statement expires the still-unstarted ones and frees their
+     * slots; bookings started or cancelled in the meantime are left alone.
      */
-    @Scheduled(fixedRate = 60000)
     @Transactional
-    public void expireUnstartedBookings() {
-        List<Booking> confirmedBookings = bookingRepository.findByStatus(BookingStatus.CONFIRMED);
-
-        for (Booking booking : confirmedBookings) {
-            boolean hasSession = chargingSessionRepository.existsByBookingId(booking.getId());
-
-            LocalDateTime expiration = booking.getExpiresAt() != null ? booking.getExpiresAt()
-                    : booking.getStartTime().plusMinutes(expirationMinutes);
-
-            if (LocalDateTime.now().isAfter(expiration) && !hasSession) {
-                booking.setStatus(BookingStatus.EXPIRED);
-                booking.getSlot().setStatus(SlotStatus.AVAILABLE);
-                bookingRepository.save(booking);
-            }
-        }
+    public void expireBookings(Collection<Long> bookingIds) {
+        List<Long> releasedSlotIds = bookingRepository.expireUnstartedReturningSlotIds(
+                bookingIds, LocalDateTime.now(), expirationMinutes);
+        notifyReleasedSlots(releasedSlotIds);
     }
 
     /**
      * Remind drivers whose unstarted reservation is about to expire (~5 min out),
-     * once per booking. Runs every 60 seconds. (CV-11)
+     * once per booking. Called by {@link BookingExpiryScheduler}. (CV-11)
      */
-    @Scheduled(fixedRate = 60000)
     @Transactional
-    public void remindExpiringBookings() {
+    public void remindBookings(Collection<Long> bookingIds) {
         LocalDateTime now = LocalDateTime.now();
-        LocalDateTime soon = now.plusMinutes(5);
+        Set<Long> started = new HashSet<>(chargingSessionRepository.findBookingIdsWithSession(bookingIds));
 
-        for (Booking booking : bookingRepository.findByStatus(BookingStatus.CONFIRMED)) {
-            if (booking.getReminderSentAt() != null) continue;
+        for (Booking booking : bookingRepository.findAllById(bookingIds)) {
+            if (booking.getStatus() != BookingStatus.CONFIRMED || started.contains(booking.getId())) continue;
 
             LocalDateTime expiration = booking.getExpiresAt() != null ? booking.getExpiresAt()
                     : booking.getStartTime().plusMinutes(expirationMinutes);
-
-            boolean expiringSoon = expiration.isAfter(now) && expiration.isBefore(soon);
-            if (expiringSoon && !chargingSessionRepository.existsByBookingId(booking.getId())) {
-                if (booking.getUser() != null) {
-                    pushNotificationService.sendToUser(
-                            booking.getUser().getId(),
-                            "BOOKING_EXPIRING",
-                            "Reservation expiring",
-                            "Your slot reservation expires in a few minutes. Start charging to keep it.",
-                            "plugsy://bookings/" + booking.getUser().getId());
-                }
-                booking.setReminderSentAt(now);
-                bookingRepository.save(booking);
+            if (!expiration.isAfter(now)) continue;
+
+            // Conditional update, so only one node (and one run) sends it
+            if (bookingRepository.markReminderSent(booking.getId(), now) == 0) continue;
+
+            if (booking.getUser() != null) {
+                pushNotificationService.sendToUser(
+                        booking.getUser().getId(),
+                        "BOOKING_EXPIRING",
+                        "Reservation expiring",
+                        "Your slot reservation expires in a few minutes. Start charging to keep it.",
+                        "plugsy://bookings/" + booking.getUser().getId());
             }
         }
     }
@@ -296,17 +377,27 @@ public class BookingService {
     /**
      * Release slots stuck in PAYMENT_PENDING when payment was never completed
      * within the TTL, so the slot does not stay blocked indefinitely.
+     * Done in one UPDATE ... RETURNING, however many slots are affected.
      */
     @Scheduled(fixedRate = 60000)
     @Transactional
     public void releaseStalePaymentPendingSlots() {
-        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(paymentPendingTtlMinutes);
-        List<ChargingSession> stale = chargingSessionRepository.findUnpaidEndedBefore(cutoff);
-        for (ChargingSession session : stale) {
-            ChargerSlot slot = session.getBooking() != null ? session.getBooking().getSlot() : null;
-            if (slot != null && slot.getStatus() == SlotStatus.PAYMENT_PENDING) {
-                slot.setStatus(SlotStatus.AVAILABLE);
-                slotRepository.save(slot);
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> releasedSlotIds = slotRepository.releaseStalePaymentPendingReturningIds(
+                now.minusMinutes(paymentPendingTtlMinutes), now);
+        notifyReleasedSlots(releasedSlotIds);
+    }
+
+    // Tell station subscribers (and the availability cache) about slots freed by a bulk update.
+    private void notifyReleasedSlots(List<Long> slotIds) {
+        if (slotIds.isEmpty()) return;
+        for (ChargerSlot slot : slotRepository.findAllById(slotIds)) {
+            try {
+                if (slot.getStation() != null) {
+                    webSocketController.notifySlotStatusChange(slot.getStation().getId(), slot);
+                }
+            } catch (Exception e) {
+                log.warn("WebSocket slot status notify failed: {}", e.getMessage());
             }
         }
     }
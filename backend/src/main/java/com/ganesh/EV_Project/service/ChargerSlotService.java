@@ -39,11 +39,13 @@ public class ChargerSlotService {
     @Autowired
     private ChargingSimulatorService simulatorService;
     @Autowired
-    private RazorpayService razorpayService;
+    private OutboxService outboxService;
     @Autowired
     private WebSocketController webSocketController;
     @Autowired
     private PushNotificationService pushNotificationService;
+    @Autowired
+    private SlotAvailabilityCache slotAvailabilityCache;
 
     public List<ChargerSlot> getAllSlots() {
         return slotRepository.findAll();
@@ -101,31 +103,22 @@ public class ChargerSlotService {
             session.setTotalCost(cost);
             session.setStatus("COMPLETED");
 
-            String razorpayOrderId = null;
-            try {
-                razorpayOrderId = razorpayService.createOrder(cost, booking.getId().toString());
-                session.setRazorpayOrderId(razorpayOrderId);
-            } catch (Exception e) {
-                log.error("Failed to create Razorpay order for maintenance stop: {}", e.getMessage());
-            }
             chargingSessionRepository.save(session);
 
             booking.setStatus(BookingStatus.COMPLETED);
             booking.setActualEndTime(endTime);
             bookingRepository.save(booking);
 
-            try {
+            // Razorpay order and driver message run after commit (outbox); the
+            // payment screen picks the order up when it loads the session.
+            outboxService.enqueuePaymentOrder(session.getId());
+            if (booking.getUser() != null) {
                 Map<String, Object> payload = new HashMap<>();
                 payload.put("bookingId", booking.getId());
                 payload.put("status", "FORCE_STOPPED_MAINTENANCE");
                 payload.put("message", "Charging was stopped because the charger entered maintenance. Please complete payment.");
                 payload.put("totalCost", cost);
-                payload.put("razorpayOrderId", razorpayOrderId != null ? razorpayOrderId : "");
-                if (booking.getUser() != null) {
-                    webSocketController.notifyUserBookingUpdate(booking.getUser().getId(), payload);
-                }
-            } catch (Exception e) {
-                log.warn("WebSocket driver notify failed: {}", e.getMessage());
+                outboxService.enqueueStompMessage("/topic/user/" + booking.getUser().getId() + "/bookings", payload);
             }
 
             // ── PUSH: charging force-stopped for maintenance & billed ──
@@ -144,7 +137,9 @@ public class ChargerSlotService {
         ChargerSlot slot = slotRepository.findById(id)
                 .orElseThrow(() -> new APIException("Slot not found"));
         slot.setConnectorType(connectorType);
-        return slotRepository.save(slot);
+        ChargerSlot saved = slotRepository.save(slot);
+        slotAvailabilityCache.onSlotChanged(saved);
+        return saved;
     }
 
     public ChargerSlot createSlot(ChargerSlot slot, Long stationId) {
@@ -152,7 +147,9 @@ public class ChargerSlotService {
                 .orElseThrow(() -> new APIException("Station not found"));
         slot.setStation(station);
         slot.setStatus(SlotStatus.AVAILABLE);
-        return slotRepository.save(slot);
+        ChargerSlot saved = slotRepository.save(slot);
+        slotAvailabilityCache.onSlotChanged(saved);
+        return saved;
     }
 
     public ChargerSlot getSlotById(Long id) {
@@ -1,8 +1,8 @@
 package com.ganesh.EV_Project.service;
 
-import com.ganesh.EV_Project.controller.WebSocketController;
 import com.ganesh.EV_Project.enums.BookingStatus;
 import com.ganesh.EV_Project.enums.SlotStatus;
+import com.ganesh.EV_Project.enums.VehicleType;
 import com.ganesh.EV_Project.model.Booking;
 import com.ganesh.EV_Project.model.ChargerSlot;
 import com.ganesh.EV_Project.model.ChargingSession;
@@ -14,6 +14,7 @@ import com.ganesh.EV_Project.repository.ChargingSessionRepository;
 import com.ganesh.EV_Project.repository.DispensaryRepository;
 import com.ganesh.EV_Project.repository.StationRepository;
 import com.ganesh.EV_Project.util.MoneyUtil;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -42,16 +43,22 @@ public class ChargingCompletionService {
     private final ChargerSlotRepository slotRepository;
     private final StationRepository stationRepository;
     private final DispensaryRepository dispensaryRepository;
-    private final RazorpayService razorpayService;
-    private final WebSocketController webSocketController;
+    private final OutboxService outboxService;
+    private final SlotAvailabilityCache slotAvailabilityCache;
     private final PushNotificationService pushNotificationService;
+    private final EntityManager entityManager;
+
+    // How often a stop forwarded to another node checks whether it was finalized.
+    private static final long FINALIZE_POLL_MILLIS = 100;
 
     /**
-     * Marks the session COMPLETED, releases the booking, holds the slot for
-     * payment, creates the Razorpay order, and notifies the user (WebSocket +
-     * push). No-op if the session is already ended.
+     * Marks the session COMPLETED, releases the booking and holds the slot for
+     * payment, and queues the Razorpay order and the user notifications
+     * (WebSocket + push) to run after commit. No-op if the session is already
+     * ended.
      *
-     * @param finalEnergyKwh final energy (from the simulator), or null to derive from duration
+     * @param finalEnergyKwh final energy (from the simulator), or null to take the last
+     *                       persisted snapshot (or, without one, derive it from duration)
      * @param finalCost      final cost (from the simulator), or null to derive
      * @return the finalized session (or the unchanged session if already ended)
      */
@@ -73,11 +80,21 @@ public class ChargingCompletionService {
 
         Booking booking = session.getBooking();
         LocalDateTime endTime = LocalDateTime.now();
-        double hours = Duration.between(session.getStartTime(), endTime).toMinutes() / 60.0;
-        double energyConsumed = (finalEnergyKwh != null)
-                ? finalEnergyKwh
-                : hours * booking.getSlot().getPowerKw();
-        double cost = MoneyUtil.round2((finalCost != null) ? finalCost : energyConsumed * 15.0);
+        double energyConsumed;
+        double cost;
+        if (finalEnergyKwh != null) {
+            energyConsumed = finalEnergyKwh;
+            cost = MoneyUtil.round2(finalCost != null ? finalCost : energyConsumed * tariff(booking));
+        } else if (session.getEnergyKwh() != null && session.getTotalCost() != null) {
+            // The simulator's last snapshot: already tapered, tariffed and sped up,
+            // and at most one snapshot interval behind.
+            energyConsumed = session.getEnergyKwh();
+            cost = MoneyUtil.round2(session.getTotalCost());
+        } else {
+            double hours = Duration.between(session.getStartTime(), endTime).toMinutes() / 60.0;
+            energyConsumed = hours * booking.getSlot().getPowerKw();
+            cost = MoneyUtil.round2(energyConsumed * tariff(booking));
+        }
 
         session.setEndTime(endTime);
         session.setEnergyKwh(energyConsumed);
@@ -106,44 +123,67 @@ public class ChargingCompletionService {
             dispensaryRepository.save(dispensary);
         }
 
-        // Create the Razorpay order (best-effort; never fail completion over it).
-        try {
-            String razorpayOrderId = razorpayService.createOrder(cost, booking.getId().toString());
-            session.setRazorpayOrderId(razorpayOrderId);
-            savedSession = chargingSessionRepository.save(session);
-        } catch (Exception e) {
-            log.error("Failed to create Razorpay order for session {}: {}", session.getId(), e.getMessage());
+        // Slow or external side effects run after commit, off this transaction:
+        // the Razorpay order and the live-UI messages go through the outbox
+        // (the stop endpoint waits briefly for the order), the push through
+        // the notification outbox.
+        slotAvailabilityCache.onSlotChanged(slot);
+        outboxService.enqueuePaymentOrder(savedSession.getId());
+        if (station != null) {
+            outboxService.enqueueStompMessage("/topic/station/" + station.getId() + "/slots", slot);
         }
-
-        // Notify any live UI (best-effort).
-        try {
-            if (station != null) {
-                webSocketController.notifySlotStatusChange(station.getId(), slot);
-            }
-            if (booking.getUser() != null) {
-                webSocketController.notifyUserBookingUpdate(booking.getUser().getId(), Map.of(
-                        "bookingId", booking.getId(),
-                        "status", booking.getStatus()));
-            }
-        } catch (Exception e) {
-            log.warn("WebSocket completion notify failed for session {}: {}", session.getId(), e.getMessage());
+        if (booking.getUser() != null) {
+            outboxService.enqueueStompMessage("/topic/user/" + booking.getUser().getId() + "/bookings", Map.of(
+                    "bookingId", booking.getId(),
+                    "status", booking.getStatus()));
         }
 
         // Push reaches the driver who walked away; deeplink opens the payment screen.
-        // Best-effort: a push failure must never roll back the finalize.
         if (booking.getUser() != null) {
+            pushNotificationService.sendToUser(
+                    booking.getUser().getId(),
+                    "CHARGING_COMPLETE",
+                    "Charging complete",
+                    "Your vehicle is charged. Amount due: ₹" + cost + ". Tap to pay.",
+                    "plugsy://payment/" + savedSession.getId());
+        }
+
+        return savedSession;
+    }
+
+    /**
+     * Waits for another node to finalize a session stopped here (the node
+     * holding its simulation lease). Polls the row without holding a
+     * connection in between; returns the finalized session, or null if it is
+     * still ONGOING at the deadline.
+     */
+    public ChargingSession awaitFinalized(Long sessionId, Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (!"COMPLETED".equals(chargingSessionRepository.findStatusById(sessionId))) {
+            if (System.nanoTime() >= deadline) return null;
             try {
-                pushNotificationService.sendToUser(
-                        booking.getUser().getId(),
-                        "CHARGING_COMPLETE",
-                        "Charging complete",
-                        "Your vehicle is charged. Amount due: ₹" + cost + ". Tap to pay.",
-                        "plugsy://payment/" + savedSession.getId());
-            } catch (Exception e) {
-                log.warn("Completion push failed for session {}: {}", session.getId(), e.getMessage());
+                Thread.sleep(FINALIZE_POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
             }
         }
+        // The caller's persistence context (open-in-view) may still hold the ONGOING instance.
+        chargingSessionRepository.findById(sessionId).ifPresent(stale -> {
+            if (entityManager.contains(stale)) entityManager.detach(stale);
+        });
+        return chargingSessionRepository.findById(sessionId).orElse(null);
+    }
 
-        return savedSession;
+    /** Price per kWh the simulator charges for this booking: the station's car or truck tariff. */
+    private static double tariff(Booking booking) {
+        ChargerSlot slot = booking.getSlot();
+        Station station = slot.getDispensary() != null ? slot.getDispensary().getStation() : slot.getStation();
+        Double price = null;
+        if (station != null) {
+            price = booking.getVehicleType() == VehicleType.TRUCK
+                    ? station.getTruckPricePerKwh() : station.getPricePerKwh();
+        }
+        return price != null ? price : 15.0;
     }
 }
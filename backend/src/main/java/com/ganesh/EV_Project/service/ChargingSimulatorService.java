@@ -1,5 +1,12 @@
 package com.ganesh.EV_Project.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ganesh.EV_Project.dto.OwnerHealthFrame;
+import com.ganesh.EV_Project.dto.SessionTelemetryDelta;
+import com.ganesh.EV_Project.dto.SessionTelemetryFrame;
+import com.ganesh.EV_Project.dto.StationHealthFrame;
+import com.ganesh.EV_Project.dto.StationTelemetryFrame;
 import com.ganesh.EV_Project.model.Booking;
 import com.ganesh.EV_Project.model.ChargerSlot;
 import com.ganesh.EV_Project.model.ChargingSession;
@@ -11,16 +18,32 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 @Slf4j
@@ -30,12 +53,34 @@ public class ChargingSimulatorService {
     private final SimpMessagingTemplate messagingTemplate;
     private final BookingRepository bookingRepository;
     private final ChargingSessionRepository chargingSessionRepository;
+    private final SlotAvailabilityCache slotAvailabilityCache;
     private final ChargingCompletionService completionService;
+    @Qualifier("simulatorExecutor")
+    private final ThreadPoolTaskExecutor simulatorExecutor;
+    private final SessionSnapshotWriter snapshotWriter;
+    private final ObjectMapper objectMapper;
+    private final TelemetrySubscriptionRegistry telemetrySubscriptions;
+    private final SessionLeaseService leaseService;
+
+    // Physics tick period. Energy accrued per tick is derived from this.
+    private static final long TICK_MILLIS = 5000;
+    private static final double TICK_SECONDS = TICK_MILLIS / 1000.0;
 
     // Persist a snapshot of progress roughly every 6 ticks (~30s) so a restart
     // can resume from the last known state instead of orphaning the session.
     private static final int SNAPSHOT_EVERY_TICKS = 6;
 
+    // Negotiated driver streams get a full keyframe after this many deltas, so
+    // a client that missed a frame resynchronizes without resubscribing.
+    private static final int KEYFRAME_EVERY_FRAMES = 12;
+
+    // Re-publish a session's end-of-charge estimate only when it moves this much.
+    private static final long ETA_REPUBLISH_MILLIS = 30_000;
+
+    // A station frame whose power and ETA moved less than this (grid noise is
+    // +/-2%) since the last one sent is not sent again.
+    private static final double STATION_FRAME_DEADBAND = 0.05;
+
     // Hard cap on session length so a forgotten session can't accrue cost forever.
     @org.springframework.beans.factory.annotation.Value("${app.charging.max-session-minutes:240}")
     private long maxSessionMinutes;
@@ -46,89 +91,495 @@ public class ChargingSimulatorService {
     @org.springframework.beans.factory.annotation.Value("${app.charging.simulation-speed:1.0}")
     private double simulationSpeed;
 
-    // Track active sessions: <BookingId, SimulatedSession>
+    // How long a stop waits for the node simulating the session to finalize it;
+    // a little over one lease renewal.
+    @org.springframework.beans.factory.annotation.Value("${app.cluster.stop-wait-ms:8000}")
+    private long stopWaitMillis;
+
+    // Number of physics shards; 0 = one per available core.
+    @org.springframework.beans.factory.annotation.Value("${app.charging.shards:0}")
+    private int configuredShards;
+
+    // Off (default): one shard ticked inline on the scheduler thread, as before
+    // sharding. On: shards run concurrently on the simulator pool.
+    @org.springframework.beans.factory.annotation.Value("${app.charging.parallel-tick:false}")
+    private boolean parallelTick;
+
+    // Track active sessions: <BookingId, SimulatedSession>. This is the lookup
+    // index; the physics tick itself walks the per-station shards below.
     private final Map<Long, SimulatedSession> activeSessions = new ConcurrentHashMap<>();
 
+    // Sessions partitioned by stationId so every session of a station lands in
+    // the same shard and the per-station load count stays shard-local.
+    private Shard[] shards;
+
+    // Tick health: scheduling jitter, shard overruns and shards skipped because
+    // their previous run had not finished yet.
+    private final AtomicLong tickCount = new AtomicLong();
+    private final AtomicLong shardOverruns = new AtomicLong();
+    private final AtomicLong shardSkips = new AtomicLong();
+    // Cluster ownership: sessions adopted from other nodes and leases lost to them.
+    private final AtomicLong adoptedSessions = new AtomicLong();
+    private final AtomicLong lostLeases = new AtomicLong();
+    private volatile long lastTickStartNanos;
+    private volatile long lastJitterMillis;
+    private volatile long maxJitterMillis;
+
+    @PostConstruct
+    void initShards() {
+        int count = !parallelTick ? 1
+                : configuredShards > 0 ? configuredShards : Runtime.getRuntime().availableProcessors();
+        shards = new Shard[count];
+        for (int i = 0; i < count; i++) {
+            shards[i] = new Shard(i);
+        }
+        log.info("Charging simulator running {} physics shard(s){}", count, parallelTick ? " in parallel" : "");
+        telemetrySubscriptions.setKeyframeListener(this::sendKeyframeNow);
+        telemetrySubscriptions.setStationFrameListener(this::sendStationFrameNow);
+    }
+
     /**
      * On startup, rebuild in-memory simulators for any session left ONGOING by a
-     * previous run, resuming from the last persisted SoC/energy/cost.
+     * previous run, resuming from the last persisted SoC/energy/cost. In cluster
+     * mode only sessions whose lease this node wins are resumed.
      */
     @EventListener(ApplicationReadyEvent.class)
     public void recoverActiveSessions() {
-        List<ChargingSession> ongoing = chargingSessionRepository.findByStatus("ONGOING");
-        for (ChargingSession cs : ongoing) {
+        int recovered = adoptUnowned();
+        if (recovered > 0) {
+            log.info("Recovered {} active charging session(s) after restart", recovered);
+        }
+    }
+
+    /**
+     * Cluster mode: renews this node's session leases and drops any session
+     * whose lease was lost (taken over after a pause). A session stopped on
+     * another node is finalized here, from this node's live vitals; the
+     * stopping node waits for it (see {@link #stopAndFinalize}).
+     */
+    @Scheduled(fixedRateString = "${app.cluster.lease-renew-ms:5000}")
+    public void renewSessionLeases() {
+        if (!leaseService.isEnabled() || activeSessions.isEmpty()) return;
+        try {
+            SessionLeaseService.Renewal renewal = leaseService.renewAll(List.copyOf(activeSessions.keySet()));
+            for (Long bookingId : renewal.lost()) {
+                // Never let a stale owner's snapshot overwrite the new owner's.
+                removeLocal(bookingId);
+                lostLeases.incrementAndGet();
+                log.info("Lease lost for booking {}; simulation handed off", bookingId);
+            }
+            for (Long bookingId : renewal.stopped()) {
+                SimulatedSession session = removeLocal(bookingId);
+                telemetrySubscriptions.remove(bookingId);
+                if (session == null) continue;
+                try {
+                    var cs = chargingSessionRepository.findByBookingId(bookingId);
+                    if (cs.isPresent()) {
+                        completionService.finalizeSession(cs.get().getId(), session.energyDispensedKwh, session.totalCost);
+                    }
+                    log.info("Booking {} stopped on another node; finalized here at {}% SoC",
+                            bookingId, Math.round(session.socPercentage));
+                } catch (Exception e) {
+                    // The stopping node bills from the last snapshot once its wait runs out.
+                    log.error("Finalizing booking {} stopped on another node failed: {}", bookingId, e.getMessage());
+                }
+            }
+        } catch (Exception e) {
+            // Keep simulating: a lease that really expired is caught next round.
+            log.warn("Session lease renewal failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Cluster mode: adopts ONGOING sessions nobody holds a lease for (their
+     * node died), resuming each from its last persisted snapshot.
+     */
+    @Scheduled(fixedRateString = "${app.cluster.adopt-interval-ms:15000}",
+            initialDelayString = "${app.cluster.adopt-interval-ms:15000}")
+    public void adoptOrphanedSessions() {
+        if (!leaseService.isEnabled()) return;
+        try {
+            int adopted = adoptUnowned();
+            if (adopted > 0) {
+                adoptedSessions.addAndGet(adopted);
+                log.info("Adopted {} orphaned charging session(s)", adopted);
+            }
+        } catch (Exception e) {
+            log.warn("Orphaned session sweep failed: {}", e.getMessage());
+        }
+    }
+
+    /** Claims leases on ONGOING sessions not simulated here and rebuilds the ones won. */
+    private int adoptUnowned() {
+        List<Long> candidates = new ArrayList<>();
+        for (Long bookingId : chargingSessionRepository.findOngoingBookingIds()) {
+            if (bookingId != null && !activeSessions.containsKey(bookingId)) candidates.add(bookingId);
+        }
+        if (candidates.isEmpty()) return 0;
+        Set<Long> won = leaseService.acquireAll(candidates);
+        if (won.isEmpty()) return 0;
+
+        int adopted = 0;
+        for (ChargingSession cs : chargingSessionRepository.findOngoingWithDetailsByBookingIds(won)) {
             try {
-                if (cs.getBooking() == null) continue;
                 SimulatedSession session = rebuildSession(cs);
-                activeSessions.put(cs.getBooking().getId(), session);
-                log.info("Recovered active simulation for Booking {} (SoC {}%)",
+                register(session);
+                adopted++;
+                log.info("Resumed simulation for Booking {} (SoC {}%)",
                         cs.getBooking().getId(), Math.round(session.socPercentage));
             } catch (Exception e) {
-                log.error("Failed to recover session {}: {}", cs.getId(), e.getMessage());
+                log.error("Failed to resume session {}: {}", cs.getId(), e.getMessage());
             }
         }
-        if (!ongoing.isEmpty()) {
-            log.info("Recovered {} active charging session(s) after restart", ongoing.size());
-        }
+        return adopted;
     }
 
     /**
      * Starts the smart simulation for a new charging session.
      */
     public void startSimulation(Long bookingId) {
+        if (!leaseService.tryAcquire(bookingId)) {
+            log.warn("Booking {} is already simulated by another node", bookingId);
+            return;
+        }
         bookingRepository.findById(bookingId).ifPresent(booking -> {
             SimulatedSession session = createInitialSession(booking);
-            activeSessions.put(bookingId, session);
+            register(session);
             log.info("Smart Simulation started for Booking {}: Vehicle {}, Max Power {}kW", 
                 bookingId, booking.getVehicleType(), session.maxPowerKw);
         });
     }
 
     /**
-     * Halts the simulation and removes it from the active registry.
+     * Halts the simulation and removes it from the active registry. Returns null
+     * if this node does not simulate the session; callers then finalize from the
+     * persisted snapshot.
      */
     public SimulatedSession stopSimulation(Long bookingId) {
         log.info("Smart Simulation halted for Booking {}", bookingId);
-        return activeSessions.remove(bookingId);
+        leaseService.markStopped(bookingId);
+        telemetrySubscriptions.remove(bookingId);
+        return removeLocal(bookingId);
+    }
+
+    /**
+     * Stops a session and finalizes it from live vitals, wherever it is
+     * simulated. When another node holds the lease, that node sees the stop at
+     * its next renewal and finalizes the session itself, and this waits for it.
+     * If nobody simulates it (lost on restart, or the owner did not answer in
+     * time) it is billed from the last persisted snapshot.
+     */
+    public ChargingSession stopAndFinalize(Long sessionId, Long bookingId) {
+        log.info("Smart Simulation halted for Booking {}", bookingId);
+        boolean heldElsewhere = leaseService.markStopped(bookingId);
+        telemetrySubscriptions.remove(bookingId);
+        SimulatedSession live = removeLocal(bookingId);
+        if (live != null) {
+            return completionService.finalizeSession(sessionId, live.energyDispensedKwh, live.totalCost);
+        }
+        if (heldElsewhere) {
+            ChargingSession finalized = completionService.awaitFinalized(sessionId,
+                    java.time.Duration.ofMillis(stopWaitMillis));
+            if (finalized != null) return finalized;
+            log.warn("Owner of booking {} did not finalize it within {} ms; billing from the last snapshot",
+                    bookingId, stopWaitMillis);
+        }
+        return completionService.finalizeSession(sessionId, null, null);
+    }
+
+    /** Drops a session from this node's registry and shard, with its pending snapshot. */
+    private SimulatedSession removeLocal(Long bookingId) {
+        SimulatedSession session = activeSessions.remove(bookingId);
+        if (session != null) {
+            shardFor(session.stationId).sessions.remove(bookingId);
+        }
+        snapshotWriter.discard(bookingId);
+        return session;
     }
 
     /**
-     * Physics Engine: Runs every 5 seconds to update all active sessions.
+     * Persists a last snapshot of every live session before shutdown, then
+     * hands the leases back so another node (or {@link #recoverActiveSessions}
+     * after a restart) resumes from exactly these values. The flush happens
+     * here, before the leases are released, so an adopting node never reads
+     * an older snapshot.
      */
-    @Scheduled(fixedRate = 5000)
+    @PreDestroy
+    void snapshotAllOnShutdown() {
+        activeSessions.values().forEach(this::persistSnapshot);
+        try {
+            snapshotWriter.flush();
+        } catch (Exception e) {
+            log.error("Final snapshot flush failed: {}", e.getMessage());
+        }
+        try {
+            leaseService.releaseAll(List.copyOf(activeSessions.keySet()));
+        } catch (Exception e) {
+            log.warn("Failed to release session leases: {}", e.getMessage());
+        }
+        log.info("Saved final snapshots for {} active session(s)", activeSessions.size());
+    }
+
+    private void register(SimulatedSession session) {
+        activeSessions.put(session.bookingId, session);
+        shardFor(session.stationId).sessions.put(session.bookingId, session);
+    }
+
+    private Shard shardFor(Long stationId) {
+        long key = stationId != null ? stationId : 0L;
+        return shards[(int) Math.floorMod(key, (long) shards.length)];
+    }
+
+    /**
+     * Physics Engine: every 5 seconds, hands each shard to the simulator pool.
+     * Shards run independently — the tick never waits on them — so one slow
+     * shard (e.g. a station whose sessions are auto-completing against a slow
+     * DB) cannot delay the others. A shard still busy from the previous tick is
+     * skipped this round and counted, rather than queued behind itself.
+     * Unless {@code app.charging.parallel-tick} is set, the single shard runs
+     * inline on the scheduler thread instead.
+     */
+    @Scheduled(fixedRate = TICK_MILLIS)
     public void runPhysicsTick() {
-        if (activeSessions.isEmpty()) return;
-
-        // Group by station for Load Balancing simulation
-        Map<Long, Integer> stationChargingCount = new ConcurrentHashMap<>();
-        activeSessions.values().forEach(s -> 
-            stationChargingCount.merge(s.stationId, 1, Integer::sum));
-
-        activeSessions.forEach((bookingId, session) -> {
-            updateSessionVitals(session, stationChargingCount.get(session.stationId));
-
-            // Battery full / overtime → finalize server-side so the session ends
-            // even if the user's app is closed. Only after the DB is actually
-            // finalized do we drop the session and broadcast the completed frame —
-            // otherwise the app would be told "done" while the session is still
-            // ONGOING and would restart charging. On failure we keep it and retry
-            // next tick.
-            if (session.completedReady) {
-                if (autoComplete(session)) {
-                    activeSessions.remove(bookingId);
-                    broadcastTelemetry(session);
+        long now = System.nanoTime();
+        if (lastTickStartNanos != 0) {
+            long jitter = Math.abs((now - lastTickStartNanos) / 1_000_000 - TICK_MILLIS);
+            lastJitterMillis = jitter;
+            if (jitter > maxJitterMillis) maxJitterMillis = jitter;
+        }
+        lastTickStartNanos = now;
+        tickCount.incrementAndGet();
+
+        for (Shard shard : shards) {
+            // An empty shard still runs once after its last session ends, to
+            // send the cleared station frame.
+            if (shard.sessions.isEmpty() && shard.lastStationFrames.isEmpty()) continue;
+            if (!shard.running.compareAndSet(false, true)) {
+                shardSkips.incrementAndGet();
+                log.warn("Physics shard {} still running from the previous tick ({} sessions); skipping",
+                        shard.index, shard.sessions.size());
+                continue;
+            }
+            if (!parallelTick) {
+                runShard(shard);
+                continue;
+            }
+            try {
+                simulatorExecutor.execute(() -> runShard(shard));
+            } catch (TaskRejectedException e) {
+                shard.running.set(false);
+                shardSkips.incrementAndGet();
+                log.warn("Physics shard {} rejected by the simulator pool: {}", shard.index, e.getMessage());
+            }
+        }
+    }
+
+    private void runShard(Shard shard) {
+        long started = System.nanoTime();
+        try {
+            // Group by station for Load Balancing simulation. All sessions of a
+            // station live in this shard, so the count is complete.
+            Map<Long, Integer> stationChargingCount = new HashMap<>();
+            shard.sessions.values().forEach(s ->
+                stationChargingCount.merge(s.stationId, 1, Integer::sum));
+
+            // Sessions that produced a frame this tick, grouped for the station aggregate.
+            Map<Long, List<SimulatedSession>> byStation = new HashMap<>();
+            shard.sessions.forEach((bookingId, session) -> {
+                try {
+                    if (tickSession(shard, bookingId, session, stationChargingCount.getOrDefault(session.stationId, 1))) {
+                        byStation.computeIfAbsent(session.stationId, k -> new ArrayList<>()).add(session);
+                    }
+                } catch (Exception e) {
+                    log.error("Physics tick failed for booking {}: {}", bookingId, e.getMessage());
                 }
-                return;
+            });
+            publishStationFrames(shard, byStation);
+        } finally {
+            long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+            shard.lastDurationMillis = elapsedMillis;
+            if (elapsedMillis > TICK_MILLIS) {
+                shardOverruns.incrementAndGet();
+                log.warn("Physics shard {} overran the tick: {} ms for {} sessions",
+                        shard.index, elapsedMillis, shard.sessions.size());
             }
+            shard.running.set(false);
+        }
+    }
+
+    /** Advances one session; returns true if it produced a frame this tick. */
+    private boolean tickSession(Shard shard, Long bookingId, SimulatedSession session, int carsAtStation) {
+        updateSessionVitals(session, carsAtStation);
+        publishEta(session);
+
+        // Battery full / overtime → finalize server-side so the session ends
+        // even if the user's app is closed. Only after the DB is actually
+        // finalized do we drop the session and broadcast the completed frame —
+        // otherwise the app would be told "done" while the session is still
+        // ONGOING and would restart charging. On failure we keep it and retry
+        // next tick.
+        if (session.completedReady) {
+            if (autoComplete(session)) {
+                activeSessions.remove(bookingId);
+                shard.sessions.remove(bookingId);
+                snapshotWriter.discard(bookingId);
+                broadcastTelemetry(session);
+                telemetrySubscriptions.remove(bookingId);
+                return true;
+            }
+            return false;
+        }
+
+        broadcastTelemetry(session);
+        if (++session.ticksSinceSnapshot >= SNAPSHOT_EVERY_TICKS) {
+            session.ticksSinceSnapshot = 0;
+            persistSnapshot(session);
+        }
+        return true;
+    }
+
+    /**
+     * Feeds the slot's expected end of charge to the "next available" ETA,
+     * only when it has moved by {@link #ETA_REPUBLISH_MILLIS} or more.
+     */
+    private void publishEta(SimulatedSession session) {
+        long remainingMillis = Math.round(session.minutesRemaining * 60_000);
+        long etaMillis = System.currentTimeMillis() + remainingMillis;
+        if (Math.abs(etaMillis - session.publishedEtaMillis) < ETA_REPUBLISH_MILLIS) return;
+        session.publishedEtaMillis = etaMillis;
+        slotAvailabilityCache.onSlotEta(session.stationId, session.slotId,
+                java.time.LocalDateTime.now().plusNanos(remainingMillis * 1_000_000));
+    }
 
-            broadcastTelemetry(session);
-            if (++session.ticksSinceSnapshot >= SNAPSHOT_EVERY_TICKS) {
-                session.ticksSinceSnapshot = 0;
-                persistSnapshot(session);
+    /**
+     * Emits one public and one owner frame per station instead of one per gun.
+     * The public frame is skipped while it looks the same on screen as the last
+     * one sent (see {@link #sameOnScreen}). A station whose last session just
+     * ended gets one empty frame so subscribers clear their live state.
+     */
+    private void publishStationFrames(Shard shard, Map<Long, List<SimulatedSession>> byStation) {
+        byStation.forEach((stationId, sessions) -> {
+            StationTelemetryFrame frame = buildStationFrame(stationId, sessions);
+            if (!sameOnScreen(shard.lastStationFrames.get(stationId), frame)) {
+                shard.lastStationFrames.put(stationId, frame);
+                sendJson("/topic/station/" + stationId, frame);
+            }
+            StationHealthFrame health = buildHealthFrame(stationId, sessions);
+            if (!health.equals(shard.lastHealthFrames.put(stationId, health))) {
+                sendJson("/topic/owner/station/" + stationId, health);
             }
         });
+
+        Iterator<Long> idle = shard.lastStationFrames.keySet().iterator();
+        while (idle.hasNext()) {
+            Long stationId = idle.next();
+            if (byStation.containsKey(stationId)) continue;
+            idle.remove();
+            shard.lastHealthFrames.remove(stationId);
+            sendJson("/topic/station/" + stationId, buildStationFrame(stationId, List.of()));
+            sendJson("/topic/owner/station/" + stationId, buildHealthFrame(stationId, List.of()));
+        }
+    }
+
+    /**
+     * Grid noise moves every gun's power, and with it the ETA, by up to 2% each
+     * tick, so the rounded values alone differ on almost every frame. Counts,
+     * SoC and completion must match exactly; power and ETA only within
+     * {@link #STATION_FRAME_DEADBAND} of the frame last sent.
+     */
+    private static boolean sameOnScreen(StationTelemetryFrame sent, StationTelemetryFrame next) {
+        if (sent == null || sent.chargingGuns() != next.chargingGuns() || sent.freeGuns() != next.freeGuns()
+                || sent.slots().size() != next.slots().size()) {
+            return false;
+        }
+        for (int i = 0; i < next.slots().size(); i++) {
+            StationTelemetryFrame.SlotState a = sent.slots().get(i);
+            StationTelemetryFrame.SlotState b = next.slots().get(i);
+            if (a.slotId() != b.slotId() || a.socPercentage() != b.socPercentage() || a.completed() != b.completed()
+                    || !withinDeadband(a.powerKw(), b.powerKw())
+                    || !withinDeadband(a.minutesRemaining(), b.minutesRemaining())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean withinDeadband(double sent, double next) {
+        return Math.abs(next - sent) <= Math.max(1.0, Math.abs(sent) * STATION_FRAME_DEADBAND);
+    }
+
+    /**
+     * Answers a fresh subscribe to {@code /topic/station/{id}} with the frame
+     * its subscribers last got, instead of nothing until the station next changes.
+     */
+    private void sendStationFrameNow(Long stationId) {
+        StationTelemetryFrame frame = shardFor(stationId).lastStationFrames.get(stationId);
+        if (frame == null) return; // nothing charging there, or simulated on another node
+        sendJson("/topic/station/" + stationId, frame);
+    }
+
+    private StationTelemetryFrame buildStationFrame(Long stationId, List<SimulatedSession> sessions) {
+        List<StationTelemetryFrame.SlotState> slots = new ArrayList<>(sessions.size());
+        double totalPower = 0.0;
+        int charging = 0;
+        for (SimulatedSession s : sessions) {
+            totalPower += s.powerKw;
+            if (!s.completedReady) charging++;
+            slots.add(new StationTelemetryFrame.SlotState(
+                    s.slotId, round1(s.powerKw), Math.round(s.socPercentage),
+                    Math.round(s.minutesRemaining), s.completedReady));
+        }
+        slots.sort((a, b) -> Long.compare(a.slotId(), b.slotId()));
+        // Free = bookable right now (not booked, charging, awaiting payment or in maintenance).
+        int freeGuns = slotAvailabilityCache.availability(stationId).availableSlots();
+        return new StationTelemetryFrame(stationId, round1(totalPower), charging, freeGuns, slots);
+    }
+
+    private StationHealthFrame buildHealthFrame(Long stationId, List<SimulatedSession> sessions) {
+        List<OwnerHealthFrame> slots = new ArrayList<>(sessions.size());
+        double totalPower = 0.0;
+        for (SimulatedSession s : sessions) {
+            totalPower += s.powerKw;
+            slots.add(new OwnerHealthFrame(
+                    s.slotId,
+                    round1(s.connectorTempC),
+                    Math.round(s.voltageV),
+                    Math.round(s.currentA),
+                    round1(s.powerKw),
+                    round2(s.energyDispensedKwh),
+                    s.connectorTempC > 85 ? "CRITICAL_HEAT" : "OPERATIONAL"));
+        }
+        slots.sort((a, b) -> Long.compare(a.slotId(), b.slotId()));
+        return new StationHealthFrame(stationId, round1(totalPower), slots);
+    }
+
+    private static double round1(double value) {
+        return Math.round(value * 10.0) / 10.0;
+    }
+
+    private static double round2(double value) {
+        return Math.round(value * 100.0) / 100.0;
     }
 
+    /** Snapshot of tick health for the admin diagnostics endpoint. */
+    public TickStats getTickStats() {
+        long[] shardSizes = new long[shards.length];
+        long[] shardMillis = new long[shards.length];
+        for (int i = 0; i < shards.length; i++) {
+            shardSizes[i] = shards[i].sessions.size();
+            shardMillis[i] = shards[i].lastDurationMillis;
+        }
+        return new TickStats(activeSessions.size(), shards.length, tickCount.get(),
+                lastJitterMillis, maxJitterMillis, shardOverruns.get(), shardSkips.get(),
+                shardSizes, shardMillis, adoptedSessions.get(), lostLeases.get());
+    }
+
+    public record TickStats(int activeSessions, int shards, long ticks,
+                            long lastJitterMillis, long maxJitterMillis,
+                            long shardOverruns, long shardSkips,
+                            long[] shardSessions, long[] shardLastTickMillis,
+                            long adoptedSessions, long lostLeases) {}
+
     /** Finalizes a full/overtime session; returns true once the DB is finalized. */
     private boolean autoComplete(SimulatedSession session) {
         try {
@@ -145,17 +596,16 @@ public class ChargingSimulatorService {
         }
     }
 
-    /** Persist live progress so a restart can resume this session authoritatively. */
+    /**
+     * Queue live progress so a restart can resume this session authoritatively,
+     * and its predicted end so every replica's slot cache can show the ETA.
+     * The write itself is batched off the physics thread by {@link SessionSnapshotWriter}.
+     */
     private void persistSnapshot(SimulatedSession session) {
-        try {
-            chargingSessionRepository.findByBookingId(session.bookingId).ifPresent(cs -> {
-                cs.setEnergyKwh(session.energyDispensedKwh);
-                cs.setSocPercentage(session.socPercentage);
-                cs.setTotalCost(session.totalCost);
-                chargingSessionRepository.save(cs);
-            });
-        } catch (Exception e) {
-            log.warn("Failed to snapshot session for booking {}: {}", session.bookingId, e.getMessage());
+        if (!snapshotWriter.mark(session.bookingId, session.energyDispensedKwh,
+                session.socPercentage, session.totalCost,
+                java.time.LocalDateTime.now().plusSeconds(Math.round(session.minutesRemaining * 60)))) {
+            log.warn("Snapshot queue full; skipped snapshot for booking {}", session.bookingId);
         }
     }
 
@@ -221,7 +671,7 @@ public class ChargingSimulatorService {
 
         // 4. Energy Accumulation (kWh) — scaled by simulationSpeed so a full charge
         // can be demoed in minutes instead of hours (1.0 = realtime).
-        double addedEnergy = ((session.powerKw * 5.0) / 3600.0) * simulationSpeed;
+        double addedEnergy = ((session.powerKw * TICK_SECONDS) / 3600.0) * simulationSpeed;
         session.energyDispensedKwh += addedEnergy;
         session.socPercentage = Math.min(100.0, session.socPercentage + (addedEnergy / session.batteryCapacityKwh * 100.0));
 
@@ -244,53 +694,104 @@ public class ChargingSimulatorService {
         }
     }
 
+    /**
+     * Private driver telemetry; public and owner feeds are aggregated per station.
+     * Legacy subscribers get a full frame every tick. A subscriber that negotiated
+     * a rate gets a keyframe on subscribe, every {@link #KEYFRAME_EVERY_FRAMES}
+     * frames and on completion, and in between only the live fields that changed,
+     * no more often than its interval.
+     */
     private void broadcastTelemetry(SimulatedSession session) {
-        // Topic 1: Private (Slimmed down for the mobile user)
-        Map<String, Object> userUpdate = new java.util.HashMap<>();
-        userUpdate.put("bookingId", session.bookingId);
-        userUpdate.put("slotId", session.slotId);
-        userUpdate.put("stationId", session.stationId);
-        userUpdate.put("powerKw", session.powerKw);
-        userUpdate.put("energyDispensedKwh", session.energyDispensedKwh);
-        userUpdate.put("socPercentage", session.socPercentage);
-        userUpdate.put("totalCost", session.totalCost);
-        userUpdate.put("minutesRemaining", session.minutesRemaining);
-        userUpdate.put("maxPowerKw", session.maxPowerKw);
-        userUpdate.put("batteryCapacityKwh", session.batteryCapacityKwh);
-        userUpdate.put("pricePerKwh", session.pricePerKwh);
-        // Signals the app to tear down telemetry and move to the payment screen.
-        userUpdate.put("completed", session.completedReady);
-
-        messagingTemplate.convertAndSend("/topic/session/" + session.bookingId, userUpdate);
-
-        // Topic 2: Public (Aggregated for station searchers)
-        Map<String, Object> publicUpdate = new java.util.HashMap<>();
-        publicUpdate.put("bookingId", session.bookingId);
-        publicUpdate.put("slotId", session.slotId);
-        publicUpdate.put("stationId", session.stationId);
-        publicUpdate.put("powerKw", session.powerKw);
-        publicUpdate.put("energyDispensedKwh", session.energyDispensedKwh);
-        publicUpdate.put("socPercentage", session.socPercentage);
-        publicUpdate.put("totalCost", session.totalCost);
-        publicUpdate.put("minutesRemaining", session.minutesRemaining);
-        publicUpdate.put("maxPowerKw", session.maxPowerKw);
-        publicUpdate.put("batteryCapacityKwh", session.batteryCapacityKwh);
-        publicUpdate.put("pricePerKwh", session.pricePerKwh);
-        publicUpdate.put("completed", session.completedReady);
-
-        messagingTemplate.convertAndSend("/topic/station/" + session.stationId, publicUpdate);
-
-        // Topic 3: Owner (Full health metrics for the dashboard)
-        Map<String, Object> healthUpdate = Map.of(
-            "slotId", session.slotId,
-            "temp", String.format("%.1f°C", session.connectorTempC),
-            "voltage", Math.round(session.voltageV),
-            "current", Math.round(session.currentA),
-            "power", session.powerKw,
-            "energy", session.energyDispensedKwh,
-            "status", session.connectorTempC > 85 ? "CRITICAL_HEAT" : "OPERATIONAL"
-        );
-        messagingTemplate.convertAndSend("/topic/owner/station/" + session.stationId, healthUpdate);
+        String destination = "/topic/session/" + session.bookingId;
+        double power = round1(session.powerKw);
+        double energy = round2(session.energyDispensedKwh);
+        double soc = round1(session.socPercentage);
+        double cost = round2(session.totalCost);
+        double minutes = Math.round(session.minutesRemaining);
+
+        TelemetrySubscriptionRegistry.Subscription subscription = telemetrySubscriptions.get(session.bookingId);
+        if (subscription == null) {
+            sendJson(destination, keyframe(session, power, energy, soc, cost, minutes));
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        boolean keyframe = subscription.takeKeyframe() || session.completedReady
+                || session.framesSinceKeyframe >= KEYFRAME_EVERY_FRAMES;
+        // Half a tick of slack so scheduling jitter can't stretch a 10s rate to 15s.
+        if (!keyframe && now - session.lastSentAtMillis + TICK_MILLIS / 2 < subscription.intervalMillis()) {
+            return;
+        }
+
+        if (keyframe) {
+            sendJson(destination, keyframe(session, power, energy, soc, cost, minutes));
+            session.framesSinceKeyframe = 0;
+        } else {
+            SessionTelemetryDelta delta = new SessionTelemetryDelta(
+                SessionTelemetryDelta.TYPE, session.bookingId,
+                changed(power, session.sentPowerKw),
+                changed(energy, session.sentEnergyKwh),
+                changed(soc, session.sentSocPercentage),
+                changed(cost, session.sentTotalCost),
+                changed(minutes, session.sentMinutesRemaining));
+            if (delta.powerKw() == null && delta.energyDispensedKwh() == null && delta.socPercentage() == null
+                    && delta.totalCost() == null && delta.minutesRemaining() == null) {
+                return; // nothing visible changed; try again next tick
+            }
+            sendJson(destination, delta);
+            session.framesSinceKeyframe++;
+        }
+        session.sentPowerKw = power;
+        session.sentEnergyKwh = energy;
+        session.sentSocPercentage = soc;
+        session.sentTotalCost = cost;
+        session.sentMinutesRemaining = minutes;
+        session.lastSentAtMillis = now;
+    }
+
+    /**
+     * Answers a fresh subscribe without waiting for the next tick. Only reads
+     * the session, which its shard may be advancing meanwhile; the shard sends
+     * another keyframe on its next tick, which is the baseline deltas build on.
+     */
+    private void sendKeyframeNow(Long bookingId) {
+        SimulatedSession session = activeSessions.get(bookingId);
+        if (session == null) return; // simulated on another node, or not started yet
+        sendJson("/topic/session/" + bookingId, keyframe(session, round1(session.powerKw),
+                round2(session.energyDispensedKwh), round1(session.socPercentage), round2(session.totalCost),
+                Math.round(session.minutesRemaining)));
+    }
+
+    private SessionTelemetryFrame keyframe(SimulatedSession session, double power, double energy,
+                                           double soc, double cost, double minutes) {
+        return new SessionTelemetryFrame(SessionTelemetryFrame.TYPE,
+            session.bookingId, session.slotId, session.stationId,
+            power, energy, soc, cost, minutes,
+            session.maxPowerKw, session.batteryCapacityKwh, session.pricePerKwh,
+            session.completedReady);
+    }
+
+    private static Double changed(double value, double lastSent) {
+        return Double.compare(value, lastSent) == 0 ? null : value;
+    }
+
+    private void sendJson(String destination, Object frame) {
+        Message<byte[]> message = toJsonMessage(frame);
+        if (message != null) {
+            messagingTemplate.send(destination, message);
+        }
+    }
+
+    /** Serializes a frame to a JSON STOMP message (content-type application/json). */
+    private Message<byte[]> toJsonMessage(Object frame) {
+        try {
+            SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+            return MessageBuilder.createMessage(objectMapper.writeValueAsBytes(frame), accessor.getMessageHeaders());
+        } catch (JsonProcessingException e) {
+            log.error("Failed to serialize telemetry frame {}: {}", frame, e.getMessage());
+            return null;
+        }
     }
 
     private SimulatedSession createInitialSession(Booking booking) {
@@ -323,6 +824,23 @@ public class ChargingSimulatorService {
             .build();
     }
 
+    /** One partition of the live sessions, ticked by a single pool thread at a time. */
+    private static final class Shard {
+        final int index;
+        final Map<Long, SimulatedSession> sessions = new ConcurrentHashMap<>();
+        final AtomicBoolean running = new AtomicBoolean();
+        volatile long lastDurationMillis;
+        // Last frame sent per station, for delta suppression. Written only by
+        // the thread currently running this shard; the tick reads its size and
+        // a subscribe reads the station's frame.
+        final Map<Long, StationTelemetryFrame> lastStationFrames = new ConcurrentHashMap<>();
+        final Map<Long, StationHealthFrame> lastHealthFrames = new ConcurrentHashMap<>();
+
+        Shard(int index) {
+            this.index = index;
+        }
+    }
+
     @Data
     @Builder
     @AllArgsConstructor
@@ -350,6 +868,19 @@ public class ChargingSimulatorService {
         @Builder.Default
         private int ticksSinceSnapshot = 0;
 
+        // Last values sent to a negotiated driver stream, for delta encoding
+        // (not broadcast). Touched only by the shard thread ticking this session.
+        private double sentPowerKw;
+        private double sentEnergyKwh;
+        private double sentSocPercentage;
+        private double sentTotalCost;
+        private double sentMinutesRemaining;
+        private long lastSentAtMillis;
+        private int framesSinceKeyframe;
+
+        // Expected end of charge last given to the availability cache (not broadcast)
+        private long publishedEtaMillis;
+
         // Session start (for the max-duration cap) and full/complete flag
         private java.time.LocalDateTime startedAt;
         @Builder.Default
@@ -2,63 +2,87 @@ package com.ganesh.EV_Project.service;
 
 import com.google.firebase.FirebaseApp;
 import com.google.firebase.messaging.AndroidConfig;
+import com.google.firebase.messaging.BatchResponse;
 import com.google.firebase.messaging.FirebaseMessaging;
 import com.google.firebase.messaging.FirebaseMessagingException;
 import com.google.firebase.messaging.Message;
 import com.google.firebase.messaging.MessagingErrorCode;
+import com.google.firebase.messaging.SendResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 /**
  * Low-level Firebase Cloud Messaging sender (CV-11).
  *
  * Relies on the default Firebase app initialized by {@link com.ganesh.EV_Project.config.FirebaseConfig}.
  * If no credentials were configured (so Firebase never initialized), the service
- * reports itself disabled and {@link #sendToToken} becomes a no-op — so the
- * backend boots and all endpoints work even before the service-account key is provided.
+ * reports itself disabled and {@link #sendEach} returns DISABLED for every
+ * message — so the backend boots and all endpoints work even before the
+ * service-account key is provided.
  */
 @Service
 @Slf4j
-public class FcmService {
-
-    public enum Result { SENT, INVALID_TOKEN, FAILED, DISABLED }
+@ConditionalOnProperty(name = "app.notifications.sender", havingValue = "fcm", matchIfMissing = true)
+public class FcmService implements PushSender {
 
+    @Override
     public boolean isEnabled() {
         return !FirebaseApp.getApps().isEmpty();
     }
 
     /**
-     * Sends a data-only message so the Android client always builds the
+     * Sends data-only messages so the Android client always builds the
      * notification itself (foreground and background) and can act on the
-     * deep link. Returns a {@link Result} so the caller can prune dead tokens.
+     * deep link. One HTTP round trip per call via {@code sendEach}; the
+     * per-message results let the caller prune dead tokens and retry the rest.
      */
-    public Result sendToToken(String token, String type, String title, String body, String deepLink) {
-        if (!isEnabled()) return Result.DISABLED;
-        try {
-            Message message = Message.builder()
-                    .setToken(token)
-                    .putData("type", nz(type))
-                    .putData("title", nz(title))
-                    .putData("body", nz(body))
-                    .putData("deepLink", nz(deepLink))
+    @Override
+    public List<Result> sendEach(List<PushMessage> messages) {
+        if (messages.isEmpty()) return List.of();
+        if (!isEnabled()) return Collections.nCopies(messages.size(), Result.DISABLED);
+
+        List<Message> batch = new ArrayList<>(messages.size());
+        for (PushMessage m : messages) {
+            batch.add(Message.builder()
+                    .setToken(m.token())
+                    .putData("type", nz(m.type()))
+                    .putData("title", nz(m.title()))
+                    .putData("body", nz(m.body()))
+                    .putData("deepLink", nz(m.deepLink()))
                     .setAndroidConfig(AndroidConfig.builder()
                             .setPriority(AndroidConfig.Priority.HIGH)
                             .build())
-                    .build();
-            FirebaseMessaging.getInstance().send(message);
-            return Result.SENT;
-        } catch (FirebaseMessagingException e) {
-            MessagingErrorCode code = e.getMessagingErrorCode();
-            if (code == MessagingErrorCode.UNREGISTERED || code == MessagingErrorCode.INVALID_ARGUMENT) {
-                log.info("Pruning invalid FCM token: {}", code);
-                return Result.INVALID_TOKEN;
+                    .build());
+        }
+
+        try {
+            BatchResponse response = FirebaseMessaging.getInstance().sendEach(batch);
+            List<Result> results = new ArrayList<>(messages.size());
+            for (SendResponse r : response.getResponses()) {
+                results.add(r.isSuccessful() ? Result.SENT : classify(r.getException()));
             }
-            log.warn("FCM send failed ({}): {}", code, e.getMessage());
-            return Result.FAILED;
+            return results;
+        } catch (FirebaseMessagingException e) {
+            log.warn("FCM batch of {} failed ({}): {}", messages.size(), e.getMessagingErrorCode(), e.getMessage());
+            return Collections.nCopies(messages.size(), Result.FAILED);
         } catch (Exception e) {
-            log.warn("FCM send error: {}", e.getMessage());
-            return Result.FAILED;
+            log.warn("FCM batch error: {}", e.getMessage());
+            return Collections.nCopies(messages.size(), Result.FAILED);
+        }
+    }
+
+    private static Result classify(FirebaseMessagingException e) {
+        MessagingErrorCode code = e != null ? e.getMessagingErrorCode() : null;
+        if (code == MessagingErrorCode.UNREGISTERED || code == MessagingErrorCode.INVALID_ARGUMENT) {
+            return Result.INVALID_TOKEN;
         }
+        log.debug("FCM send failed ({}): {}", code, e != null ? e.getMessage() : "unknown");
+        return Result.FAILED;
     }
 
     private static String nz(String s) {
@@ -0,0 +1,182 @@
+package com.ganesh.EV_Project.service;
+
+import com.ganesh.EV_Project.model.IoTSensorRollup;
+import com.ganesh.EV_Project.util.DbTimeUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Partition upkeep and retention for sensor data.
+ *
+ * When iot_sensor_data is partitioned (V10) this keeps daily partitions
+ * created app.iot.storage.partitions-ahead-days ahead and drops whole raw
+ * partitions once they are past app.iot.storage.raw-retention-days, which
+ * is a metadata operation instead of a large DELETE. Raw rows are only
+ * removed once the minute rollups cover them. In dev, where Hibernate
+ * creates a plain table, old rows are deleted in chunks instead. Rollups
+ * are trimmed per resolution.
+ *
+ * Every step is idempotent; a replica that races another one just logs.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class IoTStorageMaintenance {
+
+    private static final String PARTITION_PREFIX = "iot_sensor_data_p";
+    private static final String DEFAULT_PARTITION = "iot_sensor_data_default";
+    private static final DateTimeFormatter PARTITION_DATE = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    // Rows per chunk when deleting from an unpartitioned table or the default partition.
+    private static final int DELETE_CHUNK = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SensorRollupService rollupService;
+
+    @Value("${app.iot.storage.raw-retention-days:7}")
+    private int rawRetentionDays;
+
+    @Value("${app.iot.storage.minute-retention-days:30}")
+    private int minuteRetentionDays;
+
+    @Value("${app.iot.storage.hour-retention-days:730}")
+    private int hourRetentionDays;
+
+    @Value("${app.iot.storage.partitions-ahead-days:3}")
+    private int partitionsAheadDays;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        maintain();
+    }
+
+    @Scheduled(fixedRateString = "${app.iot.storage.maintenance-ms:3600000}",
+            initialDelayString = "${app.iot.storage.maintenance-ms:3600000}")
+    public void maintain() {
+        try {
+            // Partitions and cutoffs are database-zone days, like the stored readings.
+            LocalDate today = DbTimeUtil.today();
+            // Raw data can go once it is past retention AND rolled up.
+            LocalDateTime rawCutoff = today.minusDays(rawRetentionDays).atStartOfDay();
+            LocalDateTime rolledUpTo = rollupService.newestBucket(IoTSensorRollup.MINUTE);
+            if (rolledUpTo == null || rolledUpTo.isBefore(rawCutoff)) {
+                rawCutoff = rolledUpTo;
+            }
+
+            if (isPartitioned()) {
+                Set<String> existing = new HashSet<>(partitionNames());
+                for (int d = 0; d <= partitionsAheadDays; d++) {
+                    LocalDate day = today.plusDays(d);
+                    if (!existing.contains(partitionName(day))) createPartition(day);
+                }
+                if (rawCutoff != null) {
+                    dropPartitionsBefore(existing, rawCutoff.toLocalDate());
+                    deleteChunked(DEFAULT_PARTITION, rawCutoff);
+                }
+            } else if (rawCutoff != null) {
+                deleteChunked("iot_sensor_data", rawCutoff);
+            }
+
+            trimRollups(IoTSensorRollup.MINUTE, today.minusDays(minuteRetentionDays).atStartOfDay());
+            trimRollups(IoTSensorRollup.HOUR, today.minusDays(hourRetentionDays).atStartOfDay());
+        } catch (Exception e) {
+            log.warn("Sensor storage maintenance failed: {}", e.getMessage());
+        }
+    }
+
+    private boolean isPartitioned() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table p JOIN pg_class c ON c.oid = p.partrelid "
+                        + "WHERE c.relname = 'iot_sensor_data')", Boolean.class));
+    }
+
+    private List<String> partitionNames() {
+        return jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i "
+                        + "JOIN pg_class c ON c.oid = i.inhrelid JOIN pg_class p ON p.oid = i.inhparent "
+                        + "WHERE p.relname = 'iot_sensor_data'", String.class);
+    }
+
+    /**
+     * Creates the day's partition. Rows for that day already sitting in the
+     * default partition (the app was down past the pre-created days) are moved
+     * into it first, since Postgres refuses a partition that would leave the
+     * default holding rows in its range.
+     */
+    private void createPartition(LocalDate day) {
+        String name = partitionName(day);
+        Timestamp from = Timestamp.valueOf(day.atStartOfDay());
+        Timestamp to = Timestamp.valueOf(day.plusDays(1).atStartOfDay());
+        String bounds = "FOR VALUES FROM ('" + day + "') TO ('" + day.plusDays(1) + "')";
+
+        Boolean stranded = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM " + DEFAULT_PARTITION + " WHERE \"timestamp\" >= ? AND \"timestamp\" < ?)",
+                Boolean.class, from, to);
+        if (!Boolean.TRUE.equals(stranded)) {
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + name + " PARTITION OF iot_sensor_data " + bounds);
+        } else {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.execute("CREATE TABLE " + name + " (LIKE iot_sensor_data INCLUDING DEFAULTS)");
+                jdbcTemplate.update("WITH moved AS (DELETE FROM " + DEFAULT_PARTITION
+                        + " WHERE \"timestamp\" >= ? AND \"timestamp\" < ? RETURNING *) "
+                        + "INSERT INTO " + name + " SELECT * FROM moved", from, to);
+                jdbcTemplate.execute("ALTER TABLE iot_sensor_data ATTACH PARTITION " + name + " " + bounds);
+            });
+        }
+        log.info("Created sensor data partition {}", name);
+    }
+
+    private void dropPartitionsBefore(Set<String> existing, LocalDate cutoff) {
+        for (String name : existing) {
+            if (!name.startsWith(PARTITION_PREFIX)) continue;
+            LocalDate day;
+            try {
+                day = LocalDate.parse(name.substring(PARTITION_PREFIX.length()), PARTITION_DATE);
+            } catch (Exception e) {
+                continue; // not one of ours
+            }
+            if (day.plusDays(1).isAfter(cutoff)) continue;
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + name);
+            log.info("Dropped expired sensor data partition {}", name);
+        }
+    }
+
+    // Chunked so a large backlog never holds one long-running delete.
+    private void deleteChunked(String table, LocalDateTime before) {
+        long total = 0;
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update("DELETE FROM " + table + " WHERE ctid IN "
+                    + "(SELECT ctid FROM " + table + " WHERE \"timestamp\" < ? LIMIT " + DELETE_CHUNK + ")",
+                    Timestamp.valueOf(before));
+            total += deleted;
+        } while (deleted == DELETE_CHUNK);
+        if (total > 0) log.info("Deleted {} expired sensor reading(s) from {}", total, table);
+    }
+
+    private void trimRollups(String resolution, LocalDateTime before) {
+        int deleted = jdbcTemplate.update("DELETE FROM iot_sensor_rollups WHERE resolution = ? AND bucket < ?",
+                resolution, Timestamp.valueOf(before));
+        if (deleted > 0) log.info("Deleted {} expired {} sensor rollup(s)", deleted, resolution);
+    }
+
+    private static String partitionName(LocalDate day) {
+        return PARTITION_PREFIX + day.format(PARTITION_DATE);
+    }
+}
@@ -0,0 +1,135 @@
+package com.ganesh.EV_Project.service;
+
+import com.ganesh.EV_Project.controller.WebSocketController;
+import com.ganesh.EV_Project.dto.LivePowerDTO;
+import com.ganesh.EV_Project.util.DbTimeUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Newest sensor reading per station, kept in memory so the live-power
+ * endpoint never queries iot_sensor_data.
+ *
+ * {@link SensorIngestService} feeds it once per flush with each station's
+ * newest reading in the batch (stations confirmed to exist), and the same
+ * call pushes the reading on /topic/station/{stationId}/power, at most once
+ * per app.iot.live.push-interval-ms per station, so the app can subscribe
+ * instead of polling. Entries are small immutable records of primitives;
+ * an older reading never replaces a newer one. The cache is warmed from the
+ * last day of readings at startup; a miss after that falls back to the
+ * database once and the answer (including "no readings") is remembered.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class LatestReadingCache {
+
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final WebSocketController webSocketController;
+    private final LoadForecastService loadForecastService;
+
+    @Value("${app.iot.live.push-interval-ms:1000}")
+    private long pushIntervalMillis;
+
+    @Value("${app.iot.live.warm-hours:24}")
+    private int warmHours;
+
+    // <StationId, Reading>
+    private final Map<Long, Reading> latest = new ConcurrentHashMap<>();
+    // Stations looked up with no readings at all; cleared by their first reading.
+    private final Set<Long> empty = ConcurrentHashMap.newKeySet();
+    // <StationId, epoch millis of the last push>
+    private final Map<Long, Long> lastPushed = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong pushes = new AtomicLong();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warm() {
+        try {
+            jdbcTemplate.query("SELECT DISTINCT ON (station_id) station_id, voltage, current, power, \"timestamp\" "
+                            + "FROM iot_sensor_data WHERE \"timestamp\" >= ? "
+                            + "ORDER BY station_id, \"timestamp\" DESC",
+                    rs -> {
+                        put(rs.getLong("station_id"), rs.getDouble("voltage"), rs.getDouble("current"),
+                                rs.getDouble("power"), DbTimeUtil.fromDb(rs.getTimestamp("timestamp")));
+                    },
+                    DbTimeUtil.toDb(LocalDateTime.now().minusHours(warmHours)));
+            log.info("Latest-reading cache warmed with {} station(s)", latest.size());
+        } catch (Exception e) {
+            log.warn("Latest-reading cache warm-up failed: {}", e.getMessage());
+        }
+    }
+
+    /** The station's newest reading, or null if it is not cached. */
+    public LivePowerDTO get(Long stationId) {
+        Reading r = latest.get(stationId);
+        if (r == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return r.toDto(loadForecastService.forecastWatts(stationId));
+    }
+
+    /** True once a lookup found the station has never sent a reading. */
+    public boolean isKnownEmpty(Long stationId) {
+        return empty.contains(stationId);
+    }
+
+    public void markEmpty(Long stationId) {
+        empty.add(stationId);
+    }
+
+    /** Records a reading loaded from the database after a miss. */
+    public void put(long stationId, double voltage, double current, double power, LocalDateTime at) {
+        Reading reading = new Reading(stationId, voltage, current, power, at.atZone(ZONE).toInstant().toEpochMilli());
+        latest.merge(stationId, reading, (old, neu) -> neu.epochMillis() >= old.epochMillis() ? neu : old);
+        empty.remove(stationId);
+    }
+
+    /** Records a newly ingested reading and pushes it to subscribers if due. */
+    public void onReading(long stationId, double voltage, double current, double power, LocalDateTime at) {
+        put(stationId, voltage, current, power, at);
+        long now = System.currentTimeMillis();
+        Long last = lastPushed.get(stationId);
+        if (last != null && now - last < pushIntervalMillis) return;
+        lastPushed.put(stationId, now);
+        try {
+            webSocketController.notifyStationPower(stationId,
+                    latest.get(stationId).toDto(loadForecastService.forecastWatts(stationId)));
+            pushes.incrementAndGet();
+        } catch (Exception e) {
+            log.warn("WebSocket power notify failed: {}", e.getMessage());
+        }
+    }
+
+    public Stats getStats() {
+        return new Stats(latest.size(), empty.size(), hits.get(), misses.get(), pushes.get());
+    }
+
+    public record Stats(int stations, int knownEmpty, long hits, long misses, long pushes) {}
+
+    private record Reading(long stationId, double voltage, double current, double power, long epochMillis) {
+        LivePowerDTO toDto(Double forecastedLoad) {
+            return new LivePowerDTO(stationId, voltage, current, power,
+                    LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZONE), forecastedLoad);
+        }
+    }
+}
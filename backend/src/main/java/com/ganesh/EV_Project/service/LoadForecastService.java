@@ -0,0 +1,335 @@
+package com.ganesh.EV_Project.service;
+
+import com.ganesh.EV_Project.util.DbTimeUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Streaming load analytics over the sensor feed (Eq. 6, load forecasting).
+ *
+ * Each station that reports gets a sliding window of the last
+ * app.iot.analytics.window-seconds of power readings, updated in O(1) per
+ * reading as {@link SensorIngestService} stores them:
+ * <ul>
+ *   <li>EWMA of power, time-aware so irregular sample spacing is handled;</li>
+ *   <li>exact rolling min/max from monotonic deques (amortized O(1));</li>
+ *   <li>rolling percentiles from a log-scale histogram of 12% bins: +1 on
+ *       arrival, -1 on eviction, a constant-size scan to read. The bin count
+ *       is derived from the station's installed capacity (with headroom), or
+ *       app.iot.analytics.default-ceiling-kw while that is unknown, so the
+ *       top bin sits above anything the station can draw: about 60 bins for
+ *       a 7 kW AC station, about 130 for a 10 MW truck depot;</li>
+ *   <li>a short-horizon forecast from Holt's linear smoothing with a damped
+ *       trend, so a ramp is extrapolated but flattens out over the horizon
+ *       instead of running away.</li>
+ * </ul>
+ * Nothing rescans stored readings: windows are seeded once at startup from
+ * the last window of readings (a partition-pruned range query) and kept
+ * purely in memory after that.
+ *
+ * The forecast is reported as forecastedLoad on live-power and feeds the grid
+ * score in {@link StationRecommendationService} as headroom against the
+ * station's installed dispensary capacity.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class LoadForecastService {
+
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private static final double CEILING_HEADROOM = 1.5;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${app.iot.analytics.window-seconds:300}")
+    private int windowSeconds;
+
+    // Ring size per station; at ~1 Hz this should cover window-seconds.
+    @Value("${app.iot.analytics.max-samples:320}")
+    private int maxSamples;
+
+    @Value("${app.iot.analytics.ewma-tau-seconds:60}")
+    private double ewmaTauSeconds;
+
+    @Value("${app.iot.analytics.level-tau-seconds:30}")
+    private double levelTauSeconds;
+
+    @Value("${app.iot.analytics.trend-tau-seconds:120}")
+    private double trendTauSeconds;
+
+    // The trend's effect decays with this time constant over the horizon.
+    @Value("${app.iot.analytics.trend-damping-seconds:300}")
+    private double trendDampingSeconds;
+
+    @Value("${app.iot.analytics.horizon-seconds:900}")
+    private int horizonSeconds;
+
+    // Histogram ceiling for stations whose installed capacity is not known.
+    @Value("${app.iot.analytics.default-ceiling-kw:500}")
+    private double defaultCeilingKw;
+
+    // <StationId, Window>
+    private final Map<Long, Window> windows = new ConcurrentHashMap<>();
+    // <StationId, installed capacity in W>, from the dispensaries
+    private volatile Map<Long, Double> capacityWatts = Map.of();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        refreshCapacity();
+        try {
+            jdbcTemplate.query("SELECT station_id, power, \"timestamp\" FROM iot_sensor_data "
+                            + "WHERE \"timestamp\" >= ? ORDER BY station_id, \"timestamp\"",
+                    rs -> {
+                        onReading(rs.getLong("station_id"), rs.getDouble("power"),
+                                DbTimeUtil.fromDb(rs.getTimestamp("timestamp")));
+                    },
+                    DbTimeUtil.toDb(LocalDateTime.now().minusSeconds(windowSeconds)));
+            log.info("Load analytics seeded for {} station(s)", windows.size());
+        } catch (Exception e) {
+            log.warn("Load analytics seed failed: {}", e.getMessage());
+        }
+    }
+
+    /** Installed capacity changes rarely; one grouped query every few minutes. */
+    @Scheduled(fixedRateString = "${app.iot.analytics.capacity-refresh-ms:300000}",
+            initialDelayString = "${app.iot.analytics.capacity-refresh-ms:300000}")
+    public void refreshCapacity() {
+        try {
+            Map<Long, Double> fresh = new HashMap<>();
+            jdbcTemplate.query("SELECT station_id, SUM(total_power_kw) AS kw FROM dispensaries GROUP BY station_id",
+                    rs -> {
+                        fresh.put(rs.getLong("station_id"), rs.getDouble("kw") * 1000.0);
+                    });
+            capacityWatts = fresh;
+            // A station whose capacity grew gets a histogram that covers it.
+            windows.forEach((stationId, w) -> w.ensureCeiling(ceilingWatts(stationId)));
+        } catch (Exception e) {
+            log.warn("Station capacity refresh failed: {}", e.getMessage());
+        }
+    }
+
+    /** Adds one stored reading (power in W). Called from the single ingest writer thread. */
+    public void onReading(long stationId, double power, LocalDateTime at) {
+        long millis = at.atZone(ZONE).toInstant().toEpochMilli();
+        windows.computeIfAbsent(stationId, k -> new Window(maxSamples, ceilingWatts(k))).add(millis, power, this);
+    }
+
+    // Highest power the station's histogram resolves: installed capacity with headroom for overshoot.
+    private double ceilingWatts(long stationId) {
+        Double capacity = capacityWatts.get(stationId);
+        return capacity != null && capacity > 0 ? capacity * CEILING_HEADROOM : defaultCeilingKw * 1000.0;
+    }
+
+    /** Forecast load in W at the horizon, or null if the station has no recent readings. */
+    public Double forecastWatts(Long stationId) {
+        Window w = windows.get(stationId);
+        if (w == null) return null;
+        synchronized (w) {
+            if (w.isStale(System.currentTimeMillis(), windowSeconds * 1000L)) return null;
+            return clampToCapacity(stationId, w.forecast(horizonSeconds, trendDampingSeconds));
+        }
+    }
+
+    /**
+     * Grid headroom in [0, 1]: 1 minus forecast load over installed capacity.
+     * Null when there is no recent reading or no known capacity.
+     */
+    public Double gridHeadroom(Long stationId) {
+        Double capacity = capacityWatts.get(stationId);
+        if (capacity == null || capacity <= 0) return null;
+        Double forecast = forecastWatts(stationId);
+        if (forecast == null) return null;
+        return Math.max(0.0, Math.min(1.0, 1.0 - forecast / capacity));
+    }
+
+    /** Current window statistics, or null if the station has no recent readings. */
+    public LoadStats stats(Long stationId) {
+        Window w = windows.get(stationId);
+        if (w == null) return null;
+        synchronized (w) {
+            if (w.isStale(System.currentTimeMillis(), windowSeconds * 1000L)) return null;
+            return new LoadStats(stationId, w.size(), windowSeconds,
+                    w.ewma, w.min(), w.max(), w.percentile(0.50), w.percentile(0.95), w.percentile(0.99),
+                    clampToCapacity(stationId, w.forecast(horizonSeconds, trendDampingSeconds)), horizonSeconds,
+                    capacityWatts.get(stationId),
+                    LocalDateTime.ofInstant(Instant.ofEpochMilli(w.lastMillis), ZONE));
+        }
+    }
+
+    public int trackedStations() {
+        return windows.size();
+    }
+
+    private double clampToCapacity(Long stationId, double forecast) {
+        Double capacity = capacityWatts.get(stationId);
+        double clamped = Math.max(0.0, forecast);
+        return capacity != null && capacity > 0 ? Math.min(clamped, capacity) : clamped;
+    }
+
+    /** Window statistics; all power values in W. */
+    public record LoadStats(Long stationId, int samples, int windowSeconds, double ewmaPower,
+                            double minPower, double maxPower, double p50Power, double p95Power, double p99Power,
+                            double forecastPower, int horizonSeconds, Double capacityWatts,
+                            LocalDateTime lastReadingAt) {}
+
+    /**
+     * One station's window. A ring of (time, power) samples in arrival order;
+     * the min/max deques hold ring positions with monotonic power, so their
+     * fronts are the window's min and max.
+     */
+    private static final class Window {
+
+        // Log-scale histogram: bin 0 is < 10 W, then each bin is 12% wider. The
+        // last bin also takes anything above the ceiling the window was sized for.
+        private static final double BIN_BASE_W = 10.0;
+        private static final double BIN_LOG_RATIO = Math.log(1.12);
+
+        private final long[] times;
+        private final double[] powers;
+        private final int[] minDeque;
+        private final int[] maxDeque;
+        private int[] histogram;
+        private final int capacity;
+
+        private int head;   // ring position of the oldest sample
+        private int count;  // samples in the window
+        private int minHead, minSize, maxHead, maxSize;
+
+        private long lastMillis = Long.MIN_VALUE;
+        private double ewma;
+        private double level;
+        private double trend; // W per second
+
+        Window(int capacity, double ceilingWatts) {
+            this.capacity = capacity;
+            this.histogram = new int[binsFor(ceilingWatts)];
+            this.times = new long[capacity];
+            this.powers = new double[capacity];
+            this.minDeque = new int[capacity];
+            this.maxDeque = new int[capacity];
+        }
+
+        synchronized void add(long millis, double power, LoadForecastService cfg) {
+            // Out-of-order samples would break the ring's time order; drop them.
+            if (millis < lastMillis) return;
+
+            long windowMillis = cfg.windowSeconds * 1000L;
+            while (count > 0 && (count == capacity || times[head] < millis - windowMillis)) {
+                evictOldest();
+            }
+
+            int pos = (head + count) % capacity;
+            times[pos] = millis;
+            powers[pos] = power;
+            count++;
+            histogram[bin(power)]++;
+
+            while (minSize > 0 && powers[minDeque[(minHead + minSize - 1) % capacity]] >= power) minSize--;
+            minDeque[(minHead + minSize++) % capacity] = pos;
+            while (maxSize > 0 && powers[maxDeque[(maxHead + maxSize - 1) % capacity]] <= power) maxSize--;
+            maxDeque[(maxHead + maxSize++) % capacity] = pos;
+
+            smooth(millis, power, cfg);
+            lastMillis = millis;
+        }
+
+        /** Widens the histogram to reach {@code ceilingWatts}, recounting the window once. */
+        synchronized void ensureCeiling(double ceilingWatts) {
+            int bins = binsFor(ceilingWatts);
+            if (bins <= histogram.length) return;
+            histogram = new int[bins];
+            for (int i = 0; i < count; i++) {
+                histogram[bin(powers[(head + i) % capacity])]++;
+            }
+        }
+
+        private void evictOldest() {
+            int pos = head;
+            histogram[bin(powers[pos])]--;
+            if (minSize > 0 && minDeque[minHead] == pos) { minHead = (minHead + 1) % capacity; minSize--; }
+            if (maxSize > 0 && maxDeque[maxHead] == pos) { maxHead = (maxHead + 1) % capacity; maxSize--; }
+            head = (head + 1) % capacity;
+            count--;
+        }
+
+        // Time-aware EWMA and Holt smoothing: each weight is 1 - e^(-dt/tau).
+        private void smooth(long millis, double power, LoadForecastService cfg) {
+            if (lastMillis == Long.MIN_VALUE) {
+                ewma = power;
+                level = power;
+                trend = 0.0;
+                return;
+            }
+            double dt = Math.max(0.001, (millis - lastMillis) / 1000.0);
+            ewma += (1 - Math.exp(-dt / cfg.ewmaTauSeconds)) * (power - ewma);
+
+            double alpha = 1 - Math.exp(-dt / cfg.levelTauSeconds);
+            double beta = 1 - Math.exp(-dt / cfg.trendTauSeconds);
+            double previous = level;
+            level = alpha * power + (1 - alpha) * (level + trend * dt);
+            trend = beta * (level - previous) / dt + (1 - beta) * trend;
+        }
+
+        // Damped trend: the trend adds at most trend * damping over any horizon.
+        double forecast(int horizonSeconds, double dampingSeconds) {
+            return level + trend * dampingSeconds * (1 - Math.exp(-horizonSeconds / dampingSeconds));
+        }
+
+        boolean isStale(long nowMillis, long windowMillis) {
+            return count == 0 || lastMillis < nowMillis - windowMillis;
+        }
+
+        int size() {
+            return count;
+        }
+
+        double min() {
+            return powers[minDeque[minHead]];
+        }
+
+        double max() {
+            return powers[maxDeque[maxHead]];
+        }
+
+        // Geometric middle of the bin holding the q-quantile, kept within [min, max].
+        double percentile(double q) {
+            long rank = (long) Math.ceil(q * count);
+            long seen = 0;
+            for (int b = 0; b < histogram.length; b++) {
+                seen += histogram[b];
+                if (seen >= rank) {
+                    double estimate = b == 0 ? BIN_BASE_W / 2
+                            : BIN_BASE_W * Math.exp((b - 0.5) * BIN_LOG_RATIO);
+                    return Math.max(min(), Math.min(max(), estimate));
+                }
+            }
+            return max();
+        }
+
+        private int bin(double power) {
+            if (power < BIN_BASE_W) return 0;
+            int b = 1 + (int) (Math.log(power / BIN_BASE_W) / BIN_LOG_RATIO);
+            return Math.min(b, histogram.length - 1);
+        }
+
+        // Enough bins that a reading at the ceiling still lands below the overflow bin.
+        private static int binsFor(double ceilingWatts) {
+            if (ceilingWatts <= BIN_BASE_W) return 2;
+            return 3 + (int) (Math.log(ceilingWatts / BIN_BASE_W) / BIN_LOG_RATIO);
+        }
+    }
+}
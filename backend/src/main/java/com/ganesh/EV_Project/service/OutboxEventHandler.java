@@ -0,0 +1,45 @@
+package com.ganesh.EV_Project.service;
+
+import com.ganesh.EV_Project.model.OutboxEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Executes one type of {@link OutboxEvent}. Runs outside any transaction and
+ * may run more than once for the same event (a retry after a timeout, or a
+ * lease that ran out), so implementations must be idempotent. Throwing
+ * schedules a retry.
+ */
+public interface OutboxEventHandler {
+
+    OutboxEvent.Type type();
+
+    void handle(OutboxEvent event) throws Exception;
+
+    /**
+     * Most events of this type the relay hands to one {@link #handleAll} call.
+     * One by default, so a slow gateway call only delays its own event.
+     */
+    default int batchSize() {
+        return 1;
+    }
+
+    /**
+     * Handles claimed events of this type. Returns one entry per event, in
+     * order: null once it is done, otherwise the failure to retry it for.
+     * Override to share a lookup or a gateway call across the batch.
+     */
+    default List<Exception> handleAll(List<OutboxEvent> events) {
+        List<Exception> failures = new ArrayList<>(events.size());
+        for (OutboxEvent event : events) {
+            try {
+                handle(event);
+                failures.add(null);
+            } catch (Exception e) {
+                failures.add(e);
+            }
+        }
+        return failures;
+    }
+}
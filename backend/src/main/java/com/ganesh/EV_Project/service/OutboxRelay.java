@@ -0,0 +1,269 @@
+package com.ganesh.EV_Project.service;
+
+import com.ganesh.EV_Project.model.OutboxEvent;
+import com.ganesh.EV_Project.util.DbTimeUtil;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executes {@link OutboxEvent}s after the transaction that wrote them has
+ * committed. The only outbox: payment orders, WebSocket messages and push
+ * notifications are all event types, each run by its
+ * {@link OutboxEventHandler}.
+ *
+ * Events are normally run right after commit ({@link #dispatchSoon}) on a
+ * small pool of relay threads, so a slow gateway delays only its own event
+ * and never a database transaction. A poll every app.outbox.poll-ms claims
+ * what is due (pushes, which are batched rather than sent one by one, events
+ * written on a node that crashed, hand-offs rejected by a full pool, and
+ * retries) and hands it to the same pool in handler-sized batches; the
+ * scheduler thread itself never waits on a gateway. A node holds at most
+ * app.outbox.batch-size claimed events at a time and claims more only as
+ * those finish, so a backlog waits in the table, where an idle replica can
+ * take it, rather than in this node's queue. Rows are claimed with {@code FOR UPDATE SKIP LOCKED} and a
+ * lease, so replicas and the two paths never run the same event
+ * concurrently; failures retry with exponential backoff up to
+ * app.outbox.max-attempts.
+ */
+@Component
+@Slf4j
+public class OutboxRelay {
+
+    private static final String COLUMNS = "id, type, aggregate_id, payload, attempts, created_at";
+
+    private static final String CLAIM_DUE_SQL = "UPDATE outbox_events SET next_attempt_at = ? "
+            + "WHERE id IN (SELECT id FROM outbox_events "
+            + "  WHERE status = 'PENDING' AND next_attempt_at <= ? "
+            + "  ORDER BY next_attempt_at LIMIT ? FOR UPDATE SKIP LOCKED) "
+            + "RETURNING " + COLUMNS;
+
+    private static final String CLAIM_ONE_SQL = "UPDATE outbox_events SET next_attempt_at = ? "
+            + "WHERE id IN (SELECT id FROM outbox_events "
+            + "  WHERE id = ? AND status = 'PENDING' AND next_attempt_at <= ? FOR UPDATE SKIP LOCKED) "
+            + "RETURNING " + COLUMNS;
+
+    private static final String OUTCOME_SQL = "UPDATE outbox_events "
+            + "SET status = ?, attempts = attempts + 1, next_attempt_at = ?, processed_at = ?, last_error = ? "
+            + "WHERE id = ?";
+
+    private static final RowMapper<OutboxEvent> ROW_MAPPER = (rs, i) -> OutboxEvent.builder()
+            .id(rs.getLong("id"))
+            .type(OutboxEvent.Type.valueOf(rs.getString("type")))
+            .aggregateId(rs.getObject("aggregate_id", Long.class))
+            .payload(rs.getString("payload"))
+            .attempts(rs.getInt("attempts"))
+            .createdAt(DbTimeUtil.fromDb(rs.getTimestamp("created_at")))
+            .build();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<OutboxEvent.Type, OutboxEventHandler> handlers = new EnumMap<>(OutboxEvent.Type.class);
+
+    @Value("${app.outbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.outbox.workers:4}")
+    private int workers;
+
+    @Value("${app.outbox.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${app.outbox.retry-base-ms:2000}")
+    private long retryBaseMillis;
+
+    @Value("${app.outbox.lease-ms:60000}")
+    private long leaseMillis;
+
+    @Value("${app.outbox.retention-days:7}")
+    private int retentionDays;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    // Claimed events not yet finished on this node, to size the next claim.
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    private ExecutorService relay;
+
+    public OutboxRelay(JdbcTemplate jdbcTemplate, List<OutboxEventHandler> handlerBeans) {
+        this.jdbcTemplate = jdbcTemplate;
+        for (OutboxEventHandler handler : handlerBeans) {
+            handlers.put(handler.type(), handler);
+        }
+    }
+
+    @PostConstruct
+    void start() {
+        if (virtualThreads) {
+            relay = Executors.newVirtualThreadPerTaskExecutor();
+        } else {
+            AtomicInteger n = new AtomicInteger();
+            relay = Executors.newFixedThreadPool(workers, r -> {
+                Thread t = new Thread(r, "outbox-relay-" + n.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        relay.shutdown();
+    }
+
+    /** Runs a just-committed event on a relay thread; the poll covers it if this fails. */
+    public void dispatchSoon(Long eventId) {
+        try {
+            relay.execute(() -> {
+                try {
+                    LocalDateTime now = LocalDateTime.now();
+                    List<OutboxEvent> claimed = jdbcTemplate.query(CLAIM_ONE_SQL, ROW_MAPPER,
+                            DbTimeUtil.toDb(now.plusNanos(leaseMillis * 1_000_000)), eventId, DbTimeUtil.toDb(now));
+                    if (!claimed.isEmpty()) {
+                        jdbcTemplate.batchUpdate(OUTCOME_SQL, runAll(claimed));
+                    }
+                } catch (Exception e) {
+                    log.warn("Outbox event {} dispatch failed: {}", eventId, e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.debug("Outbox relay busy or stopping; event {} left for the poll", eventId);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.poll-ms:500}")
+    public void poll() {
+        int capacity = batchSize - inFlight.get();
+        if (capacity <= 0) return;
+        List<OutboxEvent> claimed;
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            claimed = jdbcTemplate.query(CLAIM_DUE_SQL, ROW_MAPPER,
+                    DbTimeUtil.toDb(now.plusNanos(leaseMillis * 1_000_000)), DbTimeUtil.toDb(now), capacity);
+        } catch (Exception e) {
+            log.warn("Outbox poll failed: {}", e.getMessage());
+            return;
+        }
+        if (claimed.isEmpty()) return;
+
+        Map<OutboxEvent.Type, List<OutboxEvent>> byType = new LinkedHashMap<>();
+        for (OutboxEvent event : claimed) {
+            byType.computeIfAbsent(event.getType(), k -> new ArrayList<>()).add(event);
+        }
+        byType.forEach((type, events) -> {
+            OutboxEventHandler handler = handlers.get(type);
+            int chunk = handler != null ? Math.max(1, handler.batchSize()) : events.size();
+            for (int from = 0; from < events.size(); from += chunk) {
+                submit(events.subList(from, Math.min(from + chunk, events.size())));
+            }
+        });
+    }
+
+    private void submit(List<OutboxEvent> events) {
+        inFlight.addAndGet(events.size());
+        try {
+            relay.execute(() -> {
+                try {
+                    jdbcTemplate.batchUpdate(OUTCOME_SQL, runAll(events));
+                } catch (Exception e) {
+                    // Claimed events become due again when their lease runs out.
+                    log.warn("Recording the outcome of {} outbox event(s) failed: {}", events.size(), e.getMessage());
+                } finally {
+                    inFlight.addAndGet(-events.size());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.addAndGet(-events.size());
+            log.debug("Outbox relay stopping; {} claimed event(s) left for their lease to run out", events.size());
+        }
+    }
+
+    // Runs one type's events through its handler; returns the OUTCOME_SQL parameters of each.
+    private List<Object[]> runAll(List<OutboxEvent> events) {
+        OutboxEventHandler handler = handlers.get(events.get(0).getType());
+        List<Exception> failures;
+        if (handler == null) {
+            Exception missing = new IllegalStateException("No handler for " + events.get(0).getType());
+            failures = events.stream().map(e -> missing).toList();
+        } else {
+            try {
+                failures = handler.handleAll(events);
+            } catch (Exception e) {
+                failures = events.stream().map(ev -> e).toList();
+            }
+        }
+        List<Object[]> outcomes = new ArrayList<>(events.size());
+        for (int i = 0; i < events.size(); i++) {
+            outcomes.add(outcome(events.get(i), failures.get(i)));
+        }
+        return outcomes;
+    }
+
+    // OUTCOME_SQL parameters: status, next_attempt_at, processed_at, last_error, id
+    private Object[] outcome(OutboxEvent event, Exception failure) {
+        LocalDateTime now = LocalDateTime.now();
+        if (failure == null) {
+            processed.incrementAndGet();
+            return new Object[]{"DONE", DbTimeUtil.toDb(now), DbTimeUtil.toDb(now), null, event.getId()};
+        }
+        int attempt = event.getAttempts() + 1;
+        String error = truncate(failure.getClass().getSimpleName() + ": " + failure.getMessage(), 500);
+        if (attempt >= maxAttempts) {
+            failed.incrementAndGet();
+            log.error("Outbox event {} ({}) failed permanently after {} attempts: {}",
+                    event.getId(), event.getType(), attempt, error);
+            return new Object[]{"FAILED", DbTimeUtil.toDb(now), null, error, event.getId()};
+        }
+        retried.incrementAndGet();
+        long backoff = retryBaseMillis << Math.min(attempt - 1, 10);
+        log.warn("Outbox event {} ({}) attempt {} failed, retrying in {} ms: {}",
+                event.getId(), event.getType(), attempt, backoff, error);
+        return new Object[]{"PENDING", DbTimeUtil.toDb(now.plusNanos(backoff * 1_000_000)), null, error, event.getId()};
+    }
+
+    /** Deletes finished events past the retention period. */
+    @Scheduled(fixedRateString = "${app.outbox.cleanup-ms:3600000}")
+    public void purgeFinished() {
+        try {
+            int deleted = jdbcTemplate.update(
+                    "DELETE FROM outbox_events WHERE status = 'DONE' AND created_at < ?",
+                    DbTimeUtil.toDb(LocalDateTime.now().minusDays(retentionDays)));
+            if (deleted > 0) log.info("Purged {} processed outbox event(s)", deleted);
+        } catch (Exception e) {
+            log.warn("Outbox purge failed: {}", e.getMessage());
+        }
+    }
+
+    public Stats getStats() {
+        Long pending = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM outbox_events WHERE status = 'PENDING'", Long.class);
+        return new Stats(pending != null ? pending : 0, inFlight.get(), processed.get(), retried.get(), failed.get());
+    }
+
+    public record Stats(long pending, int inFlight, long processed, long retried, long failed) {}
+
+    private static String truncate(String s, int max) {
+        return s == null || s.length() <= max ? s : s.substring(0, max);
+    }
+}
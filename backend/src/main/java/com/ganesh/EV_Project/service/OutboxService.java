@@ -0,0 +1,77 @@
+package com.ganesh.EV_Project.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ganesh.EV_Project.model.OutboxEvent;
+import com.ganesh.EV_Project.repository.OutboxEventRepository;
+import com.ganesh.EV_Project.util.TransactionUtil;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Records outbox events in the caller's transaction and hands them to
+ * {@link OutboxRelay} as soon as that transaction commits. If the hand-off is
+ * lost (crash, full queue) the relay's poll picks the event up instead.
+ * Pushes skip the hand-off and wait for the poll, which sends them in batches.
+ */
+@Service
+@RequiredArgsConstructor
+public class OutboxService {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxRelay outboxRelay;
+    private final ObjectMapper objectMapper;
+
+    /** Queues creation of the Razorpay order for a completed charging session. */
+    public void enqueuePaymentOrder(Long sessionId) {
+        enqueue(OutboxEvent.Type.PAYMENT_ORDER, sessionId, null);
+    }
+
+    /**
+     * Queues a WebSocket message. The body is serialized now, inside the
+     * transaction, so lazy associations are still reachable.
+     */
+    public void enqueueStompMessage(String destination, Object body) {
+        try {
+            enqueue(OutboxEvent.Type.STOMP_MESSAGE, null, objectMapper.writeValueAsString(
+                    Map.of("destination", destination, "body", body)));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Unserializable STOMP body for " + destination, e);
+        }
+    }
+
+    /** Queues a push to every device of the user (see {@link PushNotificationHandler}). */
+    public void enqueuePushNotification(Long userId, String type, String title, String body, String deepLink) {
+        Map<String, Object> push = new HashMap<>();
+        push.put("type", type);
+        push.put("title", title);
+        push.put("body", body);
+        push.put("deepLink", deepLink);
+        try {
+            save(OutboxEvent.Type.PUSH_NOTIFICATION, userId, objectMapper.writeValueAsString(push));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Unserializable push for user " + userId, e);
+        }
+    }
+
+    private void enqueue(OutboxEvent.Type type, Long aggregateId, String payload) {
+        Long eventId = save(type, aggregateId, payload);
+        TransactionUtil.afterCommit(() -> outboxRelay.dispatchSoon(eventId));
+    }
+
+    private Long save(OutboxEvent.Type type, Long aggregateId, String payload) {
+        LocalDateTime now = LocalDateTime.now();
+        OutboxEvent event = outboxEventRepository.save(OutboxEvent.builder()
+                .type(type)
+                .aggregateId(aggregateId)
+                .payload(payload)
+                .nextAttemptAt(now)
+                .createdAt(now)
+                .build());
+        return event.getId();
+    }
+}
@@ -0,0 +1,118 @@
+package com.ganesh.EV_Project.service;
+
+import com.ganesh.EV_Project.model.OutboxEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Creates the Razorpay order for a completed charging session, outside the
+ * transaction that completed it.
+ *
+ * Idempotent: a session that already has an order (or is paid) is left
+ * alone, and the order id is only written if none is set yet. If two
+ * attempts race, the second order is never referenced and simply lapses
+ * unpaid at Razorpay.
+ *
+ * Once the order exists it is pushed to the driver on
+ * /topic/user/{userId}/bookings (PAYMENT_ORDER_CREATED), which is how the
+ * app learns it when the stop endpoint did not wait for it
+ * (app.payments.order-mode=async).
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class PaymentOrderHandler implements OutboxEventHandler {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final RazorpayService razorpayService;
+    private final SimpMessagingTemplate messagingTemplate;
+
+    // Stop requests waiting for their session's order: <SessionId, OrderId future>
+    private final Map<Long, CompletableFuture<String>> waiters = new ConcurrentHashMap<>();
+
+    @Override
+    public OutboxEvent.Type type() {
+        return OutboxEvent.Type.PAYMENT_ORDER;
+    }
+
+    @Override
+    public void handle(OutboxEvent event) throws Exception {
+        Long sessionId = event.getAggregateId();
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT s.booking_id, s.total_cost, s.payment_status, s.razorpay_order_id, b.user_id "
+                        + "FROM charging_sessions s JOIN bookings b ON b.id = s.booking_id WHERE s.id = ?",
+                sessionId);
+        if (rows.isEmpty()) return;
+        Map<String, Object> row = rows.get(0);
+
+        if ("PAID".equals(row.get("payment_status"))) return;
+        String orderId = (String) row.get("razorpay_order_id");
+        double amount = row.get("total_cost") != null ? ((Number) row.get("total_cost")).doubleValue() : 0.0;
+        if (orderId == null) {
+            String created = razorpayService.createOrder(amount, String.valueOf(row.get("booking_id")));
+            int updated = jdbcTemplate.update(
+                    "UPDATE charging_sessions SET razorpay_order_id = ? WHERE id = ? AND razorpay_order_id IS NULL",
+                    created, sessionId);
+            orderId = updated == 1 ? created : currentOrderId(sessionId);
+            log.info("Razorpay order {} created for session {}", orderId, sessionId);
+        }
+
+        if (orderId == null) return;
+
+        CompletableFuture<String> waiter = waiters.get(sessionId);
+        if (waiter != null) {
+            waiter.complete(orderId);
+        }
+        if (row.get("user_id") != null) {
+            messagingTemplate.convertAndSend("/topic/user/" + row.get("user_id") + "/bookings", Map.of(
+                    "bookingId", row.get("booking_id"),
+                    "sessionId", sessionId,
+                    "status", "PAYMENT_ORDER_CREATED",
+                    "razorpayOrderId", orderId,
+                    "totalCost", amount));
+        }
+    }
+
+    /**
+     * Waits up to {@code timeout} for the session's order to exist and returns
+     * its id, or empty if it is not there yet (the client then picks it up
+     * when it reloads the session).
+     */
+    public Optional<String> awaitOrder(Long sessionId, Duration timeout) {
+        CompletableFuture<String> waiter = waiters.computeIfAbsent(sessionId, k -> new CompletableFuture<>());
+        try {
+            // Registered before this check, so an order created in between still completes the waiter.
+            String existing = currentOrderId(sessionId);
+            if (existing != null) return Optional.of(existing);
+            return Optional.of(waiter.get(timeout.toMillis(), TimeUnit.MILLISECONDS));
+        } catch (TimeoutException e) {
+            return Optional.empty();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        } catch (Exception e) {
+            log.warn("Waiting for the payment order of session {} failed: {}", sessionId, e.getMessage());
+            return Optional.empty();
+        } finally {
+            waiters.remove(sessionId, waiter);
+        }
+    }
+
+    private String currentOrderId(Long sessionId) {
+        List<String> ids = jdbcTemplate.queryForList(
+                "SELECT razorpay_order_id FROM charging_sessions WHERE id = ?", String.class, sessionId);
+        return ids.isEmpty() ? null : ids.get(0);
+    }
+}
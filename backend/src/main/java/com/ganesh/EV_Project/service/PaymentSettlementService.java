@@ -0,0 +1,249 @@
+package com.ganesh.EV_Project.service;
+
+import com.ganesh.EV_Project.controller.WebSocketController;
+import com.ganesh.EV_Project.model.ChargerSlot;
+import com.ganesh.EV_Project.repository.ChargerSlotRepository;
+import com.ganesh.EV_Project.util.DbTimeUtil;
+import com.ganesh.EV_Project.util.MoneyUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Applies queued Razorpay webhook events to sessions, slots and payments, a
+ * batch at a time.
+ *
+ * One transaction per batch: lock the due events (SKIP LOCKED, so replicas
+ * take different batches), lock the sessions of all their orders in one
+ * query, then mark sessions PAID, release their PAYMENT_PENDING slots and
+ * write the payment rows with one set-based statement or JDBC batch each.
+ * A settlement burst therefore costs a handful of round trips per batch
+ * instead of several per event.
+ *
+ * Everything is conditional on current state, so an event the client-side
+ * verify path ({@code PaymentController#verifyPayment}) already settled, or
+ * a duplicate that slipped past the event-id key, changes nothing.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class PaymentSettlementService {
+
+    static final Set<String> CAPTURE_EVENTS = Set.of("payment.captured", "order.paid");
+    static final String FAILURE_EVENT = "payment.failed";
+
+    private static final String CLAIM_SQL = "SELECT id, event_type, order_id, payment_id, method, error_description "
+            + "FROM payment_webhook_events WHERE status = 'PENDING' AND next_attempt_at <= ? %s"
+            + "ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED";
+
+    private static final String PAYMENT_UPDATE_SQL = "UPDATE payments "
+            + "SET status = ?, transaction_id = ?, payment_method = COALESCE(?, payment_method), "
+            + "    paid_at = ?, failure_reason = ?, amount = ? "
+            + "WHERE booking_id = ? AND status <> 'COMPLETED'";
+
+    private static final String PAYMENT_INSERT_SQL = "INSERT INTO payments "
+            + "(booking_id, amount, currency, transaction_id, gateway, status, payment_method, created_at, paid_at, failure_reason) "
+            + "SELECT ?, ?, 'INR', ?, 'RAZORPAY', ?, ?, ?, ?, ? "
+            + "WHERE NOT EXISTS (SELECT 1 FROM payments WHERE booking_id = ?) "
+            + "ON CONFLICT DO NOTHING";
+
+    private static final String EVENT_OUTCOME_SQL = "UPDATE payment_webhook_events "
+            + "SET status = ?, attempts = attempts + 1, applied_at = ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final ChargerSlotRepository slotRepository;
+    private final WebSocketController webSocketController;
+    private final AnalyticsRollupService analyticsRollupService;
+
+    private final AtomicLong applied = new AtomicLong();
+    private final AtomicLong ignored = new AtomicLong();
+    private final AtomicLong sessionsPaid = new AtomicLong();
+    private final AtomicLong slotsReleased = new AtomicLong();
+    private volatile int lastBatchRows;
+    private volatile long lastBatchMillis;
+
+    /** Applies up to {@code limit} due events. Returns how many were claimed. */
+    @Transactional
+    public int applyDue(int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        List<EventRow> events = jdbcTemplate.query(CLAIM_SQL.formatted(""), EventRow.MAPPER,
+                DbTimeUtil.toDb(now), limit);
+        apply(events, now);
+        return events.size();
+    }
+
+    /** Applies a single event on its own, isolating it from the rest of a failed batch. */
+    @Transactional
+    public void applyOne(long eventId) {
+        LocalDateTime now = LocalDateTime.now();
+        apply(jdbcTemplate.query(CLAIM_SQL.formatted("AND id = ? "), EventRow.MAPPER,
+                DbTimeUtil.toDb(now), eventId, 1), now);
+    }
+
+    private void apply(List<EventRow> events, LocalDateTime now) {
+        if (events.isEmpty()) return;
+        long started = System.nanoTime();
+        Timestamp at = DbTimeUtil.toDb(now);
+
+        // Lock every session the batch refers to, in one query: <OrderId, Session>
+        List<String> orderIds = events.stream().map(EventRow::orderId).filter(o -> o != null).distinct().toList();
+        Map<String, SessionRow> sessions = new HashMap<>();
+        if (!orderIds.isEmpty()) {
+            namedJdbcTemplate.query(
+                    "SELECT id, booking_id, razorpay_order_id, total_cost, payment_status FROM charging_sessions "
+                            + "WHERE razorpay_order_id IN (:orderIds) FOR UPDATE",
+                    new MapSqlParameterSource("orderIds", orderIds),
+                    rs -> {
+                        sessions.put(rs.getString("razorpay_order_id"), new SessionRow(
+                                rs.getLong("id"), rs.getLong("booking_id"),
+                                rs.getObject("total_cost") != null ? rs.getDouble("total_cost") : 0.0,
+                                "PAID".equals(rs.getString("payment_status"))));
+                    });
+        }
+
+        List<Long> newlyPaidSessionIds = new ArrayList<>();
+        List<Long> newlyPaidBookingIds = new ArrayList<>();
+        // <BookingId, final payment row>: the UPDATEs run before the INSERTs, so
+        // two events for one booking (failed, then captured) must collapse to
+        // the last outcome, or the first INSERT would win over the second.
+        Map<Long, PaymentWrite> paymentWrites = new LinkedHashMap<>();
+        List<Object[]> outcomes = new ArrayList<>(events.size());
+
+        for (EventRow event : events) {
+            SessionRow session = event.orderId() != null ? sessions.get(event.orderId()) : null;
+            if (session == null) {
+                outcomes.add(new Object[]{"IGNORED", at, event.id()});
+                continue;
+            }
+            double amount = MoneyUtil.round2(session.totalCost());
+            if (CAPTURE_EVENTS.contains(event.eventType())) {
+                if (!session.paid()) {
+                    newlyPaidSessionIds.add(session.id());
+                    newlyPaidBookingIds.add(session.bookingId());
+                    sessions.put(event.orderId(), session.markPaid()); // a second capture in this batch is a no-op
+                }
+                paymentWrites.put(session.bookingId(), new PaymentWrite(
+                        new Object[]{"COMPLETED", event.paymentId(), event.method(), at, null, amount,
+                                session.bookingId()},
+                        new Object[]{session.bookingId(), amount, event.paymentId(), "COMPLETED",
+                                event.method(), at, at, null, session.bookingId()}));
+            } else if (FAILURE_EVENT.equals(event.eventType()) && !session.paid()) {
+                // Recorded for support; the session stays payable and the driver can retry.
+                paymentWrites.put(session.bookingId(), new PaymentWrite(
+                        new Object[]{"FAILED", event.paymentId(), event.method(), null,
+                                event.errorDescription(), amount, session.bookingId()},
+                        new Object[]{session.bookingId(), amount, event.paymentId(), "FAILED",
+                                event.method(), at, null, event.errorDescription(), session.bookingId()}));
+            }
+            outcomes.add(new Object[]{"APPLIED", at, event.id()});
+        }
+
+        if (!newlyPaidSessionIds.isEmpty()) {
+            List<Timestamp> paidEndTimes = namedJdbcTemplate.queryForList(
+                    "UPDATE charging_sessions SET payment_status = 'PAID' WHERE id IN (:ids) RETURNING end_time",
+                    new MapSqlParameterSource("ids", newlyPaidSessionIds), Timestamp.class);
+            paidEndTimes.stream().filter(t -> t != null).map(DbTimeUtil::fromDb).distinct()
+                    .forEach(analyticsRollupService::markDirty);
+        }
+        if (!paymentWrites.isEmpty()) {
+            // Update an existing row for the booking, else insert one. The update
+            // never touches a COMPLETED payment, so a late failure can't undo a capture.
+            jdbcTemplate.batchUpdate(PAYMENT_UPDATE_SQL, paymentWrites.values().stream().map(PaymentWrite::update).toList());
+            jdbcTemplate.batchUpdate(PAYMENT_INSERT_SQL, paymentWrites.values().stream().map(PaymentWrite::insert).toList());
+        }
+        List<Long> releasedSlotIds = newlyPaidBookingIds.isEmpty() ? List.of()
+                : namedJdbcTemplate.queryForList(
+                        "UPDATE charger_slots cs SET status = 'AVAILABLE', "
+                                + "version = COALESCE(cs.version, 0) + 1, updated_at = :now "
+                                + "FROM bookings b WHERE b.id IN (:bookingIds) AND cs.id = b.slot_id "
+                                + "AND cs.status = 'PAYMENT_PENDING' RETURNING cs.id",
+                        new MapSqlParameterSource("bookingIds", newlyPaidBookingIds).addValue("now", at),
+                        Long.class);
+        jdbcTemplate.batchUpdate(EVENT_OUTCOME_SQL, outcomes);
+
+        long ignoredCount = outcomes.stream().filter(o -> "IGNORED".equals(o[0])).count();
+        applied.addAndGet(events.size() - ignoredCount);
+        ignored.addAndGet(ignoredCount);
+        sessionsPaid.addAndGet(newlyPaidSessionIds.size());
+        slotsReleased.addAndGet(releasedSlotIds.size());
+        lastBatchRows = events.size();
+        lastBatchMillis = (System.nanoTime() - started) / 1_000_000;
+
+        notifyReleasedSlots(releasedSlotIds);
+        log.debug("Applied {} webhook event(s): {} session(s) paid, {} slot(s) released",
+                events.size(), newlyPaidSessionIds.size(), releasedSlotIds.size());
+    }
+
+    // Tell station subscribers (and the availability cache) about slots freed by payment.
+    private void notifyReleasedSlots(List<Long> slotIds) {
+        if (slotIds.isEmpty()) return;
+        for (ChargerSlot slot : slotRepository.findAllById(slotIds)) {
+            try {
+                if (slot.getStation() != null) {
+                    webSocketController.notifySlotStatusChange(slot.getStation().getId(), slot);
+                }
+            } catch (Exception e) {
+                log.warn("WebSocket slot status notify failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    /** Records a failed attempt at one event (outside any batch transaction). */
+    public void recordFailure(long eventId, String error, int maxAttempts, long retryBaseMillis) {
+        jdbcTemplate.update("UPDATE payment_webhook_events SET attempts = attempts + 1, last_error = ?, "
+                        + "status = CASE WHEN attempts + 1 >= ? THEN 'FAILED' ELSE status END, "
+                        + "next_attempt_at = ? + (interval '1 millisecond' * ? * power(2, LEAST(attempts, 10))) "
+                        + "WHERE id = ? AND status = 'PENDING'",
+                error != null && error.length() > 500 ? error.substring(0, 500) : error,
+                maxAttempts, DbTimeUtil.now(), retryBaseMillis, eventId);
+    }
+
+    /** Ids of due events, for applying a failed batch one event at a time. */
+    public List<Long> dueEventIds(int limit) {
+        return jdbcTemplate.queryForList(
+                "SELECT id FROM payment_webhook_events WHERE status = 'PENDING' AND next_attempt_at <= ? "
+                        + "ORDER BY id LIMIT ?",
+                Long.class, DbTimeUtil.now(), limit);
+    }
+
+    public Stats getStats() {
+        Map<String, Object> depth = jdbcTemplate.queryForMap(
+                "SELECT COUNT(*) FILTER (WHERE status = 'PENDING') AS pending, "
+                        + "COUNT(*) FILTER (WHERE status = 'FAILED') AS failed FROM payment_webhook_events");
+        return new Stats(((Number) depth.get("pending")).longValue(), ((Number) depth.get("failed")).longValue(),
+                applied.get(), ignored.get(), sessionsPaid.get(), slotsReleased.get(), lastBatchRows, lastBatchMillis);
+    }
+
+    public record Stats(long pending, long failed, long applied, long ignored, long sessionsPaid,
+                        long slotsReleased, int lastBatchRows, long lastBatchMillis) {}
+
+    private record EventRow(long id, String eventType, String orderId, String paymentId,
+                            String method, String errorDescription) {
+        static final org.springframework.jdbc.core.RowMapper<EventRow> MAPPER = (rs, i) -> new EventRow(
+                rs.getLong("id"), rs.getString("event_type"), rs.getString("order_id"),
+                rs.getString("payment_id"), rs.getString("method"), rs.getString("error_description"));
+    }
+
+    private record PaymentWrite(Object[] update, Object[] insert) {}
+
+    private record SessionRow(long id, long bookingId, double totalCost, boolean paid) {
+        SessionRow markPaid() {
+            return new SessionRow(id, bookingId, totalCost, true);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.ganesh.EV_Project.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ganesh.EV_Project.util.DbTimeUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Receives Razorpay webhooks and feeds them to {@link PaymentSettlementService}.
+ *
+ * Ingestion is kept to the minimum that makes a delivery safe to acknowledge:
+ * the HMAC is checked once, the few fields settlement needs are pulled out of
+ * the payload, and the event is inserted into payment_webhook_events with
+ * {@code ON CONFLICT (event_id) DO NOTHING}, so Razorpay's redeliveries are
+ * dropped by the unique key without a read first. Applying the events to
+ * sessions, slots and payments happens afterwards, in batches.
+ *
+ * The event id is Razorpay's {@code x-razorpay-event-id} header; deliveries
+ * without one fall back to event type + payment id, which is unique per
+ * transition of a payment.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class PaymentWebhookService {
+
+    private static final String INSERT_SQL = "INSERT INTO payment_webhook_events "
+            + "(event_id, event_type, order_id, payment_id, amount_paise, method, error_description, payload, "
+            + " status, attempts, next_attempt_at, received_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, 'PENDING', 0, ?, ?) "
+            + "ON CONFLICT (event_id) DO NOTHING";
+
+    // A run keeps applying while batches come back full, up to this many rounds.
+    private static final int MAX_ROUNDS_PER_RUN = 20;
+
+    private final RazorpayService razorpayService;
+    private final PaymentSettlementService settlementService;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.payments.webhook.batch-size:200}")
+    private int batchSize;
+
+    @Value("${app.payments.webhook.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${app.payments.webhook.retry-base-ms:2000}")
+    private long retryBaseMillis;
+
+    @Value("${app.payments.webhook.store-payload:true}")
+    private boolean storePayload;
+
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong unhandled = new AtomicLong();
+
+    public enum Outcome { ACCEPTED, DUPLICATE, UNHANDLED, REJECTED }
+
+    /**
+     * Verifies and stores one delivery. REJECTED means the signature or body
+     * was bad and the caller should answer 400; anything else is acknowledged.
+     */
+    public Outcome ingest(String body, String signature, String eventIdHeader) {
+        if (!razorpayService.verifyWebhookSignature(body, signature)) {
+            rejected.incrementAndGet();
+            return Outcome.REJECTED;
+        }
+        JsonNode root;
+        try {
+            root = objectMapper.readTree(body);
+        } catch (Exception e) {
+            rejected.incrementAndGet();
+            return Outcome.REJECTED;
+        }
+
+        String eventType = root.path("event").asText("");
+        if (!PaymentSettlementService.CAPTURE_EVENTS.contains(eventType)
+                && !PaymentSettlementService.FAILURE_EVENT.equals(eventType)) {
+            unhandled.incrementAndGet();
+            return Outcome.UNHANDLED;
+        }
+
+        JsonNode payment = root.path("payload").path("payment").path("entity");
+        String paymentId = text(payment, "id");
+        String orderId = text(payment, "order_id");
+        if (orderId == null) {
+            orderId = text(root.path("payload").path("order").path("entity"), "id");
+        }
+        String eventId = eventIdHeader != null && !eventIdHeader.isBlank()
+                ? eventIdHeader
+                : eventType + ":" + (paymentId != null ? paymentId : orderId);
+
+        Timestamp now = DbTimeUtil.now();
+        int inserted = jdbcTemplate.update(INSERT_SQL,
+                truncate(eventId, 64), eventType, orderId, paymentId,
+                payment.hasNonNull("amount") ? payment.get("amount").asLong() : null,
+                truncate(text(payment, "method"), 30),
+                truncate(text(payment, "error_description"), 500),
+                storePayload ? body : null, now, now);
+        if (inserted == 0) {
+            duplicates.incrementAndGet();
+            return Outcome.DUPLICATE;
+        }
+        received.incrementAndGet();
+        return Outcome.ACCEPTED;
+    }
+
+    /**
+     * Applies due events in batches. If a batch fails, its events are retried
+     * one by one so a single bad event is set aside (with backoff, then FAILED
+     * after app.payments.webhook.max-attempts) instead of holding up the rest.
+     */
+    @Scheduled(fixedDelayString = "${app.payments.webhook.apply-ms:500}")
+    public void applyPending() {
+        try {
+            for (int round = 0; round < MAX_ROUNDS_PER_RUN; round++) {
+                if (settlementService.applyDue(batchSize) < batchSize) break;
+            }
+        } catch (Exception e) {
+            log.warn("Webhook batch apply failed, retrying events individually: {}", e.getMessage());
+            applyIndividually();
+        }
+    }
+
+    private void applyIndividually() {
+        try {
+            for (Long id : settlementService.dueEventIds(batchSize)) {
+                try {
+                    settlementService.applyOne(id);
+                } catch (Exception e) {
+                    log.warn("Webhook event {} failed: {}", id, e.getMessage());
+                    settlementService.recordFailure(id, e.getMessage(), maxAttempts, retryBaseMillis);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Webhook event apply failed: {}", e.getMessage());
+        }
+    }
+
+    public Stats getStats() {
+        return new Stats(received.get(), duplicates.get(), rejected.get(), unhandled.get(),
+                settlementService.getStats());
+    }
+
+    public record Stats(long received, long duplicates, long rejected, long unhandled,
+                        PaymentSettlementService.Stats settlement) {}
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+
+    private static String truncate(String value, int max) {
+        return value != null && value.length() > max ? value.substring(0, max) : value;
+    }
+}
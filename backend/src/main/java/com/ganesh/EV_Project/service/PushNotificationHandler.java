@@ -0,0 +1,183 @@
+package com.ganesh.EV_Project.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ganesh.EV_Project.model.DeviceToken;
+import com.ganesh.EV_Project.model.OutboxEvent;
+import com.ganesh.EV_Project.repository.DeviceTokenRepository;
+import com.ganesh.EV_Project.util.DbTimeUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends queued push notifications (outbox events of type PUSH_NOTIFICATION)
+ * to every device registered to their user.
+ *
+ * Pushes are not dispatched one by one after commit: the outbox poll hands
+ * them over in batches of up to app.notifications.batch-size, so each batch
+ * looks up all recipients' device tokens in one query, sends the messages in
+ * {@link PushSender#MAX_BATCH}-sized {@code sendEach} calls and deletes dead
+ * tokens in one JDBC batch.
+ *
+ * A notification counts as sent once any of the user's devices accepted it.
+ * One with nothing to deliver to (no devices, all tokens dead, push disabled)
+ * is done too; if none accepted it and some failures were transient, it is
+ * retried by the outbox.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class PushNotificationHandler implements OutboxEventHandler {
+
+    private static final String PRUNE_SQL = "DELETE FROM device_tokens WHERE token = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DeviceTokenRepository deviceTokenRepository;
+    private final PushSender pushSender;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.notifications.batch-size:200}")
+    private int batchSize;
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong transientFailures = new AtomicLong();
+    private final AtomicLong prunedTokens = new AtomicLong();
+    private final AtomicLong deliveredLatencyMillis = new AtomicLong();
+    private volatile long maxLatencyMillis;
+    private volatile int lastBatchRows;
+    private volatile long lastBatchMillis;
+
+    @Override
+    public OutboxEvent.Type type() {
+        return OutboxEvent.Type.PUSH_NOTIFICATION;
+    }
+
+    @Override
+    public int batchSize() {
+        return batchSize;
+    }
+
+    @Override
+    public void handle(OutboxEvent event) throws Exception {
+        Exception failure = handleAll(List.of(event)).get(0);
+        if (failure != null) throw failure;
+    }
+
+    @Override
+    public List<Exception> handleAll(List<OutboxEvent> events) {
+        long started = System.nanoTime();
+        List<Exception> failures = new ArrayList<>(events.size());
+
+        // <UserId, tokens>, one query for the whole batch
+        Map<Long, List<String>> tokensByUser = new HashMap<>();
+        for (DeviceToken dt : deviceTokenRepository.findByUserIdIn(
+                events.stream().map(OutboxEvent::getAggregateId).distinct().toList())) {
+            tokensByUser.computeIfAbsent(dt.getUserId(), k -> new ArrayList<>()).add(dt.getToken());
+        }
+
+        // Flatten to (notification, token) messages; messages[i] belongs to events[owners[i]]
+        List<PushSender.PushMessage> messages = new ArrayList<>();
+        List<Integer> owners = new ArrayList<>();
+        for (int i = 0; i < events.size(); i++) {
+            OutboxEvent event = events.get(i);
+            JsonNode push;
+            try {
+                push = objectMapper.readTree(event.getPayload());
+            } catch (Exception e) {
+                failures.add(e);
+                continue;
+            }
+            failures.add(null);
+            for (String token : tokensByUser.getOrDefault(event.getAggregateId(), List.of())) {
+                messages.add(new PushSender.PushMessage(token, push.path("type").asText(),
+                        push.path("title").asText(), push.path("body").asText(),
+                        push.hasNonNull("deepLink") ? push.get("deepLink").asText() : null));
+                owners.add(i);
+            }
+        }
+
+        List<PushSender.Result> results = send(messages);
+
+        boolean[] delivered = new boolean[events.size()];
+        boolean[] transientFailure = new boolean[events.size()];
+        Set<String> deadTokens = new HashSet<>();
+        for (int m = 0; m < messages.size(); m++) {
+            int owner = owners.get(m);
+            switch (results.get(m)) {
+                case SENT -> delivered[owner] = true;
+                case FAILED -> transientFailure[owner] = true;
+                case INVALID_TOKEN -> deadTokens.add(messages.get(m).token());
+                case DISABLED -> { }
+            }
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < events.size(); i++) {
+            if (failures.get(i) != null) continue;
+            if (delivered[i]) {
+                sent.incrementAndGet();
+                long latency = Duration.between(events.get(i).getCreatedAt(), now).toMillis();
+                deliveredLatencyMillis.addAndGet(latency);
+                if (latency > maxLatencyMillis) maxLatencyMillis = latency;
+            } else if (transientFailure[i]) {
+                transientFailures.incrementAndGet();
+                failures.set(i, new IllegalStateException("No device accepted the push"));
+            } else {
+                skipped.incrementAndGet();
+            }
+        }
+
+        if (!deadTokens.isEmpty()) {
+            jdbcTemplate.batchUpdate(PRUNE_SQL, deadTokens.stream().map(t -> new Object[]{t}).toList());
+            prunedTokens.addAndGet(deadTokens.size());
+            log.info("Pruned {} dead device token(s)", deadTokens.size());
+        }
+
+        lastBatchRows = events.size();
+        lastBatchMillis = (System.nanoTime() - started) / 1_000_000;
+        return failures;
+    }
+
+    /** Sends in MAX_BATCH chunks; results keep the message order. */
+    private List<PushSender.Result> send(List<PushSender.PushMessage> messages) {
+        List<PushSender.Result> results = new ArrayList<>(messages.size());
+        for (int from = 0; from < messages.size(); from += PushSender.MAX_BATCH) {
+            results.addAll(pushSender.sendEach(
+                    messages.subList(from, Math.min(from + PushSender.MAX_BATCH, messages.size()))));
+        }
+        return results;
+    }
+
+    public Stats getStats() {
+        Map<String, Object> depth = jdbcTemplate.queryForMap(
+                "SELECT COUNT(*) AS pending, MIN(created_at) AS oldest FROM outbox_events "
+                        + "WHERE status = 'PENDING' AND type = ?", OutboxEvent.Type.PUSH_NOTIFICATION.name());
+        long pending = ((Number) depth.get("pending")).longValue();
+        Timestamp oldest = (Timestamp) depth.get("oldest");
+        long oldestAgeMillis = oldest == null ? 0
+                : Math.max(0, Duration.between(DbTimeUtil.fromDb(oldest), LocalDateTime.now()).toMillis());
+        long delivered = sent.get();
+        return new Stats(pending, oldestAgeMillis, delivered, skipped.get(), transientFailures.get(),
+                prunedTokens.get(), delivered == 0 ? 0 : deliveredLatencyMillis.get() / delivered,
+                maxLatencyMillis, lastBatchRows, lastBatchMillis, pushSender.isEnabled());
+    }
+
+    public record Stats(long pending, long oldestPendingAgeMillis, long sent, long skipped, long transientFailures,
+                        long prunedTokens, long avgLatencyMillis, long maxLatencyMillis,
+                        int lastBatchRows, long lastBatchMillis, boolean senderEnabled) {}
+}
@@ -8,12 +8,13 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
-import java.util.List;
 
 /**
- * High-level push entry point (CV-11). Resolves a user's registered devices,
- * sends the message via {@link FcmService}, and prunes tokens FCM reports as
- * dead. Designed to never throw into a caller's business transaction.
+ * High-level push entry point (CV-11). {@link #sendToUser} only records the
+ * notification in the outbox, inside the caller's transaction; sending to the
+ * user's devices and dead-token pruning happen asynchronously in
+ * {@link PushNotificationHandler}, retries in {@link OutboxRelay}. Designed
+ * to never throw into a caller's business transaction.
  */
 @Service
 @Slf4j
@@ -21,7 +22,7 @@ import java.util.List;
 public class PushNotificationService {
 
     private final DeviceTokenRepository deviceTokenRepository;
-    private final FcmService fcmService;
+    private final OutboxService outboxService;
 
     /** Upserts a device's FCM token for the given user. */
     @Transactional
@@ -43,21 +44,21 @@ public class PushNotificationService {
     }
 
     /**
-     * Sends a notification to every device registered to the user. Failures are
-     * swallowed; dead tokens are removed. Safe to call from inside other flows.
+     * Queues a notification for every device registered to the user. It goes
+     * out only if the surrounding transaction (if any) commits. Failures are
+     * logged and swallowed. Safe to call from inside other flows.
      */
     public void sendToUser(Long userId, String type, String title, String body, String deepLink) {
+        if (userId == null) return;
         try {
-            List<DeviceToken> tokens = deviceTokenRepository.findByUserId(userId);
-            for (DeviceToken dt : tokens) {
-                FcmService.Result result =
-                        fcmService.sendToToken(dt.getToken(), type, title, body, deepLink);
-                if (result == FcmService.Result.INVALID_TOKEN) {
-                    deviceTokenRepository.delete(dt);
-                }
-            }
+            outboxService.enqueuePushNotification(userId, type, truncate(title, 200), truncate(body, 1000), deepLink);
         } catch (Exception e) {
-            log.warn("Push to user {} failed: {}", userId, e.getMessage());
+            log.warn("Queueing push to user {} failed: {}", userId, e.getMessage());
         }
     }
+
+    private static String truncate(String s, int max) {
+        if (s == null) return "";
+        return s.length() <= max ? s : s.substring(0, max);
+    }
 }
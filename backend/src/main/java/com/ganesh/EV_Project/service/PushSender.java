@@ -0,0 +1,27 @@
+package com.ganesh.EV_Project.service;
+
+import java.util.List;
+
+/**
+ * Delivers push messages to device tokens. {@link FcmService} is the real
+ * implementation; {@link StubPushSender} (app.notifications.sender=stub)
+ * stands in for it locally and in load tests.
+ */
+public interface PushSender {
+
+    /** Most messages accepted by one {@link #sendEach} call (FCM's batch limit). */
+    int MAX_BATCH = 500;
+
+    enum Result { SENT, INVALID_TOKEN, FAILED, DISABLED }
+
+    boolean isEnabled();
+
+    /**
+     * Sends up to {@link #MAX_BATCH} messages in one call. Returns one result
+     * per message, in order; never throws.
+     */
+    List<Result> sendEach(List<PushMessage> messages);
+
+    record PushMessage(String token, String type, String title, String body, String deepLink) {
+    }
+}
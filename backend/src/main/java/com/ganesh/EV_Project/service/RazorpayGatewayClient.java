@@ -0,0 +1,147 @@
+package com.ganesh.EV_Project.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ganesh.EV_Project.util.CircuitBreaker;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * HTTP client for the Razorpay Orders API.
+ *
+ * One shared {@link HttpClient} keeps connections to the gateway alive and
+ * reuses them across calls, with explicit connect and request timeouts so a
+ * hung gateway costs at most {@code razorpay.http.request-timeout-ms} per
+ * call. A {@link CircuitBreaker} stops calling after repeated transport
+ * errors or 5xx/429 responses and fails fast until the gateway recovers;
+ * callers (the outbox) retry later. {@code razorpay.api-base-url} can point
+ * at the local mock gateway ({@code MockRazorpayController}).
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class RazorpayGatewayClient {
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${razorpay.key.id}")
+    private String keyId;
+
+    @Value("${razorpay.key.secret}")
+    private String keySecret;
+
+    @Value("${razorpay.api-base-url:https://api.razorpay.com}")
+    private String baseUrl;
+
+    @Value("${razorpay.http.connect-timeout-ms:3000}")
+    private long connectTimeoutMillis;
+
+    @Value("${razorpay.http.request-timeout-ms:5000}")
+    private long requestTimeoutMillis;
+
+    @Value("${razorpay.circuit.failure-threshold:5}")
+    private int failureThreshold;
+
+    @Value("${razorpay.circuit.open-ms:30000}")
+    private long openMillis;
+
+    private HttpClient http;
+    private CircuitBreaker breaker;
+    private String authorization;
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong totalLatencyMillis = new AtomicLong();
+    private volatile long maxLatencyMillis;
+
+    @PostConstruct
+    void init() {
+        http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMillis))
+                .build();
+        breaker = new CircuitBreaker(failureThreshold, openMillis);
+        authorization = "Basic " + Base64.getEncoder()
+                .encodeToString((keyId + ":" + keySecret).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Creates an order and returns its id. Amount in paise. */
+    public String createOrder(long amountPaise, String receipt) {
+        if (!breaker.tryAcquire()) {
+            throw new PaymentGatewayException("Payment gateway circuit open; not calling Razorpay");
+        }
+        long started = System.nanoTime();
+        calls.incrementAndGet();
+        try {
+            String body = objectMapper.writeValueAsString(Map.of(
+                    "amount", amountPaise,
+                    "currency", "INR",
+                    "receipt", receipt));
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/v1/orders"))
+                    .header("Authorization", authorization)
+                    .header("Content-Type", "application/json")
+                    .timeout(Duration.ofMillis(requestTimeoutMillis))
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+            HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+            int status = response.statusCode();
+            if (status >= 500 || status == 429) {
+                breaker.onFailure();
+                failures.incrementAndGet();
+                throw new PaymentGatewayException("Razorpay order failed (" + status + ")");
+            }
+            // A 4xx is our request's fault, not the gateway's health: the breaker stays as is.
+            breaker.onSuccess();
+            if (status < 200 || status >= 300) {
+                failures.incrementAndGet();
+                throw new PaymentGatewayException("Razorpay rejected the order (" + status + "): " + response.body());
+            }
+            JsonNode order = objectMapper.readTree(response.body());
+            return order.get("id").asText();
+        } catch (PaymentGatewayException e) {
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            breaker.onFailure();
+            failures.incrementAndGet();
+            throw new PaymentGatewayException("Interrupted calling Razorpay");
+        } catch (Exception e) {
+            // Connect/request timeout, connection reset, unparsable body
+            breaker.onFailure();
+            failures.incrementAndGet();
+            throw new PaymentGatewayException("Razorpay call failed: " + e.getMessage());
+        } finally {
+            long elapsed = (System.nanoTime() - started) / 1_000_000;
+            totalLatencyMillis.addAndGet(elapsed);
+            if (elapsed > maxLatencyMillis) maxLatencyMillis = elapsed;
+        }
+    }
+
+    public Stats getStats() {
+        long n = calls.get();
+        return new Stats(breaker.getState().name(), n, failures.get(), breaker.getRejected(),
+                n == 0 ? 0 : totalLatencyMillis.get() / n, maxLatencyMillis);
+    }
+
+    public record Stats(String circuit, long calls, long failures, long rejectedByCircuit,
+                        long avgLatencyMillis, long maxLatencyMillis) {}
+
+    public static class PaymentGatewayException extends RuntimeException {
+        public PaymentGatewayException(String message) {
+            super(message);
+        }
+    }
+}
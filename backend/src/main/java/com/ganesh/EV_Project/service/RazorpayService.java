@@ -1,46 +1,40 @@
 package com.ganesh.EV_Project.service;
 
-import com.razorpay.Order;
-import com.razorpay.RazorpayClient;
 import com.razorpay.RazorpayException;
 import com.razorpay.Utils;
+import lombok.RequiredArgsConstructor;
 import org.json.JSONObject;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import jakarta.annotation.PostConstruct;
-
+/**
+ * Razorpay operations. Orders go through {@link RazorpayGatewayClient}
+ * (pooled HTTP, timeouts, circuit breaker); signature checks are local HMACs
+ * via the SDK's {@link Utils}.
+ */
 @Service
+@RequiredArgsConstructor
 public class RazorpayService {
 
-    @Value("${razorpay.key.id}")
-    private String keyId;
+    private final RazorpayGatewayClient gatewayClient;
 
     @Value("${razorpay.key.secret}")
     private String keySecret;
 
-    private RazorpayClient client;
-
-    @PostConstruct
-    public void init() throws RazorpayException {
-        this.client = new RazorpayClient(keyId, keySecret);
-    }
+    @Value("${razorpay.webhook.secret:}")
+    private String webhookSecret;
 
     /**
      * Creates a Razorpay Order
      * @param amount Amount in Rupees
      * @param bookingId The internal booking ID
      * @return Razorpay Order ID
+     * @throws RazorpayGatewayClient.PaymentGatewayException if the gateway fails,
+     *         times out or its circuit is open
      */
-    public String createOrder(Double amount, String bookingId) throws RazorpayException {
-        JSONObject orderRequest = new JSONObject();
+    public String createOrder(Double amount, String bookingId) {
         // Razorpay expects amount in paise (1 INR = 100 paise)
-        orderRequest.put("amount", Math.round(amount * 100));
-        orderRequest.put("currency", "INR");
-        orderRequest.put("receipt", "booking_" + bookingId);
-        
-        Order order = client.orders.create(orderRequest);
-        return order.get("id");
+        return gatewayClient.createOrder(Math.round(amount * 100), "booking_" + bookingId);
     }
 
     /**
@@ -58,4 +52,19 @@ public class RazorpayService {
             return false;
         }
     }
+
+    /**
+     * Verifies a webhook delivery's X-Razorpay-Signature (HMAC-SHA256 of the raw
+     * body with the webhook secret). False when no webhook secret is configured.
+     */
+    public boolean verifyWebhookSignature(String body, String signature) {
+        if (webhookSecret == null || webhookSecret.isBlank() || signature == null) {
+            return false;
+        }
+        try {
+            return Utils.verifyWebhookSignature(body, signature, webhookSecret);
+        } catch (RazorpayException e) {
+            return false;
+        }
+    }
 }
@@ -1,89 +1,109 @@
 package com.ganesh.EV_Project.service;
 
-import com.ganesh.EV_Project.dto.BookingRequest;
+import com.ganesh.EV_Project.dto.ReservationRequest;
 import com.ganesh.EV_Project.enums.ConnectorType;
 import com.ganesh.EV_Project.enums.VehicleType;
 import com.ganesh.EV_Project.model.BookingTemplate;
 import com.ganesh.EV_Project.repository.BookingTemplateRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
 import java.util.List;
 
 /**
  * Materializes recurring-booking templates (G2).
  *
- * Every minute, for each active template whose weekday matches today and whose
- * scheduled time is within the next {@link #LEAD_MINUTES} minutes, it creates a
- * normal booking via {@link BookingService} (same flow/hold as instant booking)
- * and pushes the outcome. {@code lastMaterializedDate} is stamped before the
- * attempt so each template is tried at most once per day (no retry spam, no
- * double-booking).
+ * Every minute, each active template's next occurrence within the coming
+ * {@link #RESERVE_AHEAD_HOURS} hours is reserved in advance through
+ * {@link ReservationService}: the connector is held for the template's window
+ * (app.reservations.recurring-window-minutes) instead of racing for whatever
+ * happens to be free shortly before, and activates like any other
+ * reservation. The outcome is pushed to the driver. {@code lastMaterializedDate}
+ * is stamped with the occurrence's date before the attempt so each occurrence
+ * is tried at most once (no retry spam, no double-booking).
  *
  * Not {@code @Transactional} at the method level on purpose: the stamp is
- * committed independently so a failed {@code createBooking} (its own
- * transaction) cannot roll it back and cause repeated attempts.
+ * committed independently so a failed {@code reserve} (its own transaction)
+ * cannot roll it back and cause repeated attempts.
  */
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class RecurringBookingService {
 
-    private static final int LEAD_MINUTES = 20;
+    private static final int RESERVE_AHEAD_HOURS = 24;
+    // Occurrences closer than this are treated as missed (e.g. downtime), not reserved late.
+    private static final int MIN_LEAD_MINUTES = 2;
 
     private final BookingTemplateRepository templateRepository;
-    private final BookingService bookingService;
+    private final ReservationService reservationService;
     private final PushNotificationService pushNotificationService;
 
+    @Value("${app.reservations.recurring-window-minutes:60}")
+    private int windowMinutes;
+
     @Scheduled(fixedRate = 60000)
     public void materializeDueTemplates() {
         LocalDateTime now = LocalDateTime.now();
-        LocalDate today = now.toLocalDate();
-        String todayCode = now.getDayOfWeek().name().substring(0, 3); // MON, TUE, ...
+        LocalDateTime reserveUntil = now.plusHours(RESERVE_AHEAD_HOURS);
 
         for (BookingTemplate template : templateRepository.findByActiveTrue()) {
-            if (today.equals(template.getLastMaterializedDate())) continue;
-            if (!matchesToday(template.getDaysOfWeek(), todayCode)) continue;
             if (template.getTimeOfDay() == null) continue;
 
-            LocalDateTime scheduled = LocalDateTime.of(today, template.getTimeOfDay());
-            LocalDateTime windowStart = scheduled.minusMinutes(LEAD_MINUTES);
-
-            if (now.isBefore(windowStart)) continue; // too early
+            LocalDateTime occurrence = nextOccurrence(template, now);
+            if (occurrence == null || occurrence.isAfter(reserveUntil)) continue; // too early
 
-            // Stamp first so this template is attempted at most once today.
-            template.setLastMaterializedDate(today);
+            // Stamp first so this occurrence is attempted at most once.
+            template.setLastMaterializedDate(occurrence.toLocalDate());
             templateRepository.save(template);
 
-            // If the whole window was missed (e.g. downtime), just skip — don't
-            // create a retroactive booking.
-            if (now.isAfter(scheduled)) continue;
+            materializeOne(template, occurrence);
+        }
+    }
 
-            materializeOne(template);
+    // Earliest occurrence (today or tomorrow) not yet materialized that can still be reserved.
+    private LocalDateTime nextOccurrence(BookingTemplate template, LocalDateTime now) {
+        for (int day = 0; day <= 1; day++) {
+            LocalDate date = now.toLocalDate().plusDays(day);
+            if (template.getLastMaterializedDate() != null
+                    && !date.isAfter(template.getLastMaterializedDate())) continue;
+            String dayCode = date.getDayOfWeek().name().substring(0, 3); // MON, TUE, ...
+            if (!matchesDay(template.getDaysOfWeek(), dayCode)) continue;
+
+            LocalDateTime occurrence = LocalDateTime.of(date, template.getTimeOfDay());
+            // If the occurrence was missed, just skip it — don't create a retroactive booking.
+            if (occurrence.isBefore(now.plusMinutes(MIN_LEAD_MINUTES))) continue;
+            return occurrence;
         }
+        return null;
     }
 
-    private void materializeOne(BookingTemplate template) {
+    private void materializeOne(BookingTemplate template, LocalDateTime occurrence) {
+        String when = occurrence.format(DateTimeFormatter.ofPattern("EEE h:mm a"));
         try {
-            BookingRequest request = new BookingRequest();
+            ReservationRequest request = new ReservationRequest();
             request.setUserId(template.getUserId());
             request.setStationId(template.getStationId());
             request.setConnectorType(ConnectorType.valueOf(template.getConnectorType()));
             request.setVehicleType(VehicleType.valueOf(template.getVehicleType()));
+            request.setStartTime(occurrence);
+            request.setEndTime(occurrence.plusMinutes(windowMinutes));
             request.setAllowTruckSlotFallback(true); // auto-pick any usable slot
 
-            bookingService.createBooking(request);
+            reservationService.reserve(request);
 
             pushNotificationService.sendToUser(
                     template.getUserId(),
                     "BOOKING_EXPIRING",
-                    "Recurring slot booked",
-                    "Your recurring slot is reserved. Start charging within 20 minutes to keep it.",
+                    "Recurring slot reserved",
+                    "Your recurring slot is reserved for " + when + ".",
                     "plugsy://bookings/" + template.getUserId());
         } catch (Exception e) {
             log.info("Recurring booking failed for template {}: {}", template.getId(), e.getMessage());
@@ -91,17 +111,17 @@ public class RecurringBookingService {
                     template.getUserId(),
                     "BOOKING_EXPIRING",
                     "Recurring booking unavailable",
-                    "We couldn't book your recurring slot today — no matching connector was free.",
+                    "We couldn't reserve your recurring slot for " + when + " — no matching connector was free.",
                     "plugsy://bookings/" + template.getUserId());
         }
     }
 
-    private boolean matchesToday(String daysOfWeek, String todayCode) {
+    private boolean matchesDay(String daysOfWeek, String dayCode) {
         if (daysOfWeek == null || daysOfWeek.isBlank()) return false;
         List<String> days = Arrays.stream(daysOfWeek.split(","))
                 .map(String::trim)
                 .map(String::toUpperCase)
                 .toList();
-        return days.contains(todayCode);
+        return days.contains(dayCode);
     }
 }
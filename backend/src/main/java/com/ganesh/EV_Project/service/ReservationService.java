@@ -0,0 +1,258 @@
+package com.ganesh.EV_Project.service;
+
+import com.ganesh.EV_Project.controller.WebSocketController;
+import com.ganesh.EV_Project.dto.ReservationRequest;
+import com.ganesh.EV_Project.enums.BookingStatus;
+import com.ganesh.EV_Project.enums.SlotStatus;
+import com.ganesh.EV_Project.enums.VehicleType;
+import com.ganesh.EV_Project.exception.APIException;
+import com.ganesh.EV_Project.model.Booking;
+import com.ganesh.EV_Project.model.ChargerSlot;
+import com.ganesh.EV_Project.model.User;
+import com.ganesh.EV_Project.repository.BookingRepository;
+import com.ganesh.EV_Project.repository.ChargerSlotRepository;
+import com.ganesh.EV_Project.repository.UserRepository;
+import com.ganesh.EV_Project.util.TransactionUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Advance reservations: "hold connector X from 18:00 to 19:00".
+ *
+ * A reservation is a PENDING booking carrying its window in startTime/endTime.
+ * Conflicts are checked against {@link SlotReservationIndex}; the database
+ * exclusion constraint rejects anything that slips past it (another replica).
+ * Shortly before the window opens the reservation is activated: the slot is
+ * marked BOOKED and the booking becomes CONFIRMED with the usual grace period
+ * to start charging, after which it behaves exactly like an instant booking.
+ * Instant bookings in turn stay off connectors with a window coming up (see
+ * {@link BookingService#createBooking}).
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ReservationService {
+
+    // Open the window this early so the driver can start right on time.
+    private static final int ACTIVATION_LEAD_MINUTES = 1;
+
+    private final BookingRepository bookingRepository;
+    private final ChargerSlotRepository slotRepository;
+    private final UserRepository userRepository;
+    private final SlotReservationIndex reservationIndex;
+    private final BookingDeadlineQueue bookingDeadlineQueue;
+    private final PushNotificationService pushNotificationService;
+    private final WebSocketController webSocketController;
+    private final SlotAvailabilityCache slotAvailabilityCache;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.booking.expiration-minutes:20}")
+    private int expirationMinutes;
+
+    @Value("${app.reservations.max-minutes:240}")
+    private int maxWindowMinutes;
+
+    @Value("${app.reservations.max-advance-days:14}")
+    private int maxAdvanceDays;
+
+    /**
+     * Reserve a connector for a future window.
+     *
+     * Flow:
+     * 1. Validate the window (future, bounded length, not too far ahead)
+     * 2. Candidates: the requested slot, or the station's connectors of the
+     *    type (truck-capable only for trucks; cars prefer car slots)
+     * 3. First candidate whose window is free in the index is taken
+     * 4. Booking saved as PENDING; the exclusion constraint is checked on flush
+     *
+     * Each attempt runs in its own transaction, so a candidate lost to another
+     * node (constraint violation) or to a concurrent request here (index hold
+     * refused) is rolled back and the next candidate is tried.
+     */
+    public Booking reserve(ReservationRequest request) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime start = request.getStartTime();
+        LocalDateTime end = request.getEndTime();
+        if (!end.isAfter(start)) {
+            throw new APIException("End time must be after start time");
+        }
+        if (start.isBefore(now.plusMinutes(ACTIVATION_LEAD_MINUTES))) {
+            throw new APIException("Start time must be in the future; use Book Now to charge right away");
+        }
+        if (start.plusMinutes(maxWindowMinutes).isBefore(end)) {
+            throw new APIException("Reservations can be at most " + maxWindowMinutes + " minutes long");
+        }
+        if (start.isAfter(now.plusDays(maxAdvanceDays))) {
+            throw new APIException("Reservations can be made at most " + maxAdvanceDays + " days ahead");
+        }
+        if (!userRepository.existsById(request.getUserId())) {
+            throw new APIException("User not found");
+        }
+
+        List<Long> slotIds = transactionTemplate.execute(status ->
+                candidates(request).stream().map(ChargerSlot::getId).toList());
+        boolean lostRace = false;
+        for (Long slotId : slotIds) {
+            if (!reservationIndex.isFree(slotId, start, end)) continue;
+            try {
+                return transactionTemplate.execute(status -> hold(slotId, request, start, end));
+            } catch (DataIntegrityViolationException | WindowTakenException e) {
+                // Taken through another node, or by a concurrent request here,
+                // between the index check and the insert
+                lostRace = true;
+            }
+        }
+
+        if (lostRace) {
+            throw new APIException("That connector was just reserved for an overlapping time. Please try again.");
+        }
+        throw new APIException("No " + request.getConnectorType() + " connectors free from "
+                + start.format(DateTimeFormatter.ofPattern("h:mm a")) + " to "
+                + end.format(DateTimeFormatter.ofPattern("h:mm a")) + ".");
+    }
+
+    private Booking hold(Long slotId, ReservationRequest request, LocalDateTime start, LocalDateTime end) {
+        Booking booking = Booking.builder()
+                .user(userRepository.getReferenceById(request.getUserId()))
+                .slot(slotRepository.findById(slotId).orElseThrow(() -> new APIException("Slot not found")))
+                .startTime(start)
+                .endTime(end)
+                .status(BookingStatus.PENDING)
+                .priceEstimate(0.0) // calculated after charging completes
+                .vehicleType(request.getVehicleType())
+                .build();
+        booking = bookingRepository.saveAndFlush(booking);
+        if (!reservationIndex.tryHold(slotId, booking.getId(), start, end)) {
+            throw new WindowTakenException(); // rolls the insert back
+        }
+        return booking;
+    }
+
+    /**
+     * Activate reservations whose window is about to open: the slot becomes
+     * BOOKED and the booking CONFIRMED, expiring {@code expirationMinutes}
+     * after its start like an instant booking. If the connector is still in
+     * use (a session overrunning into the window) activation is retried on the
+     * next run until the grace period is over, then the reservation expires
+     * and the driver is told.
+     *
+     * Each reservation is activated in its own transaction, so one that fails
+     * (slot lock timeout, conflict) is logged and retried next run without
+     * rolling back the others or holding their slot locks.
+     */
+    @Scheduled(fixedRateString = "${app.reservations.activate-poll-ms:30000}")
+    public void activateDueReservations() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> due = bookingRepository.findReservationsStartingBefore(now.plusMinutes(ACTIVATION_LEAD_MINUTES))
+                .stream().map(Booking::getId).toList();
+        for (Long bookingId : due) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> activate(bookingId, now));
+            } catch (Exception e) {
+                log.warn("Activating reservation {} failed, retrying next run: {}", bookingId, e.getMessage());
+            }
+        }
+    }
+
+    private void activate(Long bookingId, LocalDateTime now) {
+        Booking booking = bookingRepository.findById(bookingId).orElse(null);
+        if (booking == null || booking.getStatus() != BookingStatus.PENDING) return; // cancelled meanwhile
+
+        LocalDateTime expiresAt = booking.getStartTime().plusMinutes(expirationMinutes);
+        ChargerSlot slot = slotRepository.findByIdForUpdate(booking.getSlot().getId()).orElse(null);
+
+        if (slot != null && slot.getStatus() == SlotStatus.AVAILABLE && now.isBefore(expiresAt)) {
+            slot.setStatus(SlotStatus.BOOKED);
+            slotRepository.save(slot);
+            booking.setStatus(BookingStatus.CONFIRMED);
+            booking.setExpiresAt(expiresAt);
+            bookingRepository.save(booking);
+            slotAvailabilityCache.onSlotBooked(slot, expiresAt);
+            try {
+                webSocketController.notifySlotStatusChange(slot.getStation().getId(), slot);
+            } catch (Exception e) {
+                log.warn("WebSocket slot status notify failed: {}", e.getMessage());
+            }
+            TransactionUtil.afterCommit(() -> bookingDeadlineQueue.schedule(bookingId, expiresAt, true));
+            notifyUser(booking, "Reservation active",
+                    "Your reserved connector is ready. Start charging within " + expirationMinutes + " minutes to keep it.");
+        } else if (!now.isBefore(expiresAt)) {
+            booking.setStatus(BookingStatus.EXPIRED);
+            bookingRepository.save(booking);
+            releaseWindow(booking);
+            notifyUser(booking, "Reservation unavailable",
+                    "Sorry — your reserved connector was still in use, so we couldn't hold your reservation.");
+        }
+    }
+
+    private List<ChargerSlot> candidates(ReservationRequest request) {
+        if (request.getSlotId() != null) {
+            ChargerSlot slot = slotRepository.findById(request.getSlotId())
+                    .orElseThrow(() -> new APIException("Slot not found"));
+            if (slot.getStation() == null || !slot.getStation().getId().equals(request.getStationId())
+                    || slot.getConnectorType() != request.getConnectorType()) {
+                throw new APIException("Selected slot does not match the station and connector type");
+            }
+            if (request.getVehicleType() == VehicleType.TRUCK && !acceptsTrucks(slot)) {
+                throw new APIException("Selected slot does not accept trucks");
+            }
+            return List.of(slot);
+        }
+
+        List<ChargerSlot> carSlots = new ArrayList<>();
+        List<ChargerSlot> truckSlots = new ArrayList<>();
+        for (ChargerSlot slot : slotRepository.findByStationId(request.getStationId())) {
+            if (slot.getConnectorType() != request.getConnectorType()) continue;
+            if (slot.getStatus() == SlotStatus.MAINTENANCE) continue;
+            (acceptsTrucks(slot) ? truckSlots : carSlots).add(slot);
+        }
+        Collections.shuffle(carSlots);
+        Collections.shuffle(truckSlots);
+
+        if (request.getVehicleType() == VehicleType.TRUCK) {
+            // Trucks must ONLY use truck-capable slots
+            return truckSlots;
+        }
+        // Cars use car-only slots first, truck slots only if the driver allows it
+        List<ChargerSlot> ordered = new ArrayList<>(carSlots);
+        if (request.isAllowTruckSlotFallback()) {
+            ordered.addAll(truckSlots);
+        }
+        return ordered;
+    }
+
+    private void releaseWindow(Booking booking) {
+        if (booking.getSlot() != null) {
+            reservationIndex.releaseAfterCommit(booking.getSlot().getId(), booking.getId());
+        }
+    }
+
+    private static boolean acceptsTrucks(ChargerSlot slot) {
+        return slot.getDispensary() != null && Boolean.TRUE.equals(slot.getDispensary().getAcceptsTrucks());
+    }
+
+    private void notifyUser(Booking booking, String title, String body) {
+        if (booking.getUser() == null) return;
+        pushNotificationService.sendToUser(
+                booking.getUser().getId(),
+                "BOOKING_EXPIRING",
+                title,
+                body,
+                "plugsy://bookings/" + booking.getUser().getId());
+    }
+
+    /** The index refused the hold after the insert; the attempt is rolled back. */
+    private static class WindowTakenException extends RuntimeException {
+    }
+}
@@ -0,0 +1,84 @@
+package com.ganesh.EV_Project.service;
+
+import com.ganesh.EV_Project.dto.SensorHistoryDTO;
+import com.ganesh.EV_Project.exception.APIException;
+import com.ganesh.EV_Project.model.IoTSensorRollup;
+import com.ganesh.EV_Project.util.DbTimeUtil;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Station power history at the resolution that suits the requested range.
+ *
+ * Raw readings arrive about once a second, so a range spans roughly
+ * seconds/60^k points at raw, 1-minute and 1-hour resolution. The finest
+ * resolution that stays within maxPoints (and still has data back to
+ * {@code from}, given its retention) is used; anything longer is served
+ * from the hourly rollups. A day is then 24 hourly rows rather than 86,400
+ * raw ones per station.
+ */
+@Service
+@RequiredArgsConstructor
+public class SensorHistoryService {
+
+    public static final String RAW = "raw";
+
+    private static final String RAW_SQL = "SELECT \"timestamp\" AS time, 1 AS samples, voltage AS avg_voltage, "
+            + "current AS avg_current, power AS avg_power, power AS min_power, power AS max_power "
+            + "FROM iot_sensor_data WHERE station_id = ? AND \"timestamp\" >= ? AND \"timestamp\" < ? "
+            + "ORDER BY \"timestamp\" LIMIT ?";
+
+    private static final String ROLLUP_SQL = "SELECT bucket AS time, samples, avg_voltage, avg_current, avg_power, "
+            + "min_power, max_power FROM iot_sensor_rollups "
+            + "WHERE resolution = ? AND station_id = ? AND bucket >= ? AND bucket < ? "
+            + "ORDER BY bucket LIMIT ?";
+
+    private static final RowMapper<SensorHistoryDTO.Point> POINT = (rs, i) -> new SensorHistoryDTO.Point(
+            DbTimeUtil.fromDb(rs.getTimestamp("time")), rs.getLong("samples"),
+            rs.getDouble("avg_voltage"), rs.getDouble("avg_current"), rs.getDouble("avg_power"),
+            rs.getDouble("min_power"), rs.getDouble("max_power"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${app.iot.storage.raw-retention-days:7}")
+    private int rawRetentionDays;
+
+    @Value("${app.iot.storage.minute-retention-days:30}")
+    private int minuteRetentionDays;
+
+    @Value("${app.iot.history.max-points:5000}")
+    private int maxPointsCap;
+
+    public SensorHistoryDTO history(Long stationId, LocalDateTime from, LocalDateTime to, int maxPoints) {
+        if (!to.isAfter(from)) {
+            throw new APIException("'to' must be after 'from'");
+        }
+        int limit = Math.max(1, Math.min(maxPoints, maxPointsCap));
+        String resolution = resolutionFor(from, to, limit);
+
+        List<SensorHistoryDTO.Point> points = RAW.equals(resolution)
+                ? jdbcTemplate.query(RAW_SQL, POINT, stationId, DbTimeUtil.toDb(from), DbTimeUtil.toDb(to), limit)
+                : jdbcTemplate.query(ROLLUP_SQL, POINT, resolution, stationId,
+                        DbTimeUtil.toDb(from), DbTimeUtil.toDb(to), limit);
+        return new SensorHistoryDTO(stationId, from, to, resolution, points);
+    }
+
+    String resolutionFor(LocalDateTime from, LocalDateTime to, int maxPoints) {
+        long seconds = Duration.between(from, to).getSeconds();
+        LocalDateTime now = LocalDateTime.now();
+        if (seconds <= maxPoints && !from.isBefore(now.minusDays(rawRetentionDays))) {
+            return RAW;
+        }
+        if (seconds / 60 <= maxPoints && !from.isBefore(now.minusDays(minuteRetentionDays))) {
+            return IoTSensorRollup.MINUTE;
+        }
+        return IoTSensorRollup.HOUR;
+    }
+}
@@ -0,0 +1,257 @@
+package com.ganesh.EV_Project.service;
+
+import com.ganesh.EV_Project.dto.SensorReadingRequest;
+import com.ganesh.EV_Project.util.DbTimeUtil;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Buffered ingestion for ESP32 sensor readings.
+ *
+ * Request threads only validate readings and put them in a bounded ring
+ * buffer ({@link ArrayBlockingQueue}); they never touch the database. A
+ * dedicated writer thread drains the buffer every
+ * app.iot.ingest.flush-interval-ms (or sooner while it keeps filling) and
+ * writes each batch with one INSERT ... SELECT FROM unnest(arrays), which
+ * Postgres handles like a multi-row insert in a single round trip. The same
+ * statement joins stations, so readings for unknown stations are dropped
+ * instead of failing the batch. Station lastUsedTime is coalesced to the
+ * newest reading per station and written with one UPDATE per flush, and
+ * that reading is handed to {@link LatestReadingCache}; every stored reading
+ * also goes through {@link LoadForecastService}.
+ *
+ * When the buffer is full new readings are refused rather than queued
+ * without bound; the endpoint answers 503 so boards resend later. Readings
+ * still buffered are written by a final flush on shutdown.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class SensorIngestService {
+
+    private static final String INSERT_SQL = "INSERT INTO iot_sensor_data (station_id, voltage, current, power, \"timestamp\") "
+            + "SELECT r.station_id, r.voltage, r.current, r.voltage * r.current, r.ts "
+            + "FROM unnest(?::bigint[], ?::float8[], ?::float8[], ?::timestamp[]) AS r(station_id, voltage, current, ts) "
+            + "JOIN stations s ON s.id = r.station_id";
+
+    // Returns the stations that exist, which are the ones whose readings were stored.
+    private static final String LAST_USED_SQL = "UPDATE stations s SET last_used_time = GREATEST(s.last_used_time, v.ts) "
+            + "FROM unnest(?::bigint[], ?::timestamp[]) AS v(id, ts) "
+            + "WHERE s.id = v.id RETURNING s.id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final LatestReadingCache latestReadingCache;
+    private final LoadForecastService loadForecastService;
+
+    @Value("${app.iot.ingest.capacity:200000}")
+    private int capacity;
+
+    @Value("${app.iot.ingest.batch-size:5000}")
+    private int batchSize;
+
+    @Value("${app.iot.ingest.flush-interval-ms:250}")
+    private long flushIntervalMs;
+
+    // A run keeps flushing while batches come back full, up to this many rounds.
+    private static final int MAX_ROUNDS_PER_RUN = 50;
+
+    private ArrayBlockingQueue<Reading> buffer;
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong refused = new AtomicLong();
+    private final AtomicLong invalid = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong unknownStation = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+    private volatile int lastFlushRows;
+    private volatile long lastFlushMillis;
+    private volatile long maxFlushMillis;
+
+    // Serializes flushes (writer thread vs. shutdown). A lock rather than
+    // synchronized: flushing blocks on JDBC (see SessionSnapshotWriter).
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private ScheduledExecutorService writer;
+
+    @PostConstruct
+    void start() {
+        buffer = new ArrayBlockingQueue<>(capacity);
+        writer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "sensor-writer");
+            t.setDaemon(true);
+            return t;
+        });
+        writer.scheduleWithFixedDelay(this::flushSafely, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Buffers a batch of readings. Never blocks; invalid readings are skipped
+     * and, once the buffer is full, the rest are refused.
+     */
+    public Result submit(List<SensorReadingRequest> readings) {
+        LocalDateTime now = LocalDateTime.now();
+        int ok = 0, bad = 0, full = 0;
+        for (SensorReadingRequest r : readings) {
+            if (r == null || r.getStationId() == null || !finite(r.getVoltage()) || !finite(r.getCurrent())) {
+                bad++;
+                continue;
+            }
+            // Device clocks drift; a sample can't be from the future.
+            LocalDateTime at = r.getTimestamp() == null || r.getTimestamp().isAfter(now) ? now : r.getTimestamp();
+            if (full > 0 || !buffer.offer(new Reading(r.getStationId(), r.getVoltage(), r.getCurrent(), at))) {
+                full++;
+                continue;
+            }
+            ok++;
+        }
+        accepted.addAndGet(ok);
+        invalid.addAndGet(bad);
+        refused.addAndGet(full);
+        return new Result(ok, bad, full);
+    }
+
+    private void flushSafely() {
+        try {
+            for (int round = 0; round < MAX_ROUNDS_PER_RUN; round++) {
+                if (flush() < batchSize) break;
+            }
+        } catch (Exception e) {
+            failedFlushes.incrementAndGet();
+            log.warn("Sensor data flush failed: {}", e.getMessage());
+        }
+    }
+
+    /** Writes up to one batch of buffered readings. Returns the number drained. */
+    public int flush() {
+        flushLock.lock();
+        try {
+            List<Reading> batch = new ArrayList<>(Math.min(batchSize, buffer.size()));
+            buffer.drainTo(batch, batchSize);
+            if (batch.isEmpty()) return 0;
+            write(batch);
+            return batch.size();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void write(List<Reading> batch) {
+        long started = System.nanoTime();
+        int n = batch.size();
+        Long[] stationIds = new Long[n];
+        Double[] voltages = new Double[n];
+        Double[] currents = new Double[n];
+        Timestamp[] times = new Timestamp[n];
+        // <StationId, newest reading> for lastUsedTime and the live cache
+        Map<Long, Reading> newest = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            Reading r = batch.get(i);
+            stationIds[i] = r.stationId();
+            voltages[i] = r.voltage();
+            currents[i] = r.current();
+            times[i] = DbTimeUtil.toDb(r.timestamp());
+            newest.merge(r.stationId(), r, (a, b) -> a.timestamp().isAfter(b.timestamp()) ? a : b);
+        }
+
+        // A failed batch is dropped, not re-queued: readings are superseded
+        // every second and retrying would only back the buffer up.
+        int inserted = jdbcTemplate.update(INSERT_SQL, ps -> {
+            Connection c = ps.getConnection();
+            ps.setArray(1, c.createArrayOf("bigint", stationIds));
+            ps.setArray(2, c.createArrayOf("float8", voltages));
+            ps.setArray(3, c.createArrayOf("float8", currents));
+            ps.setArray(4, c.createArrayOf("timestamp", times));
+        });
+
+        Long[] ids = newest.keySet().toArray(new Long[0]);
+        Timestamp[] usedAt = new Timestamp[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            usedAt[i] = DbTimeUtil.toDb(newest.get(ids[i]).timestamp());
+        }
+        List<Long> stored = jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(LAST_USED_SQL);
+            ps.setArray(1, con.createArrayOf("bigint", ids));
+            ps.setArray(2, con.createArrayOf("timestamp", usedAt));
+            return ps;
+        }, (rs, i) -> rs.getLong(1));
+
+        // Stream analytics see every stored reading, in arrival order
+        Set<Long> storedStations = new HashSet<>(stored);
+        for (Reading r : batch) {
+            if (storedStations.contains(r.stationId())) {
+                loadForecastService.onReading(r.stationId(), r.voltage() * r.current(), r.timestamp());
+            }
+        }
+        for (Long stationId : stored) {
+            Reading r = newest.get(stationId);
+            latestReadingCache.onReading(stationId, r.voltage(), r.current(), r.voltage() * r.current(), r.timestamp());
+        }
+
+        long elapsed = (System.nanoTime() - started) / 1_000_000;
+        written.addAndGet(inserted);
+        unknownStation.addAndGet(n - inserted);
+        lastFlushRows = inserted;
+        lastFlushMillis = elapsed;
+        if (elapsed > maxFlushMillis) maxFlushMillis = elapsed;
+        log.debug("Wrote {} sensor reading(s) for {} station(s) in {} ms", inserted, ids.length, elapsed);
+    }
+
+    /** Stops the writer thread and writes whatever is still buffered. */
+    @PreDestroy
+    void shutdown() {
+        if (writer != null) {
+            writer.shutdown();
+            try {
+                writer.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            int rows = 0;
+            for (int drained; (drained = flush()) > 0; ) rows += drained;
+            log.info("Final sensor data flush wrote {} reading(s)", rows);
+        } catch (Exception e) {
+            log.error("Final sensor data flush failed: {}", e.getMessage());
+        }
+    }
+
+    public Stats getStats() {
+        return new Stats(buffer.size(), capacity, accepted.get(), refused.get(), invalid.get(), written.get(),
+                unknownStation.get(), failedFlushes.get(), lastFlushRows, lastFlushMillis, maxFlushMillis);
+    }
+
+    public record Result(int accepted, int invalid, int refused) {}
+
+    public record Stats(int buffered, int capacity, long accepted, long refused, long invalid, long written,
+                        long unknownStation, long failedFlushes, int lastFlushRows, long lastFlushMillis,
+                        long maxFlushMillis) {}
+
+    private static boolean finite(Double value) {
+        return value != null && Double.isFinite(value);
+    }
+
+    private record Reading(Long stationId, double voltage, double current, LocalDateTime timestamp) {}
+}
@@ -0,0 +1,122 @@
+package com.ganesh.EV_Project.service;
+
+import com.ganesh.EV_Project.model.IoTSensorRollup;
+import com.ganesh.EV_Project.util.DbTimeUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Keeps the 1-minute and 1-hour aggregates in iot_sensor_rollups current.
+ *
+ * Each run re-aggregates raw readings from a few minutes before the newest
+ * minute bucket up to now, and minute buckets from the start of the newest
+ * hour bucket, upserting whole buckets. Recomputing the tail this way picks
+ * up readings that arrive late (boards send buffered batches, the ingest
+ * buffer flushes every few hundred ms) and makes runs idempotent, so several
+ * replicas running it at once only repeat work. Hourly averages are weighted
+ * by sample count.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class SensorRollupService {
+
+    private static final String MINUTE_SQL = "INSERT INTO iot_sensor_rollups "
+            + "(resolution, station_id, bucket, samples, avg_voltage, avg_current, avg_power, min_power, max_power) "
+            + "SELECT '" + IoTSensorRollup.MINUTE + "', station_id, date_trunc('minute', \"timestamp\"), COUNT(*), "
+            + "       AVG(voltage), AVG(current), AVG(power), MIN(power), MAX(power) "
+            + "FROM iot_sensor_data WHERE \"timestamp\" >= ? AND \"timestamp\" < ? "
+            + "GROUP BY station_id, date_trunc('minute', \"timestamp\") "
+            + "ON CONFLICT (resolution, station_id, bucket) DO UPDATE SET "
+            + "samples = EXCLUDED.samples, avg_voltage = EXCLUDED.avg_voltage, avg_current = EXCLUDED.avg_current, "
+            + "avg_power = EXCLUDED.avg_power, min_power = EXCLUDED.min_power, max_power = EXCLUDED.max_power";
+
+    private static final String HOUR_SQL = "INSERT INTO iot_sensor_rollups "
+            + "(resolution, station_id, bucket, samples, avg_voltage, avg_current, avg_power, min_power, max_power) "
+            + "SELECT '" + IoTSensorRollup.HOUR + "', station_id, date_trunc('hour', bucket), SUM(samples), "
+            + "       SUM(avg_voltage * samples) / SUM(samples), SUM(avg_current * samples) / SUM(samples), "
+            + "       SUM(avg_power * samples) / SUM(samples), MIN(min_power), MAX(max_power) "
+            + "FROM iot_sensor_rollups WHERE resolution = '" + IoTSensorRollup.MINUTE + "' AND bucket >= ? "
+            + "GROUP BY station_id, date_trunc('hour', bucket) "
+            + "ON CONFLICT (resolution, station_id, bucket) DO UPDATE SET "
+            + "samples = EXCLUDED.samples, avg_voltage = EXCLUDED.avg_voltage, avg_current = EXCLUDED.avg_current, "
+            + "avg_power = EXCLUDED.avg_power, min_power = EXCLUDED.min_power, max_power = EXCLUDED.max_power";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // How far before the newest minute bucket to recompute, for late readings.
+    @Value("${app.iot.storage.rollup-lookback-minutes:5}")
+    private int lookbackMinutes;
+
+    @Value("${app.iot.storage.raw-retention-days:7}")
+    private int rawRetentionDays;
+
+    @Value("${app.iot.storage.minute-retention-days:30}")
+    private int minuteRetentionDays;
+
+    private volatile int lastMinuteRows;
+    private volatile int lastHourRows;
+    private volatile long lastRunMillis;
+
+    @Scheduled(fixedDelayString = "${app.iot.storage.rollup-ms:60000}")
+    public void rollup() {
+        try {
+            long started = System.nanoTime();
+            // Buckets are in the database zone, like the readings they aggregate.
+            LocalDateTime now = LocalDateTime.now(DbTimeUtil.ZONE);
+            lastMinuteRows = rollupMinutes(now);
+            lastHourRows = rollupHours(now);
+            lastRunMillis = (System.nanoTime() - started) / 1_000_000;
+            log.debug("Sensor rollup: {} minute and {} hour bucket(s) in {} ms",
+                    lastMinuteRows, lastHourRows, lastRunMillis);
+        } catch (Exception e) {
+            log.warn("Sensor rollup failed: {}", e.getMessage());
+        }
+    }
+
+    private int rollupMinutes(LocalDateTime now) {
+        LocalDateTime from = later(newestBucket(IoTSensorRollup.MINUTE), lookbackMinutes, ChronoUnit.MINUTES,
+                now.minusDays(rawRetentionDays).truncatedTo(ChronoUnit.MINUTES));
+        return jdbcTemplate.update(MINUTE_SQL, Timestamp.valueOf(from), Timestamp.valueOf(now));
+    }
+
+    private int rollupHours(LocalDateTime now) {
+        LocalDateTime from = later(newestBucket(IoTSensorRollup.HOUR), 0, ChronoUnit.HOURS,
+                now.minusDays(minuteRetentionDays).truncatedTo(ChronoUnit.HOURS));
+        return jdbcTemplate.update(HOUR_SQL, Timestamp.valueOf(from));
+    }
+
+    /**
+     * Start of the newest bucket of the resolution (database-zone wall-clock
+     * time), or null if there is none.
+     * Everything before it is complete; the newest bucket itself may not be.
+     */
+    public LocalDateTime newestBucket(String resolution) {
+        Timestamp newest = jdbcTemplate.queryForObject(
+                "SELECT MAX(bucket) FROM iot_sensor_rollups WHERE resolution = ?", Timestamp.class, resolution);
+        return newest == null ? null : newest.toLocalDateTime();
+    }
+
+    // newest - back, but never before floor (nothing older is left to aggregate)
+    private static LocalDateTime later(LocalDateTime newest, long back, ChronoUnit unit, LocalDateTime floor) {
+        if (newest == null) return floor;
+        LocalDateTime from = newest.minus(back, unit);
+        return from.isAfter(floor) ? from : floor;
+    }
+
+    public Stats getStats() {
+        return new Stats(newestBucket(IoTSensorRollup.MINUTE), newestBucket(IoTSensorRollup.HOUR),
+                lastMinuteRows, lastHourRows, lastRunMillis);
+    }
+
+    public record Stats(LocalDateTime newestMinuteBucket, LocalDateTime newestHourBucket,
+                        int lastMinuteRows, int lastHourRows, long lastRunMillis) {}
+}
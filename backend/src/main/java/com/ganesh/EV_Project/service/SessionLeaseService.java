@@ -0,0 +1,189 @@
+package com.ganesh.EV_Project.service;
+
+import com.ganesh.EV_Project.config.ClusterNode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Cluster-wide ownership of live charging sessions (app.cluster.enabled=true).
+ *
+ * Each simulated session is guarded by a Redis lease {@code simlease:{bookingId}}
+ * holding the owning node's id with a TTL. Only the lease holder ticks,
+ * snapshots and auto-completes the session. The owner renews all its leases in
+ * one scripted round trip; a lease it fails to renew has been taken over (or
+ * the session stopped elsewhere), so it drops the session. When a node dies
+ * its leases expire and the survivors adopt the sessions from the last
+ * persisted snapshot.
+ *
+ * Stopping a session writes a short-lived tombstone instead of deleting the
+ * lease, so nobody re-adopts it in the window before the finalize commits.
+ * If another node held the lease it sees the tombstone at its next renewal
+ * and finalizes the session itself, from its live vitals.
+ *
+ * With clustering disabled every call succeeds locally and nothing touches
+ * Redis, which is the single-node behaviour.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class SessionLeaseService {
+
+    private static final String LEASE_PREFIX = "simlease:";
+    private static final String TOMBSTONE = "stopped";
+    private static final int SCRIPT_BATCH = 500;
+
+    // SET NX PX for each key; returns the 1-based indexes that were acquired.
+    private static final RedisScript<List> ACQUIRE_SCRIPT = new DefaultRedisScript<>(
+            "local won = {} "
+            + "for i, key in ipairs(KEYS) do "
+            + "  if redis.call('set', key, ARGV[1], 'NX', 'PX', ARGV[2]) then won[#won + 1] = i end "
+            + "end "
+            + "return won", List.class);
+
+    // Extends each key still held by this node; returns the 1-based indexes that were lost,
+    // negated for keys that hold the stop tombstone.
+    private static final RedisScript<List> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "local lost = {} "
+            + "for i, key in ipairs(KEYS) do "
+            + "  local owner = redis.call('get', key) "
+            + "  if owner == ARGV[1] then redis.call('pexpire', key, ARGV[2]) "
+            + "  elseif owner == '" + TOMBSTONE + "' then lost[#lost + 1] = -i "
+            + "  else lost[#lost + 1] = i end "
+            + "end "
+            + "return lost", List.class);
+
+    // Replaces the key with the tombstone; returns 1 if another node held it.
+    private static final RedisScript<Long> STOP_SCRIPT = new DefaultRedisScript<>(
+            "local owner = redis.call('get', KEYS[1]) "
+            + "redis.call('set', KEYS[1], '" + TOMBSTONE + "', 'PX', ARGV[2]) "
+            + "if owner and owner ~= ARGV[1] and owner ~= '" + TOMBSTONE + "' then return 1 end "
+            + "return 0", Long.class);
+
+    // Deletes each key only if this node still holds it.
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "local n = 0 "
+            + "for _, key in ipairs(KEYS) do "
+            + "  if redis.call('get', key) == ARGV[1] then n = n + redis.call('del', key) end "
+            + "end "
+            + "return n", Long.class);
+
+    private final StringRedisTemplate redis;
+    private final ClusterNode clusterNode;
+
+    @Value("${app.cluster.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.cluster.lease-ms:15000}")
+    private long leaseMillis;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Claims a single session; true if this node now owns it. */
+    public boolean tryAcquire(Long bookingId) {
+        return acquireAll(List.of(bookingId)).contains(bookingId);
+    }
+
+    /** Claims every unowned session in the list; returns those this node won. */
+    public Set<Long> acquireAll(Collection<Long> bookingIds) {
+        if (!enabled) return new HashSet<>(bookingIds);
+        return pick(bookingIds, ACQUIRE_SCRIPT);
+    }
+
+    /**
+     * Extends this node's leases; returns the sessions it no longer owns,
+     * split into those stopped on another node and those taken over.
+     */
+    public Renewal renewAll(Collection<Long> bookingIds) {
+        if (!enabled || bookingIds.isEmpty()) return Renewal.NONE;
+        Set<Long> lost = new HashSet<>();
+        Set<Long> stopped = new HashSet<>();
+        for (List<Long> chunk : chunks(bookingIds)) {
+            List<?> indexes = redis.execute(RENEW_SCRIPT, keys(chunk),
+                    clusterNode.getId(), String.valueOf(leaseMillis));
+            if (indexes == null) continue;
+            for (Object index : indexes) {
+                int i = ((Number) index).intValue();
+                if (i < 0) stopped.add(chunk.get(-i - 1));
+                else lost.add(chunk.get(i - 1));
+            }
+        }
+        return new Renewal(lost, stopped);
+    }
+
+    /** Gives up this node's leases (graceful shutdown) so others adopt immediately. */
+    public void releaseAll(Collection<Long> bookingIds) {
+        if (!enabled || bookingIds.isEmpty()) return;
+        for (List<Long> chunk : chunks(bookingIds)) {
+            redis.execute(RELEASE_SCRIPT, keys(chunk), clusterNode.getId());
+        }
+    }
+
+    /**
+     * Marks a session as stopped, whoever owned it. No node can adopt it
+     * meanwhile. Returns true if another node held the lease: that node
+     * finalizes the session at its next renewal.
+     */
+    public boolean markStopped(Long bookingId) {
+        if (!enabled) return false;
+        try {
+            Long heldElsewhere = redis.execute(STOP_SCRIPT, List.of(LEASE_PREFIX + bookingId),
+                    clusterNode.getId(), String.valueOf(leaseMillis * 4));
+            return heldElsewhere != null && heldElsewhere == 1L;
+        } catch (Exception e) {
+            log.warn("Failed to tombstone lease for booking {}: {}", bookingId, e.getMessage());
+            return false;
+        }
+    }
+
+    /** Runs a per-key script over the ids in chunks and maps returned indexes back to ids. */
+    private Set<Long> pick(Collection<Long> bookingIds, RedisScript<List> script) {
+        Set<Long> picked = new HashSet<>();
+        for (List<Long> chunk : chunks(bookingIds)) {
+            List<?> indexes = redis.execute(script, keys(chunk),
+                    clusterNode.getId(), String.valueOf(leaseMillis));
+            if (indexes == null) continue;
+            for (Object index : indexes) {
+                picked.add(chunk.get(((Number) index).intValue() - 1));
+            }
+        }
+        return picked;
+    }
+
+    private static List<String> keys(List<Long> bookingIds) {
+        List<String> keys = new ArrayList<>(bookingIds.size());
+        bookingIds.forEach(id -> keys.add(LEASE_PREFIX + id));
+        return keys;
+    }
+
+    private static List<List<Long>> chunks(Collection<Long> ids) {
+        List<List<Long>> chunks = new ArrayList<>();
+        List<Long> current = new ArrayList<>(Math.min(ids.size(), SCRIPT_BATCH));
+        for (Long id : ids) {
+            current.add(id);
+            if (current.size() == SCRIPT_BATCH) {
+                chunks.add(current);
+                current = new ArrayList<>(SCRIPT_BATCH);
+            }
+        }
+        if (!current.isEmpty()) chunks.add(current);
+        return chunks;
+    }
+
+    /** Result of {@link #renewAll}: sessions taken over by another node, and sessions stopped elsewhere. */
+    public record Renewal(Set<Long> lost, Set<Long> stopped) {
+        static final Renewal NONE = new Renewal(Set.of(), Set.of());
+    }
+}
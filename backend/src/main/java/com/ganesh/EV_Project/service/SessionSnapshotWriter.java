@@ -0,0 +1,191 @@
+package com.ganesh.EV_Project.service;
+
+import com.ganesh.EV_Project.util.DbTimeUtil;
+import com.ganesh.EV_Project.util.MoneyUtil;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind persistence for live charging progress.
+ *
+ * The simulator marks a session dirty with its latest energy/SoC/cost and
+ * predicted end of charge; repeated
+ * marks for the same booking coalesce into one pending row. A dedicated writer
+ * thread flushes all pending rows as a single JDBC batch UPDATE, so the physics
+ * loop never waits on the database and a 30s snapshot round costs one batch
+ * instead of a SELECT + UPDATE per session.
+ *
+ * The UPDATE is guarded by {@code status = 'ONGOING'} so a late snapshot can
+ * never overwrite the final figures written by {@link ChargingCompletionService}.
+ * A final flush runs on shutdown so restart recovery resumes from fresh values.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class SessionSnapshotWriter {
+
+    private static final String UPDATE_SQL = "UPDATE charging_sessions "
+            + "SET energy_kwh = ?, soc_percentage = ?, total_cost = ?, expected_end_at = ? "
+            + "WHERE booking_id = ? AND status = 'ONGOING'";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Upper bound on distinct pending sessions; beyond this new sessions are
+    // dropped for this round (they are re-marked at their next snapshot).
+    @Value("${app.charging.snapshot.max-pending:50000}")
+    private int maxPending;
+
+    @Value("${app.charging.snapshot.flush-interval-ms:5000}")
+    private long flushIntervalMs;
+
+    @Value("${app.charging.snapshot.batch-size:500}")
+    private int batchSize;
+
+    // Pending snapshots: <BookingId, Snapshot>. Latest mark wins.
+    private final Map<Long, Snapshot> pending = new ConcurrentHashMap<>();
+
+    private final AtomicLong flushedRows = new AtomicLong();
+    private final AtomicLong droppedMarks = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+    private volatile long lastFlushMillis;
+    private volatile long maxFlushMillis;
+    private volatile int lastFlushRows;
+
+    // Serializes flushes. A lock rather than synchronized: flush() blocks on
+    // JDBC, and a virtual thread inside a monitor pins its carrier (JDK 21).
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private ScheduledExecutorService writer;
+
+    @PostConstruct
+    void start() {
+        writer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "snapshot-writer");
+            t.setDaemon(true);
+            return t;
+        });
+        writer.scheduleWithFixedDelay(this::flushSafely, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queues the latest progress for a session. Never blocks and never touches
+     * the database; returns false if the queue is full and the mark was dropped.
+     */
+    public boolean mark(Long bookingId, double energyKwh, double socPercentage, double totalCost,
+                        LocalDateTime expectedEndAt) {
+        Snapshot snapshot = new Snapshot(bookingId, energyKwh, socPercentage, totalCost, expectedEndAt);
+        if (pending.size() >= maxPending && !pending.containsKey(bookingId)) {
+            droppedMarks.incrementAndGet();
+            return false;
+        }
+        pending.put(bookingId, snapshot);
+        return true;
+    }
+
+    /** Drops a pending snapshot, e.g. once the session has been finalized. */
+    public void discard(Long bookingId) {
+        pending.remove(bookingId);
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (Exception e) {
+            failedFlushes.incrementAndGet();
+            log.warn("Snapshot flush failed: {}", e.getMessage());
+        }
+    }
+
+    /** Writes every pending snapshot in JDBC batches. Returns the number of rows sent. */
+    public int flush() {
+        flushLock.lock();
+        try {
+            return flushPending();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private int flushPending() {
+        if (pending.isEmpty()) return 0;
+
+        // Drain: remove(key, value) only succeeds if no newer mark replaced it,
+        // so a snapshot marked mid-flush is kept for the next round.
+        List<Snapshot> batch = new ArrayList<>(pending.size());
+        for (Map.Entry<Long, Snapshot> e : pending.entrySet()) {
+            if (pending.remove(e.getKey(), e.getValue())) {
+                batch.add(e.getValue());
+            }
+        }
+        if (batch.isEmpty()) return 0;
+
+        long started = System.nanoTime();
+        try {
+            jdbcTemplate.batchUpdate(UPDATE_SQL, batch, batchSize, (ps, s) -> {
+                ps.setDouble(1, s.energyKwh());
+                ps.setDouble(2, s.socPercentage());
+                ps.setDouble(3, MoneyUtil.round2(s.totalCost()));
+                ps.setTimestamp(4, DbTimeUtil.toDb(s.expectedEndAt()));
+                ps.setLong(5, s.bookingId());
+            });
+        } catch (RuntimeException e) {
+            // Put back anything not superseded so the next round retries it.
+            batch.forEach(s -> pending.putIfAbsent(s.bookingId(), s));
+            throw e;
+        }
+
+        long elapsed = (System.nanoTime() - started) / 1_000_000;
+        lastFlushMillis = elapsed;
+        if (elapsed > maxFlushMillis) maxFlushMillis = elapsed;
+        lastFlushRows = batch.size();
+        flushedRows.addAndGet(batch.size());
+        log.debug("Flushed {} charging snapshot(s) in {} ms", batch.size(), elapsed);
+        return batch.size();
+    }
+
+    /** Stops the writer thread and performs the guaranteed final flush. */
+    @PreDestroy
+    void shutdown() {
+        if (writer != null) {
+            writer.shutdown();
+            try {
+                writer.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            int rows = flush();
+            log.info("Final snapshot flush wrote {} session(s)", rows);
+        } catch (Exception e) {
+            log.error("Final snapshot flush failed: {}", e.getMessage());
+        }
+    }
+
+    public Stats getStats() {
+        return new Stats(pending.size(), flushedRows.get(), droppedMarks.get(), failedFlushes.get(),
+                lastFlushRows, lastFlushMillis, maxFlushMillis);
+    }
+
+    public record Stats(int pending, long flushedRows, long droppedMarks, long failedFlushes,
+                        int lastFlushRows, long lastFlushMillis, long maxFlushMillis) {}
+
+    private record Snapshot(Long bookingId, double energyKwh, double socPercentage, double totalCost,
+                            LocalDateTime expectedEndAt) {}
+}
@@ -0,0 +1,105 @@
+package com.ganesh.EV_Project.service;
+
+import com.ganesh.EV_Project.enums.ConnectorType;
+import com.ganesh.EV_Project.enums.SlotStatus;
+import com.ganesh.EV_Project.model.ChargerSlot;
+import com.ganesh.EV_Project.repository.ChargerSlotRepository;
+import com.ganesh.EV_Project.util.TransactionUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Picks a slot for "Book Now" without locking every free slot at the station.
+ *
+ * Candidates come from the free list in {@link SlotAvailabilityCache}. A
+ * booking first claims one in memory with a compare-and-set, so concurrent
+ * requests on this node spread over different slots instead of queueing on
+ * the same rows, and only then locks that single row to confirm it is still
+ * AVAILABLE. If the database disagrees (the cache was stale, or another
+ * replica booked it) the claim is dropped, the cache entry corrected and the
+ * next candidate tried.
+ *
+ * A claim is held until the booking transaction completes; by then a
+ * successful booking has already been recorded in the cache as BOOKED.
+ *
+ * Off unless {@code app.bookings.free-list-claims} is set: until then
+ * {@link #isReady()} is false and every booking takes the locking query.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class SlotAllocator {
+
+    private final ChargerSlotRepository chargerSlotRepository;
+    private final SlotAvailabilityCache slotAvailabilityCache;
+
+    // Slots claimed by in-flight bookings on this node.
+    private final Set<Long> claimed = ConcurrentHashMap.newKeySet();
+
+    @Value("${app.bookings.free-list-claims:false}")
+    private boolean enabled;
+
+    private final AtomicLong allocations = new AtomicLong();
+    private final AtomicLong conflicts = new AtomicLong();
+
+    public boolean isReady() {
+        return enabled && slotAvailabilityCache.isReady();
+    }
+
+    /** The station's free slots of this connector type, per the cache. */
+    public List<SlotAvailabilityCache.FreeSlot> freeSlots(Long stationId, ConnectorType connectorType) {
+        return slotAvailabilityCache.freeSlots(stationId, connectorType);
+    }
+
+    /**
+     * Claims and row-locks the first candidate, in the given order, that is
+     * still AVAILABLE and passes {@code fits} once locked. Must run inside the
+     * booking transaction.
+     *
+     * With no slot claimed, {@link Claim#contended()} tells the two failure
+     * cases apart: candidates held by other in-flight bookings here (the
+     * station is effectively full right now) versus a stale free list, where
+     * the caller should fall back to the locking query.
+     */
+    public Claim claim(List<Long> candidateSlotIds, Predicate<ChargerSlot> fits) {
+        boolean contended = false;
+        for (Long slotId : candidateSlotIds) {
+            if (!claimed.add(slotId)) {
+                contended = true; // another booking on this node has it
+                continue;
+            }
+            ChargerSlot slot = chargerSlotRepository.findByIdForUpdate(slotId).orElse(null);
+            if (slot != null && slot.getStatus() == SlotStatus.AVAILABLE && fits.test(slot)) {
+                TransactionUtil.afterCompletion(() -> claimed.remove(slotId));
+                allocations.incrementAndGet();
+                return new Claim(slot, false);
+            }
+            claimed.remove(slotId);
+            conflicts.incrementAndGet();
+            if (slot != null) {
+                log.debug("Slot {} ({}) no longer matches the cached free list", slotId, slot.getStatus());
+                slotAvailabilityCache.onSlotChanged(slot);
+            }
+        }
+        return new Claim(null, contended);
+    }
+
+    public long getAllocations() {
+        return allocations.get();
+    }
+
+    public long getConflicts() {
+        return conflicts.get();
+    }
+
+    public record Claim(ChargerSlot slot, boolean contended) {
+    }
+}
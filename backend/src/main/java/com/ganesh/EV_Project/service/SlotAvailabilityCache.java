@@ -0,0 +1,362 @@
+package com.ganesh.EV_Project.service;
+
+import com.ganesh.EV_Project.dto.SlotStateRow;
+import com.ganesh.EV_Project.dto.StationAvailability;
+import com.ganesh.EV_Project.enums.ConnectorType;
+import com.ganesh.EV_Project.enums.SlotStatus;
+import com.ganesh.EV_Project.model.ChargerSlot;
+import com.ganesh.EV_Project.repository.ChargerSlotRepository;
+import com.ganesh.EV_Project.util.TransactionUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * In-memory slot availability, keyed by station.
+ *
+ * Slot status only changes on book / start / stop / pay / expire / admin
+ * override, so instead of recounting charger_slots rows on every map request
+ * those code paths push the new state here (after their transaction commits).
+ * Reads are a walk over one station's handful of slots.
+ *
+ * Each occupied slot also carries the time it is expected to free up: the
+ * booking's expiry for an unstarted booking, the simulator's predicted end of
+ * charge for a live session (live on the simulating node, see
+ * {@link #onSlotEta}; from the last snapshot elsewhere), and the payment TTL
+ * release for a PAYMENT_PENDING hold. These are kept ordered per station and
+ * connector type, so "next available" is a lookup of the first entry.
+ *
+ * A periodic reconciliation reloads everything from the database in one
+ * projection query, repairing anything a missed event (or a change made on
+ * another replica) left stale; the number of corrected slots is logged.
+ * Events that arrive while the query runs may be newer than what it read, so
+ * they are journaled and replayed onto the reloaded state before it is
+ * swapped in. Until the first load completes, {@link #isReady()} is false and callers
+ * fall back to the database.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class SlotAvailabilityCache {
+
+    private static final Comparator<Eta> ETA_ORDER =
+            Comparator.comparing(Eta::freeAt).thenComparingLong(Eta::slotId);
+
+    private final ChargerSlotRepository chargerSlotRepository;
+
+    @Value("${app.payment.pending-ttl-minutes:30}")
+    private int paymentPendingTtlMinutes;
+
+    // <StationId, StationSlots>
+    private volatile Map<Long, StationSlots> stations = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+
+    // Guards the swap and the journal; never held while reading the database.
+    private final Object changeLock = new Object();
+    // Changes applied during a running reconcile, to replay on its result; null otherwise.
+    private List<Consumer<Map<Long, StationSlots>>> journal;
+    // One reconcile at a time, without a monitor held across the slot query.
+    private final AtomicBoolean reconciling = new AtomicBoolean();
+
+    private final AtomicLong reconcileCorrections = new AtomicLong();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        reconcile();
+    }
+
+    /**
+     * Reloads all slot states and swaps them in, counting entries that had drifted.
+     * Skipped if another reconcile is already running; events meanwhile reach it through the journal.
+     */
+    @Scheduled(fixedRateString = "${app.slots.cache-reconcile-ms:60000}",
+            initialDelayString = "${app.slots.cache-reconcile-ms:60000}")
+    public void reconcile() {
+        if (!reconciling.compareAndSet(false, true)) {
+            log.debug("Slot availability reconcile already running; skipping");
+            return;
+        }
+        try {
+            reconcileAll();
+        } finally {
+            reconciling.set(false);
+        }
+    }
+
+    private void reconcileAll() {
+        synchronized (changeLock) {
+            journal = new ArrayList<>();
+        }
+        try {
+            Map<Long, StationSlots> current = stations;
+            Map<Long, StationSlots> fresh = new ConcurrentHashMap<>();
+            LocalDateTime now = LocalDateTime.now();
+            for (SlotStateRow row : chargerSlotRepository.findAllSlotStates()) {
+                StationSlots old = current.get(row.stationId());
+                SlotState previous = old != null ? old.slots.get(row.slotId()) : null;
+                fresh.computeIfAbsent(row.stationId(), k -> new StationSlots())
+                        .put(row.slotId(), new SlotState(row.connectorType(), row.status(),
+                                Boolean.TRUE.equals(row.truckCapable()),
+                                reconciledFreeAt(row, previous, now)));
+            }
+            Map<Long, StationSlots> replaced;
+            synchronized (changeLock) {
+                // Each change is a function of the slot's previous state, so one the
+                // query already saw leaves the row as it is.
+                journal.forEach(change -> change.accept(fresh));
+                replaced = stations;
+                stations = fresh;
+            }
+            if (ready) {
+                // The replaced map is no longer written to, so this compares like with like.
+                long drift = countDrift(replaced, fresh);
+                if (drift > 0) {
+                    reconcileCorrections.addAndGet(drift);
+                    log.info("Slot availability cache reconciled {} stale slot(s)", drift);
+                }
+            }
+            ready = true;
+        } catch (Exception e) {
+            log.warn("Slot availability reconcile failed: {}", e.getMessage());
+        } finally {
+            synchronized (changeLock) {
+                journal = null;
+            }
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /** Records a slot's new status once the surrounding transaction (if any) commits. */
+    public void onSlotChanged(ChargerSlot slot) {
+        record(slot, null, false);
+    }
+
+    /** Records a newly booked slot together with the time the booking expires. */
+    public void onSlotBooked(ChargerSlot slot, LocalDateTime freeAt) {
+        record(slot, freeAt, true);
+    }
+
+    /**
+     * Updates when a charging slot is expected to free up, from the live
+     * session's remaining time. Ignored unless the slot is currently occupied.
+     */
+    public void onSlotEta(Long stationId, Long slotId, LocalDateTime freeAt) {
+        if (stationId == null || slotId == null) return;
+        apply(all -> {
+            StationSlots station = all.get(stationId);
+            if (station == null) return;
+            station.compute(slotId, previous -> previous == null || !occupied(previous.status()) ? previous
+                    : new SlotState(previous.connectorType(), previous.status(), previous.truckCapable(), freeAt));
+        });
+    }
+
+    public void evictStation(Long stationId) {
+        if (stationId == null) return;
+        TransactionUtil.afterCommit(() -> apply(all -> all.remove(stationId)));
+    }
+
+    /** Availability for one station; empty if the station has no slots. */
+    public StationAvailability availability(Long stationId) {
+        StationSlots station = stations.get(stationId);
+        if (station == null || station.slots.isEmpty()) {
+            return StationAvailability.empty(stationId);
+        }
+        Map<String, int[]> counts = new HashMap<>();
+        for (SlotState state : station.slots.values()) {
+            int[] c = counts.computeIfAbsent(StationAvailability.connectorKey(state.connectorType()), k -> new int[2]);
+            c[0]++;
+            if (state.status() == SlotStatus.AVAILABLE) c[1]++;
+        }
+        List<StationAvailability.ConnectorAvailability> connectors = new ArrayList<>(counts.size());
+        counts.forEach((type, c) -> connectors.add(new StationAvailability.ConnectorAvailability(type, c[0], c[1])));
+        connectors.sort(Comparator.comparing(StationAvailability.ConnectorAvailability::connectorType));
+        return new StationAvailability(stationId, connectors);
+    }
+
+    public Map<Long, StationAvailability> availability(Collection<Long> stationIds) {
+        Map<Long, StationAvailability> result = new HashMap<>();
+        for (Long id : stationIds) {
+            result.put(id, availability(id));
+        }
+        return result;
+    }
+
+    /**
+     * AVAILABLE slots of one connector type at a station, as last seen here.
+     * A hint for the allocator: the chosen slot is still re-checked under a
+     * row lock before it is booked.
+     */
+    public List<FreeSlot> freeSlots(Long stationId, ConnectorType connectorType) {
+        StationSlots station = stations.get(stationId);
+        if (station == null) return List.of();
+        List<FreeSlot> free = new ArrayList<>();
+        station.slots.forEach((slotId, state) -> {
+            if (state.connectorType() == connectorType && state.status() == SlotStatus.AVAILABLE) {
+                free.add(new FreeSlot(slotId, state.truckCapable()));
+            }
+        });
+        return free;
+    }
+
+    /** Earliest time an occupied slot of this connector type is expected to free up, or null. */
+    public LocalDateTime earliestFreeAt(Long stationId, ConnectorType connectorType) {
+        StationSlots station = stations.get(stationId);
+        return station == null ? null : station.earliest(connectorType);
+    }
+
+    public long getReconcileCorrections() {
+        return reconcileCorrections.get();
+    }
+
+    private void record(ChargerSlot slot, LocalDateTime freeAt, boolean replaceFreeAt) {
+        if (slot == null || slot.getId() == null) return;
+        Long stationId = stationIdOf(slot);
+        if (stationId == null) return;
+        Long slotId = slot.getId();
+        ConnectorType connectorType = slot.getConnectorType();
+        SlotStatus status = slot.getStatus();
+        boolean truckCapable = slot.getDispensary() != null
+                && Boolean.TRUE.equals(slot.getDispensary().getAcceptsTrucks());
+        LocalDateTime paymentReleaseAt = LocalDateTime.now().plusMinutes(paymentPendingTtlMinutes);
+        TransactionUtil.afterCommit(() -> apply(all -> all.computeIfAbsent(stationId, k -> new StationSlots())
+                .compute(slotId, previous -> {
+                    LocalDateTime nextFreeAt;
+                    if (replaceFreeAt) {
+                        nextFreeAt = freeAt;
+                    } else if (status == SlotStatus.PAYMENT_PENDING) {
+                        // Released by payment, or at the latest by the pending-payment TTL
+                        nextFreeAt = previous != null && previous.status() == SlotStatus.PAYMENT_PENDING
+                                ? previous.freeAt() : paymentReleaseAt;
+                    } else {
+                        // Keep the booking's expiry (or session's ETA) while the slot stays occupied.
+                        nextFreeAt = occupied(status) && previous != null ? previous.freeAt() : null;
+                    }
+                    return new SlotState(connectorType, status, truckCapable, nextFreeAt);
+                })));
+    }
+
+    private void apply(Consumer<Map<Long, StationSlots>> change) {
+        synchronized (changeLock) {
+            change.accept(stations);
+            if (journal != null) journal.add(change);
+        }
+    }
+
+    // A charging slot takes the session's persisted prediction, which every node
+    // sees; a live one on this node is at most a snapshot fresher and is
+    // republished once it moves. A payment hold keeps its release time.
+    // Otherwise take the database value.
+    private LocalDateTime reconciledFreeAt(SlotStateRow row, SlotState previous, LocalDateTime now) {
+        boolean sameStatus = previous != null && previous.status() == row.status() && previous.freeAt() != null;
+        if (row.status() == SlotStatus.CHARGING) {
+            return row.freeAt() != null || !sameStatus ? row.freeAt() : previous.freeAt();
+        }
+        if (row.status() == SlotStatus.PAYMENT_PENDING) {
+            return sameStatus ? previous.freeAt() : now.plusMinutes(paymentPendingTtlMinutes);
+        }
+        return row.freeAt();
+    }
+
+    private static boolean occupied(SlotStatus status) {
+        return status == SlotStatus.BOOKED || status == SlotStatus.RESERVED || status == SlotStatus.CHARGING
+                || status == SlotStatus.PAYMENT_PENDING;
+    }
+
+    private static Long stationIdOf(ChargerSlot slot) {
+        if (slot.getStation() != null) return slot.getStation().getId();
+        if (slot.getDispensary() != null && slot.getDispensary().getStation() != null) {
+            return slot.getDispensary().getStation().getId();
+        }
+        return null;
+    }
+
+    private static long countDrift(Map<Long, StationSlots> cached, Map<Long, StationSlots> fresh) {
+        long drift = 0;
+        for (Map.Entry<Long, StationSlots> station : fresh.entrySet()) {
+            StationSlots old = cached.get(station.getKey());
+            for (Map.Entry<Long, SlotState> slot : station.getValue().slots.entrySet()) {
+                SlotState before = old != null ? old.slots.get(slot.getKey()) : null;
+                if (before == null || before.status() != slot.getValue().status()
+                        || before.connectorType() != slot.getValue().connectorType()) {
+                    drift++;
+                }
+            }
+        }
+        return drift;
+    }
+
+
+    public record FreeSlot(Long slotId, boolean truckCapable) {
+    }
+
+    private record SlotState(ConnectorType connectorType, SlotStatus status, boolean truckCapable,
+                             LocalDateTime freeAt) {
+    }
+
+    private record Eta(LocalDateTime freeAt, long slotId) {
+    }
+
+    /**
+     * One station's slots plus, per connector type, its occupied slots ordered
+     * by expected free time. Writers synchronize on the station so both stay
+     * in step; slot reads go straight to the concurrent map.
+     */
+    private static final class StationSlots {
+        final Map<Long, SlotState> slots = new ConcurrentHashMap<>();
+        private final Map<ConnectorType, TreeSet<Eta>> etas = new EnumMap<>(ConnectorType.class);
+
+        synchronized void put(Long slotId, SlotState state) {
+            unindex(slotId, slots.put(slotId, state));
+            index(slotId, state);
+        }
+
+        synchronized void compute(Long slotId, UnaryOperator<SlotState> update) {
+            SlotState previous = slots.get(slotId);
+            SlotState next = update.apply(previous);
+            if (next == null || next == previous) return;
+            slots.put(slotId, next);
+            unindex(slotId, previous);
+            index(slotId, next);
+        }
+
+        synchronized LocalDateTime earliest(ConnectorType connectorType) {
+            TreeSet<Eta> queue = etas.get(connectorType);
+            return queue == null || queue.isEmpty() ? null : queue.first().freeAt();
+        }
+
+        private void index(Long slotId, SlotState state) {
+            if (state == null || state.freeAt() == null || state.connectorType() == null
+                    || !occupied(state.status())) return;
+            etas.computeIfAbsent(state.connectorType(), k -> new TreeSet<>(ETA_ORDER))
+                    .add(new Eta(state.freeAt(), slotId));
+        }
+
+        private void unindex(Long slotId, SlotState state) {
+            if (state == null || state.freeAt() == null || state.connectorType() == null) return;
+            TreeSet<Eta> queue = etas.get(state.connectorType());
+            if (queue != null) queue.remove(new Eta(state.freeAt(), slotId));
+        }
+    }
+}
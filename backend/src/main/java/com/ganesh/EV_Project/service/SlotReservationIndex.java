@@ -0,0 +1,151 @@
+package com.ganesh.EV_Project.service;
+
+import com.ganesh.EV_Project.dto.ReservationWindowRow;
+import com.ganesh.EV_Project.repository.BookingRepository;
+import com.ganesh.EV_Project.util.TransactionUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-slot index of the time windows held by advance reservations.
+ *
+ * Windows on one slot never overlap, so each slot keeps them in a TreeMap
+ * keyed by start time and a conflict check is two O(log n) lookups: the
+ * window starting at or before the candidate (does it run past the
+ * candidate's start?) and the first one starting after it (does it begin
+ * before the candidate's end?).
+ *
+ * A new reservation takes its window here before its transaction commits,
+ * so concurrent requests on this node cannot both win it, and gives it back
+ * on rollback. The exclusion constraint on bookings (V6) is the durable
+ * guard across replicas. The index is reloaded at startup and every
+ * app.reservations.index-reload-ms, which also drops windows of bookings
+ * that ended, expired or were taken elsewhere. Holds the reload's query
+ * cannot have seen (not committed yet, or committed after it began) are
+ * carried over into the reloaded index.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class SlotReservationIndex {
+
+    private final BookingRepository bookingRepository;
+
+    // <SlotId, <WindowStart, Window>>; each per-slot map is guarded by itself.
+    private volatile Map<Long, TreeMap<LocalDateTime, Window>> slots = new ConcurrentHashMap<>();
+
+    // Holds taken here that a reload may have missed: <BookingId, RecentHold>.
+    // Guarded, with the swap of slots, by changeLock; never held over the query.
+    private final Map<Long, RecentHold> recentHolds = new HashMap<>();
+    private final Object changeLock = new Object();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        reload();
+    }
+
+    @Scheduled(fixedRateString = "${app.reservations.index-reload-ms:60000}",
+            initialDelayString = "${app.reservations.index-reload-ms:60000}")
+    public void reload() {
+        try {
+            long started = System.nanoTime();
+            Map<Long, TreeMap<LocalDateTime, Window>> fresh = new ConcurrentHashMap<>();
+            for (ReservationWindowRow row : bookingRepository.findReservationWindowsEndingAfter(LocalDateTime.now())) {
+                fresh.computeIfAbsent(row.slotId(), k -> new TreeMap<>())
+                        .put(row.startTime(), new Window(row.bookingId(), row.startTime(), row.endTime()));
+            }
+            synchronized (changeLock) {
+                // A hold whose transaction ended before the query began is in its
+                // result if it still exists; any other is carried over.
+                recentHolds.values().removeIf(hold -> hold.completedAt < started);
+                recentHolds.values().forEach(hold -> fresh.computeIfAbsent(hold.slotId, k -> new TreeMap<>())
+                        .putIfAbsent(hold.window.start(), hold.window));
+                slots = fresh;
+            }
+        } catch (Exception e) {
+            log.warn("Reservation index reload failed: {}", e.getMessage());
+        }
+    }
+
+    /** True if no held window on the slot overlaps [start, end). */
+    public boolean isFree(Long slotId, LocalDateTime start, LocalDateTime end) {
+        TreeMap<LocalDateTime, Window> windows = slots.get(slotId);
+        if (windows == null) return true;
+        synchronized (windows) {
+            return !overlaps(windows, start, end);
+        }
+    }
+
+    /**
+     * Takes [start, end) on the slot for the booking if nothing overlaps it.
+     * Call inside the booking's transaction, after the booking has its id;
+     * the window is given back if that transaction rolls back.
+     */
+    public boolean tryHold(Long slotId, Long bookingId, LocalDateTime start, LocalDateTime end) {
+        RecentHold hold = new RecentHold(slotId, new Window(bookingId, start, end));
+        synchronized (changeLock) {
+            TreeMap<LocalDateTime, Window> windows = slots.computeIfAbsent(slotId, k -> new TreeMap<>());
+            synchronized (windows) {
+                if (overlaps(windows, start, end)) return false;
+                windows.put(start, hold.window);
+            }
+            recentHolds.put(bookingId, hold);
+        }
+        TransactionUtil.afterRollback(() -> {
+            synchronized (changeLock) {
+                recentHolds.remove(bookingId, hold);
+                release(slotId, bookingId);
+            }
+        });
+        TransactionUtil.afterCompletion(() -> hold.completedAt = System.nanoTime());
+        return true;
+    }
+
+    /** Frees the booking's window once the surrounding transaction (if any) commits. */
+    public void releaseAfterCommit(Long slotId, Long bookingId) {
+        TransactionUtil.afterCommit(() -> release(slotId, bookingId));
+    }
+
+    private void release(Long slotId, Long bookingId) {
+        TreeMap<LocalDateTime, Window> windows = slots.get(slotId);
+        if (windows == null) return;
+        synchronized (windows) {
+            windows.values().removeIf(w -> w.bookingId().equals(bookingId));
+        }
+    }
+
+    private static boolean overlaps(NavigableMap<LocalDateTime, Window> windows,
+                                    LocalDateTime start, LocalDateTime end) {
+        Map.Entry<LocalDateTime, Window> before = windows.floorEntry(start);
+        if (before != null && before.getValue().end().isAfter(start)) return true;
+        Map.Entry<LocalDateTime, Window> after = windows.higherEntry(start);
+        return after != null && after.getKey().isBefore(end);
+    }
+
+
+    private record Window(Long bookingId, LocalDateTime start, LocalDateTime end) {
+    }
+
+    private static final class RecentHold {
+        final Long slotId;
+        final Window window;
+        // When the holding transaction committed or rolled back; MAX_VALUE while open.
+        volatile long completedAt = Long.MAX_VALUE;
+
+        RecentHold(Long slotId, Window window) {
+            this.slotId = slotId;
+            this.window = window;
+        }
+    }
+}
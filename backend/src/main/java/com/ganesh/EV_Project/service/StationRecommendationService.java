@@ -1,21 +1,24 @@
 package com.ganesh.EV_Project.service;
 
+import com.ganesh.EV_Project.dto.SlotAvailabilityRow;
+import com.ganesh.EV_Project.dto.StationAvailability;
 import com.ganesh.EV_Project.dto.StationMarkerDTO;
 import com.ganesh.EV_Project.dto.StationPinDTO;
 import com.ganesh.EV_Project.dto.StationScoreDTO;
 import com.ganesh.EV_Project.dto.ViewportResponseDTO;
-import com.ganesh.EV_Project.model.ChargerSlot;
 import com.ganesh.EV_Project.model.Station;
 import com.ganesh.EV_Project.repository.ChargerSlotRepository;
 import com.ganesh.EV_Project.repository.StationRepository;
-import com.ganesh.EV_Project.enums.SlotStatus;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.stream.Collectors;
 
@@ -35,6 +38,15 @@ public class StationRecommendationService {
     @Autowired
     private com.ganesh.EV_Project.repository.IoTSensorDataRepository ioTSensorDataRepository;
 
+    @Autowired
+    private StationSpatialIndex spatialIndex;
+
+    @Autowired
+    private SlotAvailabilityCache slotAvailabilityCache;
+
+    @Autowired
+    private LoadForecastService loadForecastService;
+
     // Weights from paper (approximate or configurable)
     private static final double W1 = 0.35; // Traffic
     private static final double W2 = 0.30; // Grid
@@ -44,10 +56,11 @@ public class StationRecommendationService {
     // ===== VIEWPORT: Lightweight markers for map pins =====
     public List<StationMarkerDTO> getStationsInViewport(double swLat, double neLat, double swLng, double neLng) {
         List<Station> stations = stationRepository.findByBoundingBox(swLat, neLat, swLng, neLng);
+        Map<Long, StationAvailability> availability =
+                loadAvailability(stations.stream().map(Station::getId).collect(Collectors.toList()));
 
         return stations.stream().map(station -> {
-            List<ChargerSlot> slots = chargerSlotRepository.findByStation(station);
-            boolean available = slots.stream().anyMatch(s -> s.getStatus() == SlotStatus.AVAILABLE);
+            boolean available = availabilityOf(availability, station.getId()).anyAvailable();
 
             return StationMarkerDTO.builder()
                     .id(station.getId())
@@ -60,26 +73,28 @@ public class StationRecommendationService {
     }
 
     // ===== NEARBY: Top N stations with full scoring for bottom pager =====
+    // Candidates come from the in-memory spatial index (nearest first), so only
+    // the returned stations are loaded from the database.
     public List<StationScoreDTO> getNearbyStationsRanked(double userLat, double userLng, double radiusKm, int limit) {
-        List<Station> allStations = stationRepository.findAll();
-        List<StationScoreDTO> rankedStations = new ArrayList<>();
-
-        for (Station station : allStations) {
-            double distance = calculateHaversineDistance(userLat, userLng, station.getLatitude(),
-                    station.getLongitude());
-
-            // Filter by radius to avoid scoring distant stations
-            if (distance > radiusKm)
-                continue;
-
-            rankedStations.add(buildStationScoreDTO(station, distance));
+        List<StationSpatialIndex.Hit> hits = spatialIndex.nearest(userLat, userLng, radiusKm, limit);
+        if (hits.isEmpty()) {
+            return new ArrayList<>();
         }
 
-        // Sort by Distance Ascending (Closest first)
-        rankedStations.sort(Comparator.comparingDouble(StationScoreDTO::getDistance));
-
-        // Return top N
-        return rankedStations.stream().limit(limit).collect(Collectors.toList());
+        List<Long> ids = hits.stream().map(StationSpatialIndex.Hit::stationId).collect(Collectors.toList());
+        Map<Long, Station> byId = stationRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Station::getId, s -> s));
+        Map<Long, StationAvailability> availability = loadAvailability(ids);
+
+        List<StationScoreDTO> rankedStations = new ArrayList<>(hits.size());
+        for (StationSpatialIndex.Hit hit : hits) {
+            Station station = byId.get(hit.stationId());
+            if (station != null) { // deleted since the index was updated
+                rankedStations.add(buildStationScoreDTO(station, hit.distanceKm(),
+                        availabilityOf(availability, station.getId())));
+            }
+        }
+        return rankedStations;
     }
 
     // ===== Overload for backward compatibility (returns all within radius) =====
@@ -105,7 +120,8 @@ public class StationRecommendationService {
         double distance = calculateHaversineDistance(userLat, userLng, station.getLatitude(),
                 station.getLongitude());
 
-        return buildStationScoreDTO(station, distance);
+        return buildStationScoreDTO(station, distance,
+                availabilityOf(loadAvailability(List.of(stationId)), stationId));
     }
 
     // ===== VIEWPORT + NEARBY: Unified endpoint (Optimized) =====
@@ -141,16 +157,17 @@ public class StationRecommendationService {
         // 4. Fetch FULL data ONLY for the Top N nearest stations
         List<StationScoreDTO> nearbyStations = new ArrayList<>();
         if (!topNIds.isEmpty()) {
-            List<Station> topNStations = stationRepository.findAllById(topNIds);
+            Map<Long, Station> topNStations = stationRepository.findAllById(topNIds).stream()
+                    .collect(Collectors.toMap(Station::getId, s -> s));
+            Map<Long, StationAvailability> availability = loadAvailability(topNIds);
 
             // Re-map to maintain the sorted distance order
             for (PinWithDistance pwd : topNPins) {
-                topNStations.stream()
-                        .filter(s -> s.getId().equals(pwd.pin().getId()))
-                        .findFirst()
-                        .ifPresent(station -> {
-                            nearbyStations.add(buildStationScoreDTO(station, pwd.distance()));
-                        });
+                Station station = topNStations.get(pwd.pin().getId());
+                if (station != null) {
+                    nearbyStations.add(buildStationScoreDTO(station, pwd.distance(),
+                            availabilityOf(availability, station.getId())));
+                }
             }
         }
 
@@ -160,23 +177,47 @@ public class StationRecommendationService {
                 .build();
     }
 
+    // ===== Batched availability: served from the in-memory cache once it has
+    // loaded, otherwise one grouped query for all requested stations =====
+    private Map<Long, StationAvailability> loadAvailability(Collection<Long> stationIds) {
+        if (slotAvailabilityCache.isReady()) {
+            return slotAvailabilityCache.availability(stationIds);
+        }
+        Map<Long, StationAvailability> result = new HashMap<>();
+        if (stationIds.isEmpty()) {
+            return result;
+        }
+        Map<Long, List<StationAvailability.ConnectorAvailability>> byStation = new HashMap<>();
+        for (SlotAvailabilityRow row : chargerSlotRepository.findAvailabilityByStationIds(stationIds)) {
+            byStation.computeIfAbsent(row.stationId(), k -> new ArrayList<>())
+                    .add(new StationAvailability.ConnectorAvailability(StationAvailability.connectorKey(row.connectorType()),
+                            row.total().intValue(), row.available() != null ? row.available().intValue() : 0));
+        }
+        byStation.forEach((id, connectors) -> {
+            connectors.sort(Comparator.comparing(StationAvailability.ConnectorAvailability::connectorType));
+            result.put(id, new StationAvailability(id, connectors));
+        });
+        return result;
+    }
+
+    private static StationAvailability availabilityOf(Map<Long, StationAvailability> availability, Long stationId) {
+        StationAvailability a = availability.get(stationId);
+        return a != null ? a : StationAvailability.empty(stationId);
+    }
+
     // ===== Shared DTO builder =====
-    private StationScoreDTO buildStationScoreDTO(Station station, double distance) {
-        List<ChargerSlot> slots = chargerSlotRepository.findByStation(station);
-        int totalSlots = slots.size();
-        int availableSlots = (int) slots.stream().filter(s -> s.getStatus() == SlotStatus.AVAILABLE).count();
+    private StationScoreDTO buildStationScoreDTO(Station station, double distance, StationAvailability availability) {
+        int totalSlots = availability.totalSlots();
+        int availableSlots = availability.availableSlots();
 
         double trafficScore = generateStableRandomScore(station.getId(), "TRAFFIC");
-        double gridScore = generateStableRandomScore(station.getId(), "GRID");
+        double gridScore = gridScore(station.getId());
         double parkingScore = generateStableRandomScore(station.getId(), "PARKING");
         double accessScore = generateStableRandomScore(station.getId(), "ACCESS");
 
         double finalScore = (trafficScore * W1) + (gridScore * W2) + (parkingScore * W3) + (accessScore * W4);
 
-        List<String> connectorTypes = slots.stream()
-                .map(slot -> slot.getConnectorType().toString())
-                .distinct()
-                .collect(Collectors.toList());
+        List<String> connectorTypes = availability.connectorTypes();
 
         String lastActive = getLastActiveTime(station);
         station.setLastUsedTime(station.getLastUsedTime()); // Ensure persistent field is updated if needed
@@ -202,6 +243,14 @@ public class StationRecommendationService {
         return R * c;
     }
 
+    // Grid: forecast headroom against installed capacity, on the same 0.5-0.99
+    // scale as the other factors. Stations without recent sensor data keep the
+    // stable placeholder score.
+    private double gridScore(Long stationId) {
+        Double headroom = loadForecastService.gridHeadroom(stationId);
+        return headroom != null ? 0.5 + (0.49 * headroom) : generateStableRandomScore(stationId, "GRID");
+    }
+
     private double generateStableRandomScore(Long id, String seed) {
         Random random = new Random(id.hashCode() + seed.hashCode());
         return 0.5 + (0.49 * random.nextDouble());
@@ -1,6 +1,8 @@
 package com.ganesh.EV_Project.service;
 
+import com.ganesh.EV_Project.dto.ConnectorEtaDTO;
 import com.ganesh.EV_Project.dto.OwnerStationStatsDTO;
+import com.ganesh.EV_Project.dto.StationAvailability;
 import com.ganesh.EV_Project.exception.APIException;
 import com.ganesh.EV_Project.enums.ConnectorType;
 import com.ganesh.EV_Project.enums.SlotStatus;
@@ -33,6 +35,12 @@ public class StationService {
     @Autowired
     private com.ganesh.EV_Project.repository.ChargingSessionRepository chargingSessionRepository;
 
+    @Autowired
+    private StationSpatialIndex spatialIndex;
+
+    @Autowired
+    private SlotAvailabilityCache slotAvailabilityCache;
+
     public List<Station> getAllStations() {
         return stationRepository.findAll();
     }
@@ -109,6 +117,24 @@ public class StationService {
                 .orElseThrow(() -> new APIException("Station not found"));
     }
 
+    /** Station plus live per-connector availability and "next available" ETAs. */
+    public Station getStationDetail(Long id) {
+        Station station = getStationById(id);
+        if (slotAvailabilityCache.isReady()) {
+            station.setConnectorAvailability(slotAvailabilityCache.availability(id).connectors().stream()
+                    .map(c -> new ConnectorEtaDTO(c.connectorType(), c.total(), c.available(),
+                            c.available() > 0 ? null : nextAvailableAt(id, c.connectorType())))
+                    .collect(Collectors.toList()));
+        }
+        return station;
+    }
+
+    // Slots without a connector type are counted but have no ETAs to read.
+    private java.time.LocalDateTime nextAvailableAt(Long stationId, String connectorType) {
+        if (StationAvailability.UNKNOWN_CONNECTOR.equals(connectorType)) return null;
+        return slotAvailabilityCache.earliestFreeAt(stationId, ConnectorType.valueOf(connectorType));
+    }
+
     @Transactional
     public Station addStation(Station station) {
         System.out.println("Adding station: " + station.getName());
@@ -143,11 +169,12 @@ public class StationService {
                             .connectorType(ct)
                             .powerKw(powerPerGun)
                             .build();
-                    chargerSlotRepository.save(slot);
+                    slotAvailabilityCache.onSlotChanged(chargerSlotRepository.save(slot));
                 }
             }
         }
 
+        spatialIndex.upsert(savedStation);
         return savedStation;
     }
 
@@ -163,7 +190,9 @@ public class StationService {
                     existing.setPricePerKwh(updatedStation.getPricePerKwh());
                     existing.setTruckPricePerKwh(updatedStation.getTruckPricePerKwh());
                     existing.setCostPerKwh(updatedStation.getCostPerKwh());
-                    return stationRepository.save(existing);
+                    Station saved = stationRepository.save(existing);
+                    spatialIndex.upsert(saved);
+                    return saved;
                 })
                 .orElseThrow(() -> new RuntimeException("Station not found"));
     }
@@ -180,5 +209,7 @@ public class StationService {
 
         chargerSlotRepository.deleteByStation(station);
         stationRepository.delete(station);
+        spatialIndex.remove(id);
+        slotAvailabilityCache.evictStation(id);
     }
 }
@@ -0,0 +1,259 @@
+package com.ganesh.EV_Project.service;
+
+import com.ganesh.EV_Project.dto.StationPinDTO;
+import com.ganesh.EV_Project.model.Station;
+import com.ganesh.EV_Project.repository.StationRepository;
+import com.ganesh.EV_Project.util.TransactionUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * In-memory spatial index over station coordinates for "nearby" queries.
+ *
+ * Stations are bucketed into a fixed grid of {@link #CELL_DEGREES} cells. A
+ * nearest query scans rings of cells outward from the user's cell and stops as
+ * soon as no unscanned ring can beat the current k-th result, so cost depends
+ * on the stations near the user rather than on the size of the table.
+ *
+ * Longitude cells wrap at the antimeridian, so a query near +/-180 also
+ * sees the stations just across it.
+ *
+ * Kept current by {@link StationService} on add/update/delete (applied after
+ * commit), and rebuilt from a lightweight pin query at startup and
+ * periodically, which also picks up changes made through other replicas.
+ * Changes applied while a rebuild is reading are replayed onto the new grid
+ * before it is swapped in, so a rebuild never undoes a newer edit.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class StationSpatialIndex {
+
+    // ~5.5 km of latitude per cell; a 50 km radius scans ~20x20 cells.
+    static final double CELL_DEGREES = 0.05;
+    private static final double KM_PER_DEGREE = 111.195;
+    private static final int LNG_CELLS = (int) Math.round(360 / CELL_DEGREES);
+
+    private final StationRepository stationRepository;
+
+    private volatile Grid grid = new Grid();
+
+    // Guards grid changes and the journal; never held while reading the database.
+    private final Object changeLock = new Object();
+    // Changes applied during a running rebuild, to replay on its grid; null otherwise.
+    private List<Consumer<Grid>> journal;
+    // One rebuild at a time, without a monitor held across the pin query.
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        rebuild();
+    }
+
+    /**
+     * Full reload from the pins projection; swaps the grid in atomically.
+     * Skipped if another rebuild is already running, whose grid is just as fresh.
+     */
+    @Scheduled(fixedRateString = "${app.stations.index-rebuild-ms:300000}",
+            initialDelayString = "${app.stations.index-rebuild-ms:300000}")
+    public void rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            log.debug("Station spatial index rebuild already running; skipping");
+            return;
+        }
+        try {
+            rebuildGrid();
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    private void rebuildGrid() {
+        long started = System.nanoTime();
+        synchronized (changeLock) {
+            journal = new ArrayList<>();
+        }
+        Grid fresh = new Grid();
+        try {
+            for (StationPinDTO pin : stationRepository.findAllPins()) {
+                fresh.put(new Pin(pin.getId(), pin.getLatitude(), pin.getLongitude()));
+            }
+        } catch (RuntimeException e) {
+            synchronized (changeLock) {
+                journal = null;
+            }
+            throw e;
+        }
+        int replayed;
+        synchronized (changeLock) {
+            // Idempotent, so a change the pin query already saw is harmless to repeat.
+            replayed = journal.size();
+            journal.forEach(change -> change.accept(fresh));
+            journal = null;
+            grid = fresh;
+        }
+        if (replayed > 0) log.debug("Replayed {} station change(s) made during the index rebuild", replayed);
+        log.info("Station spatial index built: {} station(s) in {} cell(s), {} ms",
+                fresh.byId.size(), fresh.cells.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /** Adds or moves a station once the surrounding transaction (if any) commits. */
+    public void upsert(Station station) {
+        if (station == null || station.getId() == null) return;
+        Long id = station.getId();
+        Double lat = station.getLatitude();
+        Double lng = station.getLongitude();
+        TransactionUtil.afterCommit(() -> apply(g -> {
+            g.remove(id);
+            if (lat != null && lng != null) g.put(new Pin(id, lat, lng));
+        }));
+    }
+
+    public void remove(Long stationId) {
+        if (stationId == null) return;
+        TransactionUtil.afterCommit(() -> apply(g -> g.remove(stationId)));
+    }
+
+    private void apply(Consumer<Grid> change) {
+        synchronized (changeLock) {
+            change.accept(grid);
+            if (journal != null) journal.add(change);
+        }
+    }
+
+    public int size() {
+        return grid.byId.size();
+    }
+
+    /**
+     * Stations within {@code radiusKm} of the point, nearest first, at most
+     * {@code limit} of them.
+     */
+    public List<Hit> nearest(double lat, double lng, double radiusKm, int limit) {
+        if (limit <= 0 || radiusKm < 0) return List.of();
+        Grid g = grid;
+        int centerLat = latCell(lat);
+        int centerLng = lngCell(lng);
+
+        // Narrowest cell side anywhere within the radius (cells shrink in
+        // longitude away from the equator), for conservative ring bounds.
+        double farthestLat = Math.min(89.0, Math.abs(lat) + radiusKm / KM_PER_DEGREE + CELL_DEGREES);
+        double cellKm = CELL_DEGREES * KM_PER_DEGREE * Math.max(0.01, Math.cos(Math.toRadians(farthestLat)));
+        long maxRing = (long) Math.ceil(radiusKm / cellKm) + 1;
+
+        // Max-heap of the best `limit` hits so far.
+        PriorityQueue<Hit> best = new PriorityQueue<>(Comparator.comparingDouble(Hit::distanceKm).reversed());
+
+        // A radius covering more cells than are populated (e.g. country-wide)
+        // is cheaper as a plain scan of the stations; one wider than a whole
+        // parallel (near the poles) would visit wrapped cells twice.
+        if ((2 * maxRing + 1) * (2 * maxRing + 1) > 4L * g.cells.size() || 2 * maxRing + 1 >= LNG_CELLS) {
+            collect(g.byId.values().toArray(Pin[]::new), lat, lng, radiusKm, limit, best);
+            List<Hit> hits = new ArrayList<>(best);
+            hits.sort(Comparator.comparingDouble(Hit::distanceKm));
+            return hits;
+        }
+
+        for (int ring = 0; ring <= maxRing; ring++) {
+            // Everything in this ring is at least (ring - 1) cells away.
+            double ringMinKm = Math.max(0, ring - 1) * cellKm;
+            if (ringMinKm > radiusKm) break;
+            if (best.size() >= limit && ringMinKm > best.peek().distanceKm()) break;
+
+            for (int dLat = -ring; dLat <= ring; dLat++) {
+                boolean edgeRow = Math.abs(dLat) == ring;
+                for (int dLng = -ring; dLng <= ring; dLng += edgeRow ? 1 : 2 * ring) {
+                    Pin[] cell = g.cells.get(cellKey(centerLat + dLat, centerLng + dLng));
+                    if (cell != null) {
+                        collect(cell, lat, lng, radiusKm, limit, best);
+                    }
+                    if (ring == 0) break;
+                }
+            }
+        }
+
+        List<Hit> hits = new ArrayList<>(best);
+        hits.sort(Comparator.comparingDouble(Hit::distanceKm));
+        return hits;
+    }
+
+    private static void collect(Pin[] cell, double lat, double lng, double radiusKm, int limit,
+                                PriorityQueue<Hit> best) {
+        for (Pin pin : cell) {
+            double d = haversineKm(lat, lng, pin.lat(), pin.lng());
+            if (d > radiusKm) continue;
+            if (best.size() < limit) {
+                best.add(new Hit(pin.id(), d));
+            } else if (d < best.peek().distanceKm()) {
+                best.poll();
+                best.add(new Hit(pin.id(), d));
+            }
+        }
+    }
+
+    static double haversineKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 6371 * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+
+    private static int latCell(double lat) {
+        return (int) Math.floor((lat + 90.0) / CELL_DEGREES);
+    }
+
+    private static int lngCell(double lng) {
+        return (int) Math.floor((lng + 180.0) / CELL_DEGREES);
+    }
+
+    // Longitude cells wrap around: cell -1 is the last one, east of +180.
+    private static long cellKey(int latCell, int lngCell) {
+        return (long) latCell * LNG_CELLS + Math.floorMod(lngCell, LNG_CELLS);
+    }
+
+
+    public record Hit(long stationId, double distanceKm) {}
+
+    private record Pin(long id, double lat, double lng) {}
+
+    /** Cells hold small copy-on-write arrays; writers are rare, readers never lock. */
+    private static final class Grid {
+        final Map<Long, Pin[]> cells = new ConcurrentHashMap<>();
+        final Map<Long, Pin> byId = new ConcurrentHashMap<>();
+
+        void put(Pin pin) {
+            byId.put(pin.id(), pin);
+            cells.compute(cellKey(latCell(pin.lat()), lngCell(pin.lng())), (k, cell) -> {
+                if (cell == null) return new Pin[]{pin};
+                Pin[] grown = Arrays.copyOf(cell, cell.length + 1);
+                grown[cell.length] = pin;
+                return grown;
+            });
+        }
+
+        void remove(long id) {
+            Pin pin = byId.remove(id);
+            if (pin == null) return;
+            cells.computeIfPresent(cellKey(latCell(pin.lat()), lngCell(pin.lng())), (k, cell) -> {
+                Pin[] kept = Arrays.stream(cell).filter(p -> p.id() != id).toArray(Pin[]::new);
+                return kept.length == 0 ? null : kept;
+            });
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.ganesh.EV_Project.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ganesh.EV_Project.model.OutboxEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Sends a queued WebSocket message. The body was serialized when the event
+ * was recorded and goes out as the same JSON. Subscribers treat these
+ * messages as state updates, so a repeat after a retry is harmless.
+ */
+@Component
+@RequiredArgsConstructor
+public class StompMessageHandler implements OutboxEventHandler {
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public OutboxEvent.Type type() {
+        return OutboxEvent.Type.STOMP_MESSAGE;
+    }
+
+    @Override
+    public void handle(OutboxEvent event) throws Exception {
+        JsonNode message = objectMapper.readTree(event.getPayload());
+        messagingTemplate.convertAndSend(message.get("destination").asText(), message.get("body"));
+    }
+}
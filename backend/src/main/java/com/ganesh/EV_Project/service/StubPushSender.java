@@ -0,0 +1,60 @@
+package com.ganesh.EV_Project.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stand-in for {@link FcmService} when app.notifications.sender=stub: logs
+ * each message instead of contacting Firebase, so the notification pipeline
+ * can be exercised locally. Tokens starting with "invalid-" are reported as
+ * dead (to exercise pruning), and a configurable latency and failure rate
+ * simulate a slow or flaky gateway.
+ */
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "app.notifications.sender", havingValue = "stub")
+public class StubPushSender implements PushSender {
+
+    @Value("${app.notifications.stub.latency-ms:0}")
+    private long latencyMillis;
+
+    @Value("${app.notifications.stub.failure-rate:0.0}")
+    private double failureRate;
+
+    private final AtomicLong sent = new AtomicLong();
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public List<Result> sendEach(List<PushMessage> messages) {
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        List<Result> results = new ArrayList<>(messages.size());
+        for (PushMessage m : messages) {
+            if (m.token() != null && m.token().startsWith("invalid-")) {
+                results.add(Result.INVALID_TOKEN);
+            } else if (ThreadLocalRandom.current().nextDouble() < failureRate) {
+                results.add(Result.FAILED);
+            } else {
+                results.add(Result.SENT);
+                log.info("[stub push #{}] {} → {}: {}", sent.incrementAndGet(), m.type(), m.token(), m.title());
+            }
+        }
+        return results;
+    }
+}
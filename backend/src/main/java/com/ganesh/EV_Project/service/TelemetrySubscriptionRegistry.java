@@ -0,0 +1,243 @@
+package com.ganesh.EV_Project.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Per-subscription telemetry preferences negotiated at STOMP SUBSCRIBE.
+ *
+ * A driver client that sends the {@code telemetry-interval} header on
+ * {@code /topic/session/{bookingId}} opts into the keyframe + delta protocol
+ * at that rate. Entries are kept per STOMP session and subscription id, and
+ * dropped on UNSUBSCRIBE or DISCONNECT, so a client that reconnects or a
+ * second tab with a different rate never inherits a stale setting. The topic
+ * is shared, so the booking's effective stream is the fastest negotiated
+ * rate, and plain full frames as soon as any subscriber did not negotiate.
+ *
+ * Every subscribe asks the simulator for an immediate keyframe (and marks one
+ * due on the next tick, which resets the delta baseline), so a (re)subscribing
+ * client gets the full state before any deltas without waiting for a tick.
+ * A subscribe to a station's aggregate topic likewise asks for the station's
+ * current frame, which is otherwise only sent when it changes.
+ *
+ * Kept free of dependencies so the channel interceptor can use it without
+ * pulling the simulator (and the messaging template) into its bean graph.
+ * With the Redis broker relay, local changes are forwarded to the other
+ * nodes, since the session may be simulated on a different replica than the
+ * one holding the driver's socket.
+ */
+@Component
+public class TelemetrySubscriptionRegistry {
+
+    // The physics tick; a faster rate cannot produce fresher data.
+    public static final long MIN_INTERVAL_MILLIS = 5000;
+    public static final long MAX_INTERVAL_MILLIS = 60000;
+
+    // Stands for a subscriber that did not negotiate: it needs a full frame every tick.
+    private static final long FULL_FRAMES = 0;
+
+    // Open subscriptions: <StompSessionId, <SubscriptionId, BookingId>>
+    private final Map<String, Map<String, Long>> sessions = new HashMap<>();
+
+    // Effective stream per booking: <BookingId, Subscription>
+    private final Map<Long, Subscription> subscriptions = new ConcurrentHashMap<>();
+
+    // Forwards local changes to the other nodes; set by the broker relay.
+    private volatile RelayListener relayListener;
+
+    // Sends a keyframe right away if the booking is simulated here; set by the simulator.
+    private volatile Consumer<Long> keyframeListener;
+
+    // Sends the current station frame right away if the station is simulated here; set by the simulator.
+    private volatile Consumer<Long> stationFrameListener;
+
+    /**
+     * Records a subscribe; {@code requestedIntervalMillis} is null for a client
+     * that wants a full frame every tick.
+     */
+    public void onSubscribe(String sessionId, String subscriptionId, Long bookingId, Long requestedIntervalMillis) {
+        long interval = requestedIntervalMillis == null ? FULL_FRAMES
+                : Math.max(MIN_INTERVAL_MILLIS, Math.min(MAX_INTERVAL_MILLIS, requestedIntervalMillis));
+        subscribe(sessionId, subscriptionId, bookingId, interval);
+        RelayListener listener = relayListener;
+        if (listener != null) {
+            listener.subscribed(sessionId, subscriptionId, bookingId, interval);
+        }
+    }
+
+    public void onUnsubscribe(String sessionId, String subscriptionId) {
+        unsubscribe(sessionId, subscriptionId);
+        RelayListener listener = relayListener;
+        if (listener != null) {
+            listener.unsubscribed(sessionId, subscriptionId);
+        }
+    }
+
+    public void onDisconnect(String sessionId) {
+        disconnect(sessionId);
+        RelayListener listener = relayListener;
+        if (listener != null) {
+            listener.disconnected(sessionId);
+        }
+    }
+
+    /** Called once the broker has registered a subscribe, so the keyframe is not lost. */
+    public void requestKeyframe(Long bookingId) {
+        applyKeyframeRequest(bookingId);
+        RelayListener listener = relayListener;
+        if (listener != null) {
+            listener.keyframeRequested(bookingId);
+        }
+    }
+
+    /** Called once the broker has registered a {@code /topic/station/{id}} subscribe. */
+    public void requestStationFrame(Long stationId) {
+        applyStationFrameRequest(stationId);
+        RelayListener listener = relayListener;
+        if (listener != null) {
+            listener.stationFrameRequested(stationId);
+        }
+    }
+
+    /** Records a subscribe made on another node; not forwarded again. */
+    public void applyRemoteSubscribe(String sessionId, String subscriptionId, Long bookingId, long intervalMillis) {
+        subscribe(sessionId, subscriptionId, bookingId, intervalMillis);
+    }
+
+    public void applyRemoteUnsubscribe(String sessionId, String subscriptionId) {
+        unsubscribe(sessionId, subscriptionId);
+    }
+
+    public void applyRemoteDisconnect(String sessionId) {
+        disconnect(sessionId);
+    }
+
+    public void applyKeyframeRequest(Long bookingId) {
+        Consumer<Long> listener = keyframeListener;
+        if (listener != null) {
+            listener.accept(bookingId);
+        }
+    }
+
+    public void applyStationFrameRequest(Long stationId) {
+        Consumer<Long> listener = stationFrameListener;
+        if (listener != null) {
+            listener.accept(stationId);
+        }
+    }
+
+    public void setRelayListener(RelayListener relayListener) {
+        this.relayListener = relayListener;
+    }
+
+    public void setKeyframeListener(Consumer<Long> keyframeListener) {
+        this.keyframeListener = keyframeListener;
+    }
+
+    public void setStationFrameListener(Consumer<Long> stationFrameListener) {
+        this.stationFrameListener = stationFrameListener;
+    }
+
+    /** Returns the negotiated stream, or null if the booking needs full frames every tick. */
+    public Subscription get(Long bookingId) {
+        Subscription subscription = subscriptions.get(bookingId);
+        return subscription != null && subscription.intervalMillis != FULL_FRAMES ? subscription : null;
+    }
+
+    /** Forgets a finished booking; its subscriptions no longer receive anything. */
+    public synchronized void remove(Long bookingId) {
+        if (subscriptions.remove(bookingId) == null) return;
+        sessions.values().removeIf(subs -> {
+            subs.values().removeIf(bookingId::equals);
+            return subs.isEmpty();
+        });
+    }
+
+    /** Number of bookings with at least one open subscription. */
+    public int size() {
+        return subscriptions.size();
+    }
+
+    private synchronized void subscribe(String sessionId, String subscriptionId, Long bookingId, long interval) {
+        Long previous = sessions.computeIfAbsent(sessionId, id -> new HashMap<>()).put(subscriptionId, bookingId);
+        if (previous != null && !previous.equals(bookingId)) {
+            detach(previous, key(sessionId, subscriptionId));
+        }
+        Subscription subscription = subscriptions.computeIfAbsent(bookingId, id -> new Subscription());
+        subscription.intervals.put(key(sessionId, subscriptionId), interval);
+        subscription.recompute();
+        subscription.keyframeDue = true;
+    }
+
+    private synchronized void unsubscribe(String sessionId, String subscriptionId) {
+        Map<String, Long> subs = sessions.get(sessionId);
+        if (subs == null) return;
+        Long bookingId = subs.remove(subscriptionId);
+        if (subs.isEmpty()) sessions.remove(sessionId);
+        if (bookingId != null) detach(bookingId, key(sessionId, subscriptionId));
+    }
+
+    private synchronized void disconnect(String sessionId) {
+        Map<String, Long> subs = sessions.remove(sessionId);
+        if (subs == null) return;
+        subs.forEach((subscriptionId, bookingId) -> detach(bookingId, key(sessionId, subscriptionId)));
+    }
+
+    private void detach(Long bookingId, String key) {
+        Subscription subscription = subscriptions.get(bookingId);
+        if (subscription == null) return;
+        subscription.intervals.remove(key);
+        if (subscription.intervals.isEmpty()) {
+            subscriptions.remove(bookingId);
+        } else {
+            subscription.recompute();
+        }
+    }
+
+    private static String key(String sessionId, String subscriptionId) {
+        return sessionId + "/" + subscriptionId;
+    }
+
+    /** Receives local subscription changes, to be applied on the other nodes. */
+    public interface RelayListener {
+        void subscribed(String sessionId, String subscriptionId, Long bookingId, long intervalMillis);
+
+        void unsubscribed(String sessionId, String subscriptionId);
+
+        void disconnected(String sessionId);
+
+        void keyframeRequested(Long bookingId);
+
+        void stationFrameRequested(Long stationId);
+    }
+
+    public static final class Subscription {
+        // Guarded by the registry; read by the physics shards through the volatile fields.
+        private final Map<String, Long> intervals = new HashMap<>();
+        private volatile long intervalMillis;
+        private volatile boolean keyframeDue = true;
+
+        private void recompute() {
+            long fastest = Long.MAX_VALUE;
+            for (long interval : intervals.values()) {
+                fastest = Math.min(fastest, interval);
+            }
+            intervalMillis = fastest;
+        }
+
+        public long intervalMillis() {
+            return intervalMillis;
+        }
+
+        /** Returns true once per subscribe, for the keyframe that resets the delta baseline. */
+        public boolean takeKeyframe() {
+            if (!keyframeDue) return false;
+            keyframeDue = false;
+            return true;
+        }
+    }
+}
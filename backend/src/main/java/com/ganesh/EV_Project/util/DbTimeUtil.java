@@ -0,0 +1,57 @@
+package com.ganesh.EV_Project.util;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Timestamp helpers for native SQL. Hibernate writes TIMESTAMP columns as
+ * wall-clock time in {@link #ZONE} (spring.jpa.properties.hibernate.jdbc.time_zone),
+ * whatever the JVM zone is, while a plain {@code Timestamp.valueOf} through
+ * JdbcTemplate is written in the JVM zone. Every JDBC bind and read of a column
+ * that JPA also reads or writes goes through here, so both agree on a UTC host
+ * (the Docker image) as well as on one set to Asia/Kolkata.
+ *
+ * Java-side {@link LocalDateTime}s stay in the JVM zone, as on the entities.
+ */
+public final class DbTimeUtil {
+
+    /** Must match spring.jpa.properties.hibernate.jdbc.time_zone. */
+    public static final ZoneId ZONE = ZoneId.of("Asia/Kolkata");
+
+    private DbTimeUtil() {
+    }
+
+    /** The current time, as a bind parameter. */
+    public static Timestamp now() {
+        return Timestamp.valueOf(LocalDateTime.now(ZONE));
+    }
+
+    /** Today's date in the database zone, for day buckets and partitions. */
+    public static LocalDate today() {
+        return LocalDate.now(ZONE);
+    }
+
+    /** A JVM-local time as the database stores it, or null. */
+    public static LocalDateTime toDbLocal(LocalDateTime time) {
+        return time == null ? null
+                : time.atZone(ZoneId.systemDefault()).withZoneSameInstant(ZONE).toLocalDateTime();
+    }
+
+    /** A JVM-local time as a bind parameter, or null. */
+    public static Timestamp toDb(LocalDateTime time) {
+        return time == null ? null : Timestamp.valueOf(toDbLocal(time));
+    }
+
+    /** A database-zone wall-clock time (e.g. a day boundary) in the JVM zone, as JPA parameters expect, or null. */
+    public static LocalDateTime fromDbLocal(LocalDateTime dbLocal) {
+        return dbLocal == null ? null
+                : dbLocal.atZone(ZONE).withZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+    }
+
+    /** A column value read through JDBC, back in the JVM zone, or null. */
+    public static LocalDateTime fromDb(Timestamp timestamp) {
+        return timestamp == null ? null : fromDbLocal(timestamp.toLocalDateTime());
+    }
+}
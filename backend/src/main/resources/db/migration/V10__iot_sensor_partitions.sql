@@ -0,0 +1,87 @@
+-- Time-series storage for ESP32 readings.
+--
+-- iot_sensor_data becomes a table range-partitioned by day on "timestamp"
+-- (iot_sensor_data_pYYYYMMDD), with a default partition for anything outside
+-- the created days. IoTStorageMaintenance creates upcoming partitions and
+-- drops ones past app.iot.storage.raw-retention-days. The primary key has
+-- to include the partition column, hence (id, "timestamp").
+--
+-- iot_sensor_rollups holds 1-minute ('1m') and 1-hour ('1h') aggregates,
+-- which SensorRollupService maintains. They are seeded here from the existing
+-- readings so history survives the raw retention.
+
+ALTER TABLE iot_sensor_data RENAME TO iot_sensor_data_legacy;
+-- Free the names the new table's key and id sequence will take.
+ALTER TABLE iot_sensor_data_legacy ALTER COLUMN id DROP IDENTITY IF EXISTS;
+DO $$ BEGIN
+    ALTER TABLE iot_sensor_data_legacy RENAME CONSTRAINT iot_sensor_data_pkey TO iot_sensor_data_legacy_pkey;
+EXCEPTION WHEN undefined_object THEN NULL; END $$;
+
+CREATE TABLE iot_sensor_data (
+    id          BIGSERIAL,
+    station_id  BIGINT           NOT NULL REFERENCES stations (id),
+    voltage     DOUBLE PRECISION NOT NULL,
+    current     DOUBLE PRECISION NOT NULL,
+    power       DOUBLE PRECISION NOT NULL,
+    "timestamp" TIMESTAMP        NOT NULL,
+    PRIMARY KEY (id, "timestamp")
+) PARTITION BY RANGE ("timestamp");
+
+-- Latest reading / history per station; created on every partition.
+CREATE INDEX IF NOT EXISTS idx_iot_station_time
+    ON iot_sensor_data (station_id, "timestamp" DESC);
+
+CREATE TABLE iot_sensor_data_default PARTITION OF iot_sensor_data DEFAULT;
+
+-- The last week and the next three days; older readings go to the default
+-- partition, where the retention job deletes them.
+DO $$
+DECLARE
+    d DATE;
+BEGIN
+    FOR d IN SELECT generate_series(CURRENT_DATE - 7, CURRENT_DATE + 3, INTERVAL '1 day')::date LOOP
+        EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF iot_sensor_data FOR VALUES FROM (%L) TO (%L)',
+                       'iot_sensor_data_p' || to_char(d, 'YYYYMMDD'), d, d + 1);
+    END LOOP;
+END $$;
+
+INSERT INTO iot_sensor_data (id, station_id, voltage, current, power, "timestamp")
+SELECT id, station_id, voltage, current, power, "timestamp"
+FROM iot_sensor_data_legacy;
+
+SELECT setval(pg_get_serial_sequence('iot_sensor_data', 'id'),
+              GREATEST((SELECT COALESCE(MAX(id), 0) FROM iot_sensor_data), 1));
+
+CREATE TABLE IF NOT EXISTS iot_sensor_rollups (
+    id          BIGSERIAL PRIMARY KEY,
+    resolution  VARCHAR(4)       NOT NULL,
+    station_id  BIGINT           NOT NULL,
+    bucket      TIMESTAMP        NOT NULL,
+    samples     BIGINT           NOT NULL,
+    avg_voltage DOUBLE PRECISION NOT NULL,
+    avg_current DOUBLE PRECISION NOT NULL,
+    avg_power   DOUBLE PRECISION NOT NULL,
+    min_power   DOUBLE PRECISION NOT NULL,
+    max_power   DOUBLE PRECISION NOT NULL,
+    CONSTRAINT uq_iot_rollup UNIQUE (resolution, station_id, bucket)
+);
+
+-- Retention deletes by age per resolution.
+CREATE INDEX IF NOT EXISTS idx_iot_rollup_bucket
+    ON iot_sensor_rollups (resolution, bucket);
+
+INSERT INTO iot_sensor_rollups
+    (resolution, station_id, bucket, samples, avg_voltage, avg_current, avg_power, min_power, max_power)
+SELECT '1m', station_id, date_trunc('minute', "timestamp"), COUNT(*),
+       AVG(voltage), AVG(current), AVG(power), MIN(power), MAX(power)
+FROM iot_sensor_data_legacy
+GROUP BY station_id, date_trunc('minute', "timestamp");
+
+INSERT INTO iot_sensor_rollups
+    (resolution, station_id, bucket, samples, avg_voltage, avg_current, avg_power, min_power, max_power)
+SELECT '1h', station_id, date_trunc('hour', "timestamp"), COUNT(*),
+       AVG(voltage), AVG(current), AVG(power), MIN(power), MAX(power)
+FROM iot_sensor_data_legacy
+GROUP BY station_id, date_trunc('hour', "timestamp");
+
+DROP TABLE iot_sensor_data_legacy;
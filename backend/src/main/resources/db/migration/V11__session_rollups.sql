@@ -0,0 +1,27 @@
+-- Hourly ("1h") and daily ("1d") session aggregates per station and connector
+-- type, read by the owner analytics endpoints instead of grouping
+-- charging_sessions -> bookings -> charger_slots -> stations on every request.
+-- Each bucket counts sessions that started in it and, separately, sessions
+-- paid with an end_time in it (the paid revenue, energy and duration sums).
+-- Maintained and backfilled by AnalyticsRollupService.
+CREATE TABLE IF NOT EXISTS session_rollups (
+    id                BIGSERIAL PRIMARY KEY,
+    resolution        VARCHAR(4)       NOT NULL,
+    station_id        BIGINT           NOT NULL,
+    connector_type    VARCHAR(20)      NOT NULL,
+    bucket            TIMESTAMP        NOT NULL,
+    sessions_started  BIGINT           NOT NULL DEFAULT 0,
+    sessions_paid     BIGINT           NOT NULL DEFAULT 0,
+    revenue           DOUBLE PRECISION NOT NULL DEFAULT 0,
+    energy_kwh        DOUBLE PRECISION NOT NULL DEFAULT 0,
+    duration_minutes  DOUBLE PRECISION NOT NULL DEFAULT 0,
+    CONSTRAINT uq_session_rollup UNIQUE (resolution, station_id, connector_type, bucket)
+);
+
+-- Owner queries filter by station and a bucket range.
+CREATE INDEX IF NOT EXISTS idx_session_rollup_station
+    ON session_rollups (resolution, station_id, bucket);
+
+-- Recomputing a range of days reads sessions by start time (and by end time,
+-- already indexed by V2).
+CREATE INDEX IF NOT EXISTS idx_session_starttime ON charging_sessions (start_time);
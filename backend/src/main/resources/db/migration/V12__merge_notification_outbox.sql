@@ -0,0 +1,11 @@
+-- Push notifications now go through outbox_events (type PUSH_NOTIFICATION,
+-- aggregate = user id) like every other post-commit side effect. Move the
+-- ones still pending, then drop the separate table.
+INSERT INTO outbox_events (type, aggregate_id, payload, status, attempts, next_attempt_at, created_at)
+SELECT 'PUSH_NOTIFICATION', user_id,
+       json_build_object('type', type, 'title', title, 'body', body, 'deepLink', deep_link)::text,
+       'PENDING', attempts, next_attempt_at, created_at
+FROM notification_outbox
+WHERE status = 'PENDING';
+
+DROP TABLE IF EXISTS notification_outbox;
@@ -0,0 +1,9 @@
+-- Owner analytics read only these columns from session_rollups. Carrying them
+-- in the (resolution, station_id, bucket) index lets every owner query run as
+-- index-only scans, one per owned station. Without them the planner hash-joins
+-- a scan of every hourly row in the window for the peak-usage chart.
+CREATE INDEX IF NOT EXISTS idx_session_rollup_station_cover
+    ON session_rollups (resolution, station_id, bucket)
+    INCLUDE (connector_type, sessions_started, sessions_paid, revenue, energy_kwh, duration_minutes);
+
+DROP INDEX IF EXISTS idx_session_rollup_station;
@@ -0,0 +1,5 @@
+-- The simulator's predicted end of charge, written with every progress
+-- snapshot. The slot availability cache reads it on reconcile, so every
+-- replica (not just the one simulating the session) and a restarted node can
+-- tell drivers when a charging gun frees up.
+ALTER TABLE charging_sessions ADD COLUMN IF NOT EXISTS expected_end_at TIMESTAMP;
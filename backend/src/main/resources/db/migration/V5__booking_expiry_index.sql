@@ -0,0 +1,5 @@
+-- Expiry scheduler: unstarted bookings by deadline, for the startup load and
+-- the periodic resync (BookingRepository.findUnstartedDeadlinesBefore).
+CREATE INDEX IF NOT EXISTS idx_booking_confirmed_expires
+    ON bookings (expires_at)
+    WHERE status = 'CONFIRMED';
@@ -0,0 +1,17 @@
+-- Advance reservations: no two live bookings may hold overlapping time
+-- windows on the same slot. Instant bookings carry end_time = start_time (an
+-- empty range), so they never conflict here; uq_active_booking_per_slot still
+-- limits a slot to one CONFIRMED/ONGOING booking.
+CREATE EXTENSION IF NOT EXISTS btree_gist;
+
+DO $$ BEGIN
+    ALTER TABLE bookings ADD CONSTRAINT ex_booking_slot_window
+        EXCLUDE USING gist (slot_id WITH =, tsrange(start_time, GREATEST(start_time, end_time), '[)') WITH &&)
+        WHERE (status IN ('PENDING', 'CONFIRMED', 'ONGOING'));
+EXCEPTION WHEN duplicate_object OR duplicate_table THEN NULL; END $$;
+
+-- Reservation activation: PENDING bookings by window start
+-- (BookingRepository.findReservationsStartingBefore).
+CREATE INDEX IF NOT EXISTS idx_booking_pending_start
+    ON bookings (start_time)
+    WHERE status = 'PENDING';
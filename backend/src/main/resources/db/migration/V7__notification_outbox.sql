@@ -0,0 +1,26 @@
+-- Push notifications are written here in the caller's transaction and sent by
+-- NotificationDispatcher. Rows are claimed with FOR UPDATE SKIP LOCKED and a
+-- lease on next_attempt_at, so several replicas can drain the table safely.
+CREATE TABLE IF NOT EXISTS notification_outbox (
+    id              BIGSERIAL PRIMARY KEY,
+    user_id         BIGINT       NOT NULL,
+    type            VARCHAR(40)  NOT NULL,
+    title           VARCHAR(200) NOT NULL,
+    body            VARCHAR(1000) NOT NULL,
+    deep_link       VARCHAR(500),
+    status          VARCHAR(20)  NOT NULL DEFAULT 'PENDING',
+    attempts        INT          NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP    NOT NULL,
+    created_at      TIMESTAMP    NOT NULL,
+    sent_at         TIMESTAMP,
+    last_error      VARCHAR(500)
+);
+
+-- Due rows, oldest first (the dispatcher's claim query and queue-depth stats).
+CREATE INDEX IF NOT EXISTS idx_notification_outbox_due
+    ON notification_outbox (next_attempt_at)
+    WHERE status = 'PENDING';
+
+-- Retention sweep of finished rows.
+CREATE INDEX IF NOT EXISTS idx_notification_outbox_created
+    ON notification_outbox (created_at);
@@ -0,0 +1,22 @@
+-- Side effects of charging-session completion (Razorpay order creation, STOMP
+-- messages) recorded in the completing transaction and executed afterwards by
+-- OutboxRelay. Claimed like notification_outbox: SKIP LOCKED plus a lease.
+CREATE TABLE IF NOT EXISTS outbox_events (
+    id              BIGSERIAL PRIMARY KEY,
+    type            VARCHAR(30)  NOT NULL,
+    aggregate_id    BIGINT,
+    payload         TEXT,
+    status          VARCHAR(20)  NOT NULL DEFAULT 'PENDING',
+    attempts        INT          NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP    NOT NULL,
+    created_at      TIMESTAMP    NOT NULL,
+    processed_at    TIMESTAMP,
+    last_error      VARCHAR(500)
+);
+
+CREATE INDEX IF NOT EXISTS idx_outbox_events_due
+    ON outbox_events (next_attempt_at)
+    WHERE status = 'PENDING';
+
+CREATE INDEX IF NOT EXISTS idx_outbox_events_created
+    ON outbox_events (created_at);
@@ -0,0 +1,31 @@
+-- Razorpay webhook deliveries, deduplicated by Razorpay's event id and applied
+-- in batches by PaymentSettlementService. Redeliveries hit the unique key and
+-- are dropped at ingestion.
+CREATE TABLE IF NOT EXISTS payment_webhook_events (
+    id                BIGSERIAL PRIMARY KEY,
+    event_id          VARCHAR(64)  NOT NULL,
+    event_type        VARCHAR(40)  NOT NULL,
+    order_id          VARCHAR(64),
+    payment_id        VARCHAR(64),
+    amount_paise      BIGINT,
+    method            VARCHAR(30),
+    error_description VARCHAR(500),
+    payload           TEXT,
+    status            VARCHAR(20)  NOT NULL DEFAULT 'PENDING',
+    attempts          INT          NOT NULL DEFAULT 0,
+    next_attempt_at   TIMESTAMP    NOT NULL,
+    received_at       TIMESTAMP    NOT NULL,
+    applied_at        TIMESTAMP,
+    last_error        VARCHAR(500)
+);
+
+CREATE UNIQUE INDEX IF NOT EXISTS uq_payment_webhook_event_id
+    ON payment_webhook_events (event_id);
+
+CREATE INDEX IF NOT EXISTS idx_payment_webhook_due
+    ON payment_webhook_events (next_attempt_at)
+    WHERE status = 'PENDING';
+
+-- Settlement and client verification look sessions up by order id.
+CREATE INDEX IF NOT EXISTS idx_session_razorpay_order
+    ON charging_sessions (razorpay_order_id);
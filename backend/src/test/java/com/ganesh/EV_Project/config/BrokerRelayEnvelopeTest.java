@@ -0,0 +1,39 @@
+package com.ganesh.EV_Project.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BrokerRelayEnvelopeTest {
+
+    @Test
+    void roundTripsHeadersAndPayload() {
+        // Newlines inside the payload must survive: only the first three separate headers.
+        byte[] payload = "{\"a\":1}\n{\"b\":2}\n".getBytes(StandardCharsets.UTF_8);
+        BrokerRelayEnvelope decoded = BrokerRelayEnvelope.decode(
+                new BrokerRelayEnvelope("node-a", "/topic/session/7", "application/json", payload).encode());
+
+        assertThat(decoded.origin()).isEqualTo("node-a");
+        assertThat(decoded.destination()).isEqualTo("/topic/session/7");
+        assertThat(decoded.contentType()).isEqualTo("application/json");
+        assertThat(decoded.payload()).isEqualTo(payload);
+    }
+
+    @Test
+    void missingContentTypeAndEmptyPayloadDecodeAsNullAndEmpty() {
+        BrokerRelayEnvelope decoded = BrokerRelayEnvelope.decode(
+                new BrokerRelayEnvelope("node-a", "/topic/station/1", null, new byte[0]).encode());
+
+        assertThat(decoded.contentType()).isNull();
+        assertThat(decoded.payload()).isEmpty();
+    }
+
+    @Test
+    void rejectsTruncatedEnvelope() {
+        assertThatThrownBy(() -> BrokerRelayEnvelope.decode("node-a\n/topic/x".getBytes(StandardCharsets.UTF_8)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
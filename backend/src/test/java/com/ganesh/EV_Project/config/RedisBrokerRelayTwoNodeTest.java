@@ -0,0 +1,197 @@
+package com.ganesh.EV_Project.config;
+
+import com.ganesh.EV_Project.service.TelemetrySubscriptionRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.converter.ByteArrayMessageConverter;
+import org.springframework.messaging.converter.CompositeMessageConverter;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.converter.StringMessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.test.util.ReflectionTestUtils;
+import redis.embedded.RedisServer;
+
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two relay nodes against one real Redis: a /topic frame sent to node A's
+ * broker channel must reach node B's local broker exactly once, tagged as
+ * relayed, and must not come back to A or be published again by B.
+ */
+class RedisBrokerRelayTwoNodeTest {
+
+    private static final String TOPIC_CHANNEL = "test:stomp:topic";
+    private static final String CONTROL_CHANNEL = "test:stomp:control";
+
+    private static RedisServer redisServer;
+    private static int port;
+
+    private Node nodeA;
+    private Node nodeB;
+
+    @BeforeAll
+    static void startRedis() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+    }
+
+    @AfterAll
+    static void stopRedis() throws Exception {
+        if (redisServer != null) redisServer.stop();
+    }
+
+    @BeforeEach
+    void startNodes() {
+        nodeA = new Node("node-a");
+        nodeB = new Node("node-b");
+    }
+
+    @AfterEach
+    void stopNodes() {
+        nodeA.close();
+        nodeB.close();
+    }
+
+    @Test
+    void frameFromNodeAReachesNodeBExactlyOnce() throws Exception {
+        nodeA.template.convertAndSend("/topic/session/7", Map.of("energyKwh", 3.5));
+        // A second frame as a barrier: once B has it, anything duplicated from the first would be there too.
+        nodeA.template.convertAndSend("/topic/session/7", Map.of("energyKwh", 4.0));
+
+        Message<?> first = nodeB.received.poll(5, TimeUnit.SECONDS);
+        Message<?> second = nodeB.received.poll(5, TimeUnit.SECONDS);
+        assertThat(first).isNotNull();
+        assertThat(second).isNotNull();
+        assertThat(nodeB.received.poll(300, TimeUnit.MILLISECONDS)).isNull();
+
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(first);
+        assertThat(accessor.getDestination()).isEqualTo("/topic/session/7");
+        assertThat(accessor.getHeader(RedisBrokerRelayPublisher.RELAYED_FROM_HEADER)).isEqualTo("node-a");
+        assertThat(new String((byte[]) first.getPayload(), StandardCharsets.UTF_8)).contains("3.5");
+        assertThat(new String((byte[]) second.getPayload(), StandardCharsets.UTF_8)).contains("4.0");
+
+        // The relayed copy was delivered locally on B but not queued for Redis again...
+        assertThat(nodeB.publisher.getPublished()).isZero();
+        assertThat(nodeB.queuedForRedis()).isZero();
+        // ...and A delivered only its own two frames, ignoring the echo of its publish.
+        assertThat(nodeA.publisher.getPublished()).isEqualTo(2);
+        assertThat(nodeA.received).hasSize(2);
+        assertThat(nodeA.subscriber.getDelivered()).isZero();
+        assertThat(nodeB.subscriber.getDelivered()).isEqualTo(2);
+    }
+
+    @Test
+    void userDestinationsAreNotRelayed() throws Exception {
+        nodeA.template.convertAndSend("/queue/notifications", "hello");
+        nodeA.template.convertAndSend("/topic/station/1", "barrier");
+
+        Message<?> relayed = nodeB.received.poll(5, TimeUnit.SECONDS);
+        assertThat(relayed).isNotNull();
+        assertThat(SimpMessageHeaderAccessor.wrap(relayed).getDestination()).isEqualTo("/topic/station/1");
+        assertThat(nodeB.received.poll(300, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    @Test
+    void telemetrySubscriptionsFollowTheDriverAcrossNodes() throws Exception {
+        BlockingQueue<Long> keyframesOnB = new LinkedBlockingQueue<>();
+        nodeB.registry.setKeyframeListener(keyframesOnB::add);
+
+        // The driver's socket is on A; the session may be simulated on B.
+        nodeA.registry.onSubscribe("ws-1", "sub-0", 7L, 10_000L);
+        nodeA.registry.requestKeyframe(7L);
+        assertThat(keyframesOnB.poll(5, TimeUnit.SECONDS)).isEqualTo(7L);
+        assertThat(nodeB.registry.get(7L).intervalMillis()).isEqualTo(10_000L);
+
+        // Control messages arrive in order, so once B saw the keyframe request after the disconnect, it is applied.
+        nodeA.registry.onDisconnect("ws-1");
+        nodeA.registry.requestKeyframe(8L);
+        assertThat(keyframesOnB.poll(5, TimeUnit.SECONDS)).isEqualTo(8L);
+        assertThat(nodeB.registry.get(7L)).isNull();
+        assertThat(nodeB.registry.size()).isZero();
+    }
+
+    /** One replica: its broker channel, relay publisher and subscriber, and its own Redis connections. */
+    private static final class Node {
+
+        final BlockingQueue<Message<?>> received = new LinkedBlockingQueue<>();
+        final LettuceConnectionFactory connectionFactory;
+        final RedisBrokerRelayPublisher publisher;
+        final RedisBrokerRelaySubscriber subscriber;
+        final RedisMessageListenerContainer container;
+        final SimpMessagingTemplate template;
+        final TelemetrySubscriptionRegistry registry = new TelemetrySubscriptionRegistry();
+
+        Node(String id) {
+            connectionFactory = new LettuceConnectionFactory("localhost", port);
+            connectionFactory.afterPropertiesSet();
+            connectionFactory.start();
+            StringRedisTemplate redis = new StringRedisTemplate(connectionFactory);
+
+            ClusterNode clusterNode = new ClusterNode(id);
+
+            publisher = new RedisBrokerRelayPublisher(redis, clusterNode, registry);
+            ReflectionTestUtils.setField(publisher, "topicChannel", TOPIC_CHANNEL);
+            ReflectionTestUtils.setField(publisher, "controlChannel", CONTROL_CHANNEL);
+            ReflectionTestUtils.setField(publisher, "queueCapacity", 100);
+            ReflectionTestUtils.setField(publisher, "batchSize", 10);
+            publisher.start();
+
+            // Stands in for the broker channel: the relay interceptor, then the local simple broker.
+            ExecutorSubscribableChannel brokerChannel = new ExecutorSubscribableChannel();
+            brokerChannel.addInterceptor(publisher);
+            brokerChannel.subscribe(received::add);
+            template = new SimpMessagingTemplate(brokerChannel);
+            // As configured by the broker: payloads are serialized before the interceptor sees them.
+            template.setMessageConverter(new CompositeMessageConverter(List.of(
+                    new StringMessageConverter(), new ByteArrayMessageConverter(), new MappingJackson2MessageConverter())));
+
+            subscriber = new RedisBrokerRelaySubscriber(template, clusterNode, registry);
+            container = new RedisMessageListenerContainer();
+            container.setConnectionFactory(connectionFactory);
+            container.addMessageListener(subscriber.topicListener(), new ChannelTopic(TOPIC_CHANNEL));
+            container.addMessageListener(subscriber.controlListener(), new ChannelTopic(CONTROL_CHANNEL));
+            // start() waits for the SUBSCRIBE only this long; pub/sub drops anything published before it
+            // lands, so a loaded machine (the full suite on one core) must not cut it short.
+            container.setMaxSubscriptionRegistrationWaitingTime(10_000);
+            container.afterPropertiesSet();
+            container.start();
+        }
+
+        int queuedForRedis() {
+            return ((Collection<?>) ReflectionTestUtils.getField(publisher, "queue")).size();
+        }
+
+        void close() {
+            publisher.stop();
+            container.stop();
+            try {
+                container.destroy();
+            } catch (Exception ignored) {
+                // best effort
+            }
+            connectionFactory.destroy();
+        }
+    }
+}
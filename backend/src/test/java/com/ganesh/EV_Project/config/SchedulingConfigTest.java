@@ -0,0 +1,63 @@
+package com.ganesh.EV_Project.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SchedulingConfigTest {
+
+    private final ApplicationContextRunner runner = new ApplicationContextRunner()
+            .withUserConfiguration(SchedulingConfig.class, AsyncProbeConfig.class);
+
+    @Test
+    void asyncRunsOnVirtualThreadsWhenEnabled() {
+        runner.withPropertyValues("spring.threads.virtual.enabled=true").run(context -> {
+            Thread thread = context.getBean(AsyncProbe.class).currentThread().get();
+            assertThat(thread.isVirtual()).isTrue();
+            assertThat(thread.getName()).startsWith("async-");
+        });
+    }
+
+    @Test
+    void asyncRunsOnPlatformPoolByDefault() {
+        runner.run(context -> {
+            Thread thread = context.getBean(AsyncProbe.class).currentThread().get();
+            assertThat(thread.isVirtual()).isFalse();
+            assertThat(thread.getName()).startsWith("async-");
+        });
+    }
+
+    @Test
+    void asyncPoolIsShutDownWithTheContext() {
+        AtomicReference<ThreadPoolTaskExecutor> pool = new AtomicReference<>();
+        runner.run(context -> {
+            pool.set(context.getBean("asyncExecutor", ThreadPoolTaskExecutor.class));
+            context.getBean(AsyncProbe.class).currentThread().get();
+            assertThat(pool.get().getThreadPoolExecutor().isShutdown()).isFalse();
+        });
+        assertThat(pool.get().getThreadPoolExecutor().isShutdown()).isTrue();
+    }
+
+    @Configuration
+    static class AsyncProbeConfig {
+        @Bean
+        AsyncProbe asyncProbe() {
+            return new AsyncProbe();
+        }
+    }
+
+    static class AsyncProbe {
+        @Async
+        public CompletableFuture<Thread> currentThread() {
+            return CompletableFuture.completedFuture(Thread.currentThread());
+        }
+    }
+}
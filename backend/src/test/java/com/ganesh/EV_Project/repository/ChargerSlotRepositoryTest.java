@@ -0,0 +1,174 @@
+package com.ganesh.EV_Project.repository;
+
+import com.ganesh.EV_Project.dto.SlotStateRow;
+import com.ganesh.EV_Project.enums.BookingStatus;
+import com.ganesh.EV_Project.enums.ConnectorType;
+import com.ganesh.EV_Project.enums.SlotStatus;
+import com.ganesh.EV_Project.enums.SlotType;
+import com.ganesh.EV_Project.model.Booking;
+import com.ganesh.EV_Project.model.ChargerSlot;
+import com.ganesh.EV_Project.model.ChargingSession;
+import com.ganesh.EV_Project.model.Station;
+import com.ganesh.EV_Project.model.User;
+import com.ganesh.EV_Project.support.EmbeddedPostgresConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** The slot queries the availability cache and the expiry sweeps run, against real PostgreSQL. */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(EmbeddedPostgresConfig.class)
+class ChargerSlotRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ChargerSlotRepository chargerSlotRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    private final LocalDateTime now = LocalDateTime.now().withNano(0);
+    private User user;
+    private Station station;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setMobileNumber("9000000001");
+        entityManager.persist(user);
+        station = new Station();
+        station.setName("Depot");
+        station.setAddress("1 Ring Road");
+        station.setLatitude(12.97);
+        station.setLongitude(77.59);
+        entityManager.persist(station);
+    }
+
+    @Test
+    void chargingSlotFreesUpAtItsSessionsPredictedEnd() {
+        ChargerSlot charging = slot("1", SlotStatus.CHARGING);
+        session(booking(charging, BookingStatus.ONGOING, now.minusMinutes(5)), "ONGOING", now.plusMinutes(40));
+        ChargerSlot notSnapshotted = slot("2", SlotStatus.CHARGING);
+        session(booking(notSnapshotted, BookingStatus.ONGOING, now.minusMinutes(2)), "ONGOING", null);
+        ChargerSlot booked = slot("3", SlotStatus.BOOKED);
+        booking(booked, BookingStatus.CONFIRMED, now.plusMinutes(10));
+        ChargerSlot free = slot("4", SlotStatus.AVAILABLE);
+        session(booking(free, BookingStatus.COMPLETED, now.minusHours(2)), "COMPLETED", now.minusHours(1));
+        entityManager.flush();
+
+        Map<Long, SlotStateRow> rows = chargerSlotRepository.findAllSlotStates().stream()
+                .collect(Collectors.toMap(SlotStateRow::slotId, Function.identity()));
+
+        // Not the long-expired booking, which every node but the simulating one used to show.
+        assertThat(rows.get(charging.getId()).freeAt()).isEqualTo(now.plusMinutes(40));
+        assertThat(rows.get(notSnapshotted.getId()).freeAt()).isEqualTo(now.minusMinutes(2));
+        assertThat(rows.get(booked.getId()).freeAt()).isEqualTo(now.plusMinutes(10));
+        assertThat(rows.get(free.getId()).freeAt()).isNull();
+    }
+
+    @Test
+    void expirySweepFreesOnlyUnstartedBookingsPastTheirDeadline() {
+        ChargerSlot lapsedSlot = slot("1", SlotStatus.BOOKED);
+        Booking lapsed = booking(lapsedSlot, BookingStatus.CONFIRMED, now.minusMinutes(1));
+        ChargerSlot pendingSlot = slot("2", SlotStatus.BOOKED);
+        Booking pending = booking(pendingSlot, BookingStatus.CONFIRMED, now.plusMinutes(5));
+        ChargerSlot startedSlot = slot("3", SlotStatus.CHARGING);
+        Booking started = booking(startedSlot, BookingStatus.CONFIRMED, now.minusMinutes(1));
+        session(started, "ONGOING", null);
+        entityManager.flush();
+        long lapsedVersion = lapsedSlot.getVersion();
+
+        List<Long> released = bookingRepository.expireUnstartedReturningSlotIds(
+                List.of(lapsed.getId(), pending.getId(), started.getId()), now, 20);
+        entityManager.clear();
+
+        assertThat(released).containsExactly(lapsedSlot.getId());
+        ChargerSlot freed = entityManager.find(ChargerSlot.class, lapsedSlot.getId());
+        assertThat(freed.getStatus()).isEqualTo(SlotStatus.AVAILABLE);
+        assertThat(freed.getVersion()).isEqualTo(lapsedVersion + 1);
+        assertThat(entityManager.find(Booking.class, lapsed.getId()).getStatus()).isEqualTo(BookingStatus.EXPIRED);
+        // Not yet due, and already started: both left as they were.
+        assertThat(entityManager.find(Booking.class, pending.getId()).getStatus()).isEqualTo(BookingStatus.CONFIRMED);
+        assertThat(entityManager.find(ChargerSlot.class, pendingSlot.getId()).getStatus()).isEqualTo(SlotStatus.BOOKED);
+        assertThat(entityManager.find(ChargerSlot.class, pendingSlot.getId()).getVersion())
+                .isEqualTo(pendingSlot.getVersion());
+        assertThat(entityManager.find(Booking.class, started.getId()).getStatus()).isEqualTo(BookingStatus.CONFIRMED);
+        assertThat(entityManager.find(ChargerSlot.class, startedSlot.getId()).getStatus()).isEqualTo(SlotStatus.CHARGING);
+    }
+
+    @Test
+    void stalePaymentHoldsAreReleasedOnceTheTtlHasPassed() {
+        ChargerSlot stale = slot("1", SlotStatus.PAYMENT_PENDING);
+        unpaid(session(booking(stale, BookingStatus.COMPLETED, null), "COMPLETED", null), now.minusMinutes(40));
+        ChargerSlot recent = slot("2", SlotStatus.PAYMENT_PENDING);
+        unpaid(session(booking(recent, BookingStatus.COMPLETED, null), "COMPLETED", null), now.minusMinutes(10));
+        ChargerSlot paid = slot("3", SlotStatus.PAYMENT_PENDING);
+        ChargingSession paidSession = session(booking(paid, BookingStatus.COMPLETED, null), "COMPLETED", null);
+        unpaid(paidSession, now.minusMinutes(40));
+        paidSession.setPaymentStatus("PAID");
+        entityManager.flush();
+        long staleVersion = stale.getVersion();
+
+        List<Long> released = chargerSlotRepository.releaseStalePaymentPendingReturningIds(now.minusMinutes(30), now);
+        entityManager.clear();
+
+        assertThat(released).containsExactly(stale.getId());
+        ChargerSlot freed = entityManager.find(ChargerSlot.class, stale.getId());
+        assertThat(freed.getStatus()).isEqualTo(SlotStatus.AVAILABLE);
+        assertThat(freed.getVersion()).isEqualTo(staleVersion + 1);
+        assertThat(entityManager.find(ChargerSlot.class, recent.getId()).getStatus()).isEqualTo(SlotStatus.PAYMENT_PENDING);
+        assertThat(entityManager.find(ChargerSlot.class, paid.getId()).getStatus()).isEqualTo(SlotStatus.PAYMENT_PENDING);
+        assertThat(entityManager.find(ChargerSlot.class, paid.getId()).getVersion()).isEqualTo(paid.getVersion());
+    }
+
+    private ChargerSlot slot(String label, SlotStatus status) {
+        ChargerSlot slot = new ChargerSlot();
+        slot.setStation(station);
+        slot.setSlotLabel(label);
+        slot.setSlotType(SlotType.DC);
+        slot.setStatus(status);
+        slot.setConnectorType(ConnectorType.CCS2);
+        slot.setPowerKw(60.0);
+        return entityManager.persist(slot);
+    }
+
+    private Booking booking(ChargerSlot slot, BookingStatus status, LocalDateTime expiresAt) {
+        Booking booking = new Booking();
+        booking.setUser(user);
+        booking.setSlot(slot);
+        booking.setStartTime(now.minusMinutes(30));
+        booking.setEndTime(now.minusMinutes(30));
+        booking.setStatus(status);
+        booking.setExpiresAt(expiresAt);
+        return entityManager.persist(booking);
+    }
+
+    private ChargingSession session(Booking booking, String status, LocalDateTime expectedEndAt) {
+        ChargingSession session = new ChargingSession();
+        session.setBooking(booking);
+        session.setStartTime(now.minusMinutes(25));
+        session.setStatus(status);
+        session.setExpectedEndAt(expectedEndAt);
+        return entityManager.persist(session);
+    }
+
+    private static void unpaid(ChargingSession session, LocalDateTime endTime) {
+        session.setEndTime(endTime);
+        session.setPaymentStatus("PENDING");
+    }
+}
@@ -0,0 +1,160 @@
+package com.ganesh.EV_Project.service;
+
+import com.ganesh.EV_Project.support.EmbeddedPostgresConfig;
+import com.ganesh.EV_Project.util.DbTimeUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * The session rollup recompute SQL (V11) against real PostgreSQL. Session times
+ * are inserted as the database stores them (Asia/Kolkata wall-clock time), while
+ * surefire runs this JVM in UTC, so a day is a database-zone day throughout.
+ */
+class AnalyticsRollupServiceTest {
+
+    // Just the columns the recompute joins and aggregates.
+    private static final String SCHEMA = """
+            CREATE TABLE charger_slots (id BIGINT PRIMARY KEY, station_id BIGINT, connector_type VARCHAR(20));
+            CREATE TABLE bookings (id BIGINT PRIMARY KEY, slot_id BIGINT);
+            CREATE TABLE charging_sessions (id BIGSERIAL PRIMARY KEY, booking_id BIGINT, start_time TIMESTAMP,
+                end_time TIMESTAMP, total_cost DOUBLE PRECISION, energy_kwh DOUBLE PRECISION,
+                payment_status VARCHAR(20));
+            """;
+
+    private static final LocalDate TODAY = DbTimeUtil.today();
+
+    private JdbcTemplate jdbcTemplate;
+    private AnalyticsRollupService rollupService;
+
+    @BeforeEach
+    void setUp() {
+        DataSource dataSource = EmbeddedPostgresConfig.newDatabase();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        new ResourceDatabasePopulator(new ByteArrayResource(SCHEMA.getBytes(StandardCharsets.UTF_8)),
+                new ClassPathResource("db/migration/V11__session_rollups.sql")).execute(dataSource);
+        rollupService = new AnalyticsRollupService(jdbcTemplate,
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource)));
+        ReflectionTestUtils.setField(rollupService, "reconcileDays", 2);
+        ReflectionTestUtils.setField(rollupService, "backfillChunkDays", 7);
+
+        jdbcTemplate.update("INSERT INTO charger_slots VALUES (1, 10, 'CCS2'), (2, 10, 'TYPE_2'), (3, 10, NULL)");
+        jdbcTemplate.update("INSERT INTO bookings VALUES (1, 1), (2, 1), (3, 2), (4, 3)");
+    }
+
+    @Test
+    void startsAndPaidCompletionsLandInTheirOwnHours() {
+        LocalDateTime start = TODAY.atTime(10, 15);
+        session(1, start, start.plusMinutes(90), 250.0, 30.0, "PAID");       // paid in the 11:00 bucket
+        session(2, TODAY.atTime(10, 40), TODAY.atTime(10, 50), 99.0, 5.0, "PENDING"); // started, not paid
+        session(3, TODAY.atTime(10, 5), TODAY.atTime(10, 35), 80.0, 8.0, "PAID");
+
+        rollupService.reconcile();
+
+        assertThat(row("1h", "CCS2", TODAY.atTime(10, 0)))
+                .containsEntry("sessions_started", 2L).containsEntry("sessions_paid", 0L)
+                .containsEntry("revenue", 0.0);
+        assertThat(row("1h", "CCS2", TODAY.atTime(11, 0)))
+                .containsEntry("sessions_started", 0L).containsEntry("sessions_paid", 1L)
+                .containsEntry("revenue", 250.0).containsEntry("energy_kwh", 30.0);
+        assertThat((Double) row("1h", "CCS2", TODAY.atTime(11, 0)).get("duration_minutes"))
+                .isCloseTo(90.0, within(1e-9));
+        assertThat(row("1h", "TYPE_2", TODAY.atTime(10, 0)))
+                .containsEntry("sessions_started", 1L).containsEntry("sessions_paid", 1L);
+        assertThat(row("1d", "CCS2", TODAY.atStartOfDay()))
+                .containsEntry("sessions_started", 2L).containsEntry("sessions_paid", 1L)
+                .containsEntry("revenue", 250.0);
+    }
+
+    @Test
+    void slotsWithoutAConnectorTypeAreCountedAsUnknown() {
+        session(4, TODAY.atTime(9, 0), TODAY.atTime(9, 30), 40.0, 4.0, "PAID");
+
+        rollupService.reconcile();
+
+        assertThat(row("1d", "Unknown", TODAY.atStartOfDay()))
+                .containsEntry("sessions_started", 1L).containsEntry("sessions_paid", 1L);
+    }
+
+    @Test
+    void recomputeReplacesTheDayInsteadOfAddingToIt() {
+        long id = session(1, TODAY.atTime(8, 0), TODAY.atTime(8, 45), 100.0, 10.0, "PENDING");
+        rollupService.reconcile();
+        jdbcTemplate.update("UPDATE charging_sessions SET payment_status = 'PAID' WHERE id = ?", id);
+
+        rollupService.reconcile();
+        rollupService.reconcile();
+
+        assertThat(row("1d", "CCS2", TODAY.atStartOfDay()))
+                .containsEntry("sessions_started", 1L).containsEntry("sessions_paid", 1L)
+                .containsEntry("revenue", 100.0);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM session_rollups", Integer.class)).isEqualTo(2); // 08:00 and the day
+    }
+
+    @Test
+    void flushRecomputesOnlyTheMarkedDays() {
+        LocalDate old = TODAY.minusDays(5);
+        session(1, old.atTime(23, 30), old.plusDays(1).atTime(0, 20), 120.0, 12.0, "PAID");
+        session(2, TODAY.minusDays(9).atTime(12, 0), null, null, null, "PENDING");
+
+        // Callers pass entity times, which are JVM-local: 00:20 in Kolkata is still the previous day in UTC.
+        rollupService.markDirty(DbTimeUtil.fromDbLocal(old.atTime(23, 30)));  // no transaction: marked at once
+        rollupService.markDirty(DbTimeUtil.fromDbLocal(old.plusDays(1).atTime(0, 20)));
+        rollupService.flushDirty();
+
+        // Started on one day, paid on the next.
+        assertThat(row("1d", "CCS2", old.atStartOfDay()))
+                .containsEntry("sessions_started", 1L).containsEntry("sessions_paid", 0L);
+        assertThat(row("1d", "CCS2", old.plusDays(1).atStartOfDay()))
+                .containsEntry("sessions_started", 0L).containsEntry("sessions_paid", 1L);
+        assertThat(rows("1d")).hasSize(2); // the unmarked day was left alone
+        assertThat(rollupService.getStats().dirtyDays()).isZero();
+        assertThat(rollupService.getStats().daysRecomputed()).isEqualTo(2);
+    }
+
+    @Test
+    void reconcileRecomputesTheCurrentDatabaseDay() {
+        LocalDateTime justNow = LocalDateTime.now(DbTimeUtil.ZONE).minusMinutes(1);
+        session(1, justNow, null, null, null, "PENDING");
+
+        rollupService.reconcile();
+
+        assertThat(row("1d", "CCS2", justNow.toLocalDate().atStartOfDay())).containsEntry("sessions_started", 1L);
+        assertThat(rollupService.getStats().lastReconcileAt()).isNotNull();
+    }
+
+    private long session(long bookingId, LocalDateTime start, LocalDateTime end, Double cost, Double energy,
+                         String paymentStatus) {
+        return jdbcTemplate.queryForObject("INSERT INTO charging_sessions (booking_id, start_time, end_time, "
+                        + "total_cost, energy_kwh, payment_status) VALUES (?, ?, ?, ?, ?, ?) RETURNING id", Long.class,
+                bookingId, Timestamp.valueOf(start), end != null ? Timestamp.valueOf(end) : null, cost, energy,
+                paymentStatus);
+    }
+
+    private Map<String, Object> row(String resolution, String connectorType, LocalDateTime bucket) {
+        return jdbcTemplate.queryForMap("SELECT sessions_started, sessions_paid, revenue, energy_kwh, duration_minutes "
+                        + "FROM session_rollups WHERE resolution = ? AND station_id = 10 AND connector_type = ? "
+                        + "AND bucket = ?", resolution, connectorType, Timestamp.valueOf(bucket));
+    }
+
+    private List<Map<String, Object>> rows(String resolution) {
+        return jdbcTemplate.queryForList("SELECT * FROM session_rollups WHERE resolution = ?", resolution);
+    }
+}
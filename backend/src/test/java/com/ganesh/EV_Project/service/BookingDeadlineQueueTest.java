@@ -0,0 +1,80 @@
+package com.ganesh.EV_Project.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BookingDeadlineQueueTest {
+
+    private final BookingDeadlineQueue queue = new BookingDeadlineQueue();
+
+    @Test
+    void drainsOnlyWhatIsDue() {
+        LocalDateTime now = LocalDateTime.now();
+        queue.schedule(1L, now.minusSeconds(1), false);
+        queue.schedule(2L, now.plusMinutes(30), false);
+
+        BookingDeadlineQueue.Due due = queue.drainDue();
+
+        assertThat(due.expiries()).containsExactly(1L);
+        assertThat(due.reminders()).isEmpty();
+        assertThat(queue.size()).isEqualTo(1);
+        assertThat(queue.drainDue().isEmpty()).isTrue();
+    }
+
+    @Test
+    void reminderFiresTheLeadTimeBeforeExpiry() {
+        LocalDateTime now = LocalDateTime.now();
+        // Within the lead: the reminder is due, the expiry is not.
+        queue.schedule(1L, now.plus(BookingDeadlineQueue.REMINDER_LEAD).minusSeconds(10), true);
+        // Outside the lead: neither is due yet.
+        queue.schedule(2L, now.plus(BookingDeadlineQueue.REMINDER_LEAD).plusMinutes(10), true);
+
+        BookingDeadlineQueue.Due due = queue.drainDue();
+
+        assertThat(due.reminders()).containsExactly(1L);
+        assertThat(due.expiries()).isEmpty();
+        assertThat(queue.size()).isEqualTo(3);
+    }
+
+    @Test
+    void noReminderOnceTheBookingHasExpired() {
+        queue.schedule(1L, LocalDateTime.now().minusMinutes(1), true);
+
+        BookingDeadlineQueue.Due due = queue.drainDue();
+
+        assertThat(due.reminders()).isEmpty();
+        assertThat(due.expiries()).containsExactly(1L);
+    }
+
+    @Test
+    void rescheduleSupersedesTheQueuedDeadline() {
+        LocalDateTime now = LocalDateTime.now();
+        queue.schedule(1L, now.minusSeconds(1), false);
+        queue.schedule(1L, now.plusMinutes(15), false); // extended before the poll
+
+        assertThat(queue.drainDue().isEmpty()).isTrue();
+
+        queue.schedule(1L, now.minusSeconds(2), false); // and moved back into the past
+        assertThat(queue.drainDue().expiries()).containsExactly(1L);
+    }
+
+    @Test
+    void resyncOfAnAlreadyQueuedDeadlineIsANoOp() {
+        LocalDateTime expiresAt = LocalDateTime.now().plusMinutes(30);
+        queue.schedule(1L, expiresAt, true);
+        queue.schedule(1L, expiresAt, true);
+
+        assertThat(queue.size()).isEqualTo(2);
+    }
+
+    @Test
+    void ignoresIncompleteBookings() {
+        queue.schedule(null, LocalDateTime.now(), true);
+        queue.schedule(1L, null, true);
+
+        assertThat(queue.size()).isZero();
+    }
+}
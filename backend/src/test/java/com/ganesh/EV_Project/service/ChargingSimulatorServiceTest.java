@@ -0,0 +1,184 @@
+package com.ganesh.EV_Project.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ganesh.EV_Project.dto.StationAvailability;
+import com.ganesh.EV_Project.model.Booking;
+import com.ganesh.EV_Project.model.ChargerSlot;
+import com.ganesh.EV_Project.model.ChargingSession;
+import com.ganesh.EV_Project.model.Station;
+import com.ganesh.EV_Project.repository.BookingRepository;
+import com.ganesh.EV_Project.repository.ChargingSessionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ChargingSimulatorServiceTest {
+
+    private static final Long BOOKING = 7L;
+    private static final Long SESSION = 70L;
+
+    private final SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+    private final BookingRepository bookingRepository = mock(BookingRepository.class);
+    private final ChargingSessionRepository chargingSessionRepository = mock(ChargingSessionRepository.class);
+    private final SlotAvailabilityCache slotAvailabilityCache = mock(SlotAvailabilityCache.class);
+    private final ChargingCompletionService completionService = mock(ChargingCompletionService.class);
+    private final SessionSnapshotWriter snapshotWriter = mock(SessionSnapshotWriter.class);
+    private final SessionLeaseService leaseService = mock(SessionLeaseService.class);
+    private final TelemetrySubscriptionRegistry telemetrySubscriptions = new TelemetrySubscriptionRegistry();
+
+    private ChargingSimulatorService simulator;
+
+    @BeforeEach
+    void setUp() {
+        simulator = new ChargingSimulatorService(messagingTemplate, bookingRepository,
+                chargingSessionRepository, slotAvailabilityCache, completionService,
+                mock(ThreadPoolTaskExecutor.class), snapshotWriter, new ObjectMapper(), telemetrySubscriptions,
+                leaseService);
+        ReflectionTestUtils.setField(simulator, "maxSessionMinutes", 240L);
+        ReflectionTestUtils.setField(simulator, "simulationSpeed", 1.0);
+        ReflectionTestUtils.setField(simulator, "stopWaitMillis", 200L);
+        simulator.initShards();
+    }
+
+    @Test
+    void stopOfALocalSessionBillsItsLiveVitals() {
+        startLocally();
+
+        simulator.stopAndFinalize(SESSION, BOOKING);
+
+        verify(completionService).finalizeSession(SESSION, 0.0, 0.0);
+        verify(completionService, never()).awaitFinalized(anyLong(), any());
+        verify(snapshotWriter).discard(BOOKING);
+        assertThat(simulator.getTickStats().activeSessions()).isZero();
+    }
+
+    @Test
+    void stopOfASessionSimulatedElsewhereWaitsForItsOwner() {
+        ChargingSession finalized = new ChargingSession();
+        when(leaseService.markStopped(BOOKING)).thenReturn(true);
+        when(completionService.awaitFinalized(SESSION, Duration.ofMillis(200))).thenReturn(finalized);
+
+        assertThat(simulator.stopAndFinalize(SESSION, BOOKING)).isSameAs(finalized);
+        verify(completionService, never()).finalizeSession(anyLong(), any(), any());
+    }
+
+    @Test
+    void ownerThatNeverAnswersIsBilledFromTheLastSnapshot() {
+        when(leaseService.markStopped(BOOKING)).thenReturn(true);
+        when(completionService.awaitFinalized(SESSION, Duration.ofMillis(200))).thenReturn(null);
+
+        simulator.stopAndFinalize(SESSION, BOOKING);
+
+        verify(completionService).finalizeSession(eq(SESSION), isNull(), isNull());
+    }
+
+    @Test
+    void sessionSimulatedNowhereIsBilledFromTheLastSnapshotAtOnce() {
+        simulator.stopAndFinalize(SESSION, BOOKING);
+
+        verify(completionService, never()).awaitFinalized(anyLong(), any());
+        verify(completionService).finalizeSession(eq(SESSION), isNull(), isNull());
+    }
+
+    @Test
+    void ownerFinalizesASessionStoppedOnAnotherNode() {
+        startLocally();
+        when(leaseService.isEnabled()).thenReturn(true);
+        when(leaseService.renewAll(any())).thenReturn(new SessionLeaseService.Renewal(Set.of(), Set.of(BOOKING)));
+        ChargingSession session = new ChargingSession();
+        session.setId(SESSION);
+        when(chargingSessionRepository.findByBookingId(BOOKING)).thenReturn(Optional.of(session));
+
+        simulator.renewSessionLeases();
+
+        verify(completionService).finalizeSession(SESSION, 0.0, 0.0);
+        assertThat(simulator.getTickStats().activeSessions()).isZero();
+        assertThat(simulator.getTickStats().lostLeases()).isZero();
+    }
+
+    @Test
+    void lostLeaseIsDroppedWithoutFinalizing() {
+        startLocally();
+        when(leaseService.isEnabled()).thenReturn(true);
+        when(leaseService.renewAll(any())).thenReturn(new SessionLeaseService.Renewal(Set.of(BOOKING), Set.of()));
+
+        simulator.renewSessionLeases();
+
+        verify(completionService, never()).finalizeSession(anyLong(), anyDouble(), anyDouble());
+        verify(snapshotWriter).discard(BOOKING);
+        assertThat(simulator.getTickStats().activeSessions()).isZero();
+        assertThat(simulator.getTickStats().lostLeases()).isEqualTo(1);
+    }
+
+    @Test
+    void stationFrameIsNotResentForGridNoise() {
+        // Slow enough that SoC cannot reach the next whole percent during the test.
+        ReflectionTestUtils.setField(simulator, "simulationSpeed", 0.0001);
+        when(slotAvailabilityCache.availability(1L)).thenReturn(new StationAvailability(1L,
+                List.of(new StationAvailability.ConnectorAvailability("CCS2", 2, 1))));
+        startLocally();
+
+        for (int i = 0; i < 10; i++) {
+            simulator.runPhysicsTick();
+        }
+
+        verify(messagingTemplate, times(1)).send(eq("/topic/station/1"), any(Message.class));
+        // The driver's own topic still gets every tick.
+        verify(messagingTemplate, times(10)).send(eq("/topic/session/" + BOOKING), any(Message.class));
+    }
+
+    @Test
+    void newStationSubscriberGetsTheCurrentFrameAtOnce() {
+        ReflectionTestUtils.setField(simulator, "simulationSpeed", 0.0001);
+        when(slotAvailabilityCache.availability(1L)).thenReturn(new StationAvailability(1L, List.of()));
+        startLocally();
+        simulator.runPhysicsTick();
+
+        telemetrySubscriptions.requestStationFrame(1L);
+        telemetrySubscriptions.requestStationFrame(2L); // nothing charging there
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Message<byte[]>> frames = ArgumentCaptor.forClass(Message.class);
+        verify(messagingTemplate, times(2)).send(eq("/topic/station/1"), frames.capture());
+        assertThat(frames.getAllValues().get(1).getPayload()).isEqualTo(frames.getAllValues().get(0).getPayload());
+        verify(messagingTemplate, never()).send(eq("/topic/station/2"), any(Message.class));
+    }
+
+    private void startLocally() {
+        Station station = new Station();
+        station.setId(1L);
+        station.setPricePerKwh(18.0);
+        ChargerSlot slot = new ChargerSlot();
+        slot.setId(10L);
+        slot.setPowerKw(60.0);
+        slot.setStation(station);
+        Booking booking = new Booking();
+        booking.setId(BOOKING);
+        booking.setSlot(slot);
+        when(leaseService.tryAcquire(BOOKING)).thenReturn(true);
+        when(bookingRepository.findById(BOOKING)).thenReturn(Optional.of(booking));
+        simulator.startSimulation(BOOKING);
+        assertThat(simulator.getTickStats().activeSessions()).isEqualTo(1);
+    }
+}
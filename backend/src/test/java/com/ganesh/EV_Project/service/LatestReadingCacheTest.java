@@ -0,0 +1,104 @@
+package com.ganesh.EV_Project.service;
+
+import com.ganesh.EV_Project.controller.WebSocketController;
+import com.ganesh.EV_Project.dto.LivePowerDTO;
+import com.ganesh.EV_Project.support.EmbeddedPostgresConfig;
+import com.ganesh.EV_Project.util.DbTimeUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LatestReadingCacheTest {
+
+    private static final LocalDateTime T = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+
+    private final WebSocketController webSocketController = mock(WebSocketController.class);
+    private final LoadForecastService loadForecastService = mock(LoadForecastService.class);
+    private final LatestReadingCache cache =
+            new LatestReadingCache(mock(JdbcTemplate.class), webSocketController, loadForecastService);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(cache, "pushIntervalMillis", 60_000L);
+    }
+
+    @Test
+    void olderReadingNeverReplacesANewerOne() {
+        cache.put(1L, 230, 10, 2300, T);
+        cache.put(1L, 220, 5, 1100, T.minusSeconds(1)); // a late board batch
+        when(loadForecastService.forecastWatts(1L)).thenReturn(2500.0);
+
+        assertThat(cache.get(1L)).isEqualTo(new LivePowerDTO(1L, 230, 10, 2300, T, 2500.0));
+
+        cache.put(1L, 231, 11, 2541, T.plusSeconds(1));
+        assertThat(cache.get(1L).power()).isEqualTo(2541);
+    }
+
+    @Test
+    void pushesAtMostOncePerIntervalPerStation() {
+        cache.onReading(1L, 230, 10, 2300, T);
+        cache.onReading(1L, 230, 11, 2530, T.plusSeconds(1));
+        cache.onReading(2L, 230, 10, 2300, T);
+
+        verify(webSocketController, times(1)).notifyStationPower(eq(1L), any());
+        verify(webSocketController, times(1)).notifyStationPower(eq(2L), any());
+        assertThat(cache.getStats().pushes()).isEqualTo(2);
+        // The cache still has the newest reading the push skipped.
+        assertThat(cache.get(1L).power()).isEqualTo(2530);
+    }
+
+    @Test
+    void failedPushStillUpdatesTheCache() {
+        doThrow(new IllegalStateException("broker down")).when(webSocketController).notifyStationPower(eq(1L), any());
+
+        cache.onReading(1L, 230, 10, 2300, T);
+
+        assertThat(cache.get(1L).power()).isEqualTo(2300);
+        assertThat(cache.getStats().pushes()).isZero();
+    }
+
+    @Test
+    void knownEmptyUntilTheFirstReading() {
+        assertThat(cache.get(1L)).isNull();
+        cache.markEmpty(1L);
+        assertThat(cache.isKnownEmpty(1L)).isTrue();
+
+        cache.onReading(1L, 230, 10, 2300, T);
+
+        assertThat(cache.isKnownEmpty(1L)).isFalse();
+        assertThat(cache.getStats()).isEqualTo(new LatestReadingCache.Stats(1, 0, 0, 1, 1));
+    }
+
+    @Test
+    void warmUpLoadsTheWindowStoredInTheDatabaseZone() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(EmbeddedPostgresConfig.newDatabase());
+        jdbcTemplate.execute(SensorIngestServiceTest.LEGACY_SCHEMA);
+        SensorIngestServiceTest.migrateV10(jdbcTemplate);
+        jdbcTemplate.update("INSERT INTO stations (id) VALUES (1), (2)");
+        // Written as the ingest path writes them; the JVM runs in UTC under surefire.
+        String insert = "INSERT INTO iot_sensor_data (station_id, voltage, current, power, \"timestamp\") "
+                + "VALUES (?, 230, 10, 2300, ?)";
+        jdbcTemplate.update(insert, 1L, DbTimeUtil.toDb(T.minusHours(1)));
+        jdbcTemplate.update(insert, 2L, DbTimeUtil.toDb(T.minusHours(3)));
+        LatestReadingCache warmed = new LatestReadingCache(jdbcTemplate, webSocketController, loadForecastService);
+        ReflectionTestUtils.setField(warmed, "warmHours", 2);
+
+        warmed.warm();
+
+        assertThat(warmed.get(1L).timestamp()).isEqualTo(T.minusHours(1));
+        assertThat(warmed.get(2L)).isNull();
+    }
+}
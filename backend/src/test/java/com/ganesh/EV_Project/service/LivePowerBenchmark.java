@@ -0,0 +1,52 @@
+package com.ganesh.EV_Project.service;
+
+import com.ganesh.EV_Project.controller.WebSocketController;
+import com.ganesh.EV_Project.support.Bench;
+import com.ganesh.EV_Project.support.EmbeddedPostgresConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * GET live-power latency: the station lookup and newest-reading query each
+ * request used to run, against the latest-reading cache. 200 stations with
+ * 2,000 readings each in the partitioned table (V10), whose station/time
+ * index the old query did not have.
+ */
+class LivePowerBenchmark {
+
+    private static final int STATIONS = 200;
+
+    @Test
+    void livePowerLatency() {
+        DataSource dataSource = EmbeddedPostgresConfig.newPooledDatabase();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute(SensorIngestServiceTest.LEGACY_SCHEMA);
+        SensorIngestServiceTest.migrateV10(jdbcTemplate);
+        jdbcTemplate.update("INSERT INTO stations (id) SELECT g FROM generate_series(1, ?) g", STATIONS);
+        jdbcTemplate.update("INSERT INTO iot_sensor_data (station_id, voltage, current, power, \"timestamp\") "
+                + "SELECT s, 230, 10, 2300, now()::timestamp - make_interval(secs => r) "
+                + "FROM generate_series(1, ?) s, generate_series(1, 2000) r", STATIONS);
+        jdbcTemplate.execute("ANALYZE");
+
+        Bench.latency("database, 2 queries per request", 20_000, 2_000, i -> {
+            long stationId = 1 + i % STATIONS;
+            jdbcTemplate.queryForMap("SELECT id, last_used_time FROM stations WHERE id = ?", stationId);
+            jdbcTemplate.queryForMap("SELECT id, station_id, voltage, current, power, \"timestamp\" "
+                    + "FROM iot_sensor_data WHERE station_id = ? ORDER BY \"timestamp\" DESC LIMIT 1", stationId);
+        });
+
+        LatestReadingCache cache = new LatestReadingCache(jdbcTemplate, mock(WebSocketController.class),
+                new LoadForecastService(mock(JdbcTemplate.class)));
+        ReflectionTestUtils.setField(cache, "warmHours", 24);
+        Bench.run("cache warm-up, " + STATIONS + " stations", STATIONS, 0, 1, cache::warm);
+        Bench.latency("cache", 1_000_000, 100_000, i -> cache.get(1L + i % STATIONS));
+
+        assertThat(cache.getStats().stations()).isEqualTo(STATIONS);
+    }
+}
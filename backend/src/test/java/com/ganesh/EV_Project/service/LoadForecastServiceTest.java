@@ -0,0 +1,193 @@
+package com.ganesh.EV_Project.service;
+
+import com.ganesh.EV_Project.support.EmbeddedPostgresConfig;
+import com.ganesh.EV_Project.util.DbTimeUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LoadForecastServiceTest {
+
+    private static final long STATION = 1L;
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final LoadForecastService service = new LoadForecastService(jdbcTemplate);
+
+    // Readings are stamped from now on, so no window is stale while the test runs.
+    private final LocalDateTime start = LocalDateTime.now();
+
+    @Test
+    void rollingMinAndMaxMatchABruteForceScan() {
+        configure(30, 16);
+        Random random = new Random(7);
+        Deque<double[]> window = new ArrayDeque<>(); // (seconds, power)
+        double t = 0;
+        for (int i = 0; i < 500; i++) {
+            t += 1 + random.nextInt(4);
+            double power = random.nextInt(20) * 500.0; // plenty of ties
+            service.onReading(STATION, power, at(t));
+
+            // Bounded by both the ring (16 samples) and the time window (30 s).
+            window.addLast(new double[]{t, power});
+            if (window.size() > 16) window.removeFirst();
+            while (window.peekFirst()[0] < t - 30) window.removeFirst();
+
+            LoadForecastService.LoadStats stats = service.stats(STATION);
+            assertThat(stats.samples()).as("samples at %s", i).isEqualTo(window.size());
+            assertThat(stats.minPower()).as("min at %s", i)
+                    .isEqualTo(window.stream().mapToDouble(s -> s[1]).min().orElseThrow());
+            assertThat(stats.maxPower()).as("max at %s", i)
+                    .isEqualTo(window.stream().mapToDouble(s -> s[1]).max().orElseThrow());
+        }
+    }
+
+    @Test
+    void percentilesAreWithinOneBinAndFollowEvictions() {
+        configure(100, 1000);
+        List<Double> powers = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            powers.add(1000.0 + i * 100); // 1 kW .. 10.9 kW
+            service.onReading(STATION, powers.get(i), at(i));
+        }
+        LoadForecastService.LoadStats stats = service.stats(STATION);
+        assertThat(stats.p50Power()).isCloseTo(5950.0, within(5950.0 * 0.12));
+        assertThat(stats.p95Power()).isCloseTo(10450.0, within(10450.0 * 0.12));
+        assertThat(stats.p99Power()).isBetween(stats.p95Power(), stats.maxPower());
+
+        // 50 s later the low half has been evicted from the histogram.
+        for (int i = 100; i < 150; i++) {
+            service.onReading(STATION, 11_000.0, at(i));
+        }
+        assertThat(service.stats(STATION).p50Power()).isCloseTo(11_000.0, within(11_000.0 * 0.12));
+    }
+
+    @Test
+    void histogramIsSizedFromInstalledCapacity() {
+        configure(1000, 1000);
+        // A megawatt truck depot: far beyond the 500 kW default ceiling.
+        ReflectionTestUtils.setField(service, "capacityWatts", Map.of(STATION, 2_000_000.0));
+        feedSpread(STATION);
+
+        assertThat(service.stats(STATION).p50Power()).isCloseTo(1_500_000.0, within(1_500_000.0 * 0.12));
+    }
+
+    @Test
+    void histogramGrowsWhenTheCapacityBecomesKnown() throws Exception {
+        configure(1000, 1000);
+        feedSpread(STATION);
+        // Everything above the default ceiling shares the overflow bin.
+        assertThat(service.stats(STATION).p50Power()).isEqualTo(1_000_000.0);
+
+        ResultSet row = mock(ResultSet.class);
+        when(row.getLong("station_id")).thenReturn(STATION);
+        when(row.getDouble("kw")).thenReturn(2000.0);
+        doAnswer(inv -> {
+            inv.<RowCallbackHandler>getArgument(1).processRow(row);
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class));
+        service.refreshCapacity();
+
+        assertThat(service.stats(STATION).p50Power()).isCloseTo(1_500_000.0, within(1_500_000.0 * 0.12));
+    }
+
+    @Test
+    void forecastHoldsASteadyLoadAndDampsARamp() {
+        configure(300, 320);
+        for (int i = 0; i < 300; i++) {
+            service.onReading(STATION, 20_000.0, at(i));
+            service.onReading(2L, 10_000.0 + 50.0 * i, at(i)); // +50 W/s
+        }
+
+        assertThat(service.forecastWatts(STATION)).isCloseTo(20_000.0, within(1.0));
+        // A 900 s horizon: above the last reading, well short of running the ramp on for 900 s.
+        double last = 10_000.0 + 50.0 * 299;
+        assertThat(service.forecastWatts(2L)).isGreaterThan(last).isLessThan(last + 50.0 * 300);
+        assertThat(service.stats(2L).ewmaPower()).isLessThan(last);
+    }
+
+    @Test
+    void fallingLoadIsNeverForecastBelowZero() {
+        configure(300, 320);
+        for (int i = 0; i < 100; i++) {
+            service.onReading(STATION, Math.max(0, 20_000.0 - 400.0 * i), at(i));
+        }
+
+        assertThat(service.forecastWatts(STATION)).isZero();
+    }
+
+    @Test
+    void outOfOrderAndStaleReadingsAreIgnored() {
+        configure(30, 320);
+        service.onReading(STATION, 1000.0, at(10));
+        service.onReading(STATION, 9000.0, at(5));
+        assertThat(service.stats(STATION).samples()).isEqualTo(1);
+
+        service.onReading(2L, 1000.0, start.minusMinutes(5));
+        assertThat(service.stats(2L)).isNull();
+        assertThat(service.forecastWatts(2L)).isNull();
+        assertThat(service.forecastWatts(3L)).isNull();
+    }
+
+    @Test
+    void seedReadsTheWindowStoredInTheDatabaseZone() {
+        JdbcTemplate db = new JdbcTemplate(EmbeddedPostgresConfig.newDatabase());
+        db.execute(SensorIngestServiceTest.LEGACY_SCHEMA);
+        SensorIngestServiceTest.migrateV10(db);
+        db.execute("CREATE TABLE dispensaries (station_id BIGINT, total_power_kw DOUBLE PRECISION)");
+        db.update("INSERT INTO stations (id) VALUES (1), (2)");
+        // Written as the ingest path writes them; the JVM runs in UTC under surefire.
+        String insert = "INSERT INTO iot_sensor_data (station_id, voltage, current, power, \"timestamp\") "
+                + "VALUES (?, 230, 10, 2300, ?)";
+        db.update(insert, STATION, DbTimeUtil.toDb(start.minusSeconds(10)));
+        db.update(insert, 2L, DbTimeUtil.toDb(start.minusSeconds(60)));
+        LoadForecastService seeded = new LoadForecastService(db);
+        ReflectionTestUtils.setField(seeded, "windowSeconds", 30);
+        ReflectionTestUtils.setField(seeded, "maxSamples", 320);
+        ReflectionTestUtils.setField(seeded, "defaultCeilingKw", 500.0);
+
+        seeded.seed();
+
+        assertThat(seeded.stats(STATION).samples()).isEqualTo(1);
+        assertThat(seeded.stats(2L)).isNull();
+    }
+
+    // 1.0 MW .. 2.0 MW, median 1.5 MW
+    private void feedSpread(long stationId) {
+        for (int i = 0; i <= 100; i++) {
+            service.onReading(stationId, 1_000_000.0 + i * 10_000.0, at(i));
+        }
+    }
+
+    private void configure(int windowSeconds, int maxSamples) {
+        ReflectionTestUtils.setField(service, "windowSeconds", windowSeconds);
+        ReflectionTestUtils.setField(service, "maxSamples", maxSamples);
+        ReflectionTestUtils.setField(service, "ewmaTauSeconds", 60.0);
+        ReflectionTestUtils.setField(service, "levelTauSeconds", 30.0);
+        ReflectionTestUtils.setField(service, "trendTauSeconds", 120.0);
+        ReflectionTestUtils.setField(service, "trendDampingSeconds", 300.0);
+        ReflectionTestUtils.setField(service, "horizonSeconds", 900);
+        ReflectionTestUtils.setField(service, "defaultCeilingKw", 500.0);
+    }
+
+    private LocalDateTime at(double seconds) {
+        return start.plusNanos((long) (seconds * 1_000_000_000L));
+    }
+}
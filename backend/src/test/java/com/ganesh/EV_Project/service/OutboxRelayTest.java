@@ -0,0 +1,224 @@
+package com.ganesh.EV_Project.service;
+
+import com.ganesh.EV_Project.model.OutboxEvent;
+import com.ganesh.EV_Project.support.EmbeddedPostgresConfig;
+import com.ganesh.EV_Project.util.DbTimeUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** The outbox relay against real PostgreSQL: claiming, dispatch to the relay pool, outcomes. */
+class OutboxRelayTest {
+
+    private DataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private OutboxRelay relay;
+
+    @BeforeEach
+    void createSchema() {
+        dataSource = EmbeddedPostgresConfig.newDatabase();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        migrate("V7__notification_outbox.sql", "V8__outbox_events.sql");
+    }
+
+    @AfterEach
+    void stopRelay() {
+        if (relay != null) relay.stop();
+    }
+
+    @Test
+    void pollHandsEventsToTheRelayPoolWithoutWaitingForThem() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> threads = Collections.synchronizedList(new ArrayList<>());
+        startRelay(100, new TestHandler(OutboxEvent.Type.PAYMENT_ORDER, 1) {
+            @Override
+            public void handle(OutboxEvent event) throws Exception {
+                threads.add(Thread.currentThread().getName());
+                release.await(5, TimeUnit.SECONDS);
+            }
+        });
+        long id = insert(OutboxEvent.Type.PAYMENT_ORDER, 42L, null);
+
+        relay.poll(); // returns while the handler is still blocked
+        assertThat(relay.getStats().inFlight()).isEqualTo(1);
+        release.countDown();
+
+        awaitStatus(id, "DONE");
+        assertThat(threads).singleElement().asString().startsWith("outbox-relay-");
+        assertThat(relay.getStats().inFlight()).isZero();
+    }
+
+    @Test
+    void eventsAreHandedOverInHandlerSizedBatches() {
+        List<Integer> batches = Collections.synchronizedList(new ArrayList<>());
+        startRelay(100, new TestHandler(OutboxEvent.Type.PUSH_NOTIFICATION, 2) {
+            @Override
+            public List<Exception> handleAll(List<OutboxEvent> events) {
+                batches.add(events.size());
+                return super.handleAll(events);
+            }
+        });
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(insert(OutboxEvent.Type.PUSH_NOTIFICATION, (long) i, "{}"));
+        }
+
+        relay.poll();
+
+        ids.forEach(id -> awaitStatus(id, "DONE"));
+        assertThat(batches).containsExactlyInAnyOrder(2, 2, 1);
+    }
+
+    @Test
+    void failedEventIsRetriedWithBackoffThenGivenUp() {
+        startRelay(100, new TestHandler(OutboxEvent.Type.STOMP_MESSAGE, 1) {
+            @Override
+            public void handle(OutboxEvent event) {
+                throw new IllegalStateException("broker down");
+            }
+        });
+        long id = insert(OutboxEvent.Type.STOMP_MESSAGE, null, "{}");
+
+        relay.poll();
+        awaitAttempts(id, 1);
+        Map<String, Object> row = row(id);
+        assertThat(row.get("status")).isEqualTo("PENDING");
+        assertThat((String) row.get("last_error")).contains("broker down");
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT next_attempt_at > ? FROM outbox_events WHERE id = ?", Boolean.class, DbTimeUtil.now(), id)).isTrue();
+
+        jdbcTemplate.update("UPDATE outbox_events SET next_attempt_at = ? WHERE id = ?",
+                DbTimeUtil.toDb(LocalDateTime.now().minusSeconds(1)), id);
+        relay.poll();
+        awaitStatus(id, "FAILED");
+        assertThat(row(id).get("attempts")).isEqualTo(2);
+    }
+
+    @Test
+    void claimsNoMoreThanBatchSizeAtOnce() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        startRelay(2, new TestHandler(OutboxEvent.Type.PAYMENT_ORDER, 1) {
+            @Override
+            public void handle(OutboxEvent event) throws Exception {
+                release.await(5, TimeUnit.SECONDS);
+            }
+        });
+        for (int i = 0; i < 3; i++) {
+            insert(OutboxEvent.Type.PAYMENT_ORDER, (long) i, null);
+        }
+
+        relay.poll();
+        relay.poll(); // nothing claimed: both slots are busy
+        assertThat(relay.getStats().inFlight()).isEqualTo(2);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM outbox_events WHERE next_attempt_at <= ?", Integer.class, DbTimeUtil.now())).isEqualTo(1);
+        release.countDown();
+    }
+
+    @Test
+    void migrationMovesPendingPushesIntoTheOutbox() {
+        jdbcTemplate.update("INSERT INTO notification_outbox (user_id, type, title, body, deep_link, status, "
+                + "next_attempt_at, created_at) VALUES (7, 'BOOKING', 'Booked', 'Slot A1', 'ev://b/1', 'PENDING', now(), now())");
+        jdbcTemplate.update("INSERT INTO notification_outbox (user_id, type, title, body, status, "
+                + "next_attempt_at, created_at) VALUES (8, 'BOOKING', 'Old', 'Sent already', 'SENT', now(), now())");
+
+        migrate("V12__merge_notification_outbox.sql");
+
+        List<Map<String, Object>> events = jdbcTemplate.queryForList("SELECT * FROM outbox_events");
+        assertThat(events).singleElement().satisfies(e -> {
+            assertThat(e.get("type")).isEqualTo("PUSH_NOTIFICATION");
+            assertThat(e.get("aggregate_id")).isEqualTo(7L);
+            assertThat((String) e.get("payload")).contains("\"title\" : \"Booked\"", "\"deepLink\" : \"ev://b/1\"");
+        });
+        assertThat(jdbcTemplate.queryForObject("SELECT to_regclass('notification_outbox') IS NULL", Boolean.class))
+                .isTrue();
+    }
+
+    private void startRelay(int batchSize, OutboxEventHandler... handlers) {
+        relay = new OutboxRelay(jdbcTemplate, List.of(handlers));
+        ReflectionTestUtils.setField(relay, "batchSize", batchSize);
+        ReflectionTestUtils.setField(relay, "workers", 4);
+        ReflectionTestUtils.setField(relay, "maxAttempts", 2);
+        ReflectionTestUtils.setField(relay, "retryBaseMillis", 60_000L);
+        ReflectionTestUtils.setField(relay, "leaseMillis", 60_000L);
+        relay.start();
+    }
+
+    private void migrate(String... scripts) {
+        ResourceDatabasePopulator populator = new ResourceDatabasePopulator();
+        for (String script : scripts) {
+            populator.addScript(new ClassPathResource("db/migration/" + script));
+        }
+        populator.execute(dataSource);
+    }
+
+    private long insert(OutboxEvent.Type type, Long aggregateId, String payload) {
+        return jdbcTemplate.queryForObject("INSERT INTO outbox_events (type, aggregate_id, payload, next_attempt_at, "
+                + "created_at) VALUES (?, ?, ?, ?, ?) RETURNING id", Long.class, type.name(), aggregateId, payload,
+                DbTimeUtil.toDb(LocalDateTime.now().minusSeconds(1)), DbTimeUtil.now());
+    }
+
+    private Map<String, Object> row(long id) {
+        return jdbcTemplate.queryForMap("SELECT * FROM outbox_events WHERE id = ?", id);
+    }
+
+    private void awaitStatus(long id, String status) {
+        await(() -> status.equals(row(id).get("status")), "event " + id + " to become " + status);
+    }
+
+    private void awaitAttempts(long id, int attempts) {
+        await(() -> ((Number) row(id).get("attempts")).intValue() >= attempts, "event " + id + " to be attempted");
+    }
+
+    private static void await(java.util.function.BooleanSupplier condition, String what) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) throw new AssertionError("Timed out waiting for " + what);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(e);
+            }
+        }
+    }
+
+    private static class TestHandler implements OutboxEventHandler {
+        private final OutboxEvent.Type type;
+        private final int batchSize;
+
+        TestHandler(OutboxEvent.Type type, int batchSize) {
+            this.type = type;
+            this.batchSize = batchSize;
+        }
+
+        @Override
+        public OutboxEvent.Type type() {
+            return type;
+        }
+
+        @Override
+        public int batchSize() {
+            return batchSize;
+        }
+
+        @Override
+        public void handle(OutboxEvent event) throws Exception {
+        }
+    }
+}
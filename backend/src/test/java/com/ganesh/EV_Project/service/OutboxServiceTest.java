@@ -0,0 +1,129 @@
+package com.ganesh.EV_Project.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ganesh.EV_Project.model.OutboxEvent;
+import com.ganesh.EV_Project.repository.OutboxEventRepository;
+import com.ganesh.EV_Project.support.EmbeddedPostgresConfig;
+import com.ganesh.EV_Project.util.DbTimeUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Events written through JPA, as the application writes them, then claimed by
+ * the relay's native SQL. Hibernate stores them in Asia/Kolkata wall-clock
+ * time; surefire runs this JVM in UTC (as in the Docker image), where a relay
+ * comparing against JVM-local time sees a fresh event as 5.5 h in the future.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(EmbeddedPostgresConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // the relay reads on its own connections
+class OutboxServiceTest {
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private JdbcTemplate jdbcTemplate;
+    private OutboxRelay relay;
+    private OutboxService outboxService;
+    private final Set<Long> handled = ConcurrentHashMap.newKeySet();
+
+    @BeforeEach
+    void startRelay() {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        relay = new OutboxRelay(jdbcTemplate, List.of(recording(OutboxEvent.Type.PAYMENT_ORDER),
+                recording(OutboxEvent.Type.PUSH_NOTIFICATION)));
+        ReflectionTestUtils.setField(relay, "batchSize", 100);
+        ReflectionTestUtils.setField(relay, "workers", 2);
+        ReflectionTestUtils.setField(relay, "maxAttempts", 3);
+        ReflectionTestUtils.setField(relay, "leaseMillis", 60_000L);
+        relay.start();
+        outboxService = new OutboxService(outboxEventRepository, relay, new ObjectMapper());
+    }
+
+    @AfterEach
+    void stopRelay() {
+        relay.stop();
+        jdbcTemplate.update("DELETE FROM outbox_events");
+    }
+
+    @Test
+    void storesTimesInTheDatabaseZone() {
+        outboxService.enqueuePushNotification(5L, "BOOKING", "Booked", "Slot A1", null);
+
+        Timestamp stored = jdbcTemplate.queryForObject("SELECT next_attempt_at FROM outbox_events", Timestamp.class);
+        assertThat(Duration.between(stored.toLocalDateTime(), LocalDateTime.now(DbTimeUtil.ZONE)).abs())
+                .isLessThan(Duration.ofMinutes(1));
+        assertThat(Duration.between(DbTimeUtil.fromDb(stored), LocalDateTime.now()).abs())
+                .isLessThan(Duration.ofMinutes(1));
+    }
+
+    @Test
+    void committedEventIsDispatchedRightAway() {
+        // No surrounding transaction, so the after-commit hand-off runs at once.
+        outboxService.enqueuePaymentOrder(42L);
+
+        await(() -> handled.contains(42L), "the event to be handled");
+        await(() -> "DONE".equals(jdbcTemplate.queryForObject("SELECT status FROM outbox_events", String.class)),
+                "the event to be marked done");
+    }
+
+    @Test
+    void pollClaimsAFreshEvent() {
+        outboxService.enqueuePushNotification(7L, "BOOKING", "Booked", "Slot A1", "ev://b/1");
+
+        relay.poll();
+
+        await(() -> handled.contains(7L), "the event to be claimed");
+    }
+
+    private OutboxEventHandler recording(OutboxEvent.Type type) {
+        return new OutboxEventHandler() {
+            @Override
+            public OutboxEvent.Type type() {
+                return type;
+            }
+
+            @Override
+            public void handle(OutboxEvent event) {
+                handled.add(event.getAggregateId());
+            }
+        };
+    }
+
+    private static void await(BooleanSupplier condition, String what) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) throw new AssertionError("Timed out waiting for " + what);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.ganesh.EV_Project.service;
+
+import com.ganesh.EV_Project.repository.SessionRollupRepository;
+import com.ganesh.EV_Project.support.Bench;
+import com.ganesh.EV_Project.support.EmbeddedPostgresConfig;
+import com.ganesh.EV_Project.util.DbTimeUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * One owner's analytics (summary, revenue trend, peak usage: five queries)
+ * over 10,000,000 sessions: the live joins over charging_sessions the owner
+ * endpoints used to run, against the session_rollups queries (V11) they run
+ * now, taken from SessionRollupRepository itself, with the V13 covering index.
+ * 100 stations, 10 per owner.
+ */
+class OwnerAnalyticsBenchmark {
+
+    private static final int SESSIONS = 10_000_000;
+
+    // The tables the old queries joined, with the indexes they had (V2).
+    private static final String SCHEMA = """
+            CREATE TABLE stations (id BIGINT PRIMARY KEY, owner_id BIGINT, name VARCHAR(255));
+            CREATE INDEX idx_station_owner ON stations (owner_id);
+            CREATE TABLE charger_slots (id BIGINT PRIMARY KEY, station_id BIGINT, connector_type VARCHAR(20));
+            CREATE TABLE bookings (id BIGINT PRIMARY KEY, slot_id BIGINT, status VARCHAR(20));
+            CREATE INDEX idx_booking_slot_status ON bookings (slot_id, status);
+            CREATE TABLE charging_sessions (id BIGINT PRIMARY KEY, booking_id BIGINT, start_time TIMESTAMP,
+                end_time TIMESTAMP, total_cost DOUBLE PRECISION, energy_kwh DOUBLE PRECISION,
+                payment_status VARCHAR(20));
+            CREATE INDEX idx_session_endtime ON charging_sessions (end_time);
+            """;
+
+    // The native queries removed from ChargingSessionRepository.
+    private static final String JOIN = "FROM charging_sessions s JOIN bookings b ON s.booking_id = b.id "
+            + "JOIN charger_slots cs ON b.slot_id = cs.id JOIN stations st ON cs.station_id = st.id ";
+    private static final List<String> LIVE_QUERIES = List.of(
+            "SELECT AVG(EXTRACT(EPOCH FROM (s.end_time - s.start_time))/60), AVG(s.total_cost), AVG(s.energy_kwh) "
+                    + JOIN + "WHERE st.owner_id = :ownerId AND s.payment_status = 'PAID' AND s.end_time >= :since",
+            "SELECT st.name, SUM(s.total_cost) " + JOIN
+                    + "WHERE st.owner_id = :ownerId AND s.payment_status = 'PAID' AND s.end_time >= :since "
+                    + "GROUP BY st.name",
+            "SELECT cs.connector_type, SUM(s.total_cost) " + JOIN
+                    + "WHERE st.owner_id = :ownerId AND s.payment_status = 'PAID' AND s.end_time >= :since "
+                    + "GROUP BY cs.connector_type",
+            "SELECT CAST(s.end_time AS DATE) as date, SUM(s.total_cost), SUM(s.energy_kwh) " + JOIN
+                    + "WHERE st.owner_id = :ownerId AND s.payment_status = 'PAID' AND s.end_time >= :since "
+                    + "GROUP BY CAST(s.end_time AS DATE) ORDER BY date ASC",
+            "SELECT EXTRACT(HOUR FROM s.start_time) as hour, COUNT(*) " + JOIN
+                    + "WHERE st.owner_id = :ownerId AND s.start_time >= :since GROUP BY hour ORDER BY hour ASC");
+
+    @Test
+    void ownerAnalyticsLatency() {
+        DataSource dataSource = EmbeddedPostgresConfig.newPooledDatabase();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        NamedParameterJdbcTemplate named = new NamedParameterJdbcTemplate(jdbcTemplate);
+        new ResourceDatabasePopulator(new ByteArrayResource(SCHEMA.getBytes(StandardCharsets.UTF_8)),
+                new ClassPathResource("db/migration/V11__session_rollups.sql"),
+                new ClassPathResource("db/migration/V13__session_rollup_covering_index.sql")).execute(dataSource);
+        seed(jdbcTemplate);
+
+        AnalyticsRollupService rollupService = new AnalyticsRollupService(jdbcTemplate,
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource)));
+        ReflectionTestUtils.setField(rollupService, "reconcileDays", 2);
+        ReflectionTestUtils.setField(rollupService, "backfillChunkDays", 7);
+        Bench.run("rollup backfill, " + SESSIONS + " sessions", SESSIONS, 0, 1,
+                () -> ReflectionTestUtils.invokeMethod(rollupService, "backfill"));
+        // What autovacuum does after the backfill: statistics and the visibility map.
+        jdbcTemplate.execute("VACUUM ANALYZE session_rollups");
+
+        List<String> rollupQueries = new ArrayList<>();
+        for (Method method : SessionRollupRepository.class.getDeclaredMethods()) {
+            Query query = method.getAnnotation(Query.class);
+            if (query != null) rollupQueries.add(query.value());
+        }
+        assertThat(rollupQueries).hasSize(LIVE_QUERIES.size());
+
+        for (int days : new int[]{30, 90}) {
+            MapSqlParameterSource params = new MapSqlParameterSource("ownerId", 1L)
+                    .addValue("since", Timestamp.valueOf(DbTimeUtil.today().minusDays(days).atStartOfDay()));
+            // Each live pass reads most of the tables, so a handful of them is enough for a p50.
+            Bench.latency("live joins, " + days + " days, 5 queries", 5, 1,
+                    i -> LIVE_QUERIES.forEach(sql -> named.queryForList(sql, params)));
+            Bench.latency("rollups, " + days + " days, 5 queries", 1_000, 100,
+                    i -> rollupQueries.forEach(sql -> named.queryForList(sql, params)));
+        }
+    }
+
+    // One 40-minute session per slot per hour going back from now (database-zone time), 80% paid.
+    private static void seed(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.update("INSERT INTO stations SELECT g, 1 + g % 10, 'Station ' || g FROM generate_series(0, 99) g");
+        jdbcTemplate.update("INSERT INTO charger_slots SELECT g, g / 4, (ARRAY['CCS2', 'TYPE_2', 'CHADEMO'])[1 + g % 3] "
+                + "FROM generate_series(0, 399) g");
+        jdbcTemplate.update("INSERT INTO bookings SELECT g, g % 400, 'COMPLETED' FROM generate_series(0, ?) g",
+                SESSIONS - 1);
+        jdbcTemplate.update("INSERT INTO charging_sessions SELECT g, g, t, t + interval '40 minutes', "
+                + "80 + random() * 600, 5 + random() * 35, CASE WHEN random() < 0.8 THEN 'PAID' ELSE 'PENDING' END "
+                + "FROM (SELECT g, date_trunc('hour', ?::timestamp) - make_interval(hours => g / 400) AS t "
+                + "FROM generate_series(0, ?) g) x", DbTimeUtil.now(), SESSIONS - 1);
+        jdbcTemplate.execute("ANALYZE");
+    }
+}
@@ -0,0 +1,91 @@
+package com.ganesh.EV_Project.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ganesh.EV_Project.controller.WebSocketController;
+import com.ganesh.EV_Project.repository.ChargerSlotRepository;
+import com.ganesh.EV_Project.support.Bench;
+import com.ganesh.EV_Project.support.EmbeddedPostgresConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Sustained webhook settlement: signed deliveries (one in five a redelivery)
+ * ingested, then applied one event per transaction against batches of 200,
+ * each transaction as the @Transactional proxy would run it.
+ */
+class PaymentWebhookBenchmark {
+
+    private static final int ORDERS = 5_000;
+
+    @Test
+    void settlementThroughput() {
+        settle(500, 200); // warm-up
+        for (int batchSize : new int[]{1, 200}) {
+            settle(ORDERS, batchSize);
+        }
+    }
+
+    private void settle(int orders, int batchSize) {
+        DataSource dataSource = EmbeddedPostgresConfig.newPooledDatabase();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        new ResourceDatabasePopulator(
+                new ByteArrayResource(PaymentWebhookServiceTest.SCHEMA.getBytes(StandardCharsets.UTF_8)),
+                new ClassPathResource("db/migration/V9__payment_webhook_events.sql")).execute(dataSource);
+        jdbcTemplate.update("INSERT INTO charger_slots SELECT g, 'PAYMENT_PENDING', 0, now() FROM generate_series(1, ?) g",
+                orders);
+        jdbcTemplate.update("INSERT INTO bookings SELECT g, g FROM generate_series(1, ?) g", orders);
+        jdbcTemplate.update("INSERT INTO charging_sessions SELECT g, g, 'order_' || g, 123.45, 'PENDING', now() "
+                + "FROM generate_series(1, ?) g", orders);
+
+        RazorpayService razorpayService = new RazorpayService(mock(RazorpayGatewayClient.class));
+        ReflectionTestUtils.setField(razorpayService, "webhookSecret", PaymentWebhookServiceTest.SECRET);
+        PaymentSettlementService settlementService = new PaymentSettlementService(jdbcTemplate,
+                new NamedParameterJdbcTemplate(jdbcTemplate), mock(ChargerSlotRepository.class),
+                mock(WebSocketController.class), mock(AnalyticsRollupService.class));
+        PaymentWebhookService webhookService =
+                new PaymentWebhookService(razorpayService, settlementService, jdbcTemplate, new ObjectMapper());
+        ReflectionTestUtils.setField(webhookService, "storePayload", true);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        List<String[]> deliveries = new ArrayList<>(); // body, signature, event id
+        for (int i = 1; i <= orders; i++) {
+            String body = captured(i);
+            String[] delivery = {body, PaymentWebhookServiceTest.sign(body), "evt_" + i};
+            deliveries.add(delivery);
+            if (i % 5 == 0) deliveries.add(delivery);
+        }
+
+        Bench.run("ingest, " + orders + " orders", deliveries.size(), 0, 1,
+                () -> deliveries.forEach(d -> webhookService.ingest(d[0], d[1], d[2])));
+        Bench.run("apply, batch " + batchSize + ", " + orders + " orders", orders, 0, 1, () -> {
+            while (transactionTemplate.execute(status -> settlementService.applyDue(batchSize)) > 0) {
+                // drain
+            }
+        });
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM charging_sessions WHERE payment_status = 'PAID'",
+                Integer.class)).isEqualTo(orders);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM payments", Integer.class)).isEqualTo(orders);
+    }
+
+    private static String captured(int order) {
+        return """
+                {"event":"payment.captured","payload":{"payment":{"entity":{"id":"pay_%d","order_id":"order_%d",
+                "amount":12345,"method":"upi","error_description":null}}}}""".formatted(order, order);
+    }
+}
@@ -0,0 +1,202 @@
+package com.ganesh.EV_Project.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ganesh.EV_Project.controller.WebSocketController;
+import com.ganesh.EV_Project.repository.ChargerSlotRepository;
+import com.ganesh.EV_Project.support.EmbeddedPostgresConfig;
+import com.ganesh.EV_Project.util.DbTimeUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/** Webhook ingestion (signature, dedup) and batch settlement against real PostgreSQL. */
+class PaymentWebhookServiceTest {
+
+    static final String SECRET = "whsec_test";
+
+    // Just the columns settlement reads and writes; the rest of the schema is Hibernate's.
+    static final String SCHEMA = """
+            CREATE TABLE bookings (id BIGINT PRIMARY KEY, slot_id BIGINT);
+            CREATE TABLE charger_slots (id BIGINT PRIMARY KEY, status VARCHAR(30), version BIGINT,
+                updated_at TIMESTAMP);
+            CREATE TABLE charging_sessions (id BIGINT PRIMARY KEY, booking_id BIGINT, razorpay_order_id VARCHAR(64),
+                total_cost DOUBLE PRECISION, payment_status VARCHAR(20), end_time TIMESTAMP);
+            CREATE TABLE payments (id BIGSERIAL PRIMARY KEY, booking_id BIGINT UNIQUE, amount NUMERIC(10,2),
+                currency VARCHAR(3), transaction_id VARCHAR(255), gateway VARCHAR(255), status VARCHAR(20),
+                payment_method VARCHAR(255), created_at TIMESTAMP, paid_at TIMESTAMP, failure_reason VARCHAR(255));
+            """;
+
+    private JdbcTemplate jdbcTemplate;
+    private PaymentWebhookService webhookService;
+    private final AnalyticsRollupService analyticsRollupService = mock(AnalyticsRollupService.class);
+
+    @BeforeEach
+    void setUp() {
+        DataSource dataSource = EmbeddedPostgresConfig.newDatabase();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        new ResourceDatabasePopulator(new ByteArrayResource(SCHEMA.getBytes(StandardCharsets.UTF_8)),
+                new ClassPathResource("db/migration/V9__payment_webhook_events.sql")).execute(dataSource);
+
+        RazorpayService razorpayService = new RazorpayService(mock(RazorpayGatewayClient.class));
+        ReflectionTestUtils.setField(razorpayService, "webhookSecret", SECRET);
+        PaymentSettlementService settlementService = new PaymentSettlementService(jdbcTemplate,
+                new NamedParameterJdbcTemplate(jdbcTemplate), mock(ChargerSlotRepository.class),
+                mock(WebSocketController.class), analyticsRollupService);
+        webhookService = new PaymentWebhookService(razorpayService, settlementService, jdbcTemplate, new ObjectMapper());
+        ReflectionTestUtils.setField(webhookService, "batchSize", 200);
+        ReflectionTestUtils.setField(webhookService, "maxAttempts", 8);
+        ReflectionTestUtils.setField(webhookService, "retryBaseMillis", 2000L);
+        ReflectionTestUtils.setField(webhookService, "storePayload", true);
+
+        jdbcTemplate.update("INSERT INTO charger_slots VALUES (5, 'PAYMENT_PENDING', 0, now())");
+        jdbcTemplate.update("INSERT INTO bookings VALUES (50, 5)");
+        jdbcTemplate.update("INSERT INTO charging_sessions VALUES (500, 50, 'order_1', 123.456, 'PENDING', now())");
+    }
+
+    @Test
+    void rejectsABadSignatureWithoutStoringAnything() {
+        String body = event("payment.captured", "pay_1");
+
+        assertThat(webhookService.ingest(body, sign(body + " "), "evt_1"))
+                .isEqualTo(PaymentWebhookService.Outcome.REJECTED);
+        assertThat(webhookService.ingest(body, null, "evt_1"))
+                .isEqualTo(PaymentWebhookService.Outcome.REJECTED);
+        assertThat(webhookService.ingest("not json", sign("not json"), "evt_1"))
+                .isEqualTo(PaymentWebhookService.Outcome.REJECTED);
+        assertThat(storedEvents()).isZero();
+        assertThat(webhookService.getStats().rejected()).isEqualTo(3);
+    }
+
+    @Test
+    void redeliveriesAreDroppedByTheEventId() {
+        String body = event("payment.captured", "pay_1");
+
+        assertThat(ingest(body, "evt_1")).isEqualTo(PaymentWebhookService.Outcome.ACCEPTED);
+        assertThat(ingest(body, "evt_1")).isEqualTo(PaymentWebhookService.Outcome.DUPLICATE);
+        // Without the header the key is event type + payment id, still unique per transition.
+        assertThat(ingest(body, null)).isEqualTo(PaymentWebhookService.Outcome.ACCEPTED);
+        assertThat(ingest(body, " ")).isEqualTo(PaymentWebhookService.Outcome.DUPLICATE);
+
+        assertThat(storedEvents()).isEqualTo(2);
+        assertThat(jdbcTemplate.queryForList("SELECT event_id FROM payment_webhook_events ORDER BY id", String.class))
+                .containsExactly("evt_1", "payment.captured:pay_1");
+        assertThat(webhookService.getStats().duplicates()).isEqualTo(2);
+    }
+
+    @Test
+    void unhandledEventTypesAreAcknowledgedButNotStored() {
+        String body = event("refund.created", "pay_1");
+
+        assertThat(ingest(body, "evt_1")).isEqualTo(PaymentWebhookService.Outcome.UNHANDLED);
+        assertThat(storedEvents()).isZero();
+    }
+
+    @Test
+    void failedThenCapturedInOneBatchSettlesAsCaptured() {
+        ingest(event("payment.failed", "pay_1"), "evt_1");
+        ingest(event("payment.captured", "pay_2"), "evt_2");
+
+        webhookService.applyPending();
+
+        assertThat(payments()).singleElement().satisfies(p -> {
+            assertThat(p.get("status")).isEqualTo("COMPLETED");
+            assertThat(p.get("transaction_id")).isEqualTo("pay_2");
+            assertThat(p.get("failure_reason")).isNull();
+            assertThat(p.get("amount").toString()).isEqualTo("123.46");
+        });
+        assertThat(jdbcTemplate.queryForObject("SELECT payment_status FROM charging_sessions WHERE id = 500",
+                String.class)).isEqualTo("PAID");
+        assertThat(jdbcTemplate.queryForObject("SELECT status FROM charger_slots WHERE id = 5", String.class))
+                .isEqualTo("AVAILABLE");
+        assertThat(jdbcTemplate.queryForList("SELECT status FROM payment_webhook_events", String.class))
+                .containsOnly("APPLIED");
+    }
+
+    @Test
+    void lateFailureDoesNotUndoACapture() {
+        ingest(event("payment.captured", "pay_2"), "evt_2");
+        webhookService.applyPending();
+        ingest(event("payment.failed", "pay_1"), "evt_1");
+        webhookService.applyPending();
+
+        assertThat(payments()).singleElement().satisfies(p -> {
+            assertThat(p.get("status")).isEqualTo("COMPLETED");
+            assertThat(p.get("transaction_id")).isEqualTo("pay_2");
+        });
+    }
+
+    @Test
+    void settlementTimesFollowTheDatabaseZone() {
+        // As Hibernate stored it: Asia/Kolkata wall-clock, whatever the JVM zone (UTC under surefire).
+        jdbcTemplate.update("UPDATE charging_sessions SET end_time = '2026-03-01 02:00' WHERE id = 500");
+        ingest(event("payment.captured", "pay_1"), "evt_1");
+
+        webhookService.applyPending();
+
+        Timestamp paidAt = (Timestamp) payments().get(0).get("paid_at");
+        assertThat(Duration.between(paidAt.toLocalDateTime(), LocalDateTime.now(DbTimeUtil.ZONE)).abs())
+                .isLessThan(Duration.ofMinutes(1));
+        verify(analyticsRollupService).markDirty(LocalDateTime.of(2026, 3, 1, 2, 0)
+                .atZone(DbTimeUtil.ZONE).withZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime());
+    }
+
+    @Test
+    void eventForAnUnknownOrderIsIgnored() {
+        ingest(event("payment.captured", "pay_9").replace("order_1", "order_9"), "evt_9");
+
+        webhookService.applyPending();
+
+        assertThat(payments()).isEmpty();
+        assertThat(webhookService.getStats().settlement().ignored()).isEqualTo(1);
+    }
+
+    private PaymentWebhookService.Outcome ingest(String body, String eventId) {
+        return webhookService.ingest(body, sign(body), eventId);
+    }
+
+    private int storedEvents() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM payment_webhook_events", Integer.class);
+    }
+
+    private List<Map<String, Object>> payments() {
+        return jdbcTemplate.queryForList("SELECT * FROM payments");
+    }
+
+    private static String event(String type, String paymentId) {
+        return """
+                {"event":"%s","payload":{"payment":{"entity":{"id":"%s","order_id":"order_1","amount":12346,
+                "method":"upi","error_description":%s}}}}"""
+                .formatted(type, paymentId, type.equals("payment.failed") ? "\"Declined\"" : "null");
+    }
+
+    static String sign(String body) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return HexFormat.of().formatHex(mac.doFinal(body.getBytes(StandardCharsets.UTF_8)));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
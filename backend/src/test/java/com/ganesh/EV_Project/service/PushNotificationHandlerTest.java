@@ -0,0 +1,109 @@
+package com.ganesh.EV_Project.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ganesh.EV_Project.model.DeviceToken;
+import com.ganesh.EV_Project.model.OutboxEvent;
+import com.ganesh.EV_Project.repository.DeviceTokenRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PushNotificationHandlerTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final DeviceTokenRepository deviceTokenRepository = mock(DeviceTokenRepository.class);
+    private final PushSender pushSender = mock(PushSender.class);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final PushNotificationHandler handler =
+            new PushNotificationHandler(jdbcTemplate, deviceTokenRepository, pushSender, objectMapper);
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void oneLookupAndOneSendForTheBatchWithPerEventOutcomes() throws Exception {
+        when(deviceTokenRepository.findByUserIdIn(anyList())).thenReturn(List.of(
+                token(1L, "t1"), token(1L, "dead"), token(2L, "t3")));
+        when(pushSender.sendEach(anyList())).thenReturn(List.of(
+                PushSender.Result.SENT, PushSender.Result.INVALID_TOKEN, PushSender.Result.FAILED));
+
+        List<Exception> failures = handler.handleAll(List.of(
+                push(1L, "Booked"),   // one device accepted it
+                push(2L, "Reminder"), // its only device failed transiently: retry
+                push(3L, "Expired"),  // no devices: nothing to retry
+                event(4L, "not json")));
+
+        assertThat(failures.get(0)).isNull();
+        assertThat(failures.get(1)).isNotNull();
+        assertThat(failures.get(2)).isNull();
+        assertThat(failures.get(3)).isNotNull();
+
+        ArgumentCaptor<List<PushSender.PushMessage>> sent = ArgumentCaptor.forClass(List.class);
+        verify(pushSender, times(1)).sendEach(sent.capture());
+        assertThat(sent.getValue()).extracting(PushSender.PushMessage::token).containsExactly("t1", "dead", "t3");
+        assertThat(sent.getValue().get(0).title()).isEqualTo("Booked");
+        assertThat(sent.getValue().get(0).deepLink()).isEqualTo("ev://bookings");
+        verify(deviceTokenRepository, times(1)).findByUserIdIn(anyList());
+        verify(jdbcTemplate).batchUpdate(eq("DELETE FROM device_tokens WHERE token = ?"), any(List.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void messagesAreSentInChunksOfTheSenderLimit() throws Exception {
+        List<DeviceToken> tokens = new ArrayList<>();
+        for (int i = 0; i < PushSender.MAX_BATCH + 1; i++) {
+            tokens.add(token(1L, "t" + i));
+        }
+        when(deviceTokenRepository.findByUserIdIn(anyList())).thenReturn(tokens);
+        when(pushSender.sendEach(anyList())).thenAnswer(inv -> Collections.nCopies(
+                ((List<?>) inv.getArgument(0)).size(), PushSender.Result.SENT));
+
+        assertThat(handler.handleAll(List.of(push(1L, "Booked")))).containsOnlyNulls();
+
+        ArgumentCaptor<List<PushSender.PushMessage>> sent = ArgumentCaptor.forClass(List.class);
+        verify(pushSender, times(2)).sendEach(sent.capture());
+        assertThat(sent.getAllValues()).extracting(List::size).containsExactly(PushSender.MAX_BATCH, 1);
+    }
+
+    @Test
+    void handleThrowsWhenTheSingleEventMustBeRetried() {
+        when(deviceTokenRepository.findByUserIdIn(anyList())).thenReturn(List.of(token(1L, "t1")));
+        when(pushSender.sendEach(anyList())).thenReturn(List.of(PushSender.Result.FAILED));
+
+        assertThatThrownBy(() -> handler.handle(push(1L, "Booked")))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    private OutboxEvent push(Long userId, String title) throws Exception {
+        return event(userId, objectMapper.writeValueAsString(Map.of(
+                "type", "BOOKING", "title", title, "body", "Slot A1", "deepLink", "ev://bookings")));
+    }
+
+    private static OutboxEvent event(Long userId, String payload) {
+        return OutboxEvent.builder()
+                .id(userId * 10)
+                .type(OutboxEvent.Type.PUSH_NOTIFICATION)
+                .aggregateId(userId)
+                .payload(payload)
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+
+    private static DeviceToken token(Long userId, String token) {
+        return DeviceToken.builder().userId(userId).token(token).build();
+    }
+}
@@ -0,0 +1,36 @@
+package com.ganesh.EV_Project.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PushSenderTest {
+
+    @Test
+    void fcmWithoutCredentialsReportsEveryMessageDisabled() {
+        FcmService fcm = new FcmService();
+
+        assertThat(fcm.isEnabled()).isFalse();
+        assertThat(fcm.sendEach(List.of(message("t1"), message("t2"))))
+                .containsExactly(PushSender.Result.DISABLED, PushSender.Result.DISABLED);
+        assertThat(fcm.sendEach(List.of())).isEmpty();
+    }
+
+    @Test
+    void stubReportsInvalidTokensAndSimulatedFailuresInOrder() {
+        StubPushSender stub = new StubPushSender();
+        assertThat(stub.sendEach(List.of(message("t1"), message("invalid-t2"), message("t3"))))
+                .containsExactly(PushSender.Result.SENT, PushSender.Result.INVALID_TOKEN, PushSender.Result.SENT);
+
+        ReflectionTestUtils.setField(stub, "failureRate", 1.0);
+        assertThat(stub.sendEach(List.of(message("t1"), message("invalid-t2"))))
+                .containsExactly(PushSender.Result.FAILED, PushSender.Result.INVALID_TOKEN);
+    }
+
+    private static PushSender.PushMessage message(String token) {
+        return new PushSender.PushMessage(token, "BOOKING", "Booked", "Slot A1", null);
+    }
+}
@@ -0,0 +1,85 @@
+package com.ganesh.EV_Project.service;
+
+import com.ganesh.EV_Project.dto.SensorReadingRequest;
+import com.ganesh.EV_Project.support.Bench;
+import com.ganesh.EV_Project.support.EmbeddedPostgresConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Sensor readings written to the partitioned table (V10): one reading per
+ * request as the controller used to store it (station lookup, lastUsedTime
+ * update and row insert, each its own statement), against the buffered
+ * writer flushing batches of 5,000. The old path is replayed in plain JDBC,
+ * without its Hibernate overhead, so it is the better case of the two.
+ */
+class SensorIngestBenchmark {
+
+    private static final int STATIONS = 200;
+
+    @Test
+    void readingsPerSecond() {
+        DataSource dataSource = EmbeddedPostgresConfig.newPooledDatabase();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute(SensorIngestServiceTest.LEGACY_SCHEMA);
+        SensorIngestServiceTest.migrateV10(jdbcTemplate);
+        jdbcTemplate.update("INSERT INTO stations (id) SELECT g FROM generate_series(1, ?) g", STATIONS);
+
+        List<SensorReadingRequest> perRequest = readings(5_000);
+        Bench.run("per request, 3 statements", perRequest.size(), 0, 1, () -> perRequest.forEach(r -> {
+            jdbcTemplate.queryForObject("SELECT id FROM stations WHERE id = ?", Long.class, r.getStationId());
+            jdbcTemplate.update("UPDATE stations SET last_used_time = ? WHERE id = ?",
+                    Timestamp.valueOf(LocalDateTime.now()), r.getStationId());
+            jdbcTemplate.update("INSERT INTO iot_sensor_data (station_id, voltage, current, power, \"timestamp\") "
+                            + "VALUES (?, ?, ?, ?, ?)", r.getStationId(), r.getVoltage(), r.getCurrent(),
+                    r.getVoltage() * r.getCurrent(), Timestamp.valueOf(r.getTimestamp()));
+        }));
+
+        SensorIngestService ingestService = new SensorIngestService(jdbcTemplate,
+                mock(LatestReadingCache.class, withSettings().stubOnly()),
+                mock(LoadForecastService.class, withSettings().stubOnly()));
+        ReflectionTestUtils.setField(ingestService, "capacity", 200_000);
+        ReflectionTestUtils.setField(ingestService, "batchSize", 5_000);
+        ReflectionTestUtils.setField(ingestService, "flushIntervalMs", 3_600_000L); // flushed here
+        ingestService.start();
+        try {
+            List<SensorReadingRequest> buffered = readings(100_000);
+            Bench.run("buffered, batches of 5000", buffered.size(), 0, 1, () -> {
+                ingestService.submit(buffered);
+                while (ingestService.flush() > 0) {
+                    // drain
+                }
+            });
+        } finally {
+            ingestService.shutdown();
+        }
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM iot_sensor_data", Integer.class))
+                .isEqualTo(105_000);
+    }
+
+    private static List<SensorReadingRequest> readings(int count) {
+        LocalDateTime now = LocalDateTime.now();
+        List<SensorReadingRequest> readings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            SensorReadingRequest r = new SensorReadingRequest();
+            r.setStationId(1L + i % STATIONS);
+            r.setVoltage(230.0);
+            r.setCurrent(10.0 + i % 7);
+            r.setTimestamp(now.minusNanos((count - i) * 1_000_000L));
+            readings.add(r);
+        }
+        return readings;
+    }
+}
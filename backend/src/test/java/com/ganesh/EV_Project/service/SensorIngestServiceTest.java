@@ -0,0 +1,154 @@
+package com.ganesh.EV_Project.service;
+
+import com.ganesh.EV_Project.dto.SensorReadingRequest;
+import com.ganesh.EV_Project.support.EmbeddedPostgresConfig;
+import com.ganesh.EV_Project.util.DbTimeUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/** Buffered sensor ingestion against real PostgreSQL with the partitioned table (V10). */
+class SensorIngestServiceTest {
+
+    // The Hibernate-created tables V10 starts from, reduced to the columns it uses.
+    static final String LEGACY_SCHEMA = """
+            CREATE TABLE stations (id BIGINT PRIMARY KEY, last_used_time TIMESTAMP);
+            CREATE TABLE iot_sensor_data (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                station_id BIGINT REFERENCES stations (id), voltage DOUBLE PRECISION, current DOUBLE PRECISION,
+                power DOUBLE PRECISION, "timestamp" TIMESTAMP);
+            """;
+
+    private final LatestReadingCache latestReadingCache = mock(LatestReadingCache.class);
+    private final LoadForecastService loadForecastService = mock(LoadForecastService.class);
+
+    private JdbcTemplate jdbcTemplate;
+    private SensorIngestService ingestService;
+
+    @BeforeEach
+    void setUp() {
+        DataSource dataSource = EmbeddedPostgresConfig.newDatabase();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute(LEGACY_SCHEMA);
+        migrateV10(jdbcTemplate);
+        jdbcTemplate.update("INSERT INTO stations (id) VALUES (1), (2)");
+
+        ingestService = new SensorIngestService(jdbcTemplate, latestReadingCache, loadForecastService);
+        ReflectionTestUtils.setField(ingestService, "capacity", 4);
+        ReflectionTestUtils.setField(ingestService, "batchSize", 3);
+        ReflectionTestUtils.setField(ingestService, "flushIntervalMs", 3_600_000L); // flushed by the test
+        ingestService.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        ingestService.shutdown();
+    }
+
+    @Test
+    void skipsInvalidReadingsAndRefusesWhatDoesNotFit() {
+        LocalDateTime now = LocalDateTime.now();
+        List<SensorReadingRequest> readings = new ArrayList<>();
+        readings.add(reading(1L, 230.0, 10.0, now));
+        readings.add(reading(null, 230.0, 10.0, now));
+        readings.add(reading(1L, Double.NaN, 10.0, now));
+        readings.add(null);
+        for (int i = 0; i < 5; i++) {
+            readings.add(reading(2L, 230.0, 5.0, now));
+        }
+
+        SensorIngestService.Result result = ingestService.submit(readings);
+
+        assertThat(result).isEqualTo(new SensorIngestService.Result(4, 3, 2));
+        assertThat(ingestService.getStats().buffered()).isEqualTo(4);
+    }
+
+    @Test
+    void flushWritesOneBatchAndCoalescesLastUsedTime() {
+        LocalDateTime t = LocalDateTime.now().minusMinutes(5).truncatedTo(ChronoUnit.SECONDS);
+        ingestService.submit(List.of(
+                reading(1L, 230.0, 10.0, t),
+                reading(1L, 231.0, 12.0, t.plusSeconds(1)),
+                reading(99L, 230.0, 10.0, t),   // unknown station: dropped by the join
+                reading(2L, 229.0, 8.0, t)));   // next batch
+
+        assertThat(ingestService.flush()).isEqualTo(3);
+
+        assertThat(jdbcTemplate.queryForList("SELECT power FROM iot_sensor_data ORDER BY \"timestamp\"", Double.class))
+                .containsExactly(2300.0, 2772.0);
+        // In the database zone, as Hibernate writes the same column; the JVM runs in UTC under surefire.
+        assertThat(jdbcTemplate.queryForObject("SELECT last_used_time FROM stations WHERE id = 1", Timestamp.class))
+                .isEqualTo(Timestamp.valueOf(t.plusSeconds(1).atZone(ZoneId.systemDefault())
+                        .withZoneSameInstant(DbTimeUtil.ZONE).toLocalDateTime()));
+        verify(loadForecastService, times(2)).onReading(eq(1L), anyDouble(), any());
+        verify(latestReadingCache).onReading(1L, 231.0, 12.0, 2772.0, t.plusSeconds(1));
+        verify(latestReadingCache, times(1)).onReading(anyLong(), anyDouble(), anyDouble(), anyDouble(), any());
+        assertThat(ingestService.getStats().unknownStation()).isEqualTo(1);
+        assertThat(ingestService.getStats().buffered()).isEqualTo(1);
+
+        assertThat(ingestService.flush()).isEqualTo(1);
+        assertThat(ingestService.flush()).isZero();
+    }
+
+    @Test
+    void futureTimestampsAreClampedToArrival() {
+        LocalDateTime before = LocalDateTime.now();
+        ingestService.submit(List.of(reading(1L, 230.0, 10.0, before.plusDays(2))));
+        ingestService.flush();
+
+        assertThat(DbTimeUtil.fromDb(jdbcTemplate.queryForObject("SELECT \"timestamp\" FROM iot_sensor_data",
+                Timestamp.class))).isBetween(before, LocalDateTime.now());
+    }
+
+    @Test
+    void shutdownWritesWhatIsStillBuffered() {
+        LocalDateTime now = LocalDateTime.now();
+        ingestService.submit(List.of(reading(1L, 230.0, 10.0, now), reading(1L, 230.0, 10.0, now),
+                reading(2L, 230.0, 10.0, now), reading(2L, 230.0, 10.0, now)));
+
+        ingestService.shutdown();
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM iot_sensor_data", Integer.class)).isEqualTo(4);
+    }
+
+    // Run as one script: the populator's statement splitting does not understand DO $$ blocks.
+    static void migrateV10(JdbcTemplate jdbcTemplate) {
+        try {
+            jdbcTemplate.execute(new ClassPathResource("db/migration/V10__iot_sensor_partitions.sql")
+                    .getContentAsString(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static SensorReadingRequest reading(Long stationId, Double voltage, Double current, LocalDateTime at) {
+        SensorReadingRequest r = new SensorReadingRequest();
+        r.setStationId(stationId);
+        r.setVoltage(voltage);
+        r.setCurrent(current);
+        r.setTimestamp(at);
+        return r;
+    }
+}
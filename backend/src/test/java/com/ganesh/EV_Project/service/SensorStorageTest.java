@@ -0,0 +1,161 @@
+package com.ganesh.EV_Project.service;
+
+import com.ganesh.EV_Project.support.EmbeddedPostgresConfig;
+import com.ganesh.EV_Project.util.DbTimeUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Sensor rollups, partition upkeep and retention against real PostgreSQL (V10).
+ * Rows are written in database-zone wall-clock time, as the application
+ * writes them, while the JVM runs in UTC (see the surefire argLine).
+ */
+class SensorStorageTest {
+
+    private static final DateTimeFormatter DAY = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private JdbcTemplate jdbcTemplate;
+    private SensorRollupService rollupService;
+    private IoTStorageMaintenance maintenance;
+
+    @BeforeEach
+    void setUp() {
+        DataSource dataSource = EmbeddedPostgresConfig.newDatabase();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute(SensorIngestServiceTest.LEGACY_SCHEMA);
+        jdbcTemplate.update("INSERT INTO stations (id) VALUES (1), (2)");
+
+        rollupService = new SensorRollupService(jdbcTemplate);
+        ReflectionTestUtils.setField(rollupService, "lookbackMinutes", 5);
+        ReflectionTestUtils.setField(rollupService, "rawRetentionDays", 3);
+        ReflectionTestUtils.setField(rollupService, "minuteRetentionDays", 30);
+        maintenance = new IoTStorageMaintenance(jdbcTemplate,
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource)), rollupService);
+        ReflectionTestUtils.setField(maintenance, "rawRetentionDays", 3);
+        ReflectionTestUtils.setField(maintenance, "minuteRetentionDays", 30);
+        ReflectionTestUtils.setField(maintenance, "hourRetentionDays", 730);
+        ReflectionTestUtils.setField(maintenance, "partitionsAheadDays", 5);
+    }
+
+    @Test
+    void migrationKeepsLegacyReadingsAndSeedsTheirRollups() {
+        LocalDateTime t = LocalDateTime.now(DbTimeUtil.ZONE).minusHours(1).truncatedTo(ChronoUnit.HOURS);
+        insert(1L, 100, t);
+        insert(1L, 300, t.plusSeconds(30));
+        SensorIngestServiceTest.migrateV10(jdbcTemplate);
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM iot_sensor_data", Integer.class)).isEqualTo(2);
+        assertThat(rollup("1m", 1L, t)).containsEntry("samples", 2L).containsEntry("avg_power", 200.0);
+        assertThat(rollup("1h", 1L, t)).containsEntry("samples", 2L);
+        // New rows continue the id sequence.
+        insert(1L, 100, t.plusMinutes(1));
+        assertThat(jdbcTemplate.queryForObject("SELECT MAX(id) FROM iot_sensor_data", Long.class)).isEqualTo(3L);
+    }
+
+    @Test
+    void hourlyAveragesAreWeightedBySampleCount() {
+        SensorIngestServiceTest.migrateV10(jdbcTemplate);
+        LocalDateTime hour = LocalDateTime.now(DbTimeUtil.ZONE).minusHours(1).truncatedTo(ChronoUnit.HOURS);
+        for (int i = 0; i < 3; i++) insert(1L, 100, hour.plusMinutes(10).plusSeconds(i));
+        insert(1L, 500, hour.plusMinutes(11));
+
+        rollupService.rollup();
+
+        assertThat(rollup("1m", 1L, hour.plusMinutes(10))).containsEntry("samples", 3L).containsEntry("avg_power", 100.0);
+        assertThat(rollup("1h", 1L, hour)).containsEntry("samples", 4L).containsEntry("avg_power", 200.0)
+                .containsEntry("min_power", 100.0).containsEntry("max_power", 500.0);
+    }
+
+    @Test
+    void rerunPicksUpLateReadingsWithoutDuplicatingBuckets() {
+        SensorIngestServiceTest.migrateV10(jdbcTemplate);
+        LocalDateTime minute = LocalDateTime.now(DbTimeUtil.ZONE).minusMinutes(3).truncatedTo(ChronoUnit.MINUTES);
+        insert(1L, 100, minute);
+        rollupService.rollup();
+
+        insert(1L, 300, minute.plusSeconds(20)); // buffered on the board, arrives late
+        rollupService.rollup();
+        rollupService.rollup();
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM iot_sensor_rollups WHERE resolution = '1m'",
+                Integer.class)).isEqualTo(1);
+        assertThat(rollup("1m", 1L, minute)).containsEntry("samples", 2L).containsEntry("avg_power", 200.0);
+        assertThat(rollupService.newestBucket("1m")).isEqualTo(minute);
+    }
+
+    @Test
+    void createsPartitionsAheadAndMovesStrandedRowsIntoThem() {
+        SensorIngestServiceTest.migrateV10(jdbcTemplate);
+        LocalDate ahead = DbTimeUtil.today().plusDays(4); // past the days V10 created
+        insert(2L, 100, ahead.atTime(9, 0));
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM iot_sensor_data_default", Integer.class))
+                .isEqualTo(1);
+
+        maintenance.maintain();
+
+        assertThat(partitions()).contains(partition(ahead), partition(ahead.plusDays(1)));
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + partition(ahead), Integer.class))
+                .isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM iot_sensor_data_default", Integer.class))
+                .isZero();
+    }
+
+    @Test
+    void rawDataIsOnlyDroppedOnceRolledUp() {
+        SensorIngestServiceTest.migrateV10(jdbcTemplate);
+        LocalDate today = DbTimeUtil.today();
+        insert(1L, 100, today.minusDays(6).atTime(12, 0));
+        insert(1L, 100, today.minusDays(30).atTime(12, 0)); // default partition
+
+        maintenance.maintain(); // nothing is rolled up yet
+        assertThat(partitions()).contains(partition(today.minusDays(6)));
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM iot_sensor_data", Integer.class)).isEqualTo(2);
+
+        insert(1L, 100, LocalDateTime.now(DbTimeUtil.ZONE).minusMinutes(1));
+        rollupService.rollup();
+        jdbcTemplate.update("INSERT INTO iot_sensor_rollups (resolution, station_id, bucket, samples, avg_voltage, "
+                + "avg_current, avg_power, min_power, max_power) VALUES ('1m', 1, ?, 1, 0, 0, 0, 0, 0)",
+                Timestamp.valueOf(today.minusDays(40).atStartOfDay()));
+        maintenance.maintain();
+
+        assertThat(partitions()).doesNotContain(partition(today.minusDays(6)), partition(today.minusDays(4)))
+                .contains(partition(today.minusDays(3)), partition(today));
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM iot_sensor_data", Integer.class)).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM iot_sensor_rollups WHERE bucket < ?",
+                Integer.class, Timestamp.valueOf(today.minusDays(30).atStartOfDay()))).isZero();
+    }
+
+    private void insert(Long stationId, double power, LocalDateTime at) {
+        jdbcTemplate.update("INSERT INTO iot_sensor_data (station_id, voltage, current, power, \"timestamp\") "
+                + "VALUES (?, 230, ?, ?, ?)", stationId, power / 230, power, Timestamp.valueOf(at));
+    }
+
+    private Map<String, Object> rollup(String resolution, Long stationId, LocalDateTime bucket) {
+        return jdbcTemplate.queryForMap("SELECT samples, avg_power, min_power, max_power FROM iot_sensor_rollups "
+                + "WHERE resolution = ? AND station_id = ? AND bucket = ?", resolution, stationId, Timestamp.valueOf(bucket));
+    }
+
+    private List<String> partitions() {
+        return jdbcTemplate.queryForList("SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid "
+                + "JOIN pg_class p ON p.oid = i.inhparent WHERE p.relname = 'iot_sensor_data'", String.class);
+    }
+
+    private static String partition(LocalDate day) {
+        return "iot_sensor_data_p" + day.format(DAY);
+    }
+}
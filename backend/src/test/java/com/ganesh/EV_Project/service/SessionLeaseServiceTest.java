@@ -0,0 +1,145 @@
+package com.ganesh.EV_Project.service;
+
+import com.ganesh.EV_Project.config.ClusterNode;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import redis.embedded.RedisServer;
+
+import java.net.ServerSocket;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Two nodes' session leases against one real Redis. */
+class SessionLeaseServiceTest {
+
+    private static final long LEASE_MILLIS = 1000;
+
+    private static RedisServer redisServer;
+    private static LettuceConnectionFactory connectionFactory;
+    private static StringRedisTemplate redis;
+
+    private SessionLeaseService nodeA;
+    private SessionLeaseService nodeB;
+
+    @BeforeAll
+    static void startRedis() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory("localhost", port);
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redis = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void stopRedis() throws Exception {
+        connectionFactory.destroy();
+        if (redisServer != null) redisServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        nodeA = node("node-a", true);
+        nodeB = node("node-b", true);
+    }
+
+    @AfterEach
+    void flush() {
+        redis.delete(redis.keys("simlease:*"));
+    }
+
+    @Test
+    void eachSessionGoesToOneNode() {
+        assertThat(nodeA.acquireAll(List.of(1L, 2L))).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(nodeB.acquireAll(List.of(1L, 2L, 3L))).containsExactly(3L);
+        assertThat(nodeB.tryAcquire(1L)).isFalse();
+
+        SessionLeaseService.Renewal renewal = nodeA.renewAll(List.of(1L, 2L));
+        assertThat(renewal.lost()).isEmpty();
+        assertThat(renewal.stopped()).isEmpty();
+    }
+
+    @Test
+    void anExpiredLeaseIsTakenOverAndTheOldOwnerLearnsOfIt() throws Exception {
+        assertThat(nodeA.tryAcquire(1L)).isTrue();
+        Thread.sleep(LEASE_MILLIS * 2); // node A paused past its lease
+
+        assertThat(nodeB.acquireAll(List.of(1L))).containsExactly(1L);
+        SessionLeaseService.Renewal renewal = nodeA.renewAll(List.of(1L));
+        assertThat(renewal.lost()).containsExactly(1L);
+        assertThat(renewal.stopped()).isEmpty();
+        assertThat(nodeB.renewAll(List.of(1L)).lost()).isEmpty();
+    }
+
+    @Test
+    void renewalKeepsTheLeaseAlive() throws Exception {
+        assertThat(nodeA.tryAcquire(1L)).isTrue();
+        for (int i = 0; i < 3; i++) {
+            Thread.sleep(LEASE_MILLIS / 2);
+            assertThat(nodeA.renewAll(List.of(1L)).lost()).isEmpty();
+        }
+        assertThat(nodeB.tryAcquire(1L)).isFalse();
+    }
+
+    @Test
+    void aStopOnAnotherNodeIsReportedToTheOwner() {
+        assertThat(nodeA.tryAcquire(1L)).isTrue();
+        assertThat(nodeA.tryAcquire(2L)).isTrue();
+
+        assertThat(nodeB.markStopped(1L)).isTrue(); // node A holds it and will finalize
+
+        SessionLeaseService.Renewal renewal = nodeA.renewAll(List.of(1L, 2L));
+        assertThat(renewal.stopped()).containsExactly(1L);
+        assertThat(renewal.lost()).isEmpty();
+        // The tombstone keeps anyone from adopting the stopped session.
+        assertThat(nodeB.acquireAll(List.of(1L))).isEmpty();
+        assertThat(nodeA.acquireAll(List.of(1L))).isEmpty();
+    }
+
+    @Test
+    void aStopIsLocalWhenNoOtherNodeHoldsTheLease() {
+        assertThat(nodeA.tryAcquire(1L)).isTrue();
+        assertThat(nodeA.markStopped(1L)).isFalse();  // its own lease
+        assertThat(nodeA.markStopped(1L)).isFalse();  // already stopped
+        assertThat(nodeB.markStopped(9L)).isFalse();  // nobody simulates it
+    }
+
+    @Test
+    void releasedLeasesCanBeAdoptedAtOnce() {
+        assertThat(nodeA.acquireAll(List.of(1L, 2L))).hasSize(2);
+        nodeB.releaseAll(List.of(1L)); // not B's to release
+        assertThat(nodeB.tryAcquire(1L)).isFalse();
+
+        nodeA.releaseAll(List.of(1L, 2L));
+        assertThat(nodeB.acquireAll(List.of(1L, 2L))).containsExactlyInAnyOrder(1L, 2L);
+    }
+
+    @Test
+    void disabledClusteringOwnsEverythingLocally() {
+        SessionLeaseService single = node("node-a", false);
+
+        assertThat(single.acquireAll(List.of(1L, 2L))).isEqualTo(Set.of(1L, 2L));
+        assertThat(single.renewAll(List.of(1L, 2L)).lost()).isEmpty();
+        assertThat(single.markStopped(1L)).isFalse();
+        assertThat(redis.keys("simlease:*")).isEmpty();
+    }
+
+    private static SessionLeaseService node(String id, boolean enabled) {
+        SessionLeaseService service = new SessionLeaseService(redis, new ClusterNode(id));
+        ReflectionTestUtils.setField(service, "enabled", enabled);
+        ReflectionTestUtils.setField(service, "leaseMillis", LEASE_MILLIS);
+        return service;
+    }
+}
@@ -0,0 +1,105 @@
+package com.ganesh.EV_Project.service;
+
+import com.ganesh.EV_Project.support.EmbeddedPostgresConfig;
+import com.ganesh.EV_Project.util.DbTimeUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/** Write-behind snapshots against real PostgreSQL: coalescing, retry after a failed flush, the ONGOING guard. */
+class SessionSnapshotWriterTest {
+
+    // The columns the snapshot UPDATE touches.
+    private static final String SCHEMA = """
+            CREATE TABLE charging_sessions (
+                id BIGSERIAL PRIMARY KEY,
+                booking_id BIGINT NOT NULL UNIQUE,
+                status VARCHAR(20) NOT NULL,
+                energy_kwh DOUBLE PRECISION,
+                soc_percentage DOUBLE PRECISION,
+                total_cost NUMERIC(10,2),
+                expected_end_at TIMESTAMP
+            )""";
+
+    private JdbcTemplate jdbcTemplate;
+    private SessionSnapshotWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(EmbeddedPostgresConfig.newDatabase());
+        jdbcTemplate.execute(SCHEMA);
+        writer = new SessionSnapshotWriter(jdbcTemplate);
+        ReflectionTestUtils.setField(writer, "maxPending", 100);
+        ReflectionTestUtils.setField(writer, "batchSize", 500);
+    }
+
+    @Test
+    void repeatedMarksCoalesceIntoOneWrite() {
+        session(1L, "ONGOING");
+        LocalDateTime end = LocalDateTime.now().plusMinutes(20).withNano(0);
+
+        writer.mark(1L, 1.0, 20.0, 18.0, end.plusMinutes(10));
+        writer.mark(1L, 2.0, 21.0, 36.0, end.plusMinutes(5));
+        writer.mark(1L, 3.0, 22.0, 54.0, end);
+
+        assertThat(writer.getStats().pending()).isEqualTo(1);
+        assertThat(writer.flush()).isEqualTo(1);
+        assertThat(row(1L)).containsEntry("energy_kwh", 3.0).containsEntry("soc_percentage", 22.0);
+        assertThat(((Number) row(1L).get("total_cost")).doubleValue()).isEqualTo(54.0);
+        assertThat(((Timestamp) row(1L).get("expected_end_at")).toLocalDateTime()).isEqualTo(DbTimeUtil.toDbLocal(end));
+        assertThat(writer.getStats().flushedRows()).isEqualTo(1);
+        assertThat(writer.flush()).isZero(); // nothing left to write
+    }
+
+    @Test
+    void failedFlushRequeuesTheBatchUnlessANewerMarkArrived() {
+        session(1L, "ONGOING");
+        session(2L, "ONGOING");
+        writer.mark(1L, 1.0, 20.0, 18.0, null);
+        writer.mark(2L, 5.0, 50.0, 90.0, null);
+
+        jdbcTemplate.execute("ALTER TABLE charging_sessions RENAME TO charging_sessions_offline");
+        assertThatThrownBy(writer::flush).isInstanceOf(DataAccessException.class);
+        assertThat(writer.getStats().pending()).isEqualTo(2);
+
+        // Marked while the database was down: this one, not the requeued one, is written.
+        writer.mark(2L, 6.0, 52.0, 108.0, null);
+        jdbcTemplate.execute("ALTER TABLE charging_sessions_offline RENAME TO charging_sessions");
+        assertThat(writer.flush()).isEqualTo(2);
+
+        assertThat(row(1L)).containsEntry("energy_kwh", 1.0);
+        assertThat(row(2L)).containsEntry("energy_kwh", 6.0);
+        assertThat(writer.getStats().pending()).isZero();
+    }
+
+    @Test
+    void lateSnapshotNeverOverwritesAFinishedSession() {
+        session(1L, "COMPLETED");
+        jdbcTemplate.update("UPDATE charging_sessions SET energy_kwh = 30, soc_percentage = 80, total_cost = 540 "
+                + "WHERE booking_id = 1");
+
+        writer.mark(1L, 29.5, 79.0, 531.0, LocalDateTime.now().plusMinutes(1));
+        writer.flush();
+
+        assertThat(row(1L)).containsEntry("energy_kwh", 30.0).containsEntry("soc_percentage", 80.0)
+                .containsEntry("expected_end_at", null);
+        assertThat(((Number) row(1L).get("total_cost")).doubleValue()).isEqualTo(540.0);
+    }
+
+    private void session(Long bookingId, String status) {
+        jdbcTemplate.update("INSERT INTO charging_sessions (booking_id, status) VALUES (?, ?)", bookingId, status);
+    }
+
+    private Map<String, Object> row(Long bookingId) {
+        return jdbcTemplate.queryForMap("SELECT * FROM charging_sessions WHERE booking_id = ?", bookingId);
+    }
+}
@@ -0,0 +1,118 @@
+package com.ganesh.EV_Project.service;
+
+import com.ganesh.EV_Project.dto.SlotStateRow;
+import com.ganesh.EV_Project.enums.ConnectorType;
+import com.ganesh.EV_Project.enums.SlotStatus;
+import com.ganesh.EV_Project.model.ChargerSlot;
+import com.ganesh.EV_Project.model.Station;
+import com.ganesh.EV_Project.repository.ChargerSlotRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SlotAllocatorTest {
+
+    private static final Long STATION = 1L;
+
+    private final ChargerSlotRepository chargerSlotRepository = mock(ChargerSlotRepository.class);
+    private final SlotAvailabilityCache cache = new SlotAvailabilityCache(chargerSlotRepository);
+    private final SlotAllocator allocator = new SlotAllocator(chargerSlotRepository, cache);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(cache, "paymentPendingTtlMinutes", 30);
+        when(chargerSlotRepository.findAllSlotStates()).thenReturn(List.of(
+                new SlotStateRow(10L, STATION, ConnectorType.CCS2, SlotStatus.AVAILABLE, false, null),
+                new SlotStateRow(11L, STATION, ConnectorType.CCS2, SlotStatus.AVAILABLE, false, null)));
+        cache.reconcile();
+    }
+
+    @AfterEach
+    void endTransaction() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            complete();
+        }
+    }
+
+    @Test
+    void notReadyUntilEnabled() {
+        assertThat(allocator.isReady()).isFalse();
+
+        ReflectionTestUtils.setField(allocator, "enabled", true);
+
+        assertThat(allocator.isReady()).isTrue();
+    }
+
+    @Test
+    void claimsTheFirstCandidateStillAvailableInTheDatabase() {
+        lock(10L, SlotStatus.AVAILABLE);
+
+        SlotAllocator.Claim claim = allocator.claim(List.of(10L, 11L), s -> true);
+
+        assertThat(claim.slot().getId()).isEqualTo(10L);
+        assertThat(claim.contended()).isFalse();
+        assertThat(allocator.getAllocations()).isEqualTo(1);
+    }
+
+    @Test
+    void staleCandidateIsSkippedAndTheCacheCorrected() {
+        lock(10L, SlotStatus.CHARGING); // booked on another replica
+        lock(11L, SlotStatus.AVAILABLE);
+
+        SlotAllocator.Claim claim = allocator.claim(List.of(10L, 11L), s -> true);
+
+        assertThat(claim.slot().getId()).isEqualTo(11L);
+        assertThat(allocator.getConflicts()).isEqualTo(1);
+        assertThat(cache.freeSlots(STATION, ConnectorType.CCS2))
+                .extracting(SlotAvailabilityCache.FreeSlot::slotId).containsExactly(11L);
+    }
+
+    @Test
+    void slotThatFailsTheCheckIsNotClaimed() {
+        lock(10L, SlotStatus.AVAILABLE);
+
+        SlotAllocator.Claim claim = allocator.claim(List.of(10L), s -> false);
+
+        assertThat(claim.slot()).isNull();
+        assertThat(claim.contended()).isFalse(); // stale list: fall back to the locking query
+    }
+
+    @Test
+    void claimIsHeldUntilTheBookingTransactionCompletes() {
+        lock(10L, SlotStatus.AVAILABLE);
+        TransactionSynchronizationManager.initSynchronization();
+
+        assertThat(allocator.claim(List.of(10L), s -> true).slot()).isNotNull();
+
+        // A second booking on this node skips the claimed slot and reports contention.
+        SlotAllocator.Claim second = allocator.claim(List.of(10L), s -> true);
+        assertThat(second.slot()).isNull();
+        assertThat(second.contended()).isTrue();
+
+        complete();
+        assertThat(allocator.claim(List.of(10L), s -> true).slot()).isNotNull();
+    }
+
+    private void lock(Long slotId, SlotStatus status) {
+        Station station = new Station();
+        station.setId(STATION);
+        when(chargerSlotRepository.findByIdForUpdate(slotId)).thenReturn(Optional.of(ChargerSlot.builder()
+                .id(slotId).station(station).connectorType(ConnectorType.CCS2).status(status).build()));
+    }
+
+    private static void complete() {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+    }
+}
@@ -0,0 +1,148 @@
+package com.ganesh.EV_Project.service;
+
+import com.ganesh.EV_Project.dto.SlotStateRow;
+import com.ganesh.EV_Project.dto.StationAvailability;
+import com.ganesh.EV_Project.enums.ConnectorType;
+import com.ganesh.EV_Project.enums.SlotStatus;
+import com.ganesh.EV_Project.model.ChargerSlot;
+import com.ganesh.EV_Project.model.Station;
+import com.ganesh.EV_Project.repository.ChargerSlotRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SlotAvailabilityCacheTest {
+
+    private static final Long STATION = 1L;
+
+    private final ChargerSlotRepository chargerSlotRepository = mock(ChargerSlotRepository.class);
+    private final SlotAvailabilityCache cache = new SlotAvailabilityCache(chargerSlotRepository);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(cache, "paymentPendingTtlMinutes", 30);
+    }
+
+    @Test
+    void countsPerConnectorIncludingSlotsWithoutOne() {
+        when(chargerSlotRepository.findAllSlotStates()).thenReturn(List.of(
+                row(10L, ConnectorType.CCS2, SlotStatus.AVAILABLE, null),
+                row(11L, ConnectorType.CCS2, SlotStatus.CHARGING, null),
+                row(12L, null, SlotStatus.AVAILABLE, null)));
+        assertThat(cache.isReady()).isFalse();
+        cache.reconcile();
+
+        assertThat(cache.isReady()).isTrue();
+        assertThat(cache.availability(STATION).connectors()).containsExactly(
+                new StationAvailability.ConnectorAvailability("CCS2", 2, 1),
+                new StationAvailability.ConnectorAvailability(StationAvailability.UNKNOWN_CONNECTOR, 1, 1));
+        assertThat(cache.freeSlots(STATION, ConnectorType.CCS2))
+                .extracting(SlotAvailabilityCache.FreeSlot::slotId).containsExactly(10L);
+    }
+
+    @Test
+    void earliestFreeAtFollowsBookingsAndSessionEtas() {
+        LocalDateTime now = LocalDateTime.now();
+        when(chargerSlotRepository.findAllSlotStates()).thenReturn(List.of(
+                row(10L, ConnectorType.CCS2, SlotStatus.AVAILABLE, null),
+                row(11L, ConnectorType.CCS2, SlotStatus.AVAILABLE, null)));
+        cache.reconcile();
+
+        cache.onSlotBooked(slot(10L, ConnectorType.CCS2, SlotStatus.BOOKED), now.plusMinutes(20));
+        cache.onSlotBooked(slot(11L, ConnectorType.CCS2, SlotStatus.BOOKED), now.plusMinutes(40));
+        assertThat(cache.earliestFreeAt(STATION, ConnectorType.CCS2)).isEqualTo(now.plusMinutes(20));
+
+        // A live session's prediction replaces the booking expiry; a free slot ignores ETAs.
+        cache.onSlotEta(STATION, 10L, now.plusMinutes(55));
+        assertThat(cache.earliestFreeAt(STATION, ConnectorType.CCS2)).isEqualTo(now.plusMinutes(40));
+        cache.onSlotChanged(slot(11L, ConnectorType.CCS2, SlotStatus.AVAILABLE));
+        cache.onSlotEta(STATION, 11L, now.plusMinutes(5));
+        assertThat(cache.earliestFreeAt(STATION, ConnectorType.CCS2)).isEqualTo(now.plusMinutes(55));
+    }
+
+    @Test
+    void paymentHoldIsReleasedByTheTtlAtTheLatest() {
+        when(chargerSlotRepository.findAllSlotStates()).thenReturn(List.of(
+                row(10L, ConnectorType.TYPE_2, SlotStatus.CHARGING, null)));
+        cache.reconcile();
+
+        LocalDateTime before = LocalDateTime.now();
+        cache.onSlotChanged(slot(10L, ConnectorType.TYPE_2, SlotStatus.PAYMENT_PENDING));
+        assertThat(cache.earliestFreeAt(STATION, ConnectorType.TYPE_2))
+                .isBetween(before.plusMinutes(30), LocalDateTime.now().plusMinutes(30));
+    }
+
+    @Test
+    void eventsArrivingDuringReconcileAreNotOverwritten() {
+        when(chargerSlotRepository.findAllSlotStates()).thenReturn(List.of(
+                row(10L, ConnectorType.CCS2, SlotStatus.AVAILABLE, null),
+                row(11L, ConnectorType.CCS2, SlotStatus.AVAILABLE, null)));
+        cache.reconcile();
+
+        // Slot 10 is booked after the query read it as free, before the swap.
+        LocalDateTime expiry = LocalDateTime.now().plusMinutes(15);
+        when(chargerSlotRepository.findAllSlotStates()).thenAnswer(inv -> {
+            cache.onSlotBooked(slot(10L, ConnectorType.CCS2, SlotStatus.BOOKED), expiry);
+            return List.of(
+                    row(10L, ConnectorType.CCS2, SlotStatus.AVAILABLE, null),
+                    row(11L, ConnectorType.CCS2, SlotStatus.AVAILABLE, null));
+        });
+        cache.reconcile();
+
+        assertThat(cache.freeSlots(STATION, ConnectorType.CCS2))
+                .extracting(SlotAvailabilityCache.FreeSlot::slotId).containsExactly(11L);
+        assertThat(cache.earliestFreeAt(STATION, ConnectorType.CCS2)).isEqualTo(expiry);
+        assertThat(cache.getReconcileCorrections()).isZero();
+    }
+
+    @Test
+    void reconcileStartedWhileOneIsRunningIsSkipped() {
+        int[] queries = {0};
+        when(chargerSlotRepository.findAllSlotStates()).thenAnswer(inv -> {
+            if (queries[0]++ == 0) cache.reconcile(); // a second trigger while the first is reading
+            return List.of(row(10L, ConnectorType.CCS2, SlotStatus.AVAILABLE, null));
+        });
+
+        cache.reconcile();
+
+        assertThat(queries[0]).isEqualTo(1);
+        assertThat(cache.freeSlots(STATION, ConnectorType.CCS2))
+                .extracting(SlotAvailabilityCache.FreeSlot::slotId).containsExactly(10L);
+        cache.reconcile(); // and the guard is released afterwards
+        assertThat(queries[0]).isEqualTo(2);
+    }
+
+    @Test
+    void reconcileRepairsAndCountsDrift() {
+        when(chargerSlotRepository.findAllSlotStates()).thenReturn(List.of(
+                row(10L, ConnectorType.CCS2, SlotStatus.AVAILABLE, null)));
+        cache.reconcile();
+
+        // Changed on another replica: no event reached this node.
+        LocalDateTime expiry = LocalDateTime.now().plusMinutes(10);
+        when(chargerSlotRepository.findAllSlotStates()).thenReturn(List.of(
+                row(10L, ConnectorType.CCS2, SlotStatus.BOOKED, expiry)));
+        cache.reconcile();
+
+        assertThat(cache.getReconcileCorrections()).isEqualTo(1);
+        assertThat(cache.freeSlots(STATION, ConnectorType.CCS2)).isEmpty();
+        assertThat(cache.earliestFreeAt(STATION, ConnectorType.CCS2)).isEqualTo(expiry);
+    }
+
+    private static SlotStateRow row(Long slotId, ConnectorType type, SlotStatus status, LocalDateTime freeAt) {
+        return new SlotStateRow(slotId, STATION, type, status, false, freeAt);
+    }
+
+    private static ChargerSlot slot(Long slotId, ConnectorType type, SlotStatus status) {
+        Station station = new Station();
+        station.setId(STATION);
+        return ChargerSlot.builder().id(slotId).station(station).connectorType(type).status(status).build();
+    }
+}
@@ -0,0 +1,133 @@
+package com.ganesh.EV_Project.service;
+
+import com.ganesh.EV_Project.dto.ReservationWindowRow;
+import com.ganesh.EV_Project.repository.BookingRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SlotReservationIndexTest {
+
+    private static final LocalDateTime T = LocalDateTime.now().plusDays(1).withNano(0);
+
+    private final BookingRepository bookingRepository = mock(BookingRepository.class);
+    private final SlotReservationIndex index = new SlotReservationIndex(bookingRepository);
+
+    @AfterEach
+    void endTransaction() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void windowsAreHalfOpen() {
+        assertThat(index.tryHold(1L, 100L, T, T.plusHours(1))).isTrue();
+
+        assertThat(index.isFree(1L, T.minusHours(1), T)).isTrue();             // ends where it starts
+        assertThat(index.isFree(1L, T.plusHours(1), T.plusHours(2))).isTrue(); // starts where it ends
+        assertThat(index.isFree(1L, T.minusMinutes(1), T.plusMinutes(1))).isFalse();
+        assertThat(index.isFree(1L, T.plusMinutes(59), T.plusHours(2))).isFalse();
+        assertThat(index.isFree(1L, T.plusMinutes(10), T.plusMinutes(20))).isFalse(); // inside
+        assertThat(index.isFree(1L, T.minusHours(1), T.plusHours(2))).isFalse();      // around
+        assertThat(index.isFree(2L, T, T.plusHours(1))).isTrue();                     // other slot
+    }
+
+    @Test
+    void checksTheNeighboursOnBothSides() {
+        index.tryHold(1L, 100L, T, T.plusHours(1));
+        index.tryHold(1L, 101L, T.plusHours(2), T.plusHours(3));
+
+        assertThat(index.isFree(1L, T.plusHours(1), T.plusHours(2))).isTrue(); // the gap
+        assertThat(index.tryHold(1L, 102L, T.plusMinutes(90), T.plusMinutes(150))).isFalse();
+        assertThat(index.tryHold(1L, 102L, T.plusHours(1), T.plusHours(2))).isTrue();
+    }
+
+    @Test
+    void holdIsGivenBackWhenTheBookingRollsBack() {
+        TransactionSynchronizationManager.initSynchronization();
+        assertThat(index.tryHold(1L, 100L, T, T.plusHours(1))).isTrue();
+        assertThat(index.tryHold(1L, 101L, T, T.plusHours(1))).isFalse();
+
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertThat(index.isFree(1L, T, T.plusHours(1))).isTrue();
+    }
+
+    @Test
+    void releaseWaitsForTheCommit() {
+        index.tryHold(1L, 100L, T, T.plusHours(1));
+        TransactionSynchronizationManager.initSynchronization();
+
+        index.releaseAfterCommit(1L, 100L);
+        assertThat(index.isFree(1L, T, T.plusHours(1))).isFalse();
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+        assertThat(index.isFree(1L, T, T.plusHours(1))).isTrue();
+    }
+
+    @Test
+    void reloadReplacesTheIndexWithTheDatabaseView() {
+        index.tryHold(1L, 100L, T, T.plusHours(1)); // ended or was cancelled elsewhere
+        when(bookingRepository.findReservationWindowsEndingAfter(any())).thenReturn(List.of(
+                new ReservationWindowRow(200L, 1L, T.plusHours(4), T.plusHours(5))));
+
+        index.reload();
+
+        assertThat(index.isFree(1L, T, T.plusHours(1))).isTrue();
+        assertThat(index.isFree(1L, T.plusHours(4), T.plusHours(5))).isFalse();
+    }
+
+    @Test
+    void reloadKeepsHoldsItsQueryCannotHaveSeen() {
+        when(bookingRepository.findReservationWindowsEndingAfter(any())).thenReturn(List.of());
+        TransactionSynchronizationManager.initSynchronization();
+        assertThat(index.tryHold(1L, 100L, T, T.plusHours(1))).isTrue(); // not committed yet
+
+        index.reload();
+        assertThat(index.tryHold(1L, 101L, T, T.plusHours(1))).isFalse();
+
+        // Committed while the next reload's query runs, too late for its result.
+        when(bookingRepository.findReservationWindowsEndingAfter(any())).thenAnswer(inv -> {
+            complete(TransactionSynchronization.STATUS_COMMITTED);
+            return List.of();
+        });
+        index.reload();
+        assertThat(index.isFree(1L, T, T.plusHours(1))).isFalse();
+
+        // A reload begun after the commit sees the database's view (here: cancelled elsewhere).
+        doReturn(List.of()).when(bookingRepository).findReservationWindowsEndingAfter(any());
+        index.reload();
+        assertThat(index.isFree(1L, T, T.plusHours(1))).isTrue();
+    }
+
+    @Test
+    void rolledBackHoldIsNotCarriedOver() {
+        when(bookingRepository.findReservationWindowsEndingAfter(any())).thenReturn(List.of());
+        TransactionSynchronizationManager.initSynchronization();
+        index.tryHold(1L, 100L, T, T.plusHours(1));
+
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+        index.reload();
+
+        assertThat(index.isFree(1L, T, T.plusHours(1))).isTrue();
+    }
+
+    private static void complete(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(s -> s.afterCompletion(status));
+    }
+}
@@ -0,0 +1,146 @@
+package com.ganesh.EV_Project.service;
+
+import com.ganesh.EV_Project.dto.StationMarkerDTO;
+import com.ganesh.EV_Project.dto.StationScoreDTO;
+import com.ganesh.EV_Project.dto.ViewportResponseDTO;
+import com.ganesh.EV_Project.enums.ConnectorType;
+import com.ganesh.EV_Project.enums.SlotStatus;
+import com.ganesh.EV_Project.enums.SlotType;
+import com.ganesh.EV_Project.model.ChargerSlot;
+import com.ganesh.EV_Project.model.Station;
+import com.ganesh.EV_Project.support.EmbeddedPostgresConfig;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.when;
+
+/**
+ * Guards the batched availability lookup (no N+1): however many stations a
+ * map, ranked or viewport-with-nearby request returns, slot data costs one grouped query and no
+ * ChargerSlot entity loads when the availability cache is not serving.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({EmbeddedPostgresConfig.class, StationRecommendationService.class})
+class StationRecommendationQueryCountTest {
+
+    private static final int STATIONS = 12;
+
+    @Autowired
+    private StationRecommendationService recommendationService;
+
+    @Autowired
+    private TestEntityManager em;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockBean
+    private StationSpatialIndex spatialIndex;
+
+    @MockBean
+    private SlotAvailabilityCache slotAvailabilityCache;
+
+    @MockBean
+    private LoadForecastService loadForecastService;
+
+    private final List<Long> stationIds = new ArrayList<>();
+
+    @BeforeEach
+    void seed() {
+        for (int i = 0; i < STATIONS; i++) {
+            Station station = em.persist(Station.builder()
+                    .name("Station " + i)
+                    .address("Street " + i)
+                    .latitude(18.50 + i * 0.001)
+                    .longitude(73.80 + i * 0.001)
+                    .build());
+            for (int j = 0; j < 3; j++) {
+                em.persist(ChargerSlot.builder()
+                        .station(station)
+                        .slotLabel(String.valueOf(j + 1))
+                        .slotType(SlotType.DC)
+                        .status(j == 0 ? SlotStatus.AVAILABLE : SlotStatus.CHARGING)
+                        .connectorType(j == 2 ? ConnectorType.TYPE_2 : ConnectorType.CCS2)
+                        .powerKw(60.0)
+                        .build());
+            }
+            stationIds.add(station.getId());
+        }
+        em.flush();
+        em.clear();
+
+        when(slotAvailabilityCache.isReady()).thenReturn(false);
+        List<StationSpatialIndex.Hit> hits = stationIds.stream()
+                .map(id -> new StationSpatialIndex.Hit(id, 1.0))
+                .toList();
+        when(spatialIndex.nearest(anyDouble(), anyDouble(), anyDouble(), anyInt())).thenReturn(hits);
+        statistics().clear();
+    }
+
+    @Test
+    void mapViewportUsesOneGroupedSlotQuery() {
+        List<StationMarkerDTO> markers = recommendationService.getStationsInViewport(18.0, 19.0, 73.0, 74.0);
+
+        assertThat(markers).hasSize(STATIONS).allMatch(StationMarkerDTO::isAvailable);
+        assertOneGroupedSlotQuery();
+    }
+
+    @Test
+    void rankedNearbyUsesOneGroupedSlotQuery() {
+        List<StationScoreDTO> ranked = recommendationService.getNearbyStationsRanked(18.5, 73.8, 10.0, STATIONS);
+
+        assertThat(ranked).hasSize(STATIONS);
+        assertThat(ranked).allSatisfy(dto -> {
+            assertThat(dto.getTotalSlots()).isEqualTo(3);
+            assertThat(dto.getAvailableSlots()).isEqualTo(1);
+        });
+        assertOneGroupedSlotQuery();
+    }
+
+    @Test
+    void viewportWithNearbyLoadsOnlyTheTopStationsAndOneGroupedSlotQuery() {
+        ViewportResponseDTO response = recommendationService.getViewportWithNearby(
+                18.0, 19.0, 73.0, 74.0, 18.5, 73.8, 5);
+
+        assertThat(response.getNearbyStations()).hasSize(5).allSatisfy(dto -> {
+            assertThat(dto.getTotalSlots()).isEqualTo(3);
+            assertThat(dto.getAvailableSlots()).isEqualTo(1);
+        });
+        assertThat(response.getOtherPins()).hasSize(STATIONS - 5);
+        assertOneGroupedSlotQuery();
+        assertThat(statistics().getEntityStatistics(Station.class.getName()).getLoadCount())
+                .as("Station entity loads").isEqualTo(5);
+    }
+
+    private void assertOneGroupedSlotQuery() {
+        Statistics stats = statistics();
+        long slotQueries = Arrays.stream(stats.getQueries())
+                .filter(q -> q.contains("ChargerSlot"))
+                .mapToLong(q -> stats.getQueryStatistics(q).getExecutionCount())
+                .sum();
+        assertThat(slotQueries).as("slot queries").isEqualTo(1);
+        assertThat(stats.getEntityStatistics(ChargerSlot.class.getName()).getLoadCount())
+                .as("ChargerSlot entity loads").isZero();
+    }
+
+    private Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+}
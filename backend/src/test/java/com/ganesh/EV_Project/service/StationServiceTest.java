@@ -0,0 +1,123 @@
+package com.ganesh.EV_Project.service;
+
+import com.ganesh.EV_Project.dto.ConnectorEtaDTO;
+import com.ganesh.EV_Project.dto.SlotStateRow;
+import com.ganesh.EV_Project.dto.StationAvailability;
+import com.ganesh.EV_Project.enums.ConnectorType;
+import com.ganesh.EV_Project.enums.SlotStatus;
+import com.ganesh.EV_Project.model.Station;
+import com.ganesh.EV_Project.repository.ChargerSlotRepository;
+import com.ganesh.EV_Project.repository.StationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class StationServiceTest {
+
+    private static final Long STATION = 1L;
+
+    private final StationRepository stationRepository = mock(StationRepository.class);
+    private final ChargerSlotRepository chargerSlotRepository = mock(ChargerSlotRepository.class);
+    private final SlotAvailabilityCache cache = new SlotAvailabilityCache(chargerSlotRepository);
+    private final StationService stationService = new StationService();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(cache, "paymentPendingTtlMinutes", 30);
+        ReflectionTestUtils.setField(stationService, "stationRepository", stationRepository);
+        ReflectionTestUtils.setField(stationService, "slotAvailabilityCache", cache);
+        Station station = new Station();
+        station.setId(STATION);
+        when(stationRepository.findById(STATION)).thenReturn(Optional.of(station));
+    }
+
+    @Test
+    void nextAvailableOnlyForConnectorsWithNothingFree() {
+        LocalDateTime soonest = LocalDateTime.now().plusMinutes(25).withNano(0);
+        when(chargerSlotRepository.findAllSlotStates()).thenReturn(List.of(
+                row(10L, ConnectorType.CCS2, SlotStatus.BOOKED, soonest.plusMinutes(20)),
+                row(11L, ConnectorType.CCS2, SlotStatus.CHARGING, soonest),
+                row(12L, ConnectorType.TYPE_2, SlotStatus.AVAILABLE, null),
+                row(13L, ConnectorType.TYPE_2, SlotStatus.BOOKED, soonest)));
+        cache.reconcile();
+
+        assertThat(stationService.getStationDetail(STATION).getConnectorAvailability()).containsExactly(
+                new ConnectorEtaDTO("CCS2", 2, 0, soonest),
+                new ConnectorEtaDTO("TYPE_2", 2, 1, null));
+    }
+
+    @Test
+    void fullyOccupiedSlotsWithoutAConnectorTypeHaveNoEta() {
+        when(chargerSlotRepository.findAllSlotStates()).thenReturn(List.of(
+                row(10L, null, SlotStatus.BOOKED, LocalDateTime.now().plusMinutes(10))));
+        cache.reconcile();
+
+        assertThat(stationService.getStationDetail(STATION).getConnectorAvailability()).containsExactly(
+                new ConnectorEtaDTO(StationAvailability.UNKNOWN_CONNECTOR, 1, 0, null));
+    }
+
+    @Test
+    void liveSessionEtaReplacesTheStartedBookingsExpiry() {
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        // The booking behind a started session has long expired: on its own that reads "try again shortly".
+        when(chargerSlotRepository.findAllSlotStates()).thenReturn(List.of(
+                row(10L, ConnectorType.CCS2, SlotStatus.CHARGING, now.minusMinutes(5))));
+        cache.reconcile();
+
+        cache.onSlotEta(STATION, 10L, now.plusMinutes(40));
+
+        assertThat(stationService.getStationDetail(STATION).getConnectorAvailability()).containsExactly(
+                new ConnectorEtaDTO("CCS2", 1, 0, now.plusMinutes(40)));
+    }
+
+    @Test
+    void chargingSlotSimulatedOnAnotherNodeFollowsItsPersistedEta() {
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        when(chargerSlotRepository.findAllSlotStates()).thenReturn(List.of(
+                row(10L, ConnectorType.CCS2, SlotStatus.CHARGING, now.plusMinutes(35))));
+        cache.reconcile();
+        assertThat(stationService.getStationDetail(STATION).getConnectorAvailability()).containsExactly(
+                new ConnectorEtaDTO("CCS2", 1, 0, now.plusMinutes(35)));
+
+        // The owner's next snapshot moved the prediction; the next reconcile picks it up.
+        when(chargerSlotRepository.findAllSlotStates()).thenReturn(List.of(
+                row(10L, ConnectorType.CCS2, SlotStatus.CHARGING, now.plusMinutes(50))));
+        cache.reconcile();
+        assertThat(stationService.getStationDetail(STATION).getConnectorAvailability()).containsExactly(
+                new ConnectorEtaDTO("CCS2", 1, 0, now.plusMinutes(50)));
+    }
+
+    @Test
+    void paymentHoldIsShownAsFreeByTheTtlAtTheLatest() {
+        when(chargerSlotRepository.findAllSlotStates()).thenReturn(List.of(
+                row(10L, ConnectorType.TYPE_2, SlotStatus.PAYMENT_PENDING, null)));
+        LocalDateTime before = LocalDateTime.now();
+        cache.reconcile();
+
+        ConnectorEtaDTO eta = stationService.getStationDetail(STATION).getConnectorAvailability().get(0);
+        assertThat(eta.available()).isZero();
+        assertThat(eta.nextAvailableAt()).isBetween(before.plusMinutes(30), LocalDateTime.now().plusMinutes(30));
+
+        // Still unpaid at the next reconcile: the release time does not move.
+        cache.reconcile();
+        assertThat(stationService.getStationDetail(STATION).getConnectorAvailability().get(0).nextAvailableAt())
+                .isEqualTo(eta.nextAvailableAt());
+    }
+
+    @Test
+    void noAvailabilityUntilTheCacheIsLoaded() {
+        assertThat(stationService.getStationDetail(STATION).getConnectorAvailability()).isNull();
+    }
+
+    private static SlotStateRow row(Long slotId, ConnectorType type, SlotStatus status, LocalDateTime freeAt) {
+        return new SlotStateRow(slotId, STATION, type, status, false, freeAt);
+    }
+}
@@ -0,0 +1,71 @@
+package com.ganesh.EV_Project.service;
+
+import com.ganesh.EV_Project.dto.StationPinDTO;
+import com.ganesh.EV_Project.repository.StationRepository;
+import com.ganesh.EV_Project.support.Bench;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Nearby-station lookup (50 km, top 5): the Haversine scan over every station
+ * getNearbyStationsRanked used to run, against the grid index. Stations are
+ * uniform over India's bounding box. The scan runs over pins already in
+ * memory, without the findAll() and entity loading the old path also paid.
+ */
+class StationSpatialIndexBenchmark {
+
+    private static final double RADIUS_KM = 50;
+    private static final int LIMIT = 5;
+    private static final int QUERIES = 1_000;
+
+    @Test
+    void nearbyLatency() {
+        for (int stations : new int[]{50_000, 500_000}) {
+            Random random = new Random(stations);
+            List<StationPinDTO> pins = new ArrayList<>(stations);
+            for (long id = 1; id <= stations; id++) {
+                pins.add(new StationPinDTO(id, 8 + random.nextDouble() * 27, 68 + random.nextDouble() * 29));
+            }
+            double[][] points = new double[QUERIES][];
+            for (int i = 0; i < QUERIES; i++) {
+                points[i] = new double[]{8 + random.nextDouble() * 27, 68 + random.nextDouble() * 29};
+            }
+
+            StationRepository stationRepository = mock(StationRepository.class);
+            when(stationRepository.findAllPins()).thenReturn(pins);
+            StationSpatialIndex index = new StationSpatialIndex(stationRepository);
+            Bench.run("index rebuild, " + stations + " stations", stations, 1, 3, index::rebuild);
+
+            // Same answers as the scan, or the timings mean nothing.
+            for (int i = 0; i < 200; i++) {
+                double[] p = points[i];
+                assertThat(index.nearest(p[0], p[1], RADIUS_KM, LIMIT))
+                        .extracting(StationSpatialIndex.Hit::distanceKm)
+                        .containsExactlyElementsOf(scan(pins, p[0], p[1]));
+            }
+
+            Bench.latency("full Haversine scan, " + stations + " stations", 200, 20,
+                    i -> scan(pins, points[i % QUERIES][0], points[i % QUERIES][1]));
+            Bench.latency("grid index, " + stations + " stations", QUERIES * 20, QUERIES,
+                    i -> index.nearest(points[i % QUERIES][0], points[i % QUERIES][1], RADIUS_KM, LIMIT));
+        }
+    }
+
+    private static List<Double> scan(List<StationPinDTO> pins, double lat, double lng) {
+        List<Double> within = new ArrayList<>();
+        for (StationPinDTO pin : pins) {
+            double d = StationSpatialIndex.haversineKm(lat, lng, pin.getLatitude(), pin.getLongitude());
+            if (d <= RADIUS_KM) within.add(d);
+        }
+        within.sort(Comparator.naturalOrder());
+        return within.subList(0, Math.min(LIMIT, within.size()));
+    }
+}
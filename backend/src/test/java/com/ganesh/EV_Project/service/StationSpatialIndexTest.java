@@ -0,0 +1,146 @@
+package com.ganesh.EV_Project.service;
+
+import com.ganesh.EV_Project.dto.StationPinDTO;
+import com.ganesh.EV_Project.model.Station;
+import com.ganesh.EV_Project.repository.StationRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class StationSpatialIndexTest {
+
+    private final StationRepository stationRepository = mock(StationRepository.class);
+    private final StationSpatialIndex index = new StationSpatialIndex(stationRepository);
+
+    @Test
+    void matchesBruteForceAroundCellEdgesEquatorAndAntimeridian() {
+        Random random = new Random(42);
+        List<StationPinDTO> pins = new ArrayList<>();
+        long id = 1;
+        // Clusters where the grid is easiest to get wrong: the equator/prime
+        // meridian crossing, both sides of the antimeridian, a high latitude
+        // (narrow cells), and an ordinary city.
+        double[][] centers = {{0, 0}, {0.3, 179.9}, {-0.3, -179.9}, {65.0, 25.0}, {12.97, 77.59}};
+        for (double[] c : centers) {
+            for (int i = 0; i < 400; i++) {
+                pins.add(pin(id++, c[0] + random.nextGaussian() * 0.4, wrap(c[1] + random.nextGaussian() * 0.4)));
+            }
+        }
+        // Stations exactly on cell boundaries.
+        for (int i = -20; i <= 20; i++) {
+            pins.add(pin(id++, i * StationSpatialIndex.CELL_DEGREES, 0.0));
+            pins.add(pin(id++, 0.0, wrap(180.0 + i * StationSpatialIndex.CELL_DEGREES)));
+        }
+        when(stationRepository.findAllPins()).thenReturn(pins);
+        index.rebuild();
+
+        int queries = 0;
+        for (double[] c : centers) {
+            for (int i = 0; i < 60; i++) {
+                double lat = c[0] + random.nextGaussian() * 0.5;
+                double lng = wrap(c[1] + random.nextGaussian() * 0.5);
+                // Query points on cell boundaries too.
+                if (i % 5 == 0) {
+                    lat = Math.round(lat / StationSpatialIndex.CELL_DEGREES) * StationSpatialIndex.CELL_DEGREES;
+                    lng = Math.round(lng / StationSpatialIndex.CELL_DEGREES) * StationSpatialIndex.CELL_DEGREES;
+                }
+                double radius = new double[]{0.5, 3, 5.56, 20, 60}[i % 5];
+                int limit = new int[]{1, 5, 20, 500}[i % 4];
+                assertThat(distances(index.nearest(lat, lng, radius, limit)))
+                        .as("nearest(%s, %s, %s km, %s)", lat, lng, radius, limit)
+                        .containsExactlyElementsOf(bruteForce(pins, lat, lng, radius, limit));
+                queries++;
+            }
+        }
+        assertThat(queries).isEqualTo(300);
+    }
+
+    @Test
+    void findsStationsAcrossTheAntimeridian() {
+        when(stationRepository.findAllPins()).thenReturn(List.of(pin(1L, 10.0, 179.99), pin(2L, 10.0, -179.98)));
+        index.rebuild();
+
+        List<StationSpatialIndex.Hit> east = index.nearest(10.0, -179.995, 5, 10);
+        assertThat(east).extracting(StationSpatialIndex.Hit::stationId).containsExactly(1L, 2L);
+        List<StationSpatialIndex.Hit> west = index.nearest(10.0, 179.995, 5, 10);
+        assertThat(west).extracting(StationSpatialIndex.Hit::stationId).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void changesMadeDuringARebuildSurviveTheSwap() {
+        when(stationRepository.findAllPins()).thenReturn(List.of(pin(1L, 12.0, 77.0), pin(2L, 12.0, 77.01)));
+        index.rebuild();
+
+        // The pin query returns the state from before these edits, which land while it runs.
+        when(stationRepository.findAllPins()).thenAnswer(inv -> {
+            index.upsert(station(1L, 13.0, 78.0));
+            index.remove(2L);
+            index.upsert(station(3L, 12.0, 77.02));
+            return List.of(pin(1L, 12.0, 77.0), pin(2L, 12.0, 77.01));
+        });
+        index.rebuild();
+
+        assertThat(index.size()).isEqualTo(2);
+        assertThat(index.nearest(12.0, 77.0, 10, 10)).extracting(StationSpatialIndex.Hit::stationId)
+                .containsExactly(3L);
+        assertThat(index.nearest(13.0, 78.0, 1, 10)).extracting(StationSpatialIndex.Hit::stationId)
+                .containsExactly(1L);
+
+        // The next rebuild sees the edits in the database and starts from a clean journal.
+        when(stationRepository.findAllPins()).thenReturn(List.of(pin(1L, 13.0, 78.0), pin(3L, 12.0, 77.02)));
+        index.rebuild();
+        assertThat(index.size()).isEqualTo(2);
+    }
+
+    @Test
+    void aRebuildStartedWhileOneIsRunningIsSkipped() {
+        int[] queries = {0};
+        when(stationRepository.findAllPins()).thenAnswer(inv -> {
+            if (queries[0]++ == 0) index.rebuild(); // a second trigger while the first is reading
+            return List.of(pin(1L, 12.0, 77.0));
+        });
+
+        index.rebuild();
+
+        assertThat(queries[0]).isEqualTo(1);
+        assertThat(index.size()).isEqualTo(1);
+        index.rebuild(); // and the guard is released afterwards
+        assertThat(queries[0]).isEqualTo(2);
+    }
+
+    private static List<Double> bruteForce(List<StationPinDTO> pins, double lat, double lng, double radius, int limit) {
+        return pins.stream()
+                .map(p -> StationSpatialIndex.haversineKm(lat, lng, p.getLatitude(), p.getLongitude()))
+                .filter(d -> d <= radius)
+                .sorted(Comparator.naturalOrder())
+                .limit(limit)
+                .toList();
+    }
+
+    private static List<Double> distances(List<StationSpatialIndex.Hit> hits) {
+        return hits.stream().map(StationSpatialIndex.Hit::distanceKm).toList();
+    }
+
+    private static double wrap(double lng) {
+        return lng >= 180 ? lng - 360 : lng < -180 ? lng + 360 : lng;
+    }
+
+    private static StationPinDTO pin(Long id, double lat, double lng) {
+        return new StationPinDTO(id, lat, lng);
+    }
+
+    private static Station station(Long id, double lat, double lng) {
+        Station station = new Station();
+        station.setId(id);
+        station.setLatitude(lat);
+        station.setLongitude(lng);
+        return station;
+    }
+}
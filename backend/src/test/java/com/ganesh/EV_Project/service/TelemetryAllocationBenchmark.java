@@ -0,0 +1,143 @@
+package com.ganesh.EV_Project.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ganesh.EV_Project.repository.BookingRepository;
+import com.ganesh.EV_Project.repository.ChargerSlotRepository;
+import com.ganesh.EV_Project.repository.ChargingSessionRepository;
+import com.ganesh.EV_Project.support.Bench;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.converter.ByteArrayMessageConverter;
+import org.springframework.messaging.converter.CompositeMessageConverter;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.converter.StringMessageConverter;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Method;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Allocation per session per physics tick: the per-session map frames sent
+ * through the converting template before typed frames, against the current
+ * driver frame and the whole current tick (physics, driver frames, per-station
+ * public and owner frames, snapshots). Every session is an unnegotiated
+ * subscriber, so it gets a full keyframe each tick.
+ */
+class TelemetryAllocationBenchmark {
+
+    private static final int SESSIONS_PER_STATION = 4;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SimpMessagingTemplate messagingTemplate = new SimpMessagingTemplate((message, timeout) -> true);
+
+    @Test
+    void sessionsPerTick() throws Exception {
+        MappingJackson2MessageConverter jackson = new MappingJackson2MessageConverter();
+        jackson.setObjectMapper(objectMapper);
+        messagingTemplate.setMessageConverter(new CompositeMessageConverter(
+                List.of(new StringMessageConverter(), new ByteArrayMessageConverter(), jackson)));
+
+        for (int sessions : new int[]{1_000, 10_000}) {
+            ChargingSimulatorService service = newService();
+            List<ChargingSimulatorService.SimulatedSession> live = new ArrayList<>();
+            for (long i = 0; i < sessions; i++) {
+                ChargingSimulatorService.SimulatedSession session = session(i, i / SESSIONS_PER_STATION);
+                ReflectionTestUtils.invokeMethod(service, "register", session);
+                live.add(session);
+            }
+            Method broadcast = ChargingSimulatorService.class
+                    .getDeclaredMethod("broadcastTelemetry", ChargingSimulatorService.SimulatedSession.class);
+            broadcast.setAccessible(true);
+
+            Bench.run("legacy map frames, " + sessions, sessions, 20, 50,
+                    () -> live.forEach(this::legacyBroadcast));
+            Bench.run("typed driver frame, " + sessions, sessions, 20, 50, () -> live.forEach(s -> {
+                try {
+                    broadcast.invoke(service, s);
+                } catch (ReflectiveOperationException e) {
+                    throw new IllegalStateException(e);
+                }
+            }));
+            Bench.run("full tick, " + sessions, sessions, 20, 50, service::runPhysicsTick);
+        }
+    }
+
+    // broadcastTelemetry as it was before the typed frames, verbatim apart from getters.
+    private void legacyBroadcast(ChargingSimulatorService.SimulatedSession session) {
+        Map<String, Object> userUpdate = new HashMap<>();
+        userUpdate.put("bookingId", session.getBookingId());
+        userUpdate.put("slotId", session.getSlotId());
+        userUpdate.put("stationId", session.getStationId());
+        userUpdate.put("powerKw", session.getPowerKw());
+        userUpdate.put("energyDispensedKwh", session.getEnergyDispensedKwh());
+        userUpdate.put("socPercentage", session.getSocPercentage());
+        userUpdate.put("totalCost", session.getTotalCost());
+        userUpdate.put("minutesRemaining", session.getMinutesRemaining());
+        userUpdate.put("maxPowerKw", session.getMaxPowerKw());
+        userUpdate.put("batteryCapacityKwh", session.getBatteryCapacityKwh());
+        userUpdate.put("pricePerKwh", session.getPricePerKwh());
+        userUpdate.put("completed", session.isCompletedReady());
+        messagingTemplate.convertAndSend("/topic/session/" + session.getBookingId(), userUpdate);
+
+        Map<String, Object> publicUpdate = new HashMap<>();
+        publicUpdate.put("bookingId", session.getBookingId());
+        publicUpdate.put("slotId", session.getSlotId());
+        publicUpdate.put("stationId", session.getStationId());
+        publicUpdate.put("powerKw", session.getPowerKw());
+        publicUpdate.put("energyDispensedKwh", session.getEnergyDispensedKwh());
+        publicUpdate.put("socPercentage", session.getSocPercentage());
+        publicUpdate.put("totalCost", session.getTotalCost());
+        publicUpdate.put("minutesRemaining", session.getMinutesRemaining());
+        publicUpdate.put("maxPowerKw", session.getMaxPowerKw());
+        publicUpdate.put("batteryCapacityKwh", session.getBatteryCapacityKwh());
+        publicUpdate.put("pricePerKwh", session.getPricePerKwh());
+        publicUpdate.put("completed", session.isCompletedReady());
+        messagingTemplate.convertAndSend("/topic/station/" + session.getStationId(), publicUpdate);
+
+        Map<String, Object> healthUpdate = Map.of(
+                "slotId", session.getSlotId(),
+                "temp", String.format("%.1f°C", session.getConnectorTempC()),
+                "voltage", Math.round(session.getVoltageV()),
+                "current", Math.round(session.getCurrentA()),
+                "power", session.getPowerKw(),
+                "energy", session.getEnergyDispensedKwh(),
+                "status", session.getConnectorTempC() > 85 ? "CRITICAL_HEAT" : "OPERATIONAL");
+        messagingTemplate.convertAndSend("/topic/owner/station/" + session.getStationId(), healthUpdate);
+    }
+
+    private ChargingSimulatorService newService() {
+        SessionSnapshotWriter snapshotWriter = new SessionSnapshotWriter(mock(JdbcTemplate.class));
+        ReflectionTestUtils.setField(snapshotWriter, "maxPending", Integer.MAX_VALUE);
+        ChargingSimulatorService service = new ChargingSimulatorService(messagingTemplate,
+                mock(BookingRepository.class), mock(ChargingSessionRepository.class),
+                new SlotAvailabilityCache(mock(ChargerSlotRepository.class)), mock(ChargingCompletionService.class),
+                mock(ThreadPoolTaskExecutor.class), snapshotWriter, objectMapper,
+                new TelemetrySubscriptionRegistry(), mock(SessionLeaseService.class));
+        ReflectionTestUtils.setField(service, "maxSessionMinutes", 240L);
+        ReflectionTestUtils.setField(service, "simulationSpeed", 1.0);
+        service.initShards(); // parallel-tick off: ticks inline on this thread
+        return service;
+    }
+
+    private static ChargingSimulatorService.SimulatedSession session(long bookingId, long stationId) {
+        return ChargingSimulatorService.SimulatedSession.builder()
+                .bookingId(bookingId)
+                .slotId(bookingId)
+                .stationId(stationId)
+                .socPercentage(20.0)
+                .connectorTempC(25.0)
+                .maxPowerKw(60.0)
+                .batteryCapacityKwh(75.0)
+                .pricePerKwh(15.0)
+                .startedAt(LocalDateTime.now())
+                .build();
+    }
+}
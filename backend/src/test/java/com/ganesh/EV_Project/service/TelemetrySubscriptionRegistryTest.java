@@ -0,0 +1,139 @@
+package com.ganesh.EV_Project.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TelemetrySubscriptionRegistryTest {
+
+    private final TelemetrySubscriptionRegistry registry = new TelemetrySubscriptionRegistry();
+
+    @Test
+    void clampsTheNegotiatedRateToThePhysicsTick() {
+        registry.onSubscribe("s1", "sub-0", 7L, 1000L);
+        assertThat(registry.get(7L).intervalMillis()).isEqualTo(TelemetrySubscriptionRegistry.MIN_INTERVAL_MILLIS);
+
+        registry.onSubscribe("s2", "sub-0", 8L, 600_000L);
+        assertThat(registry.get(8L).intervalMillis()).isEqualTo(TelemetrySubscriptionRegistry.MAX_INTERVAL_MILLIS);
+    }
+
+    @Test
+    void unsubscribeAndDisconnectDropTheRate() {
+        registry.onSubscribe("s1", "sub-0", 7L, 30_000L);
+        registry.onSubscribe("s1", "sub-1", 8L, 30_000L);
+        registry.onSubscribe("s2", "sub-0", 9L, 30_000L);
+
+        registry.onUnsubscribe("s1", "sub-0");
+        assertThat(registry.get(7L)).isNull();
+
+        registry.onDisconnect("s1");
+        assertThat(registry.get(8L)).isNull();
+        assertThat(registry.get(9L)).isNotNull();
+        assertThat(registry.size()).isEqualTo(1);
+
+        // Frames for an unknown session or subscription are harmless.
+        registry.onUnsubscribe("s1", "sub-1");
+        registry.onDisconnect("gone");
+        assertThat(registry.size()).isEqualTo(1);
+    }
+
+    @Test
+    void sharedTopicFollowsTheFastestRateAndFullFramesWinOverDeltas() {
+        registry.onSubscribe("phone", "sub-0", 7L, 30_000L);
+        registry.onSubscribe("tablet", "sub-0", 7L, 10_000L);
+        assertThat(registry.get(7L).intervalMillis()).isEqualTo(10_000L);
+
+        registry.onSubscribe("admin", "sub-3", 7L, null);
+        assertThat(registry.get(7L)).isNull();
+
+        registry.onDisconnect("admin");
+        registry.onUnsubscribe("tablet", "sub-0");
+        assertThat(registry.get(7L).intervalMillis()).isEqualTo(30_000L);
+    }
+
+    @Test
+    void reconnectDoesNotInheritTheOldRate() {
+        registry.onSubscribe("s1", "sub-0", 7L, 60_000L);
+        registry.onDisconnect("s1");
+        registry.onSubscribe("s2", "sub-0", 7L, 5_000L);
+
+        assertThat(registry.get(7L).intervalMillis()).isEqualTo(5_000L);
+    }
+
+    @Test
+    void everySubscribeMarksOneKeyframeDue() {
+        registry.onSubscribe("s1", "sub-0", 7L, 10_000L);
+        TelemetrySubscriptionRegistry.Subscription subscription = registry.get(7L);
+        assertThat(subscription.takeKeyframe()).isTrue();
+        assertThat(subscription.takeKeyframe()).isFalse();
+
+        registry.onSubscribe("s2", "sub-0", 7L, 10_000L);
+        assertThat(subscription.takeKeyframe()).isTrue();
+    }
+
+    @Test
+    void localChangesAreRelayedButRemoteOnesAreNot() {
+        List<String> relayed = new ArrayList<>();
+        List<Long> keyframes = new ArrayList<>();
+        registry.setKeyframeListener(keyframes::add);
+        List<Long> stationFrames = new ArrayList<>();
+        registry.setStationFrameListener(stationFrames::add);
+        registry.setRelayListener(new TelemetrySubscriptionRegistry.RelayListener() {
+            @Override
+            public void subscribed(String sessionId, String subscriptionId, Long bookingId, long intervalMillis) {
+                relayed.add("S " + sessionId + " " + subscriptionId + " " + bookingId + " " + intervalMillis);
+            }
+
+            @Override
+            public void unsubscribed(String sessionId, String subscriptionId) {
+                relayed.add("U " + sessionId + " " + subscriptionId);
+            }
+
+            @Override
+            public void disconnected(String sessionId) {
+                relayed.add("D " + sessionId);
+            }
+
+            @Override
+            public void keyframeRequested(Long bookingId) {
+                relayed.add("K " + bookingId);
+            }
+
+            @Override
+            public void stationFrameRequested(Long stationId) {
+                relayed.add("F " + stationId);
+            }
+        });
+
+        registry.onSubscribe("s1", "sub-0", 7L, 10_000L);
+        registry.requestKeyframe(7L);
+        registry.requestStationFrame(3L);
+        registry.onUnsubscribe("s1", "sub-0");
+        registry.onDisconnect("s1");
+        registry.applyRemoteSubscribe("node-b:s9", "sub-0", 8L, 20_000L);
+        registry.applyKeyframeRequest(8L);
+        registry.applyStationFrameRequest(4L);
+        registry.applyRemoteDisconnect("node-b:s9");
+
+        assertThat(relayed).containsExactly("S s1 sub-0 7 10000", "K 7", "F 3", "U s1 sub-0", "D s1");
+        assertThat(keyframes).containsExactly(7L, 8L);
+        assertThat(stationFrames).containsExactly(3L, 4L);
+        assertThat(registry.size()).isZero();
+    }
+
+    @Test
+    void finishedBookingIsForgottenWithItsSubscriptions() {
+        registry.onSubscribe("s1", "sub-0", 7L, 10_000L);
+        registry.onSubscribe("s1", "sub-1", 8L, 10_000L);
+
+        registry.remove(7L);
+        assertThat(registry.get(7L)).isNull();
+        assertThat(registry.get(8L)).isNotNull();
+
+        registry.onDisconnect("s1");
+        assertThat(registry.size()).isZero();
+    }
+}
@@ -0,0 +1,95 @@
+package com.ganesh.EV_Project.support;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.function.IntConsumer;
+
+/**
+ * Wall time and heap allocation of a piece of work, for the {@code *Benchmark}
+ * classes. Those are outside surefire's default includes, so they only run
+ * when named, e.g. {@code mvn test -Dtest=TelemetryAllocationBenchmark}.
+ *
+ * Allocation is counted on the calling thread only, so measured work must not
+ * hand off to a pool. Results are printed as one line each and recorded in
+ * docs/BENCHMARKS.md.
+ */
+public final class Bench {
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private Bench() {
+    }
+
+    /**
+     * Runs {@code body} {@code warmup} times, then {@code runs} times measured.
+     * {@code ops} is how many units (sessions, rows, requests) one run covers.
+     */
+    public static Result run(String name, int ops, int warmup, int runs, Runnable body) {
+        for (int i = 0; i < warmup; i++) {
+            body.run();
+        }
+        long[] nanos = new long[runs];
+        long allocatedBefore = THREADS.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < runs; i++) {
+            long started = System.nanoTime();
+            body.run();
+            nanos[i] = System.nanoTime() - started;
+        }
+        long allocated = THREADS.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        Arrays.sort(nanos);
+        Result result = new Result(name, ops, nanos[runs / 2] / 1e6, (double) allocated / runs);
+        System.out.println(result);
+        return result;
+    }
+
+    /**
+     * Times each of {@code ops} calls of {@code op} (given its index) on its
+     * own, after {@code warmup} untimed calls, for latency percentiles.
+     */
+    public static Latency latency(String name, int ops, int warmup, IntConsumer op) {
+        for (int i = 0; i < warmup; i++) {
+            op.accept(i);
+        }
+        long[] nanos = new long[ops];
+        for (int i = 0; i < ops; i++) {
+            long started = System.nanoTime();
+            op.accept(i);
+            nanos[i] = System.nanoTime() - started;
+        }
+        Arrays.sort(nanos);
+        Latency latency = new Latency(name, ops, nanos[ops / 2] / 1e3, nanos[(int) (ops * 0.99)] / 1e3,
+                nanos[ops - 1] / 1e3);
+        System.out.println(latency);
+        return latency;
+    }
+
+    /** Median milliseconds and mean bytes allocated per run. */
+    public record Result(String name, int ops, double medianMillis, double bytesPerRun) {
+
+        public double microsPerOp() {
+            return medianMillis * 1000.0 / ops;
+        }
+
+        public double bytesPerOp() {
+            return bytesPerRun / ops;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%-44s %7d ops  %10.2f ms  %9.2f us/op  %9.0f B/op",
+                    name, ops, medianMillis, microsPerOp(), bytesPerOp());
+        }
+    }
+
+    /** Per-call latency percentiles, in microseconds. */
+    public record Latency(String name, int ops, double p50Micros, double p99Micros, double maxMicros) {
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%-44s %7d ops  p50 %9.2f us  p99 %9.2f us  max %9.2f us",
+                    name, ops, p50Micros, p99Micros, maxMicros);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.ganesh.EV_Project.support;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A real PostgreSQL for tests that exercise native SQL, started once per JVM
+ * from the embedded-postgres binaries (no Docker needed). Each application
+ * context gets its own fresh database, so cached contexts never share tables.
+ *
+ * Use with {@code @AutoConfigureTestDatabase(replace = NONE)} on slice tests.
+ */
+@TestConfiguration(proxyBeanMethods = false)
+public class EmbeddedPostgresConfig {
+
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+    private static EmbeddedPostgres postgres;
+
+    @Bean
+    public DataSource dataSource() {
+        return newDatabase();
+    }
+
+    /** A DataSource on a new, empty database. */
+    public static DataSource newDatabase() {
+        String name = "test_" + DATABASES.incrementAndGet();
+        try (Connection c = server().getPostgresDatabase().getConnection();
+             Statement st = c.createStatement()) {
+            st.execute("CREATE DATABASE " + name);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not create test database " + name, e);
+        }
+        return server().getDatabase("postgres", name);
+    }
+
+    /**
+     * A new database behind a Hikari pool, as the application connects, for
+     * benchmarks: the plain DataSource opens a connection per statement.
+     */
+    public static DataSource newPooledDatabase() {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setDataSource(newDatabase());
+        pool.setMaximumPoolSize(4);
+        return pool;
+    }
+
+    private static synchronized EmbeddedPostgres server() {
+        if (postgres == null) {
+            try {
+                postgres = EmbeddedPostgres.start();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            EmbeddedPostgres started = postgres;
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    started.close();
+                } catch (IOException ignored) {
+                    // the JVM is exiting anyway
+                }
+            }));
+        }
+        return postgres;
+    }
+}